@@ -306,7 +306,9 @@ public class PathPainterTopovMessageHandler extends UiMessageHandler {
         paths.forEach(path -> {
             DisjointPath dp = (DisjointPath) path;
             pathBuilder.addAll(dp.primary().links());
-            pathBuilder.addAll(dp.backup().links());
+            if (dp.backup() != null) {
+                pathBuilder.addAll(dp.backup().links());
+            }
         });
         return pathBuilder;
     }
@@ -323,7 +325,9 @@ public class PathPainterTopovMessageHandler extends UiMessageHandler {
             DisjointPath dp = (DisjointPath) paths.get(pathIndex);
             selectedPathLinks = paths.isEmpty() ?
                     ImmutableSet.of() : Sets.newHashSet(dp.primary().links());
-            selectedPathLinks.addAll(dp.backup().links());
+            if (dp.backup() != null) {
+                selectedPathLinks.addAll(dp.backup().links());
+            }
         } else {
             selectedPathLinks = paths.isEmpty() ?
                     ImmutableSet.of() : ImmutableSet.copyOf(paths.get(pathIndex).links());
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two sets of JMH results produced with {@code -rf json} and
+ * reports the relative change of every benchmark present in both.
+ * <p>
+ * Usage: {@code BaselineDiff baseline.json current.json [thresholdPercent]}.
+ * Exits with status 1 if any benchmark regressed by more than the threshold,
+ * which defaults to 10 percent.
+ * </p>
+ */
+public final class BaselineDiff {
+
+    private static final double DEFAULT_THRESHOLD = 10.0;
+    private static final String FORMAT = "%-80s %14s %14s %9s %s%n";
+
+    // Not meant to be instantiated
+    private BaselineDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineDiff baseline.json current.json [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        Map<String, Result> baseline = load(new File(args[0]));
+        Map<String, Result> current = load(new File(args[1]));
+
+        boolean regressed = false;
+        System.out.printf(FORMAT, "benchmark", "baseline", "current", "delta", "");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf(FORMAT, entry.getKey(), "-", after, "-", "NEW");
+                continue;
+            }
+            double delta = 100.0 * (after.score - before.score) / before.score;
+            // For throughput modes higher is better; for time modes lower is
+            double worse = after.higherIsBetter() ? -delta : delta;
+            boolean regression = worse > threshold;
+            regressed |= regression;
+            System.out.printf(FORMAT, entry.getKey(), before, after,
+                              String.format("%+.1f%%", delta),
+                              regression ? "REGRESSION" : "");
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+
+    // Loads JMH JSON results keyed by benchmark name and parameters.
+    private static Map<String, Result> load(File file) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        JsonNode root = new ObjectMapper().readTree(file);
+        for (JsonNode node : root) {
+            StringBuilder key = new StringBuilder(node.path("benchmark").asText());
+            JsonNode params = node.path("params");
+            Iterator<Map.Entry<String, JsonNode>> it = params.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> param = it.next();
+                key.append(':').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode metric = node.path("primaryMetric");
+            results.put(key.toString(),
+                        new Result(node.path("mode").asText(),
+                                   metric.path("score").asDouble(),
+                                   metric.path("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    // Primary metric of a single benchmark run.
+    private static final class Result {
+        private final String mode;
+        private final double score;
+        private final String unit;
+
+        private Result(String mode, double score, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+        }
+
+        private boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f %s", score, unit);
+        }
+    }
+}
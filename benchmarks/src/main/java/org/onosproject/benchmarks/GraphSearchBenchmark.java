@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.onlab.graph.DijkstraGraphSearch;
+import org.onlab.graph.GraphPathSearch;
+import org.onosproject.common.DefaultTopologyGraph;
+import org.onosproject.net.topology.DefaultTopologyEdge;
+import org.onosproject.net.topology.DefaultTopologyVertex;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+import static org.onosproject.net.NetTestTools.did;
+import static org.onosproject.net.NetTestTools.link;
+
+/**
+ * Benchmarks of Dijkstra shortest path search over the default topology
+ * graph of a square grid fabric.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GraphSearchBenchmark {
+
+    private static final DijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA =
+            new DijkstraGraphSearch<>();
+
+    // Number of devices along each side of the grid
+    @Param({"5", "10", "22"})
+    private int gridSize;
+
+    private TopologyGraph graph;
+    private TopologyVertex src;
+    private TopologyVertex dst;
+
+    @Setup
+    public void setUp() {
+        graph = gridGraph(gridSize);
+        src = new DefaultTopologyVertex(did(id(0, 0)));
+        dst = new DefaultTopologyVertex(did(id(gridSize - 1, gridSize - 1)));
+    }
+
+    @Benchmark
+    public GraphPathSearch.Result<TopologyVertex, TopologyEdge> cornerToCorner() {
+        return DIJKSTRA.search(graph, src, dst, null, ALL_PATHS);
+    }
+
+    @Benchmark
+    public GraphPathSearch.Result<TopologyVertex, TopologyEdge> singleSourceAll() {
+        return DIJKSTRA.search(graph, src, null, null, ALL_PATHS);
+    }
+
+    @Benchmark
+    public TopologyGraph buildGraph() {
+        return gridGraph(gridSize);
+    }
+
+    /**
+     * Builds a topology graph of a square grid with bidirectional links
+     * between adjacent devices.
+     *
+     * @param size number of devices along each side of the grid
+     * @return topology graph
+     */
+    static TopologyGraph gridGraph(int size) {
+        Set<TopologyVertex> vertexes = new HashSet<>();
+        Set<TopologyEdge> edges = new HashSet<>();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                vertexes.add(new DefaultTopologyVertex(did(id(r, c))));
+                if (c + 1 < size) {
+                    addLinks(edges, id(r, c), id(r, c + 1));
+                }
+                if (r + 1 < size) {
+                    addLinks(edges, id(r, c), id(r + 1, c));
+                }
+            }
+        }
+        return new DefaultTopologyGraph(vertexes, edges);
+    }
+
+    private static void addLinks(Set<TopologyEdge> edges, String a, String b) {
+        TopologyVertex va = new DefaultTopologyVertex(did(a));
+        TopologyVertex vb = new DefaultTopologyVertex(did(b));
+        edges.add(new DefaultTopologyEdge(va, vb, link(a, 1, b, 2)));
+        edges.add(new DefaultTopologyEdge(vb, va, link(b, 2, a, 1)));
+    }
+
+    // Device id without the "of:" scheme, as taken by the net test tools
+    private static String id(int row, int column) {
+        return String.format("%08x%08x", row, column);
+    }
+}
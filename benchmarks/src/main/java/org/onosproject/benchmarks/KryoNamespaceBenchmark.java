@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.benchmarks;
+
+import org.onlab.util.KryoNamespace;
+import org.onosproject.net.Link;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.onosproject.net.NetTestTools.link;
+
+/**
+ * Benchmarks of Kryo namespace serialization and deserialization of lists
+ * of network links, as exchanged by the distributed stores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class KryoNamespaceBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int objectCount;
+
+    private final KryoNamespace serializer = KryoNamespace.newBuilder()
+            .register(KryoNamespaces.API)
+            .build();
+
+    private List<Link> links;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        links = new ArrayList<>(objectCount);
+        for (int i = 0; i < objectCount; i++) {
+            links.add(link("of:" + i, i, "of:" + (i + 1), i + 1));
+        }
+        bytes = serializer.serialize(links);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(links);
+    }
+
+    @Benchmark
+    public List<Link> deserialize() {
+        return serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.device.impl;
+
+import org.onlab.packet.ChassisId;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.device.DefaultDeviceDescription;
+import org.onosproject.net.device.DefaultPortDescription;
+import org.onosproject.net.device.DeviceClockService;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.PortDescription;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.Timestamp;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationServiceAdapter;
+import org.onosproject.store.impl.MastershipBasedTimestamp;
+import org.onosproject.store.service.TestStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.onosproject.net.Device.Type.SWITCH;
+import static org.onosproject.net.DeviceId.deviceId;
+
+/**
+ * Stress benchmark of the gossip device store update path, with a number of
+ * threads each applying port status changes to the devices it owns. With a
+ * single device all threads contend for it; with more devices than threads
+ * the updates of different devices proceed in parallel. Use {@code -t} to
+ * vary the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(4)
+@Fork(1)
+public class GossipDeviceStoreBenchmark {
+
+    private static final ProviderId PID = new ProviderId("of", "benchmark");
+
+    private static final int PORTS = 48;
+
+    // Number of devices the port status changes are spread over
+    @Param({"1", "16", "256"})
+    private int deviceCount;
+
+    private GossipDeviceStore store;
+    private DeviceId[] deviceIds;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new GossipDeviceStore();
+        store.clusterService = new ClusterServiceAdapter();
+        store.mastershipService = new LocalMastershipService(store.clusterService.getLocalNode().id());
+        store.clusterCommunicator = new ClusterCommunicationServiceAdapter();
+        store.deviceClockService = new LocalDeviceClockService();
+        store.storageService = new TestStorageService();
+        store.activate();
+
+        deviceIds = new DeviceId[deviceCount];
+        List<PortDescription> ports = new ArrayList<>(PORTS);
+        for (int p = 1; p <= PORTS; p++) {
+            ports.add(new DefaultPortDescription(PortNumber.portNumber(p), true));
+        }
+        for (int i = 0; i < deviceCount; i++) {
+            deviceIds[i] = deviceId("of:" + Integer.toHexString(i + 1));
+            store.createOrUpdateDevice(PID, deviceIds[i],
+                                       new DefaultDeviceDescription(deviceIds[i].uri(), SWITCH,
+                                                                    "mfr", "hw", "sw", "sn",
+                                                                    new ChassisId(i + 1)));
+            store.updatePorts(PID, deviceIds[i], ports);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.deactivate();
+    }
+
+    /**
+     * Per-thread cursor over the devices owned by the thread; thread t of T
+     * owns the devices t, t + T, t + 2T and so on, modulo the device count.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int first;
+        private int step;
+        private int owned;
+        private long updates;
+
+        @Setup(Level.Trial)
+        public void setUp(GossipDeviceStoreBenchmark benchmark, BenchmarkParams params) {
+            first = benchmark.threads.getAndIncrement();
+            step = params.getThreads();
+            owned = benchmark.deviceCount / gcd(benchmark.deviceCount, step);
+        }
+
+        private static int gcd(int a, int b) {
+            return b == 0 ? a : gcd(b, a % b);
+        }
+    }
+
+    @Benchmark
+    public DeviceEvent updatePortStatus(Cursor cursor) {
+        long seq = cursor.updates++;
+        long sweep = seq / PORTS;
+        DeviceId deviceId = deviceIds[(int) ((cursor.first + sweep * cursor.step) % deviceCount)];
+        PortNumber port = PortNumber.portNumber(1 + seq % PORTS);
+        // flip the port state on every pass over the owned devices, so that
+        // updates are changes unless threads share a device
+        boolean enabled = (sweep / cursor.owned) % 2 == 1;
+        return store.updatePortStatus(PID, deviceId, new DefaultPortDescription(port, enabled));
+    }
+
+    // Mastership service that makes the local node master of every device.
+    private static final class LocalMastershipService extends MastershipServiceAdapter {
+        private final NodeId local;
+
+        private LocalMastershipService(NodeId local) {
+            this.local = local;
+        }
+
+        @Override
+        public NodeId getMasterFor(DeviceId deviceId) {
+            return local;
+        }
+    }
+
+    // Device clock with an independent sequence per device, as issued by the
+    // master of each device.
+    private static final class LocalDeviceClockService implements DeviceClockService {
+        private final ConcurrentMap<DeviceId, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean isTimestampAvailable(DeviceId deviceId) {
+            return true;
+        }
+
+        @Override
+        public Timestamp getTimestamp(DeviceId deviceId) {
+            return new MastershipBasedTimestamp(1, sequences.computeIfAbsent(deviceId, d -> new AtomicLong())
+                    .incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.onosproject.cfg.ComponentConfigAdapter;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.core.CoreServiceAdapter;
+import org.onosproject.core.IdGenerator;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.device.DeviceServiceAdapter;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleBatchEntry;
+import org.onosproject.net.flow.FlowRuleBatchOperation;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationServiceAdapter;
+import org.onosproject.store.flow.ReplicaInfo;
+import org.onosproject.store.flow.ReplicaInfoEventListener;
+import org.onosproject.store.flow.ReplicaInfoService;
+import org.onosproject.store.persistence.PersistenceServiceAdapter;
+import org.onosproject.store.service.TestStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.net.NetTestTools.APP_ID;
+
+/**
+ * Benchmarks of the distributed flow rule store batch and read paths on a
+ * node that is master of the device.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FlowRuleStoreBenchmark {
+
+    private static final DeviceId DID = deviceId("of:0000000000000001");
+
+    // Number of flow rules per batch and in the device flow table
+    @Param({"100", "1000", "10000"})
+    private int flowCount;
+
+    private NewDistributedFlowRuleStore store;
+    private FlowRuleBatchOperation addBatch;
+    private final AtomicLong ids = new AtomicLong();
+    // Number of batches of distinct rules generated so far
+    private long generations;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = new NewDistributedFlowRuleStore();
+        store.clusterService = new ClusterServiceAdapter();
+        NodeId local = store.clusterService.getLocalNode().id();
+        store.mastershipService = new LocalMastershipService(local);
+        store.replicaInfoManager = new LocalReplicaInfoService(local);
+        store.clusterCommunicator = new ClusterCommunicationServiceAdapter();
+        store.deviceService = new DeviceServiceAdapter();
+        store.coreService = new TestCoreService();
+        store.configService = new ComponentConfigAdapter();
+        store.persistenceService = new PersistenceServiceAdapter();
+        store.storageService = new TestStorageService();
+        store.activate(null);
+
+        addBatch = newBatch();
+        store.storeBatch(addBatch);
+    }
+
+    /**
+     * Batch of rules the store has never seen, against an empty device flow
+     * table; both are prepared outside of the measurement.
+     */
+    @State(Scope.Thread)
+    public static class FreshBatch {
+        private FlowRuleBatchOperation batch;
+
+        @Setup(Level.Invocation)
+        public void setUp(FlowRuleStoreBenchmark benchmark) {
+            benchmark.store.purgeFlowRule(DID);
+            batch = benchmark.newBatch();
+        }
+    }
+
+    // Builds a batch adding flowCount rules distinct from all earlier ones.
+    private FlowRuleBatchOperation newBatch() {
+        long first = generations++ * flowCount;
+        List<FlowRuleBatchEntry> entries = new ArrayList<>(flowCount);
+        for (int i = 0; i < flowCount; i++) {
+            entries.add(new FlowRuleBatchEntry(FlowRuleBatchEntry.FlowRuleOperation.ADD,
+                                               flowRule(first + i)));
+        }
+        return new FlowRuleBatchOperation(entries, DID, ids.incrementAndGet());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        store.deactivate(null);
+    }
+
+    /**
+     * Stores a batch of new rules, each inserted into the flow table.
+     *
+     * @param fresh batch of rules not yet in the store
+     * @return this benchmark
+     */
+    @Benchmark
+    public FlowRuleStoreBenchmark storeBatch(FreshBatch fresh) {
+        store.storeBatch(fresh.batch);
+        return this;
+    }
+
+    /**
+     * Stores again a batch whose rules are all in the flow table already,
+     * which replaces each stored entry with a new one.
+     *
+     * @return this benchmark
+     */
+    @Benchmark
+    public FlowRuleStoreBenchmark updateBatch() {
+        store.storeBatch(addBatch);
+        return this;
+    }
+
+    @Benchmark
+    public Iterable<FlowEntry> getFlowEntries() {
+        return store.getFlowEntries(DID);
+    }
+
+    @Benchmark
+    public FlowEntry getFlowEntry() {
+        return store.getFlowEntry(addBatch.getOperations().get(flowCount / 2).target());
+    }
+
+    private static FlowRule flowRule(long index) {
+        return DefaultFlowRule.builder()
+                .forDevice(DID)
+                .withSelector(DefaultTrafficSelector.builder()
+                                      .matchInPort(PortNumber.portNumber(index))
+                                      .build())
+                .withTreatment(DefaultTrafficTreatment.builder()
+                                       .setOutput(PortNumber.portNumber(index + 1))
+                                       .build())
+                .withPriority(100)
+                .fromApp(APP_ID)
+                .makePermanent()
+                .build();
+    }
+
+    // Mastership service that makes the local node master of every device.
+    private static final class LocalMastershipService extends MastershipServiceAdapter {
+        private final NodeId local;
+
+        private LocalMastershipService(NodeId local) {
+            this.local = local;
+        }
+
+        @Override
+        public NodeId getMasterFor(DeviceId deviceId) {
+            return local;
+        }
+
+        @Override
+        public boolean isLocalMaster(DeviceId deviceId) {
+            return true;
+        }
+
+        @Override
+        public Set<DeviceId> getDevicesOf(NodeId nodeId) {
+            return ImmutableSet.of(DID);
+        }
+    }
+
+    // Replica info service that reports the local node as sole replica.
+    private static final class LocalReplicaInfoService implements ReplicaInfoService {
+        private final NodeId local;
+
+        private LocalReplicaInfoService(NodeId local) {
+            this.local = local;
+        }
+
+        @Override
+        public ReplicaInfo getReplicaInfoFor(DeviceId deviceId) {
+            return new ReplicaInfo(local, ImmutableList.of());
+        }
+
+        @Override
+        public void addListener(ReplicaInfoEventListener listener) {
+        }
+
+        @Override
+        public void removeListener(ReplicaInfoEventListener listener) {
+        }
+    }
+
+    // Core service that hands out locally generated identifiers.
+    private final class TestCoreService extends CoreServiceAdapter {
+        @Override
+        public IdGenerator getIdGenerator(String topic) {
+            return ids::incrementAndGet;
+        }
+    }
+}
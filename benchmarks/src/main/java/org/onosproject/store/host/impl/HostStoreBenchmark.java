@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.host.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.host.DefaultHostDescription;
+import org.onosproject.net.host.HostDescription;
+import org.onosproject.net.host.HostStore;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.service.TestStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.onosproject.net.DeviceId.deviceId;
+
+/**
+ * Benchmarks of host discovery ingest and lookups on the consistent and
+ * the eventually consistent host stores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HostStoreBenchmark {
+
+    private static final ProviderId PID = new ProviderId("of", "benchmark");
+
+    private static final int PORTS = 48;
+
+    // Host store implementation under test
+    @Param({"consistent", "eventual"})
+    private String store;
+
+    // Number of hosts known to the store
+    @Param({"1000", "10000"})
+    private int hostCount;
+
+    private HostStore hostStore;
+    private Runnable deactivate;
+    private HostId[] hostIds;
+    private DeviceId[] deviceIds;
+    private long discoveries;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        if ("eventual".equals(store)) {
+            ECHostStore ecStore = new ECHostStore();
+            ecStore.storageService = new TestStorageService();
+            ecStore.activate();
+            hostStore = ecStore;
+            deactivate = ecStore::deactivate;
+        } else {
+            DistributedHostStore consistentStore = new DistributedHostStore();
+            consistentStore.storageService = new TestStorageService();
+            consistentStore.activate();
+            hostStore = consistentStore;
+            deactivate = consistentStore::deactivate;
+        }
+
+        deviceIds = new DeviceId[(hostCount + PORTS - 1) / PORTS];
+        for (int i = 0; i < deviceIds.length; i++) {
+            deviceIds[i] = deviceId("of:" + Integer.toHexString(i + 1));
+        }
+        hostIds = new HostId[hostCount];
+        for (int i = 0; i < hostCount; i++) {
+            hostIds[i] = HostId.hostId(MacAddress.valueOf(0x0a0000000000L + i), VlanId.NONE);
+            hostStore.createOrUpdateHost(PID, hostIds[i], description(i, 0), false);
+        }
+        discoveries = hostCount;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        deactivate.run();
+    }
+
+    /**
+     * Ingests a stream of discoveries in which every host keeps moving to
+     * another edge port, as during a VM migration storm.
+     *
+     * @return the benchmark state
+     */
+    @Benchmark
+    public HostStoreBenchmark ingestMoves() {
+        long seq = discoveries++;
+        int index = (int) (seq % hostCount);
+        hostStore.createOrUpdateHost(PID, hostIds[index], description(index, seq / hostCount), false);
+        return this;
+    }
+
+    @Benchmark
+    public Set<Host> getHostsByMac() {
+        return hostStore.getHosts(hostIds[(int) (discoveries++ % hostCount)].mac());
+    }
+
+    @Benchmark
+    public Set<Host> getConnectedHosts() {
+        return hostStore.getConnectedHosts(deviceIds[(int) (discoveries++ % deviceIds.length)]);
+    }
+
+    // Description of a host seen on a port that changes with every move.
+    private HostDescription description(int index, long move) {
+        HostId hostId = hostIds[index];
+        HostLocation location = new HostLocation(deviceIds[index / PORTS],
+                                                 PortNumber.portNumber(1 + (index + move) % PORTS),
+                                                 System.currentTimeMillis());
+        Set<IpAddress> ips = ImmutableSet.of(IpAddress.valueOf(0x0a000000 + index));
+        return new DefaultHostDescription(hostId.mac(), hostId.vlanId(), location, ips);
+    }
+}
@@ -35,4 +35,27 @@ public interface EventDeliveryService extends EventDispatcher, EventSinkRegistry
      */
     long getDispatchTimeLimit();
 
+    /**
+     * Sets the number of threads across which event dispatching is sharded.
+     * Events pertaining to the same subject are always dispatched in order
+     * by the same thread; events without a recognized subject, such as
+     * topology events, all share one thread.
+     * <p>
+     * With more than one thread, an event sink, and thus the listeners it
+     * notifies, may be invoked concurrently for events of different subjects;
+     * they must therefore be thread-safe. The change takes effect in the
+     * background, once the events already queued have been dispatched.
+     * </p>
+     *
+     * @param threads number of dispatch threads
+     */
+    void setDispatchThreads(int threads);
+
+    /**
+     * Returns the number of threads across which event dispatching is sharded.
+     *
+     * @return number of dispatch threads
+     */
+    int getDispatchThreads();
+
 }
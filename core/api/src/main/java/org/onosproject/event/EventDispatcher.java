@@ -15,6 +15,8 @@
  */
 package org.onosproject.event;
 
+import java.util.Collection;
+
 /**
  * Abstraction of a mechanism capable of accepting and dispatching events to
  * appropriate event sinks. Where the event sinks are obtained is unspecified.
@@ -30,4 +32,15 @@ public interface EventDispatcher {
      */
     void post(Event event);
 
+    /**
+     * Posts the specified events for dispatching, in the order given.
+     *
+     * @param events events to be posted
+     */
+    default void post(Collection<? extends Event> events) {
+        for (Event event : events) {
+            post(event);
+        }
+    }
+
 }
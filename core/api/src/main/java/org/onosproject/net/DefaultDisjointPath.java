@@ -45,6 +45,19 @@ public class DefaultDisjointPath extends DefaultPath implements DisjointPath {
         this.path2 = path2;
     }
 
+    /**
+     * Creates a disjoint path pair from a single default path, for when
+     * there is no backup path.
+     *
+     * @param providerId provider identity
+     * @param path1      primary path
+     */
+    public DefaultDisjointPath(ProviderId providerId, DefaultPath path1) {
+        super(providerId, path1.links(), path1.cost());
+        this.path1 = path1;
+        this.path2 = null;
+    }
+
     @Override
     public List<Link> links() {
         if (usingPath1) {
@@ -74,7 +87,7 @@ public class DefaultDisjointPath extends DefaultPath implements DisjointPath {
 
     @Override
     public int hashCode() {
-        return Objects.hash(of(path1, path2), src(), dst());
+        return Objects.hash(path2 == null ? of(path1) : of(path1, path2), src(), dst());
     }
 
     @Override
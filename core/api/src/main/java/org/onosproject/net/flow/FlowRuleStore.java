@@ -15,11 +15,15 @@
  */
 package org.onosproject.net.flow;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.onosproject.core.ApplicationId;
 import org.onosproject.net.DeviceId;
 import org.onosproject.store.Store;
 
+import com.google.common.collect.Iterables;
+
 /**
  * Manages inventory of flow rules; not intended for direct use.
  */
@@ -48,6 +52,28 @@ public interface FlowRuleStore extends Store<FlowRuleBatchEvent, FlowRuleStoreDe
      */
     Iterable<FlowEntry> getFlowEntries(DeviceId deviceId);
 
+    /**
+     * Returns the flow entries of the given application on a device.
+     *
+     * @param deviceId the device ID
+     * @param appId the application ID
+     * @return the flow entries of the application
+     */
+    default Iterable<FlowEntry> getFlowEntriesByApp(DeviceId deviceId, ApplicationId appId) {
+        return Iterables.filter(getFlowEntries(deviceId), entry -> entry.appId() == appId.id());
+    }
+
+    /**
+     * Returns the flow entries of the given table on a device.
+     *
+     * @param deviceId the device ID
+     * @param tableId the table ID
+     * @return the flow entries of the table
+     */
+    default Iterable<FlowEntry> getFlowEntriesByTable(DeviceId deviceId, int tableId) {
+        return Iterables.filter(getFlowEntries(deviceId), entry -> entry.tableId() == tableId);
+    }
+
     /**
      * // TODO: Better description of method behavior.
      * Stores a new flow rule without generating events.
@@ -67,6 +93,18 @@ public interface FlowRuleStore extends Store<FlowRuleBatchEvent, FlowRuleStoreDe
      */
     void storeBatch(FlowRuleBatchOperation batchOperation);
 
+    /**
+     * Stores several batches of flow rules at once. Each batch completes
+     * independently, as if it was stored via {@link #storeBatch}, but
+     * implementations may forward the batches bound for the same node
+     * together.
+     *
+     * @param batchOperations batches of flow rules, one device per batch
+     */
+    default void storeBatches(Collection<FlowRuleBatchOperation> batchOperations) {
+        batchOperations.forEach(this::storeBatch);
+    }
+
     /**
      * Invoked on the completion of a storeBatch operation.
      *
@@ -20,6 +20,9 @@ import com.google.common.annotations.Beta;
 import org.onosproject.event.ListenerService;
 
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 /**
  * Service for application submitting or withdrawing their intents.
@@ -85,6 +88,39 @@ public interface IntentService
      */
     long getIntentCount();
 
+    /**
+     * Returns a page of the intent data objects accepted by the given filter.
+     * Intents are visited in the internal order of the store, which is stable
+     * for as long as the set of intents does not change; only the intents of
+     * the requested page are materialized.
+     *
+     * @param filter intent data filter
+     * @param offset number of accepted intents to skip
+     * @param limit  maximum number of intents to return
+     * @return copies of the intent data objects of the requested page
+     */
+    default List<IntentData> getIntentData(Predicate<? super IntentData> filter,
+                                           int offset, int limit) {
+        return StreamSupport.stream(getIntentData().spliterator(), false)
+                .filter(filter)
+                .skip(offset)
+                .limit(limit)
+                .map(IntentData::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the number of intents accepted by the given filter.
+     *
+     * @param filter intent data filter
+     * @return number of matching intents
+     */
+    default long getIntentCount(Predicate<? super IntentData> filter) {
+        return StreamSupport.stream(getIntentData().spliterator(), false)
+                .filter(filter)
+                .count();
+    }
+
     /**
      * Retrieves the state of an intent by its identifier.
      *
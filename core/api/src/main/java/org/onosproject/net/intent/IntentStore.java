@@ -19,6 +19,9 @@ import com.google.common.annotations.Beta;
 import org.onosproject.store.Store;
 
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 /**
  * Manages inventory of end-station intents; not intended for direct use.
@@ -51,6 +54,38 @@ public interface IntentStore extends Store<IntentEvent, IntentStoreDelegate> {
      */
     Iterable<IntentData> getIntentData(boolean localOnly, long olderThan);
 
+    /**
+     * Returns a page of the intent data objects accepted by the given filter,
+     * without copying the intent data objects outside of the page.
+     *
+     * @param filter intent data filter
+     * @param offset number of accepted intents to skip
+     * @param limit  maximum number of intents to return
+     * @return copies of the intent data objects of the requested page
+     */
+    default List<IntentData> getIntentData(Predicate<? super IntentData> filter,
+                                           int offset, int limit) {
+        return StreamSupport.stream(getIntentData(false, 0).spliterator(), false)
+                .filter(filter)
+                .skip(offset)
+                .limit(limit)
+                .map(IntentData::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the number of intents accepted by the given filter, without
+     * copying any intent data objects.
+     *
+     * @param filter intent data filter
+     * @return number of matching intents
+     */
+    default long getIntentCount(Predicate<? super IntentData> filter) {
+        return StreamSupport.stream(getIntentData(false, 0).spliterator(), false)
+                .filter(filter)
+                .count();
+    }
+
     /**
      * Returns the state of the specified intent.
      *
@@ -17,6 +17,7 @@ package org.onosproject.net.packet;
 
 import org.onosproject.net.ConnectPoint;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.PacketView;
 
 import java.nio.ByteBuffer;
 import java.util.Objects;
@@ -31,6 +32,8 @@ public final class DefaultInboundPacket implements InboundPacket {
     private final ConnectPoint receivedFrom;
     private final Ethernet parsed;
     private final ByteBuffer unparsed;
+    private final PacketView view;
+    private final boolean lazy;
 
     /**
      * Creates an immutable inbound packet.
@@ -44,6 +47,24 @@ public final class DefaultInboundPacket implements InboundPacket {
         this.receivedFrom = receivedFrom;
         this.parsed = parsed;
         this.unparsed = unparsed;
+        this.view = parsed != null ? PacketView.of(parsed) :
+                PacketView.wrap(unparsed != null ? unparsed : ByteBuffer.allocate(0));
+        this.lazy = false;
+    }
+
+    /**
+     * Creates an immutable inbound packet which is parsed on demand from the
+     * raw bytes; the parsed frame is then shared by all users of the packet.
+     *
+     * @param receivedFrom connection point where received
+     * @param unparsed     unparsed raw bytes
+     */
+    public DefaultInboundPacket(ConnectPoint receivedFrom, ByteBuffer unparsed) {
+        this.receivedFrom = receivedFrom;
+        this.parsed = null;
+        this.unparsed = unparsed;
+        this.view = PacketView.wrap(unparsed);
+        this.lazy = true;
     }
 
     @Override
@@ -53,7 +74,7 @@ public final class DefaultInboundPacket implements InboundPacket {
 
     @Override
     public Ethernet parsed() {
-        return parsed;
+        return lazy ? view.ethernet() : parsed;
     }
 
     @Override
@@ -62,9 +83,14 @@ public final class DefaultInboundPacket implements InboundPacket {
         return unparsed;
     }
 
+    @Override
+    public PacketView view() {
+        return view;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(receivedFrom, parsed, unparsed);
+        return Objects.hash(receivedFrom, parsed(), unparsed);
     }
 
     @Override
@@ -75,7 +101,7 @@ public final class DefaultInboundPacket implements InboundPacket {
         if (obj instanceof InboundPacket) {
             final DefaultInboundPacket other = (DefaultInboundPacket) obj;
             return Objects.equals(this.receivedFrom, other.receivedFrom) &&
-                    Objects.equals(this.parsed, other.parsed) &&
+                    Objects.equals(this.parsed(), other.parsed()) &&
                     Objects.equals(this.unparsed, other.unparsed);
         }
         return false;
@@ -85,7 +111,7 @@ public final class DefaultInboundPacket implements InboundPacket {
     public String toString() {
         return toStringHelper(this)
                 .add("receivedFrom", receivedFrom)
-                .add("parsed", parsed)
+                .add("parsed", parsed())
                 .toString();
     }
 }
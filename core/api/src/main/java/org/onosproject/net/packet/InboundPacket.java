@@ -17,6 +17,7 @@ package org.onosproject.net.packet;
 
 import org.onosproject.net.ConnectPoint;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.PacketView;
 
 import java.nio.ByteBuffer;
 
@@ -47,4 +48,20 @@ public interface InboundPacket {
      */
     ByteBuffer unparsed();
 
+    /**
+     * Returns a view of the packet that decodes header fields on demand;
+     * prefer this over {@link #parsed()} when only a few header fields are
+     * needed.
+     *
+     * @return packet view
+     */
+    default PacketView view() {
+        Ethernet eth = parsed();
+        if (eth != null) {
+            return PacketView.of(eth);
+        }
+        ByteBuffer data = unparsed();
+        return PacketView.wrap(data != null ? data : ByteBuffer.allocate(0));
+    }
+
 }
@@ -22,6 +22,7 @@ import org.onosproject.net.flow.TrafficSelector;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service for intercepting data plane packets and for emitting synthetic
@@ -43,7 +44,26 @@ public interface PacketService {
      */
     void addProcessor(PacketProcessor processor, int priority);
 
-    // TODO allow processors to register for particular types of packets
+    /**
+     * Adds the specified processor to the list of packet processors,
+     * declaring the packets the processor is interested in. The processor
+     * will only be given packets matching at least one of the selectors;
+     * the Ethernet type, IP protocol and TCP/UDP destination port criteria
+     * are considered, any others are ignored. An empty set of selectors
+     * denotes interest in all packets.
+     * <p>
+     * The default implementation disregards the interests and hands all
+     * packets to the processor.
+     * </p>
+     *
+     * @param processor processor to be added
+     * @param priority  priority in the reverse natural order
+     * @param interests selectors of the packets of interest
+     */
+    default void addProcessor(PacketProcessor processor, int priority,
+                              Set<TrafficSelector> interests) {
+        addProcessor(processor, priority);
+    }
 
     /**
      * Removes the specified processor from the processing pipeline.
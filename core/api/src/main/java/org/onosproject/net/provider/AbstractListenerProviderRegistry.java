@@ -24,6 +24,8 @@ import org.onosproject.event.EventListener;
 import org.onosproject.event.ListenerRegistry;
 import org.onosproject.event.ListenerService;
 
+import java.util.Collection;
+
 /**
  * Basis for components which need to export listener mechanism.
  */
@@ -63,4 +65,17 @@ public abstract class AbstractListenerProviderRegistry<E extends Event, L extend
         }
     }
 
+    /**
+     * Safely posts the specified events to the local event dispatcher as a
+     * single batch. If there is no event dispatcher or if there are no
+     * events, this method is a noop.
+     *
+     * @param events events to be posted
+     */
+    protected void post(Collection<E> events) {
+        if (!events.isEmpty() && eventDispatcher != null) {
+            eventDispatcher.post(events);
+        }
+    }
+
 }
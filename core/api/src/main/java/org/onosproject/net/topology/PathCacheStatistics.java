@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.topology;
+
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Snapshot of the effectiveness of the shortest path cache backing a
+ * topology. Shortest path trees are kept per source device and, where still
+ * valid, carried forward from the previous topology; trees traversing
+ * changed links are dropped and recomputed on demand or during warm-up.
+ */
+public final class PathCacheStatistics {
+
+    /**
+     * Statistics of a topology which is not backed by a path cache.
+     */
+    public static final PathCacheStatistics EMPTY =
+            new PathCacheStatistics(0, 0, 0, 0, 0, 0);
+
+    private final long hits;
+    private final long misses;
+    private final int carriedTrees;
+    private final int invalidatedTrees;
+    private final long computedTrees;
+    private final long computeNanos;
+
+    /**
+     * Creates a new path cache statistics snapshot.
+     *
+     * @param hits             path requests served from a cached tree
+     * @param misses           path requests which required computing a tree
+     * @param carriedTrees     trees carried forward from the previous topology
+     * @param invalidatedTrees trees dropped because they traverse changed links
+     * @param computedTrees    trees computed for this topology
+     * @param computeNanos     total time spent computing and repairing trees
+     */
+    public PathCacheStatistics(long hits, long misses, int carriedTrees,
+                               int invalidatedTrees, long computedTrees,
+                               long computeNanos) {
+        this.hits = hits;
+        this.misses = misses;
+        this.carriedTrees = carriedTrees;
+        this.invalidatedTrees = invalidatedTrees;
+        this.computedTrees = computedTrees;
+        this.computeNanos = computeNanos;
+    }
+
+    /**
+     * Returns the number of path requests served from a cached tree.
+     *
+     * @return cache hits
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of path requests which required computing a tree.
+     *
+     * @return cache misses
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the ratio of path requests served from a cached tree.
+     *
+     * @return hit rate between 0 and 1; 0 if there were no requests
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the number of trees carried forward from the previous topology.
+     *
+     * @return carried tree count
+     */
+    public int carriedTrees() {
+        return carriedTrees;
+    }
+
+    /**
+     * Returns the number of trees of the previous topology which were dropped
+     * because they traverse links which changed.
+     *
+     * @return invalidated tree count
+     */
+    public int invalidatedTrees() {
+        return invalidatedTrees;
+    }
+
+    /**
+     * Returns the number of trees computed for this topology, either on
+     * demand or during warm-up.
+     *
+     * @return computed tree count
+     */
+    public long computedTrees() {
+        return computedTrees;
+    }
+
+    /**
+     * Returns the total time spent validating carried trees and computing
+     * new ones, i.e. the repair cost of this topology.
+     *
+     * @return repair cost in nanoseconds
+     */
+    public long computeNanos() {
+        return computeNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hits, misses, carriedTrees, invalidatedTrees,
+                            computedTrees, computeNanos);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof PathCacheStatistics) {
+            final PathCacheStatistics other = (PathCacheStatistics) obj;
+            return this.hits == other.hits &&
+                    this.misses == other.misses &&
+                    this.carriedTrees == other.carriedTrees &&
+                    this.invalidatedTrees == other.invalidatedTrees &&
+                    this.computedTrees == other.computedTrees &&
+                    this.computeNanos == other.computeNanos;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("hits", hits)
+                .add("misses", misses)
+                .add("carriedTrees", carriedTrees)
+                .add("invalidatedTrees", invalidatedTrees)
+                .add("computedTrees", computedTrees)
+                .add("computeNanos", computeNanos)
+                .toString();
+    }
+}
@@ -185,4 +185,15 @@ public interface TopologyService
      */
     boolean isBroadcastPoint(Topology topology, ConnectPoint connectPoint);
 
+    /**
+     * Returns the statistics of the shortest path cache backing the
+     * specified topology, such as its hit rate and repair cost.
+     *
+     * @param topology topology descriptor
+     * @return path cache statistics
+     */
+    default PathCacheStatistics getPathCacheStatistics(Topology topology) {
+        return PathCacheStatistics.EMPTY;
+    }
+
 }
@@ -185,6 +185,17 @@ public interface TopologyStore extends Store<TopologyEvent, TopologyStoreDelegat
      */
     boolean isBroadcastPoint(Topology topology, ConnectPoint connectPoint);
 
+    /**
+     * Returns the statistics of the shortest path cache backing the
+     * specified topology.
+     *
+     * @param topology topology descriptor
+     * @return path cache statistics
+     */
+    default PathCacheStatistics getPathCacheStatistics(Topology topology) {
+        return PathCacheStatistics.EMPTY;
+    }
+
     /**
      * Generates a new topology snapshot from the specified description.
      *
@@ -23,6 +23,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.onosproject.cluster.NodeId;
+import org.onosproject.store.service.Serializer;
 
 /**
  * Service for assisting communications between controller cluster nodes.
@@ -111,6 +112,63 @@ public interface ClusterCommunicationService {
                                                Function<byte[], R> decoder,
                                                NodeId toNodeId);
 
+    /**
+     * Sends a message to the specified controller node, serializing it with
+     * the given serializer.
+     * <p>
+     * Implementations may let the serializer write the message straight into
+     * the outbound network buffer instead of going through a byte array.
+     *
+     * @param message message to send
+     * @param subject message subject
+     * @param serializer serializer for the message
+     * @param toNodeId destination node identifier
+     * @param <M> message type
+     * @return future that is completed when the message is sent
+     */
+    default <M> CompletableFuture<Void> unicast(M message,
+                                                MessageSubject subject,
+                                                Serializer serializer,
+                                                NodeId toNodeId) {
+        return unicast(message, subject, serializer::encode, toNodeId);
+    }
+
+    /**
+     * Multicasts a message to a set of controller nodes, serializing it with
+     * the given serializer.
+     *
+     * @param message message to send
+     * @param subject message subject
+     * @param serializer serializer for the message
+     * @param nodeIds  recipient node identifiers
+     * @param <M> message type
+     */
+    default <M> void multicast(M message,
+                               MessageSubject subject,
+                               Serializer serializer,
+                               Set<NodeId> nodeIds) {
+        multicast(message, subject, serializer::encode, nodeIds);
+    }
+
+    /**
+     * Sends a message and expects a reply, serializing both with the given
+     * serializer.
+     *
+     * @param message message to send
+     * @param subject message subject
+     * @param serializer serializer for the request and the reply
+     * @param toNodeId recipient node identifier
+     * @param <M> request type
+     * @param <R> reply type
+     * @return reply future
+     */
+    default <M, R> CompletableFuture<R> sendAndReceive(M message,
+                                                       MessageSubject subject,
+                                                       Serializer serializer,
+                                                       NodeId toNodeId) {
+        return sendAndReceive(message, subject, serializer::encode, serializer::decode, toNodeId);
+    }
+
     /**
      * Adds a new subscriber for the specified message subject.
      *
@@ -157,6 +215,44 @@ public interface ClusterCommunicationService {
                            Consumer<M> handler,
                            Executor executor);
 
+    /**
+     * Adds a new subscriber for the specified message subject, using the given
+     * serializer for both the incoming message and the reply.
+     * <p>
+     * Implementations may let the serializer read the message straight from
+     * the inbound network buffer instead of going through a byte array.
+     *
+     * @param subject message subject
+     * @param serializer serializer for the message and the reply
+     * @param handler handler function that processes the incoming message and produces a reply
+     * @param executor executor to run this handler on
+     * @param <M> incoming message type
+     * @param <R> reply message type
+     */
+    default <M, R> void addSubscriber(MessageSubject subject,
+                                      Serializer serializer,
+                                      Function<M, R> handler,
+                                      Executor executor) {
+        addSubscriber(subject, serializer::decode, handler, serializer::encode, executor);
+    }
+
+    /**
+     * Adds a new subscriber for the specified message subject, using the given
+     * serializer for the incoming message.
+     *
+     * @param subject message subject
+     * @param serializer serializer for the message
+     * @param handler handler for handling message
+     * @param executor executor to run this handler on
+     * @param <M> incoming message type
+     */
+    default <M> void addSubscriber(MessageSubject subject,
+                                   Serializer serializer,
+                                   Consumer<M> handler,
+                                   Executor executor) {
+        addSubscriber(subject, serializer::<M>decode, handler, executor);
+    }
+
     /**
      * Removes a subscriber for the specified message subject.
      *
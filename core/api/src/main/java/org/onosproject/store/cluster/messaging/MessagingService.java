@@ -15,10 +15,15 @@
  */
 package org.onosproject.store.cluster.messaging;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 /**
  * Interface for low level messaging primitives.
@@ -35,6 +40,23 @@ public interface MessagingService {
      */
     CompletableFuture<Void> sendAsync(Endpoint ep, String type, byte[] payload);
 
+    /**
+     * Sends a message asynchronously to the specified communication end point.
+     * The payload is produced by the given writer, which implementations may
+     * invoke directly against their outbound buffer to avoid copying the
+     * payload; the writer may therefore run on another thread, after this
+     * call returns.
+     * @param ep end point to send the message to.
+     * @param type type of message.
+     * @param payloadWriter writer of the message payload.
+     * @return future that is completed when the message is sent
+     */
+    default CompletableFuture<Void> sendAsync(Endpoint ep, String type, Consumer<OutputStream> payloadWriter) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payloadWriter.accept(payload);
+        return sendAsync(ep, type, payload.toByteArray());
+    }
+
     /**
      * Sends a message asynchronously and expects a response.
      * @param ep end point to send the message to.
@@ -44,6 +66,22 @@ public interface MessagingService {
      */
     CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload);
 
+    /**
+     * Sends a message asynchronously and expects a response. The payload is
+     * produced by the given writer, as in
+     * {@link #sendAsync(Endpoint, String, Consumer)}.
+     * @param ep end point to send the message to.
+     * @param type type of message.
+     * @param payloadWriter writer of the message payload.
+     * @return a response future
+     */
+    default CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type,
+                                                     Consumer<OutputStream> payloadWriter) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payloadWriter.accept(payload);
+        return sendAndReceive(ep, type, payload.toByteArray());
+    }
+
     /**
      * Sends a message synchronously and expects a response.
      * @param ep end point to send the message to.
@@ -77,6 +115,33 @@ public interface MessagingService {
      */
     void registerHandler(String type, BiFunction<Endpoint, byte[], CompletableFuture<byte[]>> handler);
 
+    /**
+     * Registers a new message handler for message type, which reads the
+     * payload from a stream. Implementations may back the stream directly by
+     * their inbound buffer to avoid copying the payload; the stream is
+     * therefore only valid until the handler returns.
+     * @param type message type.
+     * @param handler message handler
+     * @param executor executor to use for running message handler logic.
+     */
+    default void registerStreamHandler(String type, BiConsumer<Endpoint, InputStream> handler, Executor executor) {
+        registerHandler(type,
+                        (Endpoint ep, byte[] payload) -> handler.accept(ep, new ByteArrayInputStream(payload)),
+                        executor);
+    }
+
+    /**
+     * Registers a new message handler for message type, which reads the
+     * payload from a stream, as in
+     * {@link #registerStreamHandler(String, BiConsumer, Executor)}.
+     * @param type message type.
+     * @param handler message handler
+     */
+    default void registerStreamHandler(String type,
+                                       BiFunction<Endpoint, InputStream, CompletableFuture<byte[]>> handler) {
+        registerHandler(type, (Endpoint ep, byte[] payload) -> handler.apply(ep, new ByteArrayInputStream(payload)));
+    }
+
     /**
      * Unregister current handler, if one exists for message type.
      * @param type message type
@@ -166,6 +166,21 @@ public interface EventuallyConsistentMapBuilder<K, V> {
      */
     EventuallyConsistentMapBuilder<K, V> withFasterConvergence();
 
+    /**
+     * Configures anti-entropy to exchange digests of buckets of the map
+     * instead of a digest of every entry. Replicas first compare a hash per
+     * bucket and only exchange per-entry digests for the buckets that differ,
+     * which keeps anti-entropy traffic small for large maps that are mostly
+     * in sync.
+     * <p>
+     * The default behavior is to advertise a digest of every entry.
+     * </p>
+     *
+     * @param buckets number of buckets to spread the map entries over
+     * @return this EventuallyConsistentMapBuilder
+     */
+    EventuallyConsistentMapBuilder<K, V> withBucketedAntiEntropy(int buckets);
+
     /**
      * Configure the map to persist data to disk.
      * <p>
@@ -31,6 +31,16 @@ public class EventDeliveryServiceAdapter implements EventDeliveryService {
         return 0;
     }
 
+    @Override
+    public void setDispatchThreads(int threads) {
+
+    }
+
+    @Override
+    public int getDispatchThreads() {
+        return 0;
+    }
+
     @Override
     public void post(Event event) {
 
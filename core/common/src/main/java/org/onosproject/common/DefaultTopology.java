@@ -22,13 +22,13 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.ImmutableSetMultimap.Builder;
+import org.onlab.graph.CompactGraph;
+import org.onlab.graph.CompactGraphSearch;
+import org.onlab.graph.CompactPathTree;
 import org.onlab.graph.DijkstraGraphSearch;
 import org.onlab.graph.DisjointPathPair;
 import org.onlab.graph.GraphPathSearch;
-import org.onlab.graph.GraphPathSearch.Result;
 import org.onlab.graph.SrlgGraphSearch;
-import org.onlab.graph.SuurballeGraphSearch;
-import org.onlab.graph.TarjanGraphSearch;
 import org.onlab.graph.TarjanGraphSearch.SccResult;
 import org.onosproject.net.AbstractModel;
 import org.onosproject.net.ConnectPoint;
@@ -45,6 +45,7 @@ import org.onosproject.net.topology.DefaultTopologyVertex;
 import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.HopCountLinkWeight;
 import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.PathCacheStatistics;
 import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyCluster;
 import org.onosproject.net.topology.TopologyEdge;
@@ -57,6 +58,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -76,8 +79,6 @@ public class DefaultTopology extends AbstractModel implements Topology {
     private static final Logger log = LoggerFactory.getLogger(DefaultTopology.class);
 
     private static final DijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA = new DijkstraGraphSearch<>();
-    private static final TarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN = new TarjanGraphSearch<>();
-    private static final SuurballeGraphSearch<TopologyVertex, TopologyEdge> SUURBALLE = new SuurballeGraphSearch<>();
 
     private static LinkWeight defaultLinkWeight = null;
     private static GraphPathSearch<TopologyVertex, TopologyEdge> defaultGraphPathSearch = null;
@@ -86,6 +87,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
     private final long creationTime;
     private final long computeCost;
     private final TopologyGraph graph;
+    private final Supplier<CompactGraph<TopologyVertex, TopologyEdge>> compactGraph;
 
     private final LinkWeight hopCountWeight;
 
@@ -96,6 +98,10 @@ public class DefaultTopology extends AbstractModel implements Topology {
     private final Function<ConnectPoint, Boolean> broadcastFunction;
     private final Supplier<ClusterIndexes> clusterIndexes;
 
+    // Shortest path trees for the default link weight; created on first use
+    // unless carried forward from the previous topology.
+    private volatile ShortestPathCache pathCache;
+
     /**
      * Sets the default link-weight to be used when computing paths. If null is
      * specified, the builtin default link-weight measuring hop-counts will be
@@ -129,6 +135,22 @@ public class DefaultTopology extends AbstractModel implements Topology {
      */
     public DefaultTopology(ProviderId providerId, GraphDescription description,
                            Function<ConnectPoint, Boolean> broadcastFunction) {
+        this(providerId, description, broadcastFunction, null);
+    }
+
+    /**
+     * Creates a topology descriptor attributed to the specified provider,
+     * carrying forward the shortest path trees of the previous topology that
+     * remain valid in the new one.
+     *
+     * @param providerId        identity of the provider
+     * @param description       data describing the new topology
+     * @param broadcastFunction broadcast point function
+     * @param previous          previous topology; may be null
+     */
+    public DefaultTopology(ProviderId providerId, GraphDescription description,
+                           Function<ConnectPoint, Boolean> broadcastFunction,
+                           DefaultTopology previous) {
         super(providerId);
         this.broadcastFunction = broadcastFunction;
         this.time = description.timestamp();
@@ -137,6 +159,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
         // Build the graph
         this.graph = new DefaultTopologyGraph(description.vertexes(),
                                               description.edges());
+        this.compactGraph = Suppliers.memoize(() -> new CompactGraph<>(graph));
 
         this.clusterResults = Suppliers.memoize(() -> searchForClusters());
         this.clusters = Suppliers.memoize(() -> buildTopologyClusters());
@@ -146,6 +169,13 @@ public class DefaultTopology extends AbstractModel implements Topology {
         this.hopCountWeight = new HopCountLinkWeight(graph.getVertexes().size());
         this.broadcastSets = Suppliers.memoize(() -> buildBroadcastSets());
         this.infrastructurePoints = Suppliers.memoize(() -> findInfrastructurePoints());
+
+        // Carry over the path cache only if the previous one was put to use;
+        // this also lets go of the previous topology.
+        ShortestPathCache previousCache = previous != null ? previous.pathCache : null;
+        if (previousCache != null) {
+            this.pathCache = new ShortestPathCache(compactGraph.get(), linkWeight(), previousCache);
+        }
         this.computeCost = Math.max(0, System.nanoTime() - time);
     }
 
@@ -345,9 +375,25 @@ public class DefaultTopology extends AbstractModel implements Topology {
             return ImmutableSet.of();
         }
 
+        // Paths for the default link-weight are served from the cache.
+        if (graphPathSearch() == DIJKSTRA && weight == linkWeight()) {
+            return pathCache().getPaths(srcV, dstV);
+        }
+
+        ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
+        if (graphPathSearch() == DIJKSTRA) {
+            CompactGraph<TopologyVertex, TopologyEdge> g = compactGraph.get();
+            CompactPathTree<TopologyVertex, TopologyEdge> tree =
+                    CompactGraphSearch.dijkstra(g, g.index(srcV), g.index(dstV),
+                                                g.weights(weight), ALL_PATHS);
+            for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : tree.paths()) {
+                builder.add(networkPath(path));
+            }
+            return builder.build();
+        }
+
         GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
                 graphPathSearch().search(graph, srcV, dstV, weight, ALL_PATHS);
-        ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
         for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
             builder.add(networkPath(path));
         }
@@ -355,7 +401,46 @@ public class DefaultTopology extends AbstractModel implements Topology {
     }
 
     /**
-     * /**
+     * Computes the shortest path trees of all devices for the default
+     * link-weight in parallel, so that subsequent path requests are served
+     * from the cache.
+     *
+     * @param pool fork-join pool to compute the trees on
+     * @return task completing once the cache is warm
+     */
+    public ForkJoinTask<?> warmPathCache(ForkJoinPool pool) {
+        return pathCache().warmUp(pool);
+    }
+
+    /**
+     * Returns the statistics of the shortest path cache of this topology.
+     *
+     * @return path cache statistics
+     */
+    public PathCacheStatistics pathCacheStatistics() {
+        ShortestPathCache cache = pathCache;
+        return cache != null ? cache.statistics() : PathCacheStatistics.EMPTY;
+    }
+
+    // Returns the path cache for the current default link-weight, replacing
+    // the cache if the default has changed since; trees whose edge weights
+    // are unaffected by the change are kept.
+    private ShortestPathCache pathCache() {
+        ShortestPathCache cache = pathCache;
+        LinkWeight weight = linkWeight();
+        if (cache == null || cache.weight() != weight) {
+            synchronized (this) {
+                cache = pathCache;
+                if (cache == null || cache.weight() != weight) {
+                    cache = new ShortestPathCache(compactGraph.get(), weight, cache);
+                    pathCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
      * Returns the set of pre-computed shortest disjoint path pairs between source and
      * destination devices.
      *
@@ -385,11 +470,11 @@ public class DefaultTopology extends AbstractModel implements Topology {
             return ImmutableSet.of();
         }
 
-        GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
-                SUURBALLE.search(graph, srcV, dstV, weight, ALL_PATHS);
+        CompactGraph<TopologyVertex, TopologyEdge> g = compactGraph.get();
         ImmutableSet.Builder<DisjointPath> builder = ImmutableSet.builder();
-        for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
-            builder.add(networkDisjointPath((org.onlab.graph.DisjointPathPair<TopologyVertex, TopologyEdge>) path));
+        for (DisjointPathPair<TopologyVertex, TopologyEdge> pair :
+                CompactGraphSearch.suurballeAll(g, g.index(srcV), g.index(dstV), g.weights(weight))) {
+            builder.add(networkDisjointPath(pair));
         }
         return builder.build();
     }
@@ -478,6 +563,9 @@ public class DefaultTopology extends AbstractModel implements Topology {
     }
 
     private DisjointPath networkDisjointPath(DisjointPathPair<TopologyVertex, TopologyEdge> path) {
+        if (!path.hasBackup()) {
+            return new DefaultDisjointPath(CORE_PROVIDER_ID, (DefaultPath) networkPath(path.primary()));
+        }
         return new DefaultDisjointPath(CORE_PROVIDER_ID,
                                        (DefaultPath) networkPath(path.primary()),
                                        (DefaultPath) networkPath(path.secondary()));
@@ -486,7 +574,8 @@ public class DefaultTopology extends AbstractModel implements Topology {
     // Searches for SCC clusters in the network topology graph using Tarjan
     // algorithm.
     private SccResult<TopologyVertex, TopologyEdge> searchForClusters() {
-        return TARJAN.search(graph, new NoIndirectLinksWeight());
+        CompactGraph<TopologyVertex, TopologyEdge> g = compactGraph.get();
+        return CompactGraphSearch.tarjan(g, g.weights(new NoIndirectLinksWeight()));
     }
 
     // Builds the topology clusters and returns the id-cluster bindings.
@@ -530,8 +619,9 @@ public class DefaultTopology extends AbstractModel implements Topology {
     // Processes a map of broadcast sets for each cluster.
     private ImmutableSetMultimap<ClusterId, ConnectPoint> buildBroadcastSets() {
         Builder<ClusterId, ConnectPoint> builder = ImmutableSetMultimap.builder();
+        double[] weights = compactGraph.get().weights(hopCountWeight);
         for (TopologyCluster cluster : clusters.get().values()) {
-            addClusterBroadcastSet(cluster, builder);
+            addClusterBroadcastSet(cluster, weights, builder);
         }
         return builder.build();
     }
@@ -539,26 +629,26 @@ public class DefaultTopology extends AbstractModel implements Topology {
     // Finds all broadcast points for the cluster. These are those connection
     // points which lie along the shortest paths between the cluster root and
     // all other devices within the cluster.
-    private void addClusterBroadcastSet(TopologyCluster cluster, Builder<ClusterId, ConnectPoint> builder) {
+    private void addClusterBroadcastSet(TopologyCluster cluster, double[] weights,
+                                        Builder<ClusterId, ConnectPoint> builder) {
         // Use the graph root search results to build the broadcast set.
-        Result<TopologyVertex, TopologyEdge> result = DIJKSTRA.search(graph, cluster.root(), null, hopCountWeight, 1);
-        for (Map.Entry<TopologyVertex, Set<TopologyEdge>> entry : result.parents().entrySet()) {
-            TopologyVertex vertex = entry.getKey();
-
-            // Ignore any parents that lead outside the cluster.
-            if (clustersByDevice().get(vertex.deviceId()) != cluster) {
+        CompactGraph<TopologyVertex, TopologyEdge> g = compactGraph.get();
+        CompactPathTree<TopologyVertex, TopologyEdge> result =
+                CompactGraphSearch.dijkstra(g, g.index(cluster.root()), -1, weights, 1);
+        for (int v = 0; v < g.vertexCount(); v++) {
+            // Ignore any back-link sets that are empty.
+            if (result.parentCount(v) == 0) {
                 continue;
             }
 
-            // Ignore any back-link sets that are empty.
-            Set<TopologyEdge> parents = entry.getValue();
-            if (parents.isEmpty()) {
+            // Ignore any parents that lead outside the cluster.
+            if (clustersByDevice().get(g.vertex(v).deviceId()) != cluster) {
                 continue;
             }
 
             // Use the first back-link source and destinations to add to the
             // broadcast set.
-            Link link = parents.iterator().next().link();
+            Link link = g.edge(result.parent(v, 0)).link();
             builder.put(cluster.id(), link.src());
             builder.put(cluster.id(), link.dst());
         }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.onlab.graph.CompactGraph;
+import org.onlab.graph.CompactGraphSearch;
+import org.onlab.graph.CompactPathTree;
+import org.onosproject.net.DefaultPath;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.PathCacheStatistics;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+import static org.onosproject.core.CoreService.CORE_PROVIDER_ID;
+
+/**
+ * Cache of single-source shortest path trees over a topology graph, one
+ * tree per source vertex, from which the shortest paths to any destination
+ * are derived. Trees are computed lazily or warmed up in parallel, and
+ * trees of the previous topology that do not traverse any changed link are
+ * carried forward rather than recomputed.
+ * <p>
+ * Trees record all equal-cost parent edges of each vertex, yielding the
+ * same path sets as {@link org.onlab.graph.DijkstraGraphSearch} with
+ * {@link org.onlab.graph.GraphPathSearch#ALL_PATHS}.
+ */
+final class ShortestPathCache {
+
+    // Same as the default sameness threshold of the graph path searches
+    private static final double SAMENESS = Double.MIN_VALUE;
+
+    private final CompactGraph<TopologyVertex, TopologyEdge> graph;
+    private final LinkWeight weight;
+
+    // Snapshot of the edge weights, indexed by edge index
+    private final double[] weights;
+
+    // Trees indexed by the index of their source vertex
+    private final AtomicReferenceArray<CompactPathTree<TopologyVertex, TopologyEdge>> trees;
+
+    private final int carriedTrees;
+    private final int invalidatedTrees;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder computedTrees = new LongAdder();
+    private final AtomicLong computeNanos = new AtomicLong();
+
+    /**
+     * Creates a path cache for the given graph, carrying forward any still
+     * valid trees of the previous cache.
+     *
+     * @param graph    compact index of the topology graph
+     * @param weight   link weight function
+     * @param previous cache of the previous topology; may be null
+     */
+    ShortestPathCache(CompactGraph<TopologyVertex, TopologyEdge> graph, LinkWeight weight,
+                      ShortestPathCache previous) {
+        this.graph = graph;
+        this.weight = weight;
+        this.weights = graph.weights(weight);
+        this.trees = new AtomicReferenceArray<>(graph.vertexCount());
+
+        if (previous == null || previous.isEmpty()) {
+            this.carriedTrees = 0;
+            this.invalidatedTrees = 0;
+            return;
+        }
+
+        long start = System.nanoTime();
+        Delta delta = new Delta(previous.graph, previous.weights, graph, weights);
+        int carried = 0;
+        int invalidated = 0;
+        for (int i = 0; i < previous.trees.length(); i++) {
+            CompactPathTree<TopologyVertex, TopologyEdge> tree = previous.trees.get(i);
+            if (tree == null) {
+                continue;
+            }
+            CompactPathTree<TopologyVertex, TopologyEdge> rebased =
+                    delta.isValid(tree) ? tree.rebase(graph) : null;
+            if (rebased != null) {
+                trees.set(graph.index(tree.src()), rebased);
+                carried++;
+            } else {
+                invalidated++;
+            }
+        }
+        this.carriedTrees = carried;
+        this.invalidatedTrees = invalidated;
+        computeNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the link weight function of this cache.
+     *
+     * @return link weight
+     */
+    LinkWeight weight() {
+        return weight;
+    }
+
+    /**
+     * Returns the set of shortest paths between the given vertexes, both of
+     * which are expected to be part of the graph.
+     *
+     * @param src source vertex
+     * @param dst destination vertex
+     * @return set of shortest paths
+     */
+    Set<Path> getPaths(TopologyVertex src, TopologyVertex dst) {
+        int srcIndex = graph.index(src);
+        CompactPathTree<TopologyVertex, TopologyEdge> tree = trees.get(srcIndex);
+        if (tree != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            tree = tree(srcIndex);
+        }
+        ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
+        for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : tree.paths(graph.index(dst))) {
+            ImmutableList.Builder<Link> links = ImmutableList.builder();
+            path.edges().forEach(edge -> links.add(edge.link()));
+            builder.add(new DefaultPath(CORE_PROVIDER_ID, links.build(), path.cost()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Computes the trees of all sources not yet cached in parallel using the
+     * given pool.
+     *
+     * @param pool fork-join pool to compute the trees on
+     * @return task completing once all trees are available
+     */
+    ForkJoinTask<?> warmUp(ForkJoinPool pool) {
+        return pool.submit(() -> IntStream.range(0, trees.length()).parallel()
+                .filter(i -> trees.get(i) == null)
+                .forEach(this::tree));
+    }
+
+    /**
+     * Returns the current statistics of this cache.
+     *
+     * @return path cache statistics
+     */
+    PathCacheStatistics statistics() {
+        return new PathCacheStatistics(hits.sum(), misses.sum(), carriedTrees,
+                                       invalidatedTrees, computedTrees.sum(),
+                                       computeNanos.get());
+    }
+
+    private boolean isEmpty() {
+        for (int i = 0; i < trees.length(); i++) {
+            if (trees.get(i) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the tree of the given source, computing it if needed. The tree
+    // is computed outside of the array to avoid holding up other sources; a
+    // concurrent duplicate computation is harmless.
+    private CompactPathTree<TopologyVertex, TopologyEdge> tree(int src) {
+        CompactPathTree<TopologyVertex, TopologyEdge> tree = trees.get(src);
+        if (tree == null) {
+            long start = System.nanoTime();
+            CompactPathTree<TopologyVertex, TopologyEdge> computed =
+                    CompactGraphSearch.dijkstra(graph, src, -1, weights, ALL_PATHS);
+            computeNanos.addAndGet(System.nanoTime() - start);
+            computedTrees.increment();
+            tree = trees.compareAndSet(src, null, computed) ? computed : trees.get(src);
+        }
+        return tree;
+    }
+
+    // Edges whose usable weight differs between two versions of the graph.
+    // Removed edges are indexed in the old graph; added edges are recorded
+    // by the old indexes of their end-points, -1 if the vertex is new.
+    private static final class Delta {
+        private final int[] removed;
+        private final int[] addedSrc;
+        private final int[] addedDst;
+        private final double[] addedWeight;
+
+        private Delta(CompactGraph<TopologyVertex, TopologyEdge> oldGraph, double[] oldWeights,
+                      CompactGraph<TopologyVertex, TopologyEdge> newGraph, double[] newWeights) {
+            int[] gone = new int[oldGraph.edgeCount()];
+            int removedCount = 0;
+            for (int e = 0; e < oldGraph.edgeCount(); e++) {
+                if (oldWeights[e] < 0) {
+                    continue;
+                }
+                int ne = newGraph.edgeIndex(oldGraph.edge(e));
+                if (ne < 0 || newWeights[ne] != oldWeights[e]) {
+                    gone[removedCount++] = e;
+                }
+            }
+            this.removed = Arrays.copyOf(gone, removedCount);
+
+            int[] src = new int[newGraph.edgeCount()];
+            int[] dst = new int[newGraph.edgeCount()];
+            double[] w = new double[newGraph.edgeCount()];
+            int addedCount = 0;
+            for (int e = 0; e < newGraph.edgeCount(); e++) {
+                if (newWeights[e] < 0) {
+                    continue;
+                }
+                int oe = oldGraph.edgeIndex(newGraph.edge(e));
+                if (oe < 0 || oldWeights[oe] != newWeights[e]) {
+                    src[addedCount] = oldGraph.index(newGraph.vertex(newGraph.source(e)));
+                    dst[addedCount] = oldGraph.index(newGraph.vertex(newGraph.target(e)));
+                    w[addedCount++] = newWeights[e];
+                }
+            }
+            this.addedSrc = Arrays.copyOf(src, addedCount);
+            this.addedDst = Arrays.copyOf(dst, addedCount);
+            this.addedWeight = Arrays.copyOf(w, addedCount);
+        }
+
+        // A tree stays valid as long as none of its parent edges went away
+        // or changed weight, and no new or cheaper edge offers a path at
+        // least as short as a recorded one.
+        private boolean isValid(CompactPathTree<TopologyVertex, TopologyEdge> tree) {
+            for (int e : removed) {
+                if (tree.isParent(e)) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < addedSrc.length; i++) {
+                if (addedSrc[i] < 0 || tree.cost(addedSrc[i]) == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                if (addedDst[i] < 0 ||
+                        tree.cost(addedSrc[i]) + addedWeight[i] <= tree.cost(addedDst[i]) + SAMENESS) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -17,12 +17,15 @@ package org.onosproject.common;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.graph.TarjanGraphSearch;
+import org.onlab.graph.TarjanGraphSearch.SccResult;
 import org.onlab.packet.ChassisId;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultDevice;
 import org.onosproject.net.DefaultLink;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
+import org.onosproject.net.DisjointPath;
 import org.onosproject.net.Link;
 import org.onosproject.net.Path;
 import org.onosproject.net.PortNumber;
@@ -30,12 +33,18 @@ import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.topology.ClusterId;
 import org.onosproject.net.topology.DefaultGraphDescription;
 import org.onosproject.net.topology.GraphDescription;
+import org.onosproject.net.topology.HopCountLinkWeight;
 import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.PathCacheStatistics;
 import org.onosproject.net.topology.TopologyCluster;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyVertex;
 
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.google.common.collect.ImmutableSet.of;
+import static java.util.stream.Collectors.toSet;
 import static org.junit.Assert.*;
 import static org.onosproject.net.DeviceId.deviceId;
 import static org.onosproject.net.PortNumber.portNumber;
@@ -100,6 +109,46 @@ public class DefaultTopologyTest {
         assertEquals("incorrect path count", 1, paths.size());
     }
 
+    @Test
+    public void pathCache() {
+        dt.warmPathCache(ForkJoinPool.commonPool()).join();
+        assertEquals("incorrect path count", 2, dt.getPaths(D1, D3).size());
+        PathCacheStatistics stats = dt.pathCacheStatistics();
+        assertEquals("incorrect computed trees", 5, stats.computedTrees());
+        assertEquals("incorrect hits", 1, stats.hits());
+        assertEquals("incorrect misses", 0, stats.misses());
+
+        // Drop the links between 1 and 4; all but the tree of the isolated
+        // device 5 traverse them and need to be repaired.
+        Set<Device> devices = of(device("1"), device("2"),
+                                 device("3"), device("4"),
+                                 device("5"));
+        Set<Link> links = of(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                             link("3", 2, "2", 2), link("2", 2, "3", 2),
+                             link("3", 4, "4", 4), link("4", 4, "3", 4));
+        long now = System.currentTimeMillis();
+        DefaultTopology next = new DefaultTopology(PID,
+                new DefaultGraphDescription(now, now, devices, links), null, dt);
+        stats = next.pathCacheStatistics();
+        assertEquals("incorrect carried trees", 1, stats.carriedTrees());
+        assertEquals("incorrect invalidated trees", 4, stats.invalidatedTrees());
+
+        // Cached paths must match those computed on-demand
+        LinkWeight weight = new HopCountLinkWeight(devices.size());
+        for (DeviceId src : of(D1, D2, D3, D4, D5)) {
+            for (DeviceId dst : of(D1, D2, D3, D4, D5)) {
+                assertEquals("incorrect paths", next.getPaths(src, dst, weight),
+                             next.getPaths(src, dst));
+            }
+        }
+        assertEquals("incorrect path count", 1, next.getPaths(D1, D3).size());
+        assertEquals("incorrect path cost", 3.0,
+                     next.getPaths(D1, D4).iterator().next().cost(), 0.0);
+        stats = next.pathCacheStatistics();
+        assertEquals("incorrect computed trees", 4, stats.computedTrees());
+        assertEquals("incorrect misses", 4, stats.misses());
+    }
+
     @Test
     public void pointRelated() {
         assertTrue("should be infrastructure point",
@@ -120,6 +169,68 @@ public class DefaultTopologyTest {
         assertFalse("cluster should not contain D5", devs.contains(D5));
     }
 
+    @Test
+    public void clusterOrder() {
+        // Cluster ids must follow the order of the object-based search.
+        SccResult<TopologyVertex, TopologyEdge> expected =
+                new TarjanGraphSearch<TopologyVertex, TopologyEdge>().search(dt.getGraph(), null);
+        assertEquals("incorrect cluster count", expected.clusterCount(), dt.clusterCount());
+        for (int i = 0; i < expected.clusterCount(); i++) {
+            Set<DeviceId> devices = expected.clusterVertexes().get(i).stream()
+                    .map(TopologyVertex::deviceId).collect(toSet());
+            assertEquals("incorrect cluster devices", devices,
+                         dt.getClusterDevices(dt.getCluster(ClusterId.clusterId(i))));
+        }
+    }
+
+    @Test
+    public void disjointPaths() {
+        Set<DisjointPath> paths = dt.getDisjointPaths(D1, D3);
+        assertEquals("incorrect disjoint path count", 1, paths.size());
+        DisjointPath path = paths.iterator().next();
+        assertNotNull("backup path expected", path.backup());
+        assertEquals("incorrect primary cost", 2.0, path.primary().cost(), 0.0);
+
+        assertTrue("no disjoint paths expected", dt.getDisjointPaths(D1, D5).isEmpty());
+    }
+
+    @Test
+    public void allDisjointPaths() {
+        // Three two-hop routes from 1 to 5 give three distinct pairs.
+        Set<Device> devices = of(device("1"), device("2"), device("3"),
+                                 device("4"), device("5"));
+        Set<Link> links = of(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                             link("1", 2, "3", 1), link("3", 1, "1", 2),
+                             link("1", 3, "4", 1), link("4", 1, "1", 3),
+                             link("2", 2, "5", 1), link("5", 1, "2", 2),
+                             link("3", 2, "5", 2), link("5", 2, "3", 2),
+                             link("4", 2, "5", 3), link("5", 3, "4", 2));
+        long now = System.currentTimeMillis();
+        DefaultTopology topology = new DefaultTopology(PID,
+                new DefaultGraphDescription(now, now, devices, links));
+        Set<DisjointPath> paths = topology.getDisjointPaths(D1, D5);
+        assertEquals("incorrect disjoint path count", 3, paths.size());
+        for (DisjointPath path : paths) {
+            assertNotNull("backup path expected", path.backup());
+        }
+    }
+
+    @Test
+    public void primaryOnlyDisjointPath() {
+        // A reachable destination without a backup path still yields a pair.
+        Set<Device> devices = of(device("1"), device("2"), device("3"));
+        Set<Link> links = of(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                             link("2", 2, "3", 1), link("3", 1, "2", 2));
+        long now = System.currentTimeMillis();
+        DefaultTopology topology = new DefaultTopology(PID,
+                new DefaultGraphDescription(now, now, devices, links));
+        Set<DisjointPath> paths = topology.getDisjointPaths(D1, D3);
+        assertEquals("incorrect disjoint path count", 1, paths.size());
+        DisjointPath path = paths.iterator().next();
+        assertNull("unexpected backup path", path.backup());
+        assertEquals("incorrect primary cost", 2.0, path.primary().cost(), 0.0);
+    }
+
     // Short-hand for creating a link.
     public static Link link(String src, int sp, String dst, int dp) {
         return DefaultLink.builder().providerId(PID)
@@ -30,6 +30,7 @@ import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.topology.ClusterId;
 import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.PathCacheStatistics;
 import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyCluster;
 import org.onosproject.net.topology.TopologyEvent;
@@ -148,6 +149,11 @@ public class SimpleTopologyStore
         return defaultTopology(topology).isBroadcastPoint(connectPoint);
     }
 
+    @Override
+    public PathCacheStatistics getPathCacheStatistics(Topology topology) {
+        return defaultTopology(topology).pathCacheStatistics();
+    }
+
     @Override
     public TopologyEvent updateTopology(ProviderId providerId,
                                         GraphDescription graphDescription,
@@ -160,7 +166,7 @@ public class SimpleTopologyStore
 
         // Have the default topology construct self from the description data.
         DefaultTopology newTopology =
-                new DefaultTopology(providerId, graphDescription);
+                new DefaultTopology(providerId, graphDescription, null, current);
 
         // Promote the new topology to current and return a ready-to-send event.
         synchronized (this) {
@@ -90,6 +90,11 @@ public class CoreManager implements CoreService {
             label = "Maximum number of millis an event sink has to process an event")
     private int maxEventTimeLimit = DEFAULT_EVENT_TIME;
 
+    private static final int DEFAULT_EVENT_THREADS = 1;
+    @Property(name = "eventDispatchThreads", intValue = DEFAULT_EVENT_THREADS,
+            label = "Number of threads across which events are dispatched, sharded by subject")
+    private int eventDispatchThreads = DEFAULT_EVENT_THREADS;
+
     @Activate
     public void activate() {
         registerApplication(CORE_APP_NAME);
@@ -177,8 +182,16 @@ public class CoreManager implements CoreService {
             log.warn("maxEventTimeLimit must be greater than 1");
         }
 
-        log.info("Settings: sharedThreadPoolSize={}, maxEventTimeLimit={}",
-                 sharedThreadPoolSize, maxEventTimeLimit);
+        Integer dispatchThreads = getIntegerProperty(properties, "eventDispatchThreads");
+        if (dispatchThreads != null && dispatchThreads > 0) {
+            eventDispatchThreads = dispatchThreads;
+            eventDeliveryService.setDispatchThreads(eventDispatchThreads);
+        } else if (dispatchThreads != null) {
+            log.warn("eventDispatchThreads must be greater than 0");
+        }
+
+        log.info("Settings: sharedThreadPoolSize={}, maxEventTimeLimit={}, eventDispatchThreads={}",
+                 sharedThreadPoolSize, maxEventTimeLimit, eventDispatchThreads);
     }
 
 
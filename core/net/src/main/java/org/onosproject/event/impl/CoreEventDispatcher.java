@@ -15,36 +15,77 @@
  */
 package org.onosproject.event.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.SharedExecutors;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.DefaultEventSinkRegistry;
 import org.onosproject.event.Event;
 import org.onosproject.event.EventDeliveryService;
 import org.onosproject.event.EventSink;
+import org.onosproject.net.Element;
+import org.onosproject.net.ElementId;
+import org.onosproject.net.Link;
+import org.onosproject.net.LinkKey;
+import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.Key;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Simple implementation of an event dispatching service.
+ * <p>
+ * Events are dispatched by one or more shards, each draining its own queue
+ * on a dedicated thread. Events pertaining to the same network subject
+ * (device, link, host or intent key) always land on the same shard, which
+ * preserves their relative order while allowing events for unrelated
+ * subjects to be processed in parallel. Events whose subject is not
+ * recognized, such as topology events, are all dispatched by the first
+ * shard, which retains their relative order. With a single shard, the
+ * dispatcher behaves exactly as a single dispatch loop.
+ * </p>
+ * <p>
+ * The number of shards is changed in the background. Events posted after
+ * the change are queued on the new shards, which start dispatching only
+ * once the previous shards have drained their queues; per-subject ordering
+ * is thus retained across the resize.
+ * </p>
  */
 @Component(immediate = true)
 @Service
 public class CoreEventDispatcher extends DefaultEventSinkRegistry
-        implements EventDeliveryService {
+        implements EventDeliveryService, MetricsHelper {
 
     private final Logger log = getLogger(getClass());
 
@@ -52,45 +93,96 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
     private static final long DEFAULT_EXECUTE_MS = 5_000; // ms
     private static final long WATCHDOG_MS = 250; // ms
 
-    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    // Default number of dispatch shards; one preserves total event order.
+    private static final int DEFAULT_DISPATCH_THREADS = 1;
 
-    private final ExecutorService executor =
-            newSingleThreadExecutor(groupedThreads("onos/event", "dispatch-%d"));
+    private static final String METRICS_COMPONENT = "EventDispatcher";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String LATENCY = "latency";
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
 
     @SuppressWarnings("unchecked")
     private static final Event KILL_PILL = new AbstractEvent(null, 0) {
     };
 
-    private DispatchLoop dispatchLoop;
+    private volatile Shard[] shards = new Shard[0];
+
+    // Shards being drained after a resize; still watched by the watchdog
+    private volatile Shard[] retiring = new Shard[0];
+
+    // Guards the swap of shards against concurrent posts
+    private final ReadWriteLock shardsLock = new ReentrantReadWriteLock();
+
+    // Number of shards requested; applied in order by the resizer
+    private volatile int dispatchThreads;
+    private ExecutorService resizer;
     private long maxProcessMillis = DEFAULT_EXECUTE_MS;
 
     // Means to detect long-running sinks
     private TimerTask watchdog;
-    private EventSink lastSink;
-    private long lastStart = 0;
-    private Future<?> dispatchFuture;
 
     @Override
     public void post(Event event) {
-        if (!events.add(event)) {
-            log.error("Unable to post event {}", event);
+        shardsLock.readLock().lock();
+        try {
+            Shard shard = shardFor(shards, event);
+            if (!shard.events.add(event)) {
+                log.error("Unable to post event {}", event);
+            }
+        } finally {
+            shardsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void post(Collection<? extends Event> events) {
+        shardsLock.readLock().lock();
+        try {
+            Shard[] current = shards;
+            if (current.length == 1) {
+                current[0].events.addAll(events);
+                return;
+            }
+            // Split the batch per shard, retaining the order within each shard
+            Map<Shard, List<Event>> perShard = new HashMap<>();
+            for (Event event : events) {
+                perShard.computeIfAbsent(shardFor(current, event), s -> new ArrayList<>()).add(event);
+            }
+            perShard.forEach((shard, batch) -> shard.events.addAll(batch));
+        } finally {
+            shardsLock.readLock().unlock();
         }
     }
 
+    private static Shard shardFor(Shard[] current, Event event) {
+        return current[shardIndex(event, current.length)];
+    }
+
     @Activate
     public void activate() {
-        dispatchLoop = new DispatchLoop();
-        dispatchFuture = executor.submit(dispatchLoop);
+        resizer = newSingleThreadExecutor(groupedThreads("onos/event", "resizer"));
+        dispatchThreads = DEFAULT_DISPATCH_THREADS;
+        shards = createShards(DEFAULT_DISPATCH_THREADS);
+        startShards(shards);
         watchdog = new Watchdog();
         SharedExecutors.getTimer().schedule(watchdog, WATCHDOG_MS, WATCHDOG_MS);
         log.info("Started");
     }
 
     @Deactivate
-    public void deactivate() {
-        dispatchLoop.stop();
+    public synchronized void deactivate() {
         watchdog.cancel();
-        post(KILL_PILL);
+        // Abandon any pending resize; its shards are stopped below
+        resizer.shutdownNow();
+        try {
+            resizer.awaitTermination(WATCHDOG_MS, MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stopShards(retiring);
+        stopShards(shards);
         log.info("Stopped");
     }
 
@@ -106,29 +198,264 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
         return maxProcessMillis;
     }
 
-    // Auxiliary event dispatching loop that feeds off the events queue.
+    @Override
+    public synchronized void setDispatchThreads(int threads) {
+        checkArgument(threads > 0, "Number of dispatch threads must be positive");
+        if (threads == dispatchThreads) {
+            return;
+        }
+        dispatchThreads = threads;
+        resizer.execute(() -> resize(threads));
+    }
+
+    // Replaces the shards; runs on the resizer, one resize at a time.
+    private void resize(int threads) {
+        if (threads == shards.length) {
+            return;
+        }
+        // New shards accept events right away, but dispatch them only after
+        // the previous shards have drained whatever was queued before them;
+        // their metrics are registered only after the previous ones are gone.
+        Shard[] next = createShards(threads);
+        Shard[] previous;
+        shardsLock.writeLock().lock();
+        try {
+            previous = shards;
+            shards = next;
+            retiring = previous;
+            for (Shard shard : previous) {
+                shard.retire();
+            }
+        } finally {
+            shardsLock.writeLock().unlock();
+        }
+        for (Shard shard : previous) {
+            if (!shard.awaitDrained()) {
+                // Interrupted by deactivation, which stops all shards
+                return;
+            }
+        }
+        retiring = new Shard[0];
+        startShards(next);
+        log.info("Event dispatch sharded across {} threads", threads);
+    }
+
+    @Override
+    public int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
+    /**
+     * Returns the current depth of the event queue of the specified shard.
+     *
+     * @param shard shard index
+     * @return number of events waiting to be dispatched
+     */
+    int queueDepth(int shard) {
+        return shards[shard].events.size();
+    }
+
+    /**
+     * Waits for the resizes requested so far to be applied.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @throws Exception if the resizes are not applied in time
+     */
+    void awaitResize(long timeout, TimeUnit unit) throws Exception {
+        resizer.submit(() -> { }).get(timeout, unit);
+    }
+
+    /**
+     * Returns the index of the shard dispatching the given event. Events
+     * without a recognized subject all go to the first shard.
+     *
+     * @param event  event to be dispatched
+     * @param shards number of shards
+     * @return shard index
+     */
+    static int shardIndex(Event event, int shards) {
+        if (shards == 1) {
+            return 0;
+        }
+        Object key = shardKey(event);
+        return key instanceof Class ? 0 : Math.floorMod(key.hashCode(), shards);
+    }
+
+    /**
+     * Returns the key used to select the dispatch shard for the given event.
+     * Events with equal keys are dispatched in the order they were posted.
+     *
+     * @param event event to be dispatched
+     * @return shard selection key
+     */
+    static Object shardKey(Event event) {
+        Object subject = event.subject();
+        if (subject instanceof Element) {
+            return ((Element) subject).id();
+        } else if (subject instanceof Link) {
+            return LinkKey.linkKey((Link) subject);
+        } else if (subject instanceof Intent) {
+            return ((Intent) subject).key();
+        } else if (subject instanceof ElementId || subject instanceof LinkKey
+                || subject instanceof Key) {
+            return subject;
+        }
+        return event.getClass();
+    }
+
+    private Shard[] createShards(int count) {
+        Shard[] created = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            created[i] = new Shard(i);
+        }
+        return created;
+    }
+
+    private void startShards(Shard[] fresh) {
+        for (Shard shard : fresh) {
+            shard.start();
+        }
+    }
+
+    private void stopShards(Shard[] stale) {
+        for (Shard shard : stale) {
+            shard.stop();
+        }
+    }
+
+    // Single dispatch lane with its own queue, thread and watchdog state.
+    private final class Shard {
+        private final int index;
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private final ExecutorService executor;
+
+        private DispatchLoop dispatchLoop;
+        private Future<?> dispatchFuture;
+
+        private volatile EventSink lastSink;
+        private volatile long lastStart = 0;
+
+        private MetricsComponent metricsComponent;
+        private MetricsFeature metricsFeature;
+        private Timer latencyTimer;
+
+        private Shard(int index) {
+            this.index = index;
+            this.executor = newSingleThreadExecutor(
+                    groupedThreads("onos/event", "dispatch-" + index + "-%d"));
+        }
+
+        private synchronized void start() {
+            registerMetrics();
+            dispatchLoop = new DispatchLoop(this);
+            dispatchFuture = executor.submit(dispatchLoop);
+        }
+
+        private synchronized void stop() {
+            if (dispatchLoop != null) {
+                dispatchLoop.stop();
+            }
+            events.add(KILL_PILL);
+            executor.shutdown();
+            removeMetrics();
+        }
+
+        // Lets the dispatch loop finish the events queued so far and then
+        // terminate; no events are expected to be added after this.
+        // Synchronized with restart, so that the watchdog never submits a
+        // dispatch loop to an executor that was shut down under it.
+        private synchronized void retire() {
+            events.add(KILL_PILL);
+            executor.shutdown();
+        }
+
+        // Waits for a retired shard to finish dispatching its backlog;
+        // returns false if interrupted first.
+        private boolean awaitDrained() {
+            try {
+                while (!executor.awaitTermination(WATCHDOG_MS, MILLISECONDS)) {
+                    log.debug("Waiting for dispatch loop {} to drain {} events",
+                              index, events.size());
+                }
+            } catch (InterruptedException e) {
+                log.warn("Interrupted while draining dispatch loop {}", index);
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            removeMetrics();
+            return true;
+        }
+
+        // Cancels the current dispatch loop and spawns a fresh one.
+        private synchronized void restart() {
+            if (executor.isShutdown()) {
+                // Retiring shard; interrupt the sink, but keep draining.
+                dispatchFuture.cancel(true);
+                return;
+            }
+            dispatchLoop.stop();
+            dispatchLoop = new DispatchLoop(this);
+            dispatchFuture.cancel(true);
+            dispatchFuture = executor.submit(dispatchLoop);
+        }
+
+        private void registerMetrics() {
+            latencyTimer = createTimer(METRICS_COMPONENT, featureName(), LATENCY);
+            if (metricsService != null) {
+                metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+                metricsFeature = metricsComponent.registerFeature(featureName());
+                metricsService.registerMetric(metricsComponent, metricsFeature,
+                                              QUEUE_DEPTH,
+                                              (Gauge<Integer>) events::size);
+            }
+        }
+
+        private void removeMetrics() {
+            if (metricsService != null && metricsFeature != null) {
+                metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+                metricsService.removeMetric(metricsComponent, metricsFeature, LATENCY);
+            }
+        }
+
+        private String featureName() {
+            return "shard-" + index;
+        }
+    }
+
+    // Auxiliary event dispatching loop that feeds off a shard events queue.
     private class DispatchLoop implements Runnable {
+        private final Shard shard;
         private volatile boolean stopped;
 
+        DispatchLoop(Shard shard) {
+            this.shard = shard;
+        }
+
         @Override
         public void run() {
             stopped = false;
-            log.info("Dispatch loop initiated");
+            log.info("Dispatch loop {} initiated", shard.index);
             while (!stopped) {
                 try {
                     // Fetch the next event and if it is the kill-pill, bail
-                    Event event = events.take();
+                    Event event = shard.events.take();
                     if (event == KILL_PILL) {
                         break;
                     }
                     process(event);
                 } catch (InterruptedException e) {
-                    log.warn("Dispatch loop interrupted");
+                    log.warn("Dispatch loop {} interrupted", shard.index);
                 } catch (Exception e) {
                     log.warn("Error encountered while dispatching event:", e);
                 }
             }
-            log.info("Dispatch loop terminated");
+            log.info("Dispatch loop {} terminated", shard.index);
         }
 
         // Locate the sink for the event class and use it to process the event
@@ -136,10 +463,15 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
         private void process(Event event) {
             EventSink sink = getSink(event.getClass());
             if (sink != null) {
-                lastSink = sink;
-                lastStart = System.currentTimeMillis();
-                sink.process(event);
-                lastStart = 0;
+                final Timer.Context timer = startTimer(shard.latencyTimer);
+                shard.lastSink = sink;
+                shard.lastStart = System.currentTimeMillis();
+                try {
+                    sink.process(event);
+                } finally {
+                    shard.lastStart = 0;
+                    stopTimer(timer);
+                }
             } else {
                 log.warn("No sink registered for event class {}",
                          event.getClass().getName());
@@ -155,20 +487,28 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
     private class Watchdog extends TimerTask {
         @Override
         public void run() {
-            long delta = System.currentTimeMillis() - lastStart;
-            if (lastStart > 0 && delta > maxProcessMillis) {
-                lastStart = 0;
-                log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch loop",
-                          lastSink.getClass().getName(), delta);
+            for (Shard shard : shards) {
+                check(shard);
+            }
+            for (Shard shard : retiring) {
+                check(shard);
+            }
+        }
+
+        private void check(Shard shard) {
+            long start = shard.lastStart;
+            long delta = System.currentTimeMillis() - start;
+            if (start > 0 && delta > maxProcessMillis) {
+                shard.lastStart = 0;
+                EventSink sink = shard.lastSink;
+                log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch loop {}",
+                          sink.getClass().getName(), delta, shard.index);
 
                 // Notify the sink that it has exceeded its time limit.
-                lastSink.onProcessLimit();
+                sink.onProcessLimit();
 
                 // Cancel the old dispatch loop and submit a new one.
-                dispatchLoop.stop();
-                dispatchLoop = new DispatchLoop();
-                dispatchFuture.cancel(true);
-                dispatchFuture = executor.submit(dispatchLoop);
+                shard.restart();
             }
         }
     }
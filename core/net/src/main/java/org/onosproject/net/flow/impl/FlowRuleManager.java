@@ -282,11 +282,7 @@ public class FlowRuleManager
 
         Set<FlowRule> flowEntries = Sets.newHashSet();
         for (Device d : deviceService.getDevices()) {
-            for (FlowEntry flowEntry : store.getFlowEntries(d.id())) {
-                if (flowEntry.appId() == id.id()) {
-                    flowEntries.add(flowEntry);
-                }
-            }
+            Iterables.addAll(flowEntries, store.getFlowEntriesByApp(d.id(), id));
         }
         return flowEntries;
     }
@@ -298,7 +294,7 @@ public class FlowRuleManager
         Set<FlowRule> matches = Sets.newHashSet();
         long toLookUp = ((long) appId.id() << 16) | groupId;
         for (Device d : deviceService.getDevices()) {
-            for (FlowEntry flowEntry : store.getFlowEntries(d.id())) {
+            for (FlowEntry flowEntry : store.getFlowEntriesByApp(d.id(), appId)) {
                 if ((flowEntry.id().value() >>> 32) == toLookUp) {
                     matches.add(flowEntry);
                 }
@@ -520,25 +516,25 @@ public class FlowRuleManager
     private class InternalStoreDelegate implements FlowRuleStoreDelegate {
 
 
-        // TODO: Right now we only dispatch events at individual flowEntry level.
-        // It may be more efficient for also dispatch events as a batch.
+        // Events of a batch are handed to the dispatcher together, as a batch.
         @Override
         public void notify(FlowRuleBatchEvent event) {
             final FlowRuleBatchRequest request = event.subject();
             switch (event.type()) {
             case BATCH_OPERATION_REQUESTED:
                 // Request has been forwarded to MASTER Node, and was
+                List<FlowRuleEvent> requested = Lists.newArrayListWithCapacity(request.ops().size());
                 request.ops().stream().forEach(
                         op -> {
                             switch (op.operator()) {
 
                                 case ADD:
-                                    post(new FlowRuleEvent(RULE_ADD_REQUESTED,
-                                                           op.target()));
+                                    requested.add(new FlowRuleEvent(RULE_ADD_REQUESTED,
+                                                                    op.target()));
                                     break;
                                 case REMOVE:
-                                    post(new FlowRuleEvent(RULE_REMOVE_REQUESTED,
-                                                           op.target()));
+                                    requested.add(new FlowRuleEvent(RULE_REMOVE_REQUESTED,
+                                                                    op.target()));
                                     break;
                                 case MODIFY:
                                     //TODO: do something here when the time comes.
@@ -548,6 +544,7 @@ public class FlowRuleManager
                             }
                         }
                 );
+                post(requested);
 
                 DeviceId deviceId = event.deviceId();
 
@@ -634,12 +631,25 @@ public class FlowRuleManager
             }
 
 
+            // Batches of locally mastered devices are installed in parallel;
+            // the store forwards the remaining ones to their masters, those
+            // bound for the same node together
+            List<FlowRuleBatchOperation> remoteBatches = Lists.newArrayList();
             for (DeviceId deviceId : perDeviceBatches.keySet()) {
                 long id = idGenerator.getNewId();
                 final FlowRuleBatchOperation b = new FlowRuleBatchOperation(perDeviceBatches.get(deviceId),
                                                deviceId, id);
                 pendingFlowOperations.put(id, this);
-                deviceInstallers.submit(() -> store.storeBatch(b));
+                if (mastershipService.isLocalMaster(deviceId)) {
+                    deviceInstallers.submit(() -> store.storeBatch(b));
+                } else {
+                    remoteBatches.add(b);
+                }
+            }
+            if (remoteBatches.size() == 1) {
+                deviceInstallers.submit(() -> store.storeBatch(remoteBatches.get(0)));
+            } else if (!remoteBatches.isEmpty()) {
+                deviceInstallers.submit(() -> store.storeBatches(remoteBatches));
             }
         }
 
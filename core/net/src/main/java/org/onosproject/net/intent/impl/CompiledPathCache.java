@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.intent.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.onosproject.net.ElementId;
+import org.onosproject.net.Link;
+import org.onosproject.net.LinkKey;
+import org.onosproject.net.Path;
+import org.onosproject.net.intent.Constraint;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static org.onosproject.net.LinkKey.linkKey;
+
+/**
+ * Cache of candidate paths computed by the intent compilers, shared by all
+ * compilers for the current topology epoch. Entries are keyed by path
+ * end-points and constraints and are invalidated by the objective tracker
+ * as topology changes are observed: removed or updated links drop only the
+ * entries whose paths traverse them, host events drop the entries ending at
+ * the host and any other change drops all entries.
+ */
+public final class CompiledPathCache {
+
+    private static final long DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Cache<PathKey, Set<Path>> paths;
+
+    // Topology epoch; advanced on every invalidation
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * Creates a path cache with the default capacity.
+     */
+    public CompiledPathCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a path cache holding at most the given number of entries.
+     *
+     * @param maxEntries maximum number of cached end-point pairs
+     */
+    public CompiledPathCache(long maxEntries) {
+        this.paths = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    /**
+     * Returns the current topology epoch. It must be obtained before
+     * computing the paths later handed to {@link #put}.
+     *
+     * @return topology epoch
+     */
+    public long epoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Returns the cached candidate paths between the given elements.
+     *
+     * @param src         path source
+     * @param dst         path destination
+     * @param constraints path constraints
+     * @return candidate paths; null if none are cached
+     */
+    public Set<Path> get(ElementId src, ElementId dst, List<Constraint> constraints) {
+        return paths.getIfPresent(new PathKey(src, dst, constraints));
+    }
+
+    /**
+     * Caches the candidate paths between the given elements, unless the
+     * topology changed since the given epoch.
+     *
+     * @param src         path source
+     * @param dst         path destination
+     * @param constraints path constraints
+     * @param candidates  candidate paths
+     * @param epoch       epoch at which the paths were computed
+     */
+    public void put(ElementId src, ElementId dst, List<Constraint> constraints,
+                    Set<Path> candidates, long epoch) {
+        PathKey key = new PathKey(src, dst, constraints);
+        paths.put(key, ImmutableSet.copyOf(candidates));
+        // drop the entry if an invalidation raced with the computation
+        if (this.epoch.get() != epoch) {
+            paths.invalidate(key);
+        }
+    }
+
+    /**
+     * Drops the cached paths traversing the given link.
+     *
+     * @param link link which was removed or updated
+     */
+    public void invalidate(LinkKey link) {
+        epoch.incrementAndGet();
+        paths.asMap().values().removeIf(candidates -> traverses(candidates, link));
+    }
+
+    /**
+     * Drops the cached paths starting or ending at the given element, such
+     * as a host which moved.
+     *
+     * @param element path end-point
+     */
+    public void invalidate(ElementId element) {
+        epoch.incrementAndGet();
+        paths.asMap().keySet().removeIf(key -> element.equals(key.src) || element.equals(key.dst));
+    }
+
+    /**
+     * Drops all cached paths.
+     */
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        paths.invalidateAll();
+    }
+
+    /**
+     * Returns the number of cached end-point pairs.
+     *
+     * @return number of entries
+     */
+    public long size() {
+        return paths.size();
+    }
+
+    private static boolean traverses(Set<Path> candidates, LinkKey link) {
+        for (Path path : candidates) {
+            for (Link l : path.links()) {
+                if (linkKey(l).equals(link)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Cache key formed by path end-points and constraints
+    private static final class PathKey {
+        private final ElementId src;
+        private final ElementId dst;
+        private final List<Constraint> constraints;
+
+        private PathKey(ElementId src, ElementId dst, List<Constraint> constraints) {
+            this.src = src;
+            this.dst = dst;
+            this.constraints = constraints == null ? ImmutableList.of() : ImmutableList.copyOf(constraints);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(src, dst, constraints);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof PathKey) {
+                PathKey that = (PathKey) obj;
+                return Objects.equals(this.src, that.src) &&
+                        Objects.equals(this.dst, that.dst) &&
+                        Objects.equals(this.constraints, that.constraints);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("src", src)
+                    .add("dst", dst)
+                    .add("constraints", constraints)
+                    .toString();
+        }
+    }
+}
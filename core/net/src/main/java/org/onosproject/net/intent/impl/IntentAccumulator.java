@@ -15,26 +15,35 @@
  */
 package org.onosproject.net.intent.impl;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.onlab.util.AbstractAccumulator;
 import org.onosproject.net.intent.IntentBatchDelegate;
 import org.onosproject.net.intent.IntentData;
 import org.onosproject.net.intent.Key;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
- * An accumulator for building batches of intent operations. Only one batch should
- * be in process per instance at a time.
+ * An accumulator for building batches of intent operations. Up to a
+ * configurable number of batches may be in process per instance at a time;
+ * batches in process never share an intent key, so operations on the same
+ * intent are still processed in the order they were accumulated.
  */
 public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     private static final int DEFAULT_MAX_EVENTS = 1000;
     private static final int DEFAULT_MAX_IDLE_MS = 10;
     private static final int DEFAULT_MAX_BATCH_MS = 50;
+    private static final int DEFAULT_PIPELINE_DEPTH = 1;
 
     // FIXME: Replace with a system-wide timer instance;
     // TODO: Convert to use HashedWheelTimer or produce a variant of that; then decide which we want to adopt
@@ -42,41 +51,126 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     private final IntentBatchDelegate delegate;
 
-    private volatile boolean ready;
+    private volatile int pipelineDepth;
+
+    // Guards the in-flight bookkeeping below
+    private final Object lock = new Object();
+    private int inFlight;
+    private final Set<Key> inFlightKeys = Sets.newHashSet();
+    // Operations held back until the batch holding the same key completes
+    private final Map<Key, IntentData> deferred = Maps.newLinkedHashMap();
 
     /**
-     * Creates an intent operation accumulator.
+     * Creates an intent operation accumulator which keeps at most one batch
+     * in process at a time.
      *
      * @param delegate the intent batch delegate
      */
     protected IntentAccumulator(IntentBatchDelegate delegate) {
+        this(delegate, DEFAULT_PIPELINE_DEPTH);
+    }
+
+    /**
+     * Creates an intent operation accumulator.
+     *
+     * @param delegate      the intent batch delegate
+     * @param pipelineDepth maximum number of batches in process at a time
+     */
+    protected IntentAccumulator(IntentBatchDelegate delegate, int pipelineDepth) {
         super(TIMER, DEFAULT_MAX_EVENTS, DEFAULT_MAX_BATCH_MS, DEFAULT_MAX_IDLE_MS);
         this.delegate = delegate;
-        // Assume that the delegate is ready for work at the start
-        ready = true; //TODO validate the assumption that delegate is ready
+        setPipelineDepth(pipelineDepth);
+    }
+
+    /**
+     * Changes the maximum number of batches in process at a time.
+     *
+     * @param pipelineDepth maximum number of batches in process
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        checkArgument(pipelineDepth > 0, "Pipeline depth must be positive");
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Returns the maximum number of batches in process at a time.
+     *
+     * @return pipeline depth
+     */
+    public int pipelineDepth() {
+        return pipelineDepth;
     }
 
     @Override
     public void processItems(List<IntentData> items) {
-        ready = false;
-        delegate.execute(reduce(items));
+        Collection<IntentData> batch;
+        synchronized (lock) {
+            batch = admit(reduce(items).values());
+        }
+        if (!batch.isEmpty()) {
+            delegate.execute(batch);
+        }
     }
 
-    private Collection<IntentData> reduce(List<IntentData> ops) {
+    private Map<Key, IntentData> reduce(List<IntentData> ops) {
         Map<Key, IntentData> map = Maps.newHashMap();
         for (IntentData op : ops) {
             map.put(op.key(), op);
         }
         //TODO check the version... or maybe store will handle this.
-        return map.values();
+        return map;
+    }
+
+    // Returns the operations which may start now and holds back the rest;
+    // must be called while holding the lock.
+    private Collection<IntentData> admit(Collection<IntentData> ops) {
+        List<IntentData> batch = Lists.newArrayListWithCapacity(ops.size());
+        for (IntentData op : ops) {
+            if (inFlightKeys.contains(op.key())) {
+                // a newer operation supersedes one held back earlier
+                deferred.put(op.key(), op);
+            } else {
+                batch.add(op);
+            }
+        }
+        if (!batch.isEmpty()) {
+            inFlight++;
+            batch.forEach(op -> inFlightKeys.add(op.key()));
+        }
+        return batch;
     }
 
     @Override
     public boolean isReady() {
-        return ready;
+        synchronized (lock) {
+            return inFlight < pipelineDepth;
+        }
     }
 
-    public void ready() {
-        ready = true;
+    /**
+     * Notifies the accumulator that the given batch has been processed.
+     * Operations held back because of it are submitted as a new batch.
+     *
+     * @param batch batch of operations previously handed to the delegate
+     */
+    public void ready(Collection<IntentData> batch) {
+        Collection<IntentData> next;
+        synchronized (lock) {
+            inFlight--;
+            batch.forEach(op -> inFlightKeys.remove(op.key()));
+            List<IntentData> released = Lists.newArrayList();
+            Iterator<IntentData> it = deferred.values().iterator();
+            while (it.hasNext()) {
+                IntentData op = it.next();
+                if (!inFlightKeys.contains(op.key())) {
+                    released.add(op);
+                    it.remove();
+                }
+            }
+            next = admit(released);
+        }
+        if (!next.isEmpty()) {
+            delegate.execute(next);
+        }
     }
 }
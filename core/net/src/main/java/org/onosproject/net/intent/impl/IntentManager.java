@@ -15,16 +15,22 @@
  */
 package org.onosproject.net.intent.impl;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onlab.util.Tools;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
 import org.onosproject.core.IdGenerator;
 import org.onosproject.event.AbstractListenerManager;
+import org.onosproject.net.NetworkResource;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleOperations;
 import org.onosproject.net.flow.FlowRuleOperationsContext;
@@ -44,21 +50,27 @@ import org.onosproject.net.intent.IntentStoreDelegate;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.impl.phase.FinalIntentProcessPhase;
 import org.onosproject.net.intent.impl.phase.IntentProcessPhase;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.concurrent.Executors.newFixedThreadPool;
-import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.intent.IntentState.CORRUPT;
 import static org.onosproject.net.intent.IntentState.FAILED;
@@ -91,6 +103,12 @@ public class IntentManager
 
     private static final int NUM_THREADS = 12;
 
+    private static final int DEFAULT_BATCH_PIPELINE_DEPTH = 1;
+    @Property(name = "batchPipelineDepth", intValue = DEFAULT_BATCH_PIPELINE_DEPTH,
+              label = "Maximum number of intent batches processed at a time; " +
+                      "batches in process never share an intent key")
+    private int batchPipelineDepth = DEFAULT_BATCH_PIPELINE_DEPTH;
+
     private static final EnumSet<IntentState> RECOMPILE
             = EnumSet.of(INSTALL_REQ, FAILED, WITHDRAW_REQ);
     private static final EnumSet<IntentState> WITHDRAW
@@ -108,25 +126,30 @@ public class IntentManager
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected FlowRuleService flowRuleService;
 
-    private ExecutorService batchExecutor;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    private volatile ExecutorService batchExecutor;
     private ExecutorService workerExecutor;
 
     private final CompilerRegistry compilerRegistry = new CompilerRegistry();
-    private final InternalIntentProcessor processor = new InternalIntentProcessor();
     private final IntentStoreDelegate delegate = new InternalStoreDelegate();
     private final TopologyChangeDelegate topoDelegate = new InternalTopoChangeDelegate();
     private final IntentBatchDelegate batchDelegate = new InternalBatchDelegate();
     private IdGenerator idGenerator;
 
-    private final IntentAccumulator accumulator = new IntentAccumulator(batchDelegate);
+    private final IntentAccumulator accumulator =
+            new IntentAccumulator(batchDelegate, DEFAULT_BATCH_PIPELINE_DEPTH);
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        cfgService.registerProperties(getClass());
         store.setDelegate(delegate);
         trackerService.setDelegate(topoDelegate);
         eventDispatcher.addSink(IntentEvent.class, listenerRegistry);
-        batchExecutor = newSingleThreadExecutor(groupedThreads("onos/intent", "batch"));
+        batchExecutor = newBatchExecutor(batchPipelineDepth);
         workerExecutor = newFixedThreadPool(NUM_THREADS, groupedThreads("onos/intent", "worker-%d"));
+        modified(context);
         idGenerator = coreService.getIdGenerator("intent-ids");
         Intent.bindIdGenerator(idGenerator);
         log.info("Started");
@@ -134,6 +157,7 @@ public class IntentManager
 
     @Deactivate
     public void deactivate() {
+        cfgService.unregisterProperties(getClass(), false);
         store.unsetDelegate(delegate);
         trackerService.unsetDelegate(topoDelegate);
         eventDispatcher.removeSink(IntentEvent.class);
@@ -143,6 +167,37 @@ public class IntentManager
         log.info("Stopped");
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        Dictionary<?, ?> properties = context != null ? context.getProperties() : new Properties();
+
+        int newDepth;
+        try {
+            String s = get(properties, "batchPipelineDepth");
+            newDepth = isNullOrEmpty(s) ? batchPipelineDepth : Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            log.warn(e.getMessage());
+            newDepth = batchPipelineDepth;
+        }
+
+        if (newDepth != batchPipelineDepth && newDepth > 0) {
+            batchPipelineDepth = newDepth;
+            // batches already running finish on the previous executor
+            ExecutorService previous = batchExecutor;
+            batchExecutor = newBatchExecutor(batchPipelineDepth);
+            accumulator.setPipelineDepth(batchPipelineDepth);
+            if (previous != null) {
+                previous.shutdown();
+            }
+        }
+
+        log.info("Settings: batchPipelineDepth={}", batchPipelineDepth);
+    }
+
+    private ExecutorService newBatchExecutor(int depth) {
+        return newFixedThreadPool(depth, groupedThreads("onos/intent", "batch-%d"));
+    }
+
     @Override
     public void submit(Intent intent) {
         checkPermission(INTENT_WRITE);
@@ -185,12 +240,28 @@ public class IntentManager
         return store.getIntentData(false, 0);
     }
 
+    @Override
+    public List<IntentData> getIntentData(Predicate<? super IntentData> filter,
+                                          int offset, int limit) {
+        checkPermission(INTENT_READ);
+        checkNotNull(filter, "Filter cannot be null");
+        checkArgument(offset >= 0 && limit >= 0, "Offset and limit cannot be negative");
+        return store.getIntentData(filter, offset, limit);
+    }
+
     @Override
     public long getIntentCount() {
         checkPermission(INTENT_READ);
         return store.getIntentCount();
     }
 
+    @Override
+    public long getIntentCount(Predicate<? super IntentData> filter) {
+        checkPermission(INTENT_READ);
+        checkNotNull(filter, "Filter cannot be null");
+        return store.getIntentCount(filter);
+    }
+
     @Override
     public IntentState getIntentState(Key intentKey) {
         checkPermission(INTENT_READ);
@@ -292,12 +363,14 @@ public class IntentManager
             log.debug("Execute {} operation(s).", operations.size());
             log.trace("Execute operations: {}", operations);
 
-            // batchExecutor is single-threaded, so only one batch is in flight at a time
+            // the accumulator admits at most batchPipelineDepth batches with disjoint
+            // intent keys at a time, each running on its own batchExecutor thread
             CompletableFuture.runAsync(() -> {
+                InternalIntentProcessor processor = new InternalIntentProcessor();
                 // process intent until the phase reaches one of the final phases
                 List<CompletableFuture<IntentData>> futures = operations.stream()
                         .map(x -> CompletableFuture.completedFuture(x)
-                                .thenApply(IntentManager.this::createInitialPhase)
+                                .thenApply(data -> createInitialPhase(data, processor))
                                 .thenApplyAsync(IntentProcessPhase::process, workerExecutor)
                                 .thenApply(FinalIntentProcessPhase::data)
                                 .exceptionally(e -> {
@@ -305,9 +378,13 @@ public class IntentManager
                                     log.warn("Future failed: {}", e);
                                     return null;
                                 })).collect(Collectors.toList());
+                List<IntentData> processed = Tools.allOf(futures).join();
+
+                // track the resources of the applied intents in one go
+                processor.trackResources();
 
                 // write multiple data to store in order
-                store.batchWrite(Tools.allOf(futures).join().stream()
+                store.batchWrite(processed.stream()
                         .filter(Objects::nonNull)
                         .collect(Collectors.toList()));
             }, batchExecutor).exceptionally(e -> {
@@ -319,17 +396,22 @@ public class IntentManager
                 // TODO: maybe we should do more?
                 log.error("Walk the plank, matey...");
                 return null;
-            }).thenRun(accumulator::ready);
+            }).thenRun(() -> accumulator.ready(operations));
 
         }
     }
 
-    private IntentProcessPhase createInitialPhase(IntentData data) {
+    private IntentProcessPhase createInitialPhase(IntentData data, IntentProcessor processor) {
         IntentData current = store.getIntentData(data.key());
         return newInitialPhase(processor, data, current);
     }
 
+    // Processes the intents of one batch; the resources of the intents it
+    // applies are handed to the tracker together once the batch is processed.
     private class InternalIntentProcessor implements IntentProcessor {
+        private final Map<Key, Collection<NetworkResource>> toTrack = Maps.newConcurrentMap();
+        private final Map<Key, Collection<NetworkResource>> toUntrack = Maps.newConcurrentMap();
+
         @Override
         public List<Intent> compile(Intent intent, List<Intent> previousInstallables) {
             return compilerRegistry.compile(intent, previousInstallables);
@@ -337,7 +419,26 @@ public class IntentManager
 
         @Override
         public void apply(Optional<IntentData> toUninstall, Optional<IntentData> toInstall) {
-            IntentManager.this.apply(toUninstall, toInstall);
+            IntentManager.this.apply(toUninstall, toInstall, this);
+        }
+
+        private void track(Key key, Collection<NetworkResource> resources, Direction direction) {
+            if (direction == Direction.ADD) {
+                toTrack.put(key, resources);
+            } else {
+                toUntrack.put(key, resources);
+            }
+        }
+
+        // Resources to stop tracking go first, as an intent being updated is
+        // uninstalled before it is installed again.
+        private void trackResources() {
+            if (!toUntrack.isEmpty()) {
+                trackerService.removeTrackedResources(toUntrack);
+            }
+            if (!toTrack.isEmpty()) {
+                trackerService.addTrackedResources(toTrack);
+            }
         }
     }
 
@@ -348,7 +449,8 @@ public class IntentManager
 
     private void applyIntentData(Optional<IntentData> intentData,
                                  FlowRuleOperations.Builder builder,
-                                 Direction direction) {
+                                 Direction direction,
+                                 InternalIntentProcessor processor) {
         if (!intentData.isPresent()) {
             return;
         }
@@ -359,16 +461,11 @@ public class IntentManager
             throw new IllegalStateException("installable intents must be FlowRuleIntent");
         }
 
-        if (direction == Direction.ADD) {
-            trackerService.addTrackedResources(data.key(), data.intent().resources());
-            intentsToApply.forEach(installable ->
-                    trackerService.addTrackedResources(data.key(), installable.resources()));
-        } else {
-            trackerService.removeTrackedResources(data.key(), data.intent().resources());
-            intentsToApply.forEach(installable ->
-                    trackerService.removeTrackedResources(data.intent().key(),
-                            installable.resources()));
-        }
+        // the resources of the intent and its installables are tracked with
+        // those of the rest of the batch
+        Collection<NetworkResource> resources = Lists.newArrayList(data.intent().resources());
+        intentsToApply.forEach(installable -> resources.addAll(installable.resources()));
+        processor.track(data.key(), resources, direction);
 
         // FIXME do FlowRuleIntents have stages??? Can we do uninstall work in parallel? I think so.
         builder.newStage();
@@ -388,12 +485,13 @@ public class IntentManager
 
     }
 
-    private void apply(Optional<IntentData> toUninstall, Optional<IntentData> toInstall) {
+    private void apply(Optional<IntentData> toUninstall, Optional<IntentData> toInstall,
+                       InternalIntentProcessor processor) {
         // need to consider if FlowRuleIntent is only one as installable intent or not
 
         FlowRuleOperations.Builder builder = FlowRuleOperations.builder();
-        applyIntentData(toUninstall, builder, Direction.REMOVE);
-        applyIntentData(toInstall, builder, Direction.ADD);
+        applyIntentData(toUninstall, builder, Direction.REMOVE, processor);
+        applyIntentData(toInstall, builder, Direction.ADD, processor);
 
         FlowRuleOperations operations = builder.build(new FlowRuleOperationsContext() {
             @Override
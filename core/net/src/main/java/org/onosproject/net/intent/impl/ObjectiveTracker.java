@@ -16,9 +16,9 @@
 package org.onosproject.net.intent.impl;
 
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -61,6 +61,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -71,7 +72,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Multimaps.synchronizedSetMultimap;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onlab.util.Tools.isNullOrEmpty;
@@ -92,12 +92,11 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
     private final Logger log = getLogger(getClass());
 
-    private final SetMultimap<LinkKey, Key> intentsByLink =
-            //TODO this could be slow as a point of synchronization
-            synchronizedSetMultimap(HashMultimap.<LinkKey, Key>create());
+    private final TrackedResourceIndex<LinkKey> intentsByLink = new TrackedResourceIndex<>();
 
-    private final SetMultimap<ElementId, Key> intentsByDevice =
-            synchronizedSetMultimap(HashMultimap.<ElementId, Key>create());
+    private final TrackedResourceIndex<ElementId> intentsByDevice = new TrackedResourceIndex<>();
+
+    private final CompiledPathCache pathCache = new CompiledPathCache();
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected TopologyService topologyService;
@@ -183,9 +182,9 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                                     Collection<NetworkResource> resources) {
         for (NetworkResource resource : resources) {
             if (resource instanceof Link) {
-                intentsByLink.put(linkKey((Link) resource), intentKey);
+                intentsByLink.add(linkKey((Link) resource), intentKey);
             } else if (resource instanceof ElementId) {
-                intentsByDevice.put((ElementId) resource, intentKey);
+                intentsByDevice.add((ElementId) resource, intentKey);
             }
         }
     }
@@ -197,17 +196,80 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
             if (resource instanceof Link) {
                 intentsByLink.remove(linkKey((Link) resource), intentKey);
             } else if (resource instanceof ElementId) {
-                intentsByDevice.remove(resource, intentKey);
+                intentsByDevice.remove((ElementId) resource, intentKey);
             }
         }
     }
 
+    @Override
+    public void addTrackedResources(Map<Key, ? extends Collection<NetworkResource>> resources) {
+        Multimap<LinkKey, Key> links = HashMultimap.create();
+        Multimap<ElementId, Key> devices = HashMultimap.create();
+        invert(resources, links, devices);
+        links.asMap().forEach(intentsByLink::add);
+        devices.asMap().forEach(intentsByDevice::add);
+    }
+
+    @Override
+    public void removeTrackedResources(Map<Key, ? extends Collection<NetworkResource>> resources) {
+        Multimap<LinkKey, Key> links = HashMultimap.create();
+        Multimap<ElementId, Key> devices = HashMultimap.create();
+        invert(resources, links, devices);
+        links.asMap().forEach(intentsByLink::remove);
+        devices.asMap().forEach(intentsByDevice::remove);
+    }
+
+    // Groups the intent keys by the tracked resource, so that each entry of
+    // the indexes is updated only once.
+    private void invert(Map<Key, ? extends Collection<NetworkResource>> resources,
+                        Multimap<LinkKey, Key> links, Multimap<ElementId, Key> devices) {
+        resources.forEach((intentKey, intentResources) -> {
+            for (NetworkResource resource : intentResources) {
+                if (resource instanceof Link) {
+                    links.put(linkKey((Link) resource), intentKey);
+                } else if (resource instanceof ElementId) {
+                    devices.put((ElementId) resource, intentKey);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompiledPathCache pathCache() {
+        return pathCache;
+    }
+
     @Override
     public void trackIntent(IntentData intentData) {
 
         //NOTE: This will be called for intents that are being added to the store
         //      locally (i.e. every intent update)
 
+        // FIXME Intents will be added 3 times (once directly using addTracked,
+        //       then when installing and when installed)
+        if (isTracked(intentData)) {
+            addTrackedResources(intentData.key(), resources(intentData));
+            // FIXME check all resources against current topo service(s); recompile if necessary
+        } else {
+            removeTrackedResources(intentData.key(), resources(intentData));
+        }
+    }
+
+    // Sorts the resources of the given intent into those to be tracked and
+    // those to stop tracking, depending on whether it is installed locally.
+    private void collectTrackedResources(IntentData intentData,
+                                         Map<Key, Collection<NetworkResource>> toAdd,
+                                         Map<Key, Collection<NetworkResource>> toRemove) {
+        if (isTracked(intentData)) {
+            toAdd.put(intentData.key(), resources(intentData));
+        } else {
+            toRemove.put(intentData.key(), resources(intentData));
+        }
+    }
+
+    // Indicates whether the resources of the given intent are to be tracked,
+    // which is the case if it is installed locally.
+    private boolean isTracked(IntentData intentData) {
         Key key = intentData.key();
         Intent intent = intentData.intent();
         boolean isLocal = intentService.isLocal(key);
@@ -218,7 +280,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
         if (log.isTraceEnabled()) {
             log.trace("intent {}, old: {}, new: {}, installableCount: {}, resourceCount: {}",
                       key,
-                      intentsByDevice.values().contains(key),
+                      intentsByDevice.contains(key),
                       isLocal && isInstalled,
                       installables.size(),
                       intent.resources().size() +
@@ -229,27 +291,25 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
         if (isNullOrEmpty(installables) && intentData.state() == INSTALLED) {
             log.warn("Intent {} is INSTALLED with no installables", key);
         }
+        return isLocal && isInstalled;
+    }
 
-        // FIXME Intents will be added 3 times (once directly using addTracked,
-        //       then when installing and when installed)
-        if (isLocal && isInstalled) {
-            addTrackedResources(key, intent.resources());
-            for (Intent installable : installables) {
-                addTrackedResources(key, installable.resources());
-            }
-            // FIXME check all resources against current topo service(s); recompile if necessary
-        } else {
-            removeTrackedResources(key, intent.resources());
-            for (Intent installable : installables) {
-                removeTrackedResources(key, installable.resources());
-            }
+    // Returns the resources of the given intent and of its installables.
+    private Collection<NetworkResource> resources(IntentData intentData) {
+        Collection<NetworkResource> resources = Lists.newArrayList(intentData.intent().resources());
+        for (Intent installable : intentData.installables()) {
+            resources.addAll(installable.resources());
         }
+        return resources;
     }
 
     // Internal re-actor to topology change events.
     private class InternalTopologyListener implements TopologyListener {
         @Override
         public void event(TopologyEvent event) {
+            // Paths are dropped before any recompile can be scheduled, so
+            // that no compile observes paths of the previous topology
+            invalidatePaths(event);
             executorService.execute(new TopologyChangeHandler(event));
         }
     }
@@ -283,12 +343,10 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                     if (reason instanceof LinkEvent) {
                         LinkEvent linkEvent = (LinkEvent) reason;
                         final LinkKey linkKey = linkKey(linkEvent.subject());
-                        synchronized (intentsByLink) {
-                            Set<Key> intentKeys = intentsByLink.get(linkKey);
-                            log.debug("recompile triggered by LinkEvent {} ({}) for {}",
-                                    linkKey, linkEvent.type(), intentKeys);
-                            intentsToRecompile.addAll(intentKeys);
-                        }
+                        Set<Key> intentKeys = intentsByLink.get(linkKey);
+                        log.debug("recompile triggered by LinkEvent {} ({}) for {}",
+                                linkKey, linkEvent.type(), intentKeys);
+                        intentsToRecompile.addAll(intentKeys);
                         dontRecompileAllFailedIntents = dontRecompileAllFailedIntents &&
                                 (linkEvent.type() == LINK_REMOVED ||
                                 (linkEvent.type() == LINK_UPDATED &&
@@ -300,6 +358,29 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
         }
     }
 
+    // Drops the compiled paths affected by the given topology change; only
+    // removed or updated links can be attributed to specific paths.
+    private void invalidatePaths(TopologyEvent event) {
+        if (event.reasons() == null || event.reasons().isEmpty()) {
+            pathCache.invalidateAll();
+            return;
+        }
+        for (Event reason : event.reasons()) {
+            if (!(reason instanceof LinkEvent)) {
+                pathCache.invalidateAll();
+                return;
+            }
+            LinkEvent linkEvent = (LinkEvent) reason;
+            if (linkEvent.type() == LINK_REMOVED || linkEvent.type() == LINK_UPDATED) {
+                pathCache.invalidate(linkKey(linkEvent.subject()));
+            } else {
+                // added links may offer better paths to any destination
+                pathCache.invalidateAll();
+                return;
+            }
+        }
+    }
+
     private class InternalResourceListener implements ResourceListener {
         @Override
         public void event(ResourceEvent event) {
@@ -308,6 +389,8 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                     .filter(x -> x == PortNumber.class)
                     .findFirst();
             if (deviceEvent.isPresent()) {
+                // path weights may depend on port resources
+                pathCache.invalidateAll();
                 executorService.execute(() -> {
                     if (delegate == null) {
                         return;
@@ -326,6 +409,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
             log.warn("Intent service is not bound yet");
             return;
         }
+        Map<Key, Collection<NetworkResource>> resourcesByIntent = Maps.newHashMap();
         intentService.getIntents().forEach(intent -> {
             if (intent.appId().equals(appId)) {
                 Key key = intent.key();
@@ -333,13 +417,14 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                 intentService.getInstallableIntents(key).stream()
                         .map(installable -> installable.resources())
                         .forEach(resources::addAll);
-                if (track) {
-                    addTrackedResources(key, resources);
-                } else {
-                    removeTrackedResources(key, resources);
-                }
+                resourcesByIntent.put(key, resources);
             }
         });
+        if (track) {
+            addTrackedResources(resourcesByIntent);
+        } else {
+            removeTrackedResources(resourcesByIntent);
+        }
     }
 
     /*
@@ -364,11 +449,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
             // TODO should we recompile on available==true?
 
-            final ImmutableSet<Key> snapshot;
-            synchronized (intentsByDevice) {
-                snapshot = ImmutableSet.copyOf(intentsByDevice.get(id));
-            }
-            delegate.triggerCompile(snapshot, available);
+            delegate.triggerCompile(intentsByDevice.get(id), available);
         }
     }
 
@@ -409,6 +490,8 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                 case HOST_ADDED:
                 case HOST_MOVED:
                 case HOST_REMOVED:
+                    // paths to a host depend on where it is attached
+                    pathCache.invalidate(id);
                     executorService.execute(new DeviceAvailabilityHandler(id, false));
                     break;
                 case HOST_UPDATED:
@@ -427,13 +510,17 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
         }
         try {
             //FIXME very inefficient
+            Map<Key, Collection<NetworkResource>> toAdd = Maps.newHashMap();
+            Map<Key, Collection<NetworkResource>> toRemove = Maps.newHashMap();
             for (IntentData intentData : intentService.getIntentData()) {
                 try {
-                    trackIntent(intentData);
+                    collectTrackedResources(intentData, toAdd, toRemove);
                 } catch (NullPointerException npe) {
                     log.warn("intent error {}", intentData.key(), npe);
                 }
             }
+            removeTrackedResources(toRemove);
+            addTrackedResources(toAdd);
         } catch (Exception e) {
             log.warn("Exception caught during update task", e);
         }
@@ -20,6 +20,7 @@ import org.onosproject.net.intent.IntentData;
 import org.onosproject.net.intent.Key;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Auxiliary service for tracking intent path flows and for notifying the
@@ -60,6 +61,30 @@ public interface ObjectiveTrackerService {
     void removeTrackedResources(Key intentKey,
                                        Collection<NetworkResource> resources);
 
+    /**
+     * Adds the path flows of several intents to be tracked.
+     *
+     * @param resources resources to track, keyed by the intent on whose
+     *                  behalf they are being tracked
+     */
+    void addTrackedResources(Map<Key, ? extends Collection<NetworkResource>> resources);
+
+    /**
+     * Removes the path flows of several intents from being tracked.
+     *
+     * @param resources resources to stop tracking, keyed by the intent on
+     *                  whose behalf they were being tracked
+     */
+    void removeTrackedResources(Map<Key, ? extends Collection<NetworkResource>> resources);
+
+    /**
+     * Returns the cache of compiled paths kept current with the topology
+     * changes observed by the tracker.
+     *
+     * @return compiled path cache
+     */
+    CompiledPathCache pathCache();
+
     /**
      * Submits the specified intent data to be tracked.
      *
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.intent.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.onosproject.net.intent.Key;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from tracked resources to the keys of the intents using
+ * them. Updates lock only the bin of the affected resource and lookups never
+ * block, so topology event handling can proceed while intents are being
+ * tracked and untracked.
+ *
+ * @param <R> type of tracked resource
+ */
+final class TrackedResourceIndex<R> {
+
+    private final Map<R, Set<Key>> index = new ConcurrentHashMap<>();
+
+    /**
+     * Records that the given intent uses the given resource.
+     *
+     * @param resource  tracked resource
+     * @param intentKey intent key
+     */
+    void add(R resource, Key intentKey) {
+        index.compute(resource, (r, keys) -> {
+            Set<Key> set = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            set.add(intentKey);
+            return set;
+        });
+    }
+
+    /**
+     * Records that the given intents use the given resource.
+     *
+     * @param resource   tracked resource
+     * @param intentKeys intent keys
+     */
+    void add(R resource, Collection<Key> intentKeys) {
+        index.compute(resource, (r, keys) -> {
+            Set<Key> set = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            set.addAll(intentKeys);
+            return set;
+        });
+    }
+
+    /**
+     * Records that the given intent no longer uses the given resource.
+     *
+     * @param resource  tracked resource
+     * @param intentKey intent key
+     */
+    void remove(R resource, Key intentKey) {
+        index.computeIfPresent(resource, (r, keys) -> {
+            keys.remove(intentKey);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * Records that the given intents no longer use the given resource.
+     *
+     * @param resource   tracked resource
+     * @param intentKeys intent keys
+     */
+    void remove(R resource, Collection<Key> intentKeys) {
+        index.computeIfPresent(resource, (r, keys) -> {
+            keys.removeAll(intentKeys);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * Returns a snapshot of the keys of the intents using the given resource.
+     *
+     * @param resource tracked resource
+     * @return set of intent keys; empty if the resource is not tracked
+     */
+    Set<Key> get(R resource) {
+        Set<Key> keys = index.get(resource);
+        return keys == null ? ImmutableSet.of() : ImmutableSet.copyOf(keys);
+    }
+
+    /**
+     * Indicates whether the given intent uses any tracked resource.
+     *
+     * @param intentKey intent key
+     * @return true if the intent is tracked
+     */
+    boolean contains(Key intentKey) {
+        return index.values().stream().anyMatch(keys -> keys.contains(intentKey));
+    }
+
+    /**
+     * Returns the number of tracked resources.
+     *
+     * @return number of resources
+     */
+    int size() {
+        return index.size();
+    }
+}
@@ -26,6 +26,8 @@ import org.onosproject.net.intent.ConnectivityIntent;
 import org.onosproject.net.intent.Constraint;
 import org.onosproject.net.intent.IntentCompiler;
 import org.onosproject.net.intent.IntentExtensionService;
+import org.onosproject.net.intent.impl.CompiledPathCache;
+import org.onosproject.net.intent.impl.ObjectiveTrackerService;
 import org.onosproject.net.intent.impl.PathNotFoundException;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.resource.link.LinkResourceService;
@@ -57,6 +59,9 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected LinkResourceService resourceService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected ObjectiveTrackerService trackerService;
+
     /**
      * Returns an edge-weight capable of evaluating links on the basis of the
      * specified constraints.
@@ -85,7 +90,10 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
     }
 
     /**
-     * Computes a path between two ConnectPoints.
+     * Computes a path between two ConnectPoints. Candidate paths are shared
+     * with other compilers through the compiled path cache for as long as the
+     * topology they traverse does not change; they are validated against the
+     * intent constraints on every use.
      *
      * @param intent intent on which behalf path is being computed
      * @param one    start of the path
@@ -95,11 +103,26 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
      */
     protected Path getPath(ConnectivityIntent intent,
                            ElementId one, ElementId two) {
-        Set<Path> paths = pathService.getPaths(one, two, weight(intent.constraints()));
         final List<Constraint> constraints = intent.constraints();
-        ImmutableList<Path> filtered = FluentIterable.from(paths)
-                .filter(path -> checkPath(path, constraints))
-                .toList();
+        CompiledPathCache cache = trackerService != null ? trackerService.pathCache() : null;
+        if (cache != null) {
+            Set<Path> cached = cache.get(one, two, constraints);
+            if (cached != null) {
+                ImmutableList<Path> filtered = filter(cached, constraints);
+                if (!filtered.isEmpty()) {
+                    return filtered.iterator().next();
+                }
+                // resource availability may have changed since the paths
+                // were computed; compute them afresh
+            }
+        }
+
+        long epoch = cache != null ? cache.epoch() : 0;
+        Set<Path> paths = pathService.getPaths(one, two, weight(constraints));
+        if (cache != null) {
+            cache.put(one, two, constraints, paths, epoch);
+        }
+        ImmutableList<Path> filtered = filter(paths, constraints);
         if (filtered.isEmpty()) {
             throw new PathNotFoundException(one, two);
         }
@@ -107,6 +130,13 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
         return filtered.iterator().next();
     }
 
+    // Returns the given paths which pass all constraints
+    private ImmutableList<Path> filter(Set<Path> paths, List<Constraint> constraints) {
+        return FluentIterable.from(paths)
+                .filter(path -> checkPath(path, constraints))
+                .toList();
+    }
+
     /**
      * Edge-weight capable of evaluating link cost using a set of constraints.
      */
@@ -16,6 +16,7 @@
 package org.onosproject.net.packet.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
 import org.apache.felix.scr.annotations.Activate;
@@ -24,6 +25,8 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.PacketView;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.NodeId;
 import org.onosproject.core.ApplicationId;
@@ -36,6 +39,11 @@ import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.DefaultTrafficTreatment;
 import org.onosproject.net.flow.FlowRuleService;
 import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.criteria.Criterion;
+import org.onosproject.net.flow.criteria.EthTypeCriterion;
+import org.onosproject.net.flow.criteria.IPProtocolCriterion;
+import org.onosproject.net.flow.criteria.TcpPortCriterion;
+import org.onosproject.net.flow.criteria.UdpPortCriterion;
 import org.onosproject.net.flowobjective.DefaultForwardingObjective;
 import org.onosproject.net.flowobjective.FlowObjectiveService;
 import org.onosproject.net.flowobjective.ForwardingObjective;
@@ -60,8 +68,12 @@ import org.onosproject.net.provider.AbstractProviderRegistry;
 import org.onosproject.net.provider.AbstractProviderService;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -82,6 +94,8 @@ public class PacketManager
 
     private final Logger log = getLogger(getClass());
 
+    private static final short UNDECODABLE = -1;
+
     private static final String TABLE_TYPE_MSG =
             "Table Type cannot be null. For requesting packets without " +
                     "table hints, use other methods in the packetService API";
@@ -112,6 +126,10 @@ public class PacketManager
 
     private final List<ProcessorEntry> processors = Lists.newCopyOnWriteArrayList();
 
+    // Processors by the Ethernet type of packets they are interested in;
+    // rebuilt whenever the processors change.
+    private volatile DispatchIndex dispatchIndex = new DispatchIndex(ImmutableList.of());
+
     private final  PacketDriverProvider defaultProvider = new PacketDriverProvider();
 
     private ApplicationId appId;
@@ -145,18 +163,28 @@ public class PacketManager
 
     @Override
     public void addProcessor(PacketProcessor processor, int priority) {
+        addProcessor(processor, priority, ImmutableSet.of());
+    }
+
+    @Override
+    public void addProcessor(PacketProcessor processor, int priority,
+                             Set<TrafficSelector> interests) {
         checkPermission(PACKET_EVENT);
         checkNotNull(processor, "Processor cannot be null");
-        ProcessorEntry entry = new ProcessorEntry(processor, priority);
+        checkNotNull(interests, "Interests cannot be null");
+        ProcessorEntry entry = new ProcessorEntry(processor, priority, interests);
 
         // Insert the new processor according to its priority.
-        int i = 0;
-        for (; i < processors.size(); i++) {
-            if (priority < processors.get(i).priority()) {
-                break;
+        synchronized (processors) {
+            int i = 0;
+            for (; i < processors.size(); i++) {
+                if (priority < processors.get(i).priority()) {
+                    break;
+                }
             }
+            processors.add(i, entry);
+            dispatchIndex = new DispatchIndex(processors);
         }
-        processors.add(i, entry);
     }
 
     @Override
@@ -165,11 +193,14 @@ public class PacketManager
         checkNotNull(processor, "Processor cannot be null");
 
         // Remove the processor entry.
-        for (int i = 0; i < processors.size(); i++) {
-            if (processors.get(i).processor() == processor) {
-                processors.remove(i);
-                break;
+        synchronized (processors) {
+            for (int i = 0; i < processors.size(); i++) {
+                if (processors.get(i).processor() == processor) {
+                    processors.remove(i);
+                    break;
+                }
             }
+            dispatchIndex = new DispatchIndex(processors);
         }
     }
 
@@ -364,8 +395,11 @@ public class PacketManager
 
         @Override
         public void processPacket(PacketContext context) {
-            // TODO filter packets sent to processors based on registrations
-            for (ProcessorEntry entry : processors) {
+            PacketView view = context.inPacket().view();
+            for (ProcessorEntry entry : dispatchIndex.processors(view)) {
+                if (!entry.isInterested(view)) {
+                    continue;
+                }
                 try {
                     long start = System.nanoTime();
                     entry.processor().process(context);
@@ -437,18 +471,102 @@ public class PacketManager
         }
     }
 
+    /**
+     * Index of processors by the Ethernet type of packets they are interested
+     * in. Each list retains the priority order and includes the processors
+     * interested in all Ethernet types.
+     */
+    private static final class DispatchIndex {
+        private final List<ProcessorEntry> all;
+        private final List<ProcessorEntry> anyType;
+        private final Map<Short, List<ProcessorEntry>> byType;
+
+        private DispatchIndex(List<ProcessorEntry> processors) {
+            this.all = ImmutableList.copyOf(processors);
+
+            Map<Short, List<ProcessorEntry>> lists = new HashMap<>();
+            all.forEach(e -> e.ethTypes().forEach(t -> lists.put(t, new ArrayList<>())));
+            ImmutableList.Builder<ProcessorEntry> anyTypeBuilder = ImmutableList.builder();
+            for (ProcessorEntry entry : all) {
+                if (entry.ethTypes().isEmpty()) {
+                    anyTypeBuilder.add(entry);
+                    lists.values().forEach(l -> l.add(entry));
+                } else {
+                    entry.ethTypes().forEach(t -> lists.get(t).add(entry));
+                }
+            }
+            this.anyType = anyTypeBuilder.build();
+
+            Map<Short, List<ProcessorEntry>> index = new HashMap<>();
+            lists.forEach((t, l) -> index.put(t, ImmutableList.copyOf(l)));
+            this.byType = index;
+        }
+
+        // Returns the processors possibly interested in the given packet;
+        // packets too short to tell go to all processors.
+        private List<ProcessorEntry> processors(PacketView view) {
+            if (view == null || view.etherType() == UNDECODABLE) {
+                return all;
+            }
+            return byType.getOrDefault(view.etherType(), anyType);
+        }
+    }
+
     /**
      * Entity for tracking stats for a packet processor.
      */
     private class ProcessorEntry implements PacketProcessorEntry {
         private final PacketProcessor processor;
         private final int priority;
+        private final Set<TrafficSelector> interests;
+        private final Set<Short> ethTypes;
+        private final boolean refined;
         private long invocations = 0;
         private long nanos = 0;
 
-        public ProcessorEntry(PacketProcessor processor, int priority) {
+        public ProcessorEntry(PacketProcessor processor, int priority,
+                              Set<TrafficSelector> interests) {
             this.processor = processor;
             this.priority = priority;
+            this.interests = ImmutableSet.copyOf(interests);
+
+            // Ethernet types of interest; empty if any selector admits all.
+            ImmutableSet.Builder<Short> types = ImmutableSet.builder();
+            boolean anyType = this.interests.isEmpty();
+            boolean beyondType = false;
+            for (TrafficSelector selector : this.interests) {
+                Criterion criterion = selector.getCriterion(Criterion.Type.ETH_TYPE);
+                if (criterion == null) {
+                    anyType = true;
+                } else {
+                    types.add(((EthTypeCriterion) criterion).ethType().toShort());
+                }
+                beyondType |= selector.getCriterion(Criterion.Type.IP_PROTO) != null ||
+                        selector.getCriterion(Criterion.Type.TCP_DST) != null ||
+                        selector.getCriterion(Criterion.Type.UDP_DST) != null;
+            }
+            this.ethTypes = anyType ? ImmutableSet.of() : types.build();
+            this.refined = beyondType;
+        }
+
+        Set<Short> ethTypes() {
+            return ethTypes;
+        }
+
+        // Indicates whether the processor wants the given packet; only
+        // selectors with criteria beyond the Ethernet type need checking as
+        // the dispatch index has already taken care of the latter. Like the
+        // index, packets too short to tell go to all processors.
+        boolean isInterested(PacketView view) {
+            if (!refined || view == null || view.etherType() == UNDECODABLE) {
+                return true;
+            }
+            for (TrafficSelector selector : interests) {
+                if (matches(selector, view)) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         @Override
@@ -481,4 +599,38 @@ public class PacketManager
             this.invocations++;
         }
     }
+
+    // Matches the packet against the dispatch criteria of the selector.
+    private static boolean matches(TrafficSelector selector, PacketView view) {
+        for (Criterion criterion : selector.criteria()) {
+            switch (criterion.type()) {
+                case ETH_TYPE:
+                    if (view.etherType() != ((EthTypeCriterion) criterion).ethType().toShort()) {
+                        return false;
+                    }
+                    break;
+                case IP_PROTO:
+                    if (view.ipProtocol() != ((IPProtocolCriterion) criterion).protocol()) {
+                        return false;
+                    }
+                    break;
+                case TCP_DST:
+                    if (view.ipProtocol() != IPv4.PROTOCOL_TCP ||
+                            view.destinationPort() != ((TcpPortCriterion) criterion).tcpPort().toInt()) {
+                        return false;
+                    }
+                    break;
+                case UDP_DST:
+                    if (view.ipProtocol() != IPv4.PROTOCOL_UDP ||
+                            view.destinationPort() != ((UdpPortCriterion) criterion).udpPort().toInt()) {
+                        return false;
+                    }
+                    break;
+                default:
+                    // Other criteria do not take part in dispatching
+                    break;
+            }
+        }
+        return true;
+    }
 }
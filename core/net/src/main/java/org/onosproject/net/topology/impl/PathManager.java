@@ -277,6 +277,9 @@ public class PathManager implements PathService {
 
     // Produces a direct edge-to-edge path.
     private DisjointPath edgeToEdgePathD(EdgeLink srcLink, EdgeLink dstLink, DisjointPath path) {
+        if (path.backup() == null) {
+            return new DefaultDisjointPath(PID, (DefaultPath) edgeToEdgePath(srcLink, dstLink, path.primary()));
+        }
         return new DefaultDisjointPath(PID, (DefaultPath) edgeToEdgePath(srcLink, dstLink, path.primary()),
                                        (DefaultPath) edgeToEdgePath(srcLink, dstLink, path.backup()));
     }
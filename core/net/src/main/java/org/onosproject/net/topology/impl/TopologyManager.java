@@ -32,6 +32,7 @@ import org.onosproject.net.provider.AbstractProviderService;
 import org.onosproject.net.topology.ClusterId;
 import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.PathCacheStatistics;
 import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyCluster;
 import org.onosproject.net.topology.TopologyEvent;
@@ -218,6 +219,13 @@ public class TopologyManager
         return store.isBroadcastPoint(topology, connectPoint);
     }
 
+    @Override
+    public PathCacheStatistics getPathCacheStatistics(Topology topology) {
+        checkPermission(TOPOLOGY_READ);
+        checkNotNull(topology, TOPOLOGY_NULL);
+        return store.getPathCacheStatistics(topology);
+    }
+
     // Personalized host provider service issued to the supplied provider.
     @Override
     protected TopologyProviderService createProviderService(TopologyProvider provider) {
@@ -15,18 +15,29 @@
  */
 package org.onosproject.event.impl;
 
+import com.codahale.metrics.MetricFilter;
+import com.google.common.collect.ImmutableList;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.EventSink;
+import org.onosproject.net.DeviceId;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.DeviceId.deviceId;
 
 /**
  * Test of the even dispatcher mechanism.
@@ -76,6 +87,158 @@ public class CoreEventDispatcherTest {
         validate(prickleSink);
     }
 
+    @Test
+    public void postSharded() throws Exception {
+        dispatcher.setDispatchThreads(4);
+        assertEquals("incorrect thread count", 4, dispatcher.getDispatchThreads());
+        prickleSink.latch = new CountDownLatch(3);
+        dispatcher.post(new Prickle("a"));
+        dispatcher.post(new Prickle("b"));
+        dispatcher.post(new Prickle("c"));
+        prickleSink.latch.await(100, TimeUnit.MILLISECONDS);
+        validate(prickleSink, "a", "b", "c");
+        validate(gooSink);
+    }
+
+    @Test
+    public void postBatch() throws Exception {
+        dispatcher.setDispatchThreads(4);
+        prickleSink.latch = new CountDownLatch(3);
+        gooSink.latch = new CountDownLatch(1);
+        dispatcher.post(ImmutableList.of(new Prickle("a"), new Goo("x"),
+                                         new Prickle("b"), new Prickle("c")));
+        prickleSink.latch.await(100, TimeUnit.MILLISECONDS);
+        gooSink.latch.await(100, TimeUnit.MILLISECONDS);
+        validate(prickleSink, "a", "b", "c");
+        validate(gooSink, "x");
+    }
+
+    @Test
+    public void resizeWithMetrics() throws Exception {
+        // Real registry rejects duplicate metric names
+        MetricsManager metrics = new MetricsManager();
+        CoreEventDispatcher resized = new CoreEventDispatcher();
+        resized.metricsService = metrics;
+        resized.activate();
+        try {
+            resized.setDispatchThreads(4);
+            resized.setDispatchThreads(2);
+            resized.setDispatchThreads(4);
+            resized.setDispatchThreads(2);
+            resized.awaitResize(5, TimeUnit.SECONDS);
+            Set<String> gauges = metrics.getGauges(MetricFilter.ALL).keySet();
+            assertEquals("incorrect gauges", 2, gauges.size());
+            assertTrue("missing gauge", gauges.contains("EventDispatcher.shard-0.queueDepth"));
+            assertTrue("missing gauge", gauges.contains("EventDispatcher.shard-1.queueDepth"));
+        } finally {
+            resized.deactivate();
+        }
+        assertTrue("stale gauges", metrics.getGauges(MetricFilter.ALL).isEmpty());
+    }
+
+    @Test
+    public void resizePreservesOrder() throws Exception {
+        SlowSink slowSink = new SlowSink();
+        slowSink.latch = new CountDownLatch(100);
+        dispatcher.addSink(Thing.class, slowSink);
+        for (int i = 0; i < 50; i++) {
+            dispatcher.post(new Thing(Integer.toString(i)));
+        }
+        Thread resizer = new Thread(() -> dispatcher.setDispatchThreads(4));
+        resizer.start();
+        for (int i = 50; i < 100; i++) {
+            dispatcher.post(new Thing(Integer.toString(i)));
+        }
+        resizer.join();
+        slowSink.latch.await(5, TimeUnit.SECONDS);
+        dispatcher.removeSink(Thing.class);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(Integer.toString(i));
+        }
+        assertEquals("incorrect event order", expected, slowSink.subjects);
+    }
+
+    @Test
+    public void resizeDoesNotWaitForDrain() throws Exception {
+        BlockingSink blockingSink = new BlockingSink();
+        dispatcher.addSink(Thing.class, blockingSink);
+        dispatcher.post(new Thing("stuck"));
+        assertTrue("event not dispatched", blockingSink.started.await(5, TimeUnit.SECONDS));
+
+        dispatcher.setDispatchThreads(4);
+        assertEquals("incorrect thread count", 4, dispatcher.getDispatchThreads());
+
+        blockingSink.release.countDown();
+        dispatcher.awaitResize(5, TimeUnit.SECONDS);
+        dispatcher.removeSink(Thing.class);
+    }
+
+    @Test
+    public void shardKeys() {
+        DeviceId did = deviceId("of:1");
+        assertEquals("incorrect key", did,
+                     CoreEventDispatcher.shardKey(new DeviceThing(did)));
+        assertEquals("incorrect key", Prickle.class,
+                     CoreEventDispatcher.shardKey(new Prickle("yo")));
+    }
+
+    @Test
+    public void classKeyedEventsShareFirstShard() {
+        assertEquals("incorrect shard", 0, CoreEventDispatcher.shardIndex(new Prickle("yo"), 4));
+        assertEquals("incorrect shard", 0, CoreEventDispatcher.shardIndex(new Goo("yo"), 4));
+        assertEquals("incorrect shard", 0, CoreEventDispatcher.shardIndex(new Thing("yo"), 4));
+    }
+
+    @Test
+    public void deviceKeyedEventsDispatchedInParallel() throws Exception {
+        dispatcher.setDispatchThreads(4);
+        dispatcher.awaitResize(5, TimeUnit.SECONDS);
+
+        // One device on each shard; the first one's sink blocks
+        List<DeviceId> devices = new ArrayList<>();
+        Set<Integer> shardsUsed = new HashSet<>();
+        for (int i = 1; devices.size() < 4; i++) {
+            DeviceId did = deviceId("of:" + i);
+            if (shardsUsed.add(CoreEventDispatcher.shardIndex(new DeviceThing(did, 0), 4))) {
+                devices.add(did);
+            }
+        }
+        DeviceId blocked = devices.get(0);
+        DeviceSink deviceSink = new DeviceSink(blocked);
+        dispatcher.addSink(DeviceThing.class, deviceSink);
+
+        dispatcher.post(new DeviceThing(blocked, 0));
+        assertTrue("event not dispatched", deviceSink.started.await(5, TimeUnit.SECONDS));
+
+        int count = 20;
+        deviceSink.others = new CountDownLatch(3 * count);
+        for (int seq = 0; seq < count; seq++) {
+            for (DeviceId did : devices) {
+                if (!did.equals(blocked) || seq > 0) {
+                    dispatcher.post(new DeviceThing(did, seq));
+                }
+            }
+        }
+        assertTrue("other shards stalled", deviceSink.others.await(5, TimeUnit.SECONDS));
+        assertEquals("blocked shard progressed", 1, deviceSink.sequences(blocked).size());
+
+        deviceSink.release.countDown();
+        List<Integer> expected = new ArrayList<>();
+        for (int seq = 0; seq < count; seq++) {
+            expected.add(seq);
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (deviceSink.sequences(blocked).size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for (DeviceId did : devices) {
+            assertEquals("incorrect event order for " + did, expected, deviceSink.sequences(did));
+        }
+        dispatcher.removeSink(DeviceThing.class);
+    }
+
     private void validate(Sink sink, String... strings) {
         int i = 0;
         assertEquals("incorrect event count", strings.length, sink.subjects.size());
@@ -104,6 +267,19 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class DeviceThing extends AbstractEvent<Type, DeviceId> {
+        final int seq;
+
+        protected DeviceThing(DeviceId subject) {
+            this(subject, 0);
+        }
+
+        protected DeviceThing(DeviceId subject, int seq) {
+            super(Type.FOO, subject);
+            this.seq = seq;
+        }
+    }
+
     private static class Sink {
         final List<String> subjects = new ArrayList<>();
         CountDownLatch latch;
@@ -114,6 +290,72 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class SlowSink implements EventSink<Thing> {
+        final List<String> subjects = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch;
+
+        @Override
+        public void process(Thing event) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            subjects.add(event.subject());
+            latch.countDown();
+        }
+    }
+
+    private static class BlockingSink implements EventSink<Thing> {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void process(Thing event) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Records the sequence numbers seen per device; blocks on the first
+    // event of the given device until released.
+    private static class DeviceSink implements EventSink<DeviceThing> {
+        final Map<DeviceId, List<Integer>> seen = new ConcurrentHashMap<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final DeviceId blocked;
+        volatile CountDownLatch others = new CountDownLatch(0);
+
+        DeviceSink(DeviceId blocked) {
+            this.blocked = blocked;
+        }
+
+        @Override
+        public void process(DeviceThing event) {
+            seen.computeIfAbsent(event.subject(), d -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(event.seq);
+            if (!event.subject().equals(blocked)) {
+                others.countDown();
+                return;
+            }
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<Integer> sequences(DeviceId did) {
+            List<Integer> seqs = seen.get(did);
+            return seqs == null ? ImmutableList.of() : ImmutableList.copyOf(seqs);
+        }
+    }
+
     private static class PrickleSink extends Sink implements EventSink<Prickle> {
         @Override
         public void process(Prickle event) {
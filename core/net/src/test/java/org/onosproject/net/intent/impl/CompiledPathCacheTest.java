@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.intent.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onosproject.net.Path;
+import org.onosproject.net.intent.Constraint;
+import org.onosproject.net.intent.constraint.LatencyConstraint;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.onosproject.net.LinkKey.linkKey;
+import static org.onosproject.net.NetTestTools.createPath;
+import static org.onosproject.net.NetTestTools.did;
+import static org.onosproject.net.NetTestTools.link;
+
+/**
+ * Unit tests for the compiled path cache.
+ */
+public class CompiledPathCacheTest {
+
+    private static final List<Constraint> NONE = ImmutableList.of();
+    private static final List<Constraint> LATENCY =
+            ImmutableList.of(new LatencyConstraint(Duration.ofMillis(10)));
+
+    private final Path abc = createPath("a", "b", "c");
+    private final Path xyz = createPath("x", "y", "z");
+
+    private final CompiledPathCache cache = new CompiledPathCache();
+
+    /**
+     * Tests that paths are keyed by end-points and constraints.
+     */
+    @Test
+    public void putAndGet() {
+        Set<Path> paths = ImmutableSet.of(abc);
+        cache.put(did("a"), did("c"), NONE, paths, cache.epoch());
+
+        assertThat(cache.get(did("a"), did("c"), NONE), is(paths));
+        assertThat(cache.get(did("a"), did("c"), LATENCY), is(nullValue()));
+        assertThat(cache.get(did("c"), did("a"), NONE), is(nullValue()));
+    }
+
+    /**
+     * Tests that a link change drops only the paths traversing the link.
+     */
+    @Test
+    public void invalidateLink() {
+        cache.put(did("a"), did("c"), NONE, ImmutableSet.of(abc), cache.epoch());
+        cache.put(did("x"), did("z"), NONE, ImmutableSet.of(xyz), cache.epoch());
+
+        cache.invalidate(linkKey(link("b", 1, "c", 1)));
+
+        assertThat(cache.get(did("a"), did("c"), NONE), is(nullValue()));
+        assertThat(cache.get(did("x"), did("z"), NONE), is(ImmutableSet.of(xyz)));
+    }
+
+    /**
+     * Tests that a change to an end-point drops only the paths ending there.
+     */
+    @Test
+    public void invalidateEndPoint() {
+        cache.put(did("a"), did("c"), NONE, ImmutableSet.of(abc), cache.epoch());
+        cache.put(did("x"), did("z"), NONE, ImmutableSet.of(xyz), cache.epoch());
+
+        cache.invalidate(did("c"));
+
+        assertThat(cache.get(did("a"), did("c"), NONE), is(nullValue()));
+        assertThat(cache.get(did("x"), did("z"), NONE), is(ImmutableSet.of(xyz)));
+    }
+
+    /**
+     * Tests that paths computed before a topology change are not cached.
+     */
+    @Test
+    public void stalePut() {
+        long epoch = cache.epoch();
+        cache.invalidateAll();
+        cache.put(did("a"), did("c"), NONE, ImmutableSet.of(abc), epoch);
+
+        assertThat(cache.get(did("a"), did("c"), NONE), is(nullValue()));
+        assertThat(cache.size(), is(0L));
+    }
+}
@@ -33,9 +33,12 @@ import org.onosproject.net.intent.IntentTestsMocks.MockTimestamp;
 import org.onosproject.net.intent.MockIdGenerator;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 
 /**
  * Unit tests for the intent accumulator.
@@ -156,5 +159,55 @@ public class IntentAccumulatorTest {
         accumulator.processItems(intentDataItems);
     }
 
+    /**
+     * Mock batch delegate class which records the batches it was given.
+     */
+    private static class RecordingIntentBatchDelegate
+                   implements IntentBatchDelegate {
+        final List<Collection<IntentData>> batches = Lists.newArrayList();
+
+        public void execute(Collection<IntentData> operations) {
+            batches.add(operations);
+        }
+    }
+
+    /**
+     * Tests that batches with disjoint keys are processed concurrently up to
+     * the pipeline depth and that operations on an intent in process are
+     * held back until its batch completes.
+     */
+    @Test
+    public void checkPipelinedAccumulator() {
+        RecordingIntentBatchDelegate delegate = new RecordingIntentBatchDelegate();
+        IntentAccumulator accumulator = new IntentAccumulator(delegate, 2);
+
+        IntentData first = new IntentData(intent1, IntentState.INSTALLING,
+                                          new MockTimestamp(1));
+        accumulator.processItems(ImmutableList.of(first));
+        assertThat(accumulator.isReady(), is(true));
+
+        IntentData second = new IntentData(intent1, IntentState.INSTALLED,
+                                           new MockTimestamp(2));
+        accumulator.processItems(ImmutableList.of(
+                second,
+                new IntentData(intent2, IntentState.INSTALLED,
+                               new MockTimestamp(1))));
+        assertThat(accumulator.isReady(), is(false));
+
+        // intent1 is still in process, so only intent2 may start
+        assertThat(delegate.batches, hasSize(2));
+        assertThat(delegate.batches.get(1), hasSize(1));
+        assertThat(delegate.batches.get(1), containsIntent(intent2));
+
+        // completing the first batch releases the held back operation
+        accumulator.ready(delegate.batches.get(0));
+        assertThat(delegate.batches, hasSize(3));
+        assertThat(delegate.batches.get(2), contains(second));
+
+        accumulator.ready(delegate.batches.get(1));
+        accumulator.ready(delegate.batches.get(2));
+        assertThat(accumulator.isReady(), is(true));
+    }
+
 
 }
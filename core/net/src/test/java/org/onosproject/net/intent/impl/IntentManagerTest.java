@@ -26,6 +26,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.onlab.junit.TestUtils;
+import org.onlab.osgi.ComponentContextAdapter;
 import org.onosproject.TestApplicationId;
 import org.onosproject.cfg.ComponentConfigAdapter;
 import org.onosproject.common.event.impl.TestEventDispatcher;
@@ -46,9 +48,12 @@ import org.onosproject.net.intent.IntentState;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.resource.link.LinkResourceAllocations;
 import org.onosproject.store.trivial.SimpleIntentStore;
+import org.osgi.service.component.ComponentContext;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -126,6 +131,7 @@ public class IntentManagerTest {
 
     private static class TestIntentTracker implements ObjectiveTrackerService {
         private TopologyChangeDelegate delegate;
+        private final CompiledPathCache pathCache = new CompiledPathCache();
         @Override
         public void setDelegate(TopologyChangeDelegate delegate) {
             this.delegate = delegate;
@@ -148,10 +154,25 @@ public class IntentManagerTest {
             //TODO
         }
 
+        @Override
+        public void addTrackedResources(Map<Key, ? extends Collection<NetworkResource>> resources) {
+            //TODO
+        }
+
+        @Override
+        public void removeTrackedResources(Map<Key, ? extends Collection<NetworkResource>> resources) {
+            //TODO
+        }
+
         @Override
         public void trackIntent(IntentData intentData) {
             //TODO
         }
+
+        @Override
+        public CompiledPathCache pathCache() {
+            return pathCache;
+        }
     }
 
     private static class MockInstallableIntent extends FlowRuleIntent {
@@ -231,10 +252,11 @@ public class IntentManagerTest {
         manager.trackerService = new TestIntentTracker();
         manager.flowRuleService = flowRuleService;
         manager.coreService = new TestCoreManager();
+        manager.cfgService = new ComponentConfigAdapter();
         service = manager;
         extensionService = manager;
 
-        manager.activate();
+        manager.activate(null);
         service.addListener(listener);
         extensionService.registerCompiler(MockIntent.class, compiler);
 
@@ -274,6 +296,30 @@ public class IntentManagerTest {
         // TODO null the other refs?
     }
 
+    /**
+     * Tests that the configured properties are applied on activation.
+     */
+    @Test
+    public void activateAppliesProperties() throws TestUtils.TestUtilsException {
+        ComponentContext context = new ComponentContextAdapter() {
+            @Override
+            public Dictionary getProperties() {
+                Dictionary<String, Object> properties = new Hashtable<>();
+                properties.put("batchPipelineDepth", "3");
+                return properties;
+            }
+        };
+
+        manager.deactivate();
+        manager.activate(context);
+
+        int depth = TestUtils.getField(manager, "batchPipelineDepth");
+        assertEquals(3, depth);
+        IntentAccumulator accumulator = TestUtils.getField(manager, "accumulator");
+        int pipelineDepth = TestUtils.getField(accumulator, "pipelineDepth");
+        assertEquals(3, pipelineDepth);
+    }
+
     @Test
     public void submitIntent() {
         flowRuleService.setFuture(true);
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.intent.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.intent.Key;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.onosproject.net.NetTestTools.APP_ID;
+import static org.onosproject.net.NetTestTools.did;
+
+/**
+ * Unit tests for the tracked resource index.
+ */
+public class TrackedResourceIndexTest {
+
+    private static final DeviceId D1 = did("d1");
+    private static final DeviceId D2 = did("d2");
+    private static final Key K1 = Key.of(1L, APP_ID);
+    private static final Key K2 = Key.of(2L, APP_ID);
+
+    private final TrackedResourceIndex<DeviceId> index = new TrackedResourceIndex<>();
+
+    /**
+     * Tests that intents are indexed by the resources they use.
+     */
+    @Test
+    public void addAndGet() {
+        index.add(D1, K1);
+        index.add(D1, K2);
+        index.add(D2, K2);
+
+        assertThat(index.get(D1), containsInAnyOrder(K1, K2));
+        assertThat(index.get(D2), containsInAnyOrder(K2));
+        assertThat(index.contains(K1), is(true));
+        assertThat(index.size(), is(2));
+    }
+
+    /**
+     * Tests that resources no longer used by any intent are dropped.
+     */
+    @Test
+    public void remove() {
+        index.add(D1, K1);
+        index.add(D2, K1);
+        index.remove(D1, K1);
+        index.remove(D1, K2);
+
+        assertThat(index.get(D1), is(empty()));
+        assertThat(index.get(D2), containsInAnyOrder(K1));
+        assertThat(index.size(), is(1));
+
+        index.remove(D2, K1);
+        assertThat(index.contains(K1), is(false));
+        assertThat(index.size(), is(0));
+    }
+
+    /**
+     * Tests adding and removing several intents of a resource at once.
+     */
+    @Test
+    public void bulk() {
+        index.add(D1, ImmutableSet.of(K1, K2));
+        assertThat(index.get(D1), containsInAnyOrder(K1, K2));
+
+        index.remove(D1, ImmutableSet.of(K1));
+        assertThat(index.get(D1), containsInAnyOrder(K2));
+
+        index.remove(D1, ImmutableSet.of(K1, K2));
+        assertThat(index.size(), is(0));
+    }
+
+    /**
+     * Tests that lookups return snapshots unaffected by later updates.
+     */
+    @Test
+    public void snapshot() {
+        index.add(D1, K1);
+        Iterable<Key> keys = index.get(D1);
+        index.add(D1, K2);
+
+        assertThat(keys, containsInAnyOrder(K1));
+    }
+}
@@ -18,18 +18,22 @@ package org.onosproject.net.intent.impl.compiler;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.junit.TestUtils;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.TestApplicationId;
 import org.onosproject.net.Host;
 import org.onosproject.net.HostId;
 import org.onosproject.net.flow.TrafficSelector;
 import org.onosproject.net.flow.TrafficTreatment;
+import org.onosproject.net.host.HostEvent;
+import org.onosproject.net.host.HostListener;
 import org.onosproject.net.host.HostService;
 import org.onosproject.net.intent.AbstractIntentTest;
 import org.onosproject.net.intent.HostToHostIntent;
 import org.onosproject.net.intent.Intent;
 import org.onosproject.net.intent.IntentTestsMocks;
 import org.onosproject.net.intent.PathIntent;
+import org.onosproject.net.intent.impl.ObjectiveTracker;
 import org.onlab.packet.MacAddress;
 import org.onlab.packet.VlanId;
 
@@ -41,6 +45,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.onosproject.net.NetTestTools.hid;
+import static org.onosproject.net.NetTestTools.host;
 import static org.onosproject.net.intent.LinksHaveEntryWithSourceDestinationPairMatcher.linksHasPath;
 
 /**
@@ -164,4 +169,31 @@ public class HostToHostIntentCompilerTest extends AbstractIntentTest {
             assertThat(reversePathIntent.path().links(), linksHasPath(HOST_TWO, "h8"));
         }
     }
+
+    /**
+     * Tests that a recompile follows a host which moved, rather than reusing
+     * the path cached for its previous location.
+     *
+     * @throws Exception if the tracker listener cannot be looked up
+     */
+    @Test
+    public void testRecompileAfterHostMove() throws Exception {
+        ObjectiveTracker tracker = new ObjectiveTracker();
+        HostListener hostListener = TestUtils.getField(tracker, "hostListener");
+
+        HostToHostIntent intent = makeIntent(HOST_ONE, HOST_TWO);
+        HostToHostIntentCompiler compiler = makeCompiler(new String[]{HOST_ONE, "h1", "h2", HOST_TWO});
+        compiler.trackerService = tracker;
+
+        PathIntent forward = (PathIntent) compiler.compile(intent, null, null).get(0);
+        assertThat(forward.path().links(), linksHasPath(HOST_ONE, "h1"));
+
+        // host one is now attached behind h3
+        compiler.pathService = new IntentTestsMocks.MockPathService(new String[]{HOST_ONE, "h3", "h2", HOST_TWO});
+        hostListener.event(new HostEvent(HostEvent.Type.HOST_MOVED, host(HOST_ONE, "h3")));
+
+        forward = (PathIntent) compiler.compile(intent, null, null).get(0);
+        assertThat(forward.path().links(), linksHasPath(HOST_ONE, "h3"));
+        assertThat(forward.path().links(), linksHasPath("h3", "h2"));
+    }
 }
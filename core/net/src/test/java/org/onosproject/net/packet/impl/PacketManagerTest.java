@@ -18,32 +18,49 @@ package org.onosproject.net.packet.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.TpPort;
+import org.onlab.packet.UDP;
 import org.onosproject.cluster.ClusterServiceAdapter;
 import org.onosproject.common.event.impl.TestEventDispatcher;
 import org.onosproject.core.CoreServiceAdapter;
 import org.onosproject.core.IdGenerator;
 import org.onosproject.event.TestListener;
 import org.onosproject.net.AnnotationKeys;
+import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultAnnotations;
 import org.onosproject.net.DefaultDevice;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.device.DeviceServiceAdapter;
 import org.onosproject.net.driver.AbstractHandlerBehaviour;
 import org.onosproject.net.driver.DefaultDriver;
 import org.onosproject.net.driver.impl.DriverManager;
+import org.onosproject.net.flow.DefaultTrafficSelector;
 import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.packet.DefaultInboundPacket;
 import org.onosproject.net.packet.DefaultOutboundPacket;
+import org.onosproject.net.packet.DefaultPacketContext;
 import org.onosproject.net.packet.OutboundPacket;
+import org.onosproject.net.packet.PacketContext;
+import org.onosproject.net.packet.PacketProcessor;
 import org.onosproject.net.packet.PacketProgrammable;
+import org.onosproject.net.packet.PacketProvider;
 import org.onosproject.net.packet.PacketProviderRegistry;
+import org.onosproject.net.packet.PacketProviderService;
+import org.onosproject.net.provider.AbstractProvider;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.provider.TestProvider;
 import org.onosproject.store.trivial.SimplePacketStore;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
@@ -102,6 +119,87 @@ public class PacketManagerTest {
         assertEquals("Packet not emitted correctly", packet, emittedPacket);
     }
 
+    /**
+     * Tests that packets are only handed to the processors interested in them.
+     */
+    @Test
+    public void processorInterests() {
+        List<String> seen = new ArrayList<>();
+        mgr.addProcessor(context -> seen.add("all"), PacketProcessor.director(2));
+        PacketProcessor arp = context -> seen.add("arp");
+        mgr.addProcessor(arp, PacketProcessor.director(1),
+                         ImmutableSet.of(DefaultTrafficSelector.builder()
+                                                 .matchEthType(Ethernet.TYPE_ARP).build()));
+        mgr.addProcessor(context -> seen.add("dhcp"), PacketProcessor.director(0),
+                         ImmutableSet.of(DefaultTrafficSelector.builder()
+                                                 .matchEthType(Ethernet.TYPE_IPV4)
+                                                 .matchIPProtocol(IPv4.PROTOCOL_UDP)
+                                                 .matchUdpDst(TpPort.tpPort(67)).build()));
+
+        PacketProviderService service = providerRegistry.register(new TestPacketProvider());
+
+        service.processPacket(context(new Ethernet().setEtherType(Ethernet.TYPE_ARP)));
+        assertEquals("incorrect processors", ImmutableList.of("arp", "all"), seen);
+
+        seen.clear();
+        service.processPacket(context(udp(67)));
+        assertEquals("incorrect processors", ImmutableList.of("dhcp", "all"), seen);
+
+        seen.clear();
+        service.processPacket(context(udp(53)));
+        assertEquals("incorrect processors", ImmutableList.of("all"), seen);
+
+        seen.clear();
+        service.processPacket(context(new Ethernet().setEtherType(Ethernet.TYPE_LLDP)));
+        assertEquals("incorrect processors", ImmutableList.of("all"), seen);
+
+        seen.clear();
+        service.processPacket(context(null));
+        assertEquals("incorrect processors", ImmutableList.of("dhcp", "arp", "all"), seen);
+
+        seen.clear();
+        mgr.removeProcessor(arp);
+        service.processPacket(context(new Ethernet().setEtherType(Ethernet.TYPE_ARP)));
+        assertEquals("incorrect processors", ImmutableList.of("all"), seen);
+    }
+
+    private static Ethernet udp(int port) {
+        UDP udp = new UDP();
+        udp.setDestinationPort(port);
+        IPv4 ip = new IPv4();
+        ip.setProtocol(IPv4.PROTOCOL_UDP);
+        ip.setPayload(udp);
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setPayload(ip);
+        return eth;
+    }
+
+    private static PacketContext context(Ethernet eth) {
+        ConnectPoint cp = new ConnectPoint(FOO_DID, PortNumber.portNumber(1));
+        return new TestPacketContext(new DefaultInboundPacket(cp, eth, ByteBuffer.allocate(0)));
+    }
+
+    private static final class TestPacketContext extends DefaultPacketContext {
+        private TestPacketContext(DefaultInboundPacket inPkt) {
+            super(0, inPkt, null, false);
+        }
+
+        @Override
+        public void send() {
+        }
+    }
+
+    private static final class TestPacketProvider extends AbstractProvider implements PacketProvider {
+        private TestPacketProvider() {
+            super(FOO_PID);
+        }
+
+        @Override
+        public void emit(OutboundPacket packet) {
+        }
+    }
+
     private static class TestDeviceService extends DeviceServiceAdapter {
         @Override
         public int getDeviceCount() {
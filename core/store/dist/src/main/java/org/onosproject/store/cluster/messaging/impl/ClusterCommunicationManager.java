@@ -31,11 +31,14 @@ import org.onosproject.store.cluster.messaging.ClusterMessageHandler;
 import org.onosproject.store.cluster.messaging.Endpoint;
 import org.onosproject.store.cluster.messaging.MessageSubject;
 import org.onosproject.store.cluster.messaging.MessagingService;
+import org.onosproject.store.service.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -107,11 +110,31 @@ public class ClusterCommunicationManager
                                                Function<M, byte[]> encoder,
                                                NodeId toNodeId) {
         try {
-            byte[] payload = new ClusterMessage(
-                    localNodeId,
-                    subject,
-                    encoder.apply(message)).getBytes();
-            return doUnicast(subject, payload, toNodeId);
+            byte[] payload = encoder.apply(message);
+            return doUnicast(subject, out -> ClusterMessageCodec.writeEnvelope(localNodeId, subject, payload, out),
+                             toNodeId);
+        } catch (Exception e) {
+            return Tools.exceptionalFuture(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The message is serialized straight into the outbound frame, possibly
+     * on the messaging I/O thread; it must therefore not be modified after
+     * this call.
+     * </p>
+     */
+    @Override
+    public <M> CompletableFuture<Void> unicast(M message,
+                                               MessageSubject subject,
+                                               Serializer serializer,
+                                               NodeId toNodeId) {
+        try {
+            return doUnicast(subject,
+                             out -> ClusterMessageCodec.writeEnvelope(localNodeId, subject, message, serializer, out),
+                             toNodeId);
         } catch (Exception e) {
             return Tools.exceptionalFuture(e);
         }
@@ -122,11 +145,10 @@ public class ClusterCommunicationManager
                               MessageSubject subject,
                               Function<M, byte[]> encoder,
                               Set<NodeId> nodes) {
-        byte[] payload = new ClusterMessage(
-                localNodeId,
-                subject,
-                encoder.apply(message)).getBytes();
-        nodes.forEach(nodeId -> doUnicast(subject, payload, nodeId));
+        byte[] payload = encoder.apply(message);
+        nodes.forEach(nodeId -> doUnicast(subject,
+                out -> ClusterMessageCodec.writeEnvelope(localNodeId, subject, payload, out),
+                nodeId));
     }
 
     @Override
@@ -136,28 +158,54 @@ public class ClusterCommunicationManager
                                                       Function<byte[], R> decoder,
                                                       NodeId toNodeId) {
         try {
-            ClusterMessage envelope = new ClusterMessage(
-                    clusterService.getLocalNode().id(),
-                    subject,
-                    encoder.apply(message));
-            return sendAndReceive(subject, envelope.getBytes(), toNodeId).thenApply(decoder);
+            byte[] payload = encoder.apply(message);
+            return sendAndReceive(subject,
+                                  out -> ClusterMessageCodec.writeEnvelope(localNodeId, subject, payload, out),
+                                  toNodeId).thenApply(decoder);
+        } catch (Exception e) {
+            return Tools.exceptionalFuture(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The request is serialized straight into the outbound frame, possibly
+     * on the messaging I/O thread; it must therefore not be modified after
+     * this call.
+     * </p>
+     */
+    @Override
+    public <M, R> CompletableFuture<R> sendAndReceive(M message,
+                                                      MessageSubject subject,
+                                                      Serializer serializer,
+                                                      NodeId toNodeId) {
+        try {
+            return sendAndReceive(subject,
+                                  out -> ClusterMessageCodec.writeEnvelope(localNodeId, subject, message,
+                                                                           serializer, out),
+                                  toNodeId).thenApply(serializer::decode);
         } catch (Exception e) {
             return Tools.exceptionalFuture(e);
         }
     }
 
-    private CompletableFuture<Void> doUnicast(MessageSubject subject, byte[] payload, NodeId toNodeId) {
-        ControllerNode node = clusterService.getNode(toNodeId);
-        checkArgument(node != null, "Unknown nodeId: %s", toNodeId);
-        Endpoint nodeEp = new Endpoint(node.ip(), node.tcpPort());
-        return messagingService.sendAsync(nodeEp, subject.value(), payload);
+    private CompletableFuture<Void> doUnicast(MessageSubject subject, Consumer<OutputStream> envelopeWriter,
+                                              NodeId toNodeId) {
+        Endpoint nodeEp = endpoint(toNodeId);
+        return messagingService.sendAsync(nodeEp, subject.value(), envelopeWriter);
     }
 
-    private CompletableFuture<byte[]> sendAndReceive(MessageSubject subject, byte[] payload, NodeId toNodeId) {
-        ControllerNode node = clusterService.getNode(toNodeId);
-        checkArgument(node != null, "Unknown nodeId: %s", toNodeId);
-        Endpoint nodeEp = new Endpoint(node.ip(), node.tcpPort());
-        return messagingService.sendAndReceive(nodeEp, subject.value(), payload);
+    private CompletableFuture<byte[]> sendAndReceive(MessageSubject subject, Consumer<OutputStream> envelopeWriter,
+                                                     NodeId toNodeId) {
+        Endpoint nodeEp = endpoint(toNodeId);
+        return messagingService.sendAndReceive(nodeEp, subject.value(), envelopeWriter);
+    }
+
+    private Endpoint endpoint(NodeId nodeId) {
+        ControllerNode node = clusterService.getNode(nodeId);
+        checkArgument(node != null, "Unknown nodeId: %s", nodeId);
+        return new Endpoint(node.ip(), node.tcpPort());
     }
 
     @Override
@@ -181,17 +229,26 @@ public class ClusterCommunicationManager
             Function<R, byte[]> encoder,
             Executor executor) {
         messagingService.registerHandler(subject.value(),
-                new InternalMessageResponder<M, R>(decoder, encoder, m -> {
-                    CompletableFuture<R> responseFuture = new CompletableFuture<>();
-                    executor.execute(() -> {
-                        try {
-                            responseFuture.complete(handler.apply(m));
-                        } catch (Exception e) {
-                            responseFuture.completeExceptionally(e);
-                        }
-                    });
-                    return responseFuture;
-                }));
+                new InternalMessageResponder<byte[], M, R>(payloadDecoder(decoder), encoder,
+                                                           executeOn(handler, executor)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The message is deserialized straight from the received envelope.
+     * </p>
+     */
+    @Override
+    public <M, R> void addSubscriber(MessageSubject subject,
+            Serializer serializer,
+            Function<M, R> handler,
+            Executor executor) {
+        messagingService.registerStreamHandler(subject.value(),
+                new InternalMessageResponder<InputStream, M, R>(
+                        envelope -> ClusterMessageCodec.decodePayload(envelope, serializer),
+                        serializer::encode,
+                        executeOn(handler, executor)));
     }
 
     @Override
@@ -200,7 +257,7 @@ public class ClusterCommunicationManager
             Function<M, CompletableFuture<R>> handler,
             Function<R, byte[]> encoder) {
         messagingService.registerHandler(subject.value(),
-                new InternalMessageResponder<>(decoder, encoder, handler));
+                new InternalMessageResponder<>(payloadDecoder(decoder), encoder, handler));
     }
 
     @Override
@@ -209,10 +266,46 @@ public class ClusterCommunicationManager
             Consumer<M> handler,
             Executor executor) {
         messagingService.registerHandler(subject.value(),
-                new InternalMessageConsumer<>(decoder, handler),
+                new InternalMessageConsumer<>(payloadDecoder(decoder), handler),
                 executor);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The message is deserialized straight from the received envelope.
+     * </p>
+     */
+    @Override
+    public <M> void addSubscriber(MessageSubject subject,
+            Serializer serializer,
+            Consumer<M> handler,
+            Executor executor) {
+        messagingService.registerStreamHandler(subject.value(),
+                new InternalMessageConsumer<InputStream, M>(
+                        envelope -> ClusterMessageCodec.decodePayload(envelope, serializer),
+                        handler),
+                executor);
+    }
+
+    private static <M> Function<byte[], M> payloadDecoder(Function<byte[], M> decoder) {
+        return envelope -> decoder.apply(ClusterMessage.fromBytes(envelope).payload());
+    }
+
+    private static <M, R> Function<M, CompletableFuture<R>> executeOn(Function<M, R> handler, Executor executor) {
+        return m -> {
+            CompletableFuture<R> responseFuture = new CompletableFuture<>();
+            executor.execute(() -> {
+                try {
+                    responseFuture.complete(handler.apply(m));
+                } catch (Exception e) {
+                    responseFuture.completeExceptionally(e);
+                }
+            });
+            return responseFuture;
+        };
+    }
+
     private class InternalClusterMessageHandler implements BiFunction<Endpoint, byte[], byte[]> {
         private ClusterMessageHandler handler;
 
@@ -228,12 +321,12 @@ public class ClusterCommunicationManager
         }
     }
 
-    private class InternalMessageResponder<M, R> implements BiFunction<Endpoint, byte[], CompletableFuture<byte[]>> {
-        private final Function<byte[], M> decoder;
+    private class InternalMessageResponder<I, M, R> implements BiFunction<Endpoint, I, CompletableFuture<byte[]>> {
+        private final Function<I, M> decoder;
         private final Function<R, byte[]> encoder;
         private final Function<M, CompletableFuture<R>> handler;
 
-        public InternalMessageResponder(Function<byte[], M> decoder,
+        public InternalMessageResponder(Function<I, M> decoder,
                                         Function<R, byte[]> encoder,
                                         Function<M, CompletableFuture<R>> handler) {
             this.decoder = decoder;
@@ -242,23 +335,23 @@ public class ClusterCommunicationManager
         }
 
         @Override
-        public CompletableFuture<byte[]> apply(Endpoint sender, byte[] bytes) {
-            return handler.apply(decoder.apply(ClusterMessage.fromBytes(bytes).payload())).thenApply(encoder);
+        public CompletableFuture<byte[]> apply(Endpoint sender, I payload) {
+            return handler.apply(decoder.apply(payload)).thenApply(encoder);
         }
     }
 
-    private class InternalMessageConsumer<M> implements BiConsumer<Endpoint, byte[]> {
-        private final Function<byte[], M> decoder;
+    private class InternalMessageConsumer<I, M> implements BiConsumer<Endpoint, I> {
+        private final Function<I, M> decoder;
         private final Consumer<M> consumer;
 
-        public InternalMessageConsumer(Function<byte[], M> decoder, Consumer<M> consumer) {
+        public InternalMessageConsumer(Function<I, M> decoder, Consumer<M> consumer) {
             this.decoder = decoder;
             this.consumer = consumer;
         }
 
         @Override
-        public void accept(Endpoint sender, byte[] bytes) {
-            consumer.accept(decoder.apply(ClusterMessage.fromBytes(bytes).payload()));
+        public void accept(Endpoint sender, I payload) {
+            consumer.accept(decoder.apply(payload));
         }
     }
 }
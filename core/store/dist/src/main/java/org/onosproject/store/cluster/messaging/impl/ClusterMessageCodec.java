@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.cluster.messaging.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import org.onosproject.cluster.NodeId;
+import org.onosproject.store.cluster.messaging.MessageSubject;
+import org.onosproject.store.serializers.StoreSerializer;
+import org.onosproject.store.service.Serializer;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Writes and reads cluster message envelopes, using the same layout as
+ * {@link org.onosproject.store.cluster.messaging.ClusterMessage#getBytes()}.
+ * <p>
+ * When the envelope goes into a Netty frame and the payload comes from a
+ * {@link StoreSerializer}, the payload is serialized straight into the frame
+ * and its length is filled in afterwards. Likewise, such payloads are
+ * deserialized straight from the received envelope stream, which the Netty
+ * messaging service backs by the inbound buffer.
+ * </p>
+ */
+final class ClusterMessageCodec {
+
+    private ClusterMessageCodec() {
+    }
+
+    /**
+     * Writes an envelope around an already encoded payload.
+     *
+     * @param sender  sender node
+     * @param subject message subject
+     * @param payload message payload
+     * @param stream  stream to write to
+     */
+    static void writeEnvelope(NodeId sender, MessageSubject subject, byte[] payload, OutputStream stream) {
+        DataOutputStream out = new DataOutputStream(stream);
+        try {
+            writeHeader(sender, subject, out);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes an envelope around a message, serializing it with the given
+     * serializer.
+     *
+     * @param sender     sender node
+     * @param subject    message subject
+     * @param message    message to send
+     * @param serializer serializer for the message
+     * @param stream     stream to write to
+     */
+    static void writeEnvelope(NodeId sender, MessageSubject subject, Object message,
+                              Serializer serializer, OutputStream stream) {
+        if (!(stream instanceof ByteBufOutputStream) || !(serializer instanceof StoreSerializer)) {
+            writeEnvelope(sender, subject, serializer.encode(message), stream);
+            return;
+        }
+        ByteBufOutputStream out = (ByteBufOutputStream) stream;
+        ByteBuf frame = out.buffer();
+        try {
+            writeHeader(sender, subject, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int lengthIndex = frame.writerIndex();
+        frame.writeInt(0);
+        ((StoreSerializer) serializer).encode(message, out);
+        frame.setInt(lengthIndex, frame.writerIndex() - lengthIndex - Integer.BYTES);
+    }
+
+    private static void writeHeader(NodeId sender, MessageSubject subject, DataOutput out) throws IOException {
+        byte[] senderBytes = sender.toString().getBytes(Charsets.UTF_8);
+        byte[] subjectBytes = subject.value().getBytes(Charsets.UTF_8);
+        out.writeInt(senderBytes.length);
+        out.write(senderBytes);
+        out.writeInt(subjectBytes.length);
+        out.write(subjectBytes);
+    }
+
+    /**
+     * Decodes the payload of an envelope read from the given stream with the
+     * given serializer.
+     *
+     * @param stream     envelope stream
+     * @param serializer serializer for the payload
+     * @param <M>        payload type
+     * @return decoded payload
+     */
+    static <M> M decodePayload(InputStream stream, Serializer serializer) {
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            skip(in);
+            skip(in);
+            int length = in.readInt();
+            if (serializer instanceof StoreSerializer) {
+                return ((StoreSerializer) serializer).decode(ByteStreams.limit(in, length));
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return serializer.decode(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Skips a length-prefixed field.
+    private static void skip(DataInputStream in) throws IOException {
+        ByteStreams.skipFully(in, in.readInt());
+    }
+}
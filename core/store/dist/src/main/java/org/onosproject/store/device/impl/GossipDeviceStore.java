@@ -142,9 +142,10 @@ public class GossipDeviceStore
     private final EventuallyConsistentMapListener<DeviceId, Map<PortNumber, PortStatistics>>
             portStatsListener = new InternalPortStatsListener();
 
-    // to be updated under Device lock
-    private final Map<DeviceId, Timestamp> offline = Maps.newHashMap();
-    private final Map<DeviceId, Timestamp> removalRequest = Maps.newHashMap();
+    // to be updated under Device lock; concurrent as they are shared by
+    // updates of different devices, which hold different locks
+    private final Map<DeviceId, Timestamp> offline = Maps.newConcurrentMap();
+    private final Map<DeviceId, Timestamp> removalRequest = Maps.newConcurrentMap();
 
     // available(=UP) devices
     private final Set<DeviceId> availableDevices = Sets.newConcurrentHashSet();
@@ -302,9 +303,9 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized DeviceEvent createOrUpdateDevice(ProviderId providerId,
-                                                         DeviceId deviceId,
-                                                         DeviceDescription deviceDescription) {
+    public DeviceEvent createOrUpdateDevice(ProviderId providerId,
+                                            DeviceId deviceId,
+                                            DeviceDescription deviceDescription) {
         NodeId localNode = clusterService.getLocalNode().id();
         NodeId deviceNode = mastershipService.getMasterFor(deviceId);
 
@@ -521,9 +522,9 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized List<DeviceEvent> updatePorts(ProviderId providerId,
-                                                      DeviceId deviceId,
-                                                      List<PortDescription> portDescriptions) {
+    public List<DeviceEvent> updatePorts(ProviderId providerId,
+                                         DeviceId deviceId,
+                                         List<PortDescription> portDescriptions) {
 
         NodeId localNode = clusterService.getLocalNode().id();
         // TODO: It might be negligible, but this will have negative impact to topology discovery performance,
@@ -752,9 +753,9 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized DeviceEvent updatePortStatus(ProviderId providerId,
-                                                     DeviceId deviceId,
-                                                     PortDescription portDescription) {
+    public DeviceEvent updatePortStatus(ProviderId providerId,
+                                        DeviceId deviceId,
+                                        PortDescription portDescription) {
         final Timestamp newTimestamp;
         try {
             newTimestamp = deviceClockService.getTimestamp(deviceId);
@@ -936,7 +937,7 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized DeviceEvent removeDevice(DeviceId deviceId) {
+    public DeviceEvent removeDevice(DeviceId deviceId) {
         final NodeId myId = clusterService.getLocalNode().id();
         NodeId master = mastershipService.getMasterFor(deviceId);
 
@@ -1309,6 +1310,9 @@ public class GossipDeviceStore
         // Fragments to request
         Collection<DeviceFragmentId> reqDevices = new ArrayList<>();
         Collection<PortFragmentId> reqPorts = new ArrayList<>();
+        // Updates to suggest to the sender, sent once the device lock is
+        // released so that local updates to the device are not held up
+        List<Runnable> suggestions = new ArrayList<>();
 
         for (Entry<DeviceId, Map<ProviderId, DeviceDescriptions>> de : deviceDescs.entrySet()) {
             final DeviceId deviceId = de.getKey();
@@ -1333,7 +1337,8 @@ public class GossipDeviceStore
                     if (advDevTimestamp == null || lProvDevice.isNewerThan(
                             advDevTimestamp)) {
                         // remote does not have it or outdated, suggest
-                        notifyPeer(sender, new InternalDeviceEvent(provId, deviceId, lProvDevice));
+                        suggestions.add(() -> notifyPeer(sender,
+                                new InternalDeviceEvent(provId, deviceId, lProvDevice)));
                     } else if (!lProvDevice.timestamp().equals(advDevTimestamp)) {
                         // local is outdated, request
                         reqDevices.add(devFragId);
@@ -1352,7 +1357,8 @@ public class GossipDeviceStore
                         if (advPortTimestamp == null || lPort.isNewerThan(
                                 advPortTimestamp)) {
                             // remote does not have it or outdated, suggest
-                            notifyPeer(sender, new InternalPortStatusEvent(provId, deviceId, lPort));
+                            suggestions.add(() -> notifyPeer(sender,
+                                    new InternalPortStatusEvent(provId, deviceId, lPort)));
                         } else if (!lPort.timestamp().equals(advPortTimestamp)) {
                             // local is outdated, request
                             log.trace("need update {} < {}", lPort.timestamp(), advPortTimestamp);
@@ -1386,7 +1392,8 @@ public class GossipDeviceStore
                 Timestamp lOffline = offline.get(deviceId);
                 if (lOffline != null && rOffline == null) {
                     // locally offline, but remote is online, suggest offline
-                    notifyPeer(sender, new InternalDeviceOfflineEvent(deviceId, lOffline));
+                    suggestions.add(() -> notifyPeer(sender,
+                            new InternalDeviceOfflineEvent(deviceId, lOffline)));
                 }
 
                 // remove device offline Ad already processed
@@ -1394,6 +1401,8 @@ public class GossipDeviceStore
             } // end local device loop
         } // device lock
 
+        suggestions.forEach(Runnable::run);
+
         // If there is any Ads left, request them
         log.trace("Ads left {}, {}", devAds, portAds);
         reqDevices.addAll(devAds.keySet());
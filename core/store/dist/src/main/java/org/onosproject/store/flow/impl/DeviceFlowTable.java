@@ -0,0 +1,519 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Flow table of a single device.
+ * <p>
+ * Flow entries are kept in an open-addressed hash table keyed by the
+ * primitive value of their flow id. Each slot holds the entries sharing a
+ * flow id, either as a single entry or as an array of entries when distinct
+ * rules collide on the same id. Writers are serialized, while readers never
+ * block and iterate the live table without copying it; like the iterators of
+ * the concurrent collections, iteration is weakly consistent.
+ * </p>
+ * <p>
+ * Secondary indexes from table id and application id to flow ids allow the
+ * flows of a table or an application to be looked up without scanning the
+ * whole device.
+ * </p>
+ */
+final class DeviceFlowTable implements Iterable<FlowEntry> {
+
+    private static final int MIN_CAPACITY = 16;
+    // maximum fraction of slots used, including removed ones
+    private static final int LOAD_PERCENT = 60;
+
+    // marks a slot whose entries were removed
+    private static final Object REMOVED = new Object();
+
+    private volatile Slots slots = new Slots(MIN_CAPACITY);
+    // number of slots in use, including removed ones; guarded by this
+    private int used;
+    private volatile int flowIdCount;
+    private volatile int size;
+
+    private final Map<Integer, Set<FlowId>> byTable = Maps.newConcurrentMap();
+    private final Map<Short, Set<FlowId>> byApp = Maps.newConcurrentMap();
+
+    // optional write-through copy of the table, keyed by flow id
+    private final Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backingMap;
+
+    /**
+     * Creates an empty flow table.
+     */
+    DeviceFlowTable() {
+        this(null);
+    }
+
+    /**
+     * Creates a flow table which writes its changes through to the given
+     * map, such as a persistent one, and is initialized from its content.
+     *
+     * @param backingMap map mirroring the flow table; may be null
+     */
+    DeviceFlowTable(Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backingMap) {
+        this.backingMap = backingMap;
+        if (backingMap != null) {
+            backingMap.values().forEach(entries -> entries.values().forEach(this::loadEntry));
+        }
+    }
+
+    /**
+     * Returns the number of flow entries in the table.
+     *
+     * @return number of flow entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the stored entry equal to the given flow rule.
+     *
+     * @param rule flow rule
+     * @return stored flow entry; null if none
+     */
+    StoredFlowEntry get(FlowRule rule) {
+        Object value = lookup(slots, rule.id().value());
+        if (value instanceof StoredFlowEntry) {
+            return value.equals(rule) ? (StoredFlowEntry) value : null;
+        } else if (value != null) {
+            for (StoredFlowEntry entry : (StoredFlowEntry[]) value) {
+                if (entry.equals(rule)) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the stored entries with the given flow id.
+     *
+     * @param flowId flow id
+     * @return stored flow entries; empty if none
+     */
+    List<StoredFlowEntry> get(FlowId flowId) {
+        return asList(lookup(slots, flowId.value()));
+    }
+
+    /**
+     * Adds the given entry, replacing any stored entry equal to it.
+     *
+     * @param entry flow entry
+     */
+    synchronized void put(StoredFlowEntry entry) {
+        Object current = lookup(slots, entry.id().value());
+        List<StoredFlowEntry> entries = asList(current);
+        StoredFlowEntry[] updated;
+        int index = entries.indexOf(entry);
+        if (index >= 0) {
+            updated = entries.toArray(new StoredFlowEntry[entries.size()]);
+            updated[index] = entry;
+        } else {
+            updated = entries.toArray(new StoredFlowEntry[entries.size() + 1]);
+            updated[entries.size()] = entry;
+        }
+        update(entry.id(), current, updated);
+    }
+
+    /**
+     * Removes the stored entry equal to the given rule if it satisfies the
+     * given condition.
+     *
+     * @param rule      flow rule
+     * @param condition condition the stored entry has to meet
+     * @return removed entry; null if none
+     */
+    synchronized StoredFlowEntry remove(FlowRule rule, Predicate<StoredFlowEntry> condition) {
+        Object current = lookup(slots, rule.id().value());
+        List<StoredFlowEntry> entries = asList(current);
+        int index = entries.indexOf(rule);
+        if (index < 0 || !condition.test(entries.get(index))) {
+            return null;
+        }
+        StoredFlowEntry removed = entries.get(index);
+        StoredFlowEntry[] updated = new StoredFlowEntry[entries.size() - 1];
+        for (int i = 0, j = 0; i < entries.size(); i++) {
+            if (i != index) {
+                updated[j++] = entries.get(i);
+            }
+        }
+        update(rule.id(), current, updated);
+        return removed;
+    }
+
+    /**
+     * Replaces the stored entries with the given flow id.
+     *
+     * @param flowId  flow id
+     * @param entries new entries; empty to remove the flow id
+     */
+    synchronized void replace(FlowId flowId, Iterable<StoredFlowEntry> entries) {
+        Object current = lookup(slots, flowId.value());
+        update(flowId, current, ImmutableList.copyOf(entries).toArray(new StoredFlowEntry[0]));
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    synchronized void clear() {
+        slots = new Slots(MIN_CAPACITY);
+        used = 0;
+        flowIdCount = 0;
+        size = 0;
+        byTable.clear();
+        byApp.clear();
+        if (backingMap != null) {
+            backingMap.clear();
+        }
+    }
+
+    /**
+     * Performs the given action for the entries of each flow id.
+     *
+     * @param action action taking a flow id and its entries
+     */
+    void forEachFlowId(BiConsumer<FlowId, List<StoredFlowEntry>> action) {
+        Slots current = slots;
+        for (int i = 0; i < current.capacity(); i++) {
+            List<StoredFlowEntry> entries = asList(current.value(i));
+            if (!entries.isEmpty()) {
+                action.accept(entries.get(0).id(), entries);
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super FlowEntry> action) {
+        Slots current = slots;
+        for (int i = 0; i < current.capacity(); i++) {
+            Object value = current.value(i);
+            if (value instanceof StoredFlowEntry) {
+                action.accept((StoredFlowEntry) value);
+            } else if (value != null) {
+                for (StoredFlowEntry entry : (StoredFlowEntry[]) value) {
+                    action.accept(entry);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Iterator<FlowEntry> iterator() {
+        return new EntryIterator(slots);
+    }
+
+    /**
+     * Returns the entries of the given table.
+     *
+     * @param tableId table id
+     * @return flow entries of the table
+     */
+    List<FlowEntry> getByTable(int tableId) {
+        return lookupIndex(byTable.get(tableId), entry -> entry.tableId() == tableId);
+    }
+
+    /**
+     * Returns the entries of the given application.
+     *
+     * @param appId application id
+     * @return flow entries of the application
+     */
+    List<FlowEntry> getByApp(short appId) {
+        return lookupIndex(byApp.get(appId), entry -> entry.appId() == appId);
+    }
+
+    private List<FlowEntry> lookupIndex(Set<FlowId> flowIds, Predicate<FlowEntry> filter) {
+        if (flowIds == null) {
+            return Collections.emptyList();
+        }
+        ImmutableList.Builder<FlowEntry> builder = ImmutableList.builder();
+        flowIds.forEach(flowId -> get(flowId).stream().filter(filter).forEach(builder::add));
+        return builder.build();
+    }
+
+    private void loadEntry(StoredFlowEntry entry) {
+        Object current = lookup(slots, entry.id().value());
+        List<StoredFlowEntry> entries = asList(current);
+        StoredFlowEntry[] updated = entries.toArray(new StoredFlowEntry[entries.size() + 1]);
+        updated[entries.size()] = entry;
+        store(entry.id(), current, updated);
+        reindex(entry.id(), entries, updated);
+    }
+
+    // Replaces the entries of a flow id and maintains indexes and backing map.
+    private void update(FlowId flowId, Object current, StoredFlowEntry[] updated) {
+        store(flowId, current, updated);
+        reindex(flowId, asList(current), updated);
+        if (backingMap != null) {
+            if (updated.length == 0) {
+                backingMap.remove(flowId);
+            } else {
+                Map<StoredFlowEntry, StoredFlowEntry> entries = Maps.newConcurrentMap();
+                for (StoredFlowEntry entry : updated) {
+                    entries.put(entry, entry);
+                }
+                backingMap.put(flowId, entries);
+            }
+        }
+    }
+
+    private void store(FlowId flowId, Object current, StoredFlowEntry[] updated) {
+        long key = flowId.value();
+        Object value = updated.length == 0 ? null : updated.length == 1 ? updated[0] : updated;
+        size += updated.length - asList(current).size();
+        if (value == null) {
+            if (current != null) {
+                slots.remove(key);
+                flowIdCount--;
+            }
+            return;
+        }
+        if (current == null) {
+            flowIdCount++;
+            if ((used + 1) * 100L > slots.capacity() * (long) LOAD_PERCENT) {
+                rehash();
+            }
+        }
+        if (slots.put(key, value)) {
+            used++;
+        }
+    }
+
+    private void reindex(FlowId flowId, List<StoredFlowEntry> previous, StoredFlowEntry[] updated) {
+        Set<Integer> tables = Sets.newHashSet();
+        Set<Short> apps = Sets.newHashSet();
+        for (StoredFlowEntry entry : updated) {
+            tables.add(entry.tableId());
+            apps.add(entry.appId());
+        }
+        for (StoredFlowEntry entry : previous) {
+            if (!tables.contains(entry.tableId())) {
+                removeIndex(byTable, entry.tableId(), flowId);
+            }
+            if (!apps.contains(entry.appId())) {
+                removeIndex(byApp, entry.appId(), flowId);
+            }
+        }
+        tables.forEach(tableId -> byTable.computeIfAbsent(tableId, k -> Sets.newConcurrentHashSet()).add(flowId));
+        apps.forEach(appId -> byApp.computeIfAbsent(appId, k -> Sets.newConcurrentHashSet()).add(flowId));
+    }
+
+    private static <K> void removeIndex(Map<K, Set<FlowId>> index, K key, FlowId flowId) {
+        index.computeIfPresent(key, (k, flowIds) -> {
+            flowIds.remove(flowId);
+            return flowIds.isEmpty() ? null : flowIds;
+        });
+    }
+
+    // Moves the live slots into a new table, dropping removed ones.
+    private void rehash() {
+        Slots current = slots;
+        int capacity = current.capacity();
+        // grow unless most of the used slots are merely removed ones
+        if (flowIdCount * 200L > capacity * (long) LOAD_PERCENT) {
+            capacity <<= 1;
+        }
+        Slots resized = new Slots(capacity);
+        int live = 0;
+        for (int i = 0; i < current.capacity(); i++) {
+            Object value = current.value(i);
+            if (value != null) {
+                resized.put(current.keys[i], value);
+                live++;
+            }
+        }
+        used = live;
+        slots = resized;
+    }
+
+    private static Object lookup(Slots slots, long key) {
+        return slots.get(key);
+    }
+
+    private static List<StoredFlowEntry> asList(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        } else if (value instanceof StoredFlowEntry) {
+            return Collections.singletonList((StoredFlowEntry) value);
+        }
+        return ImmutableList.copyOf((StoredFlowEntry[]) value);
+    }
+
+    // Returns the flow id shared by the entries of a slot value.
+    private static long keyOf(Object value) {
+        StoredFlowEntry entry = value instanceof StoredFlowEntry ?
+                (StoredFlowEntry) value : ((StoredFlowEntry[]) value)[0];
+        return entry.id().value();
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("flowIds", flowIdCount)
+                .add("size", size)
+                .toString();
+    }
+
+    // Open-addressed slots with linear probing. The keys are only used by
+    // the writer; readers match a value by the flow id of its own entries,
+    // since a removed slot may be reused for another key while a reader
+    // still holds the value it read before.
+    private static final class Slots {
+        private final long[] keys;
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+
+        private Slots(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        private int capacity() {
+            return keys.length;
+        }
+
+        // Returns the live value of the given slot, or null.
+        private Object value(int index) {
+            Object value = values.get(index);
+            return value == REMOVED ? null : value;
+        }
+
+        private Object get(long key) {
+            for (int i = hash(key) & mask; true; i = (i + 1) & mask) {
+                Object value = values.get(i);
+                if (value == null) {
+                    return null;
+                }
+                if (value != REMOVED && keyOf(value) == key) {
+                    return value;
+                }
+            }
+        }
+
+        // Stores the value for the key; returns true if a free slot was taken.
+        private boolean put(long key, Object value) {
+            int free = -1;
+            for (int i = hash(key) & mask; true; i = (i + 1) & mask) {
+                Object current = values.get(i);
+                if (current == null) {
+                    boolean fresh = free < 0;
+                    int slot = fresh ? i : free;
+                    keys[slot] = key;
+                    values.set(slot, value);
+                    return fresh;
+                }
+                if (current == REMOVED) {
+                    if (free < 0) {
+                        free = i;
+                    }
+                } else if (keys[i] == key) {
+                    values.set(i, value);
+                    return false;
+                }
+            }
+        }
+
+        private void remove(long key) {
+            for (int i = hash(key) & mask; true; i = (i + 1) & mask) {
+                Object value = values.get(i);
+                if (value == null) {
+                    return;
+                }
+                if (value != REMOVED && keys[i] == key) {
+                    values.set(i, REMOVED);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Weakly consistent iterator over the entries of the live slots.
+    private static final class EntryIterator implements Iterator<FlowEntry> {
+        private final Slots slots;
+        private int index;
+        private Object value;
+        private int position;
+        private FlowEntry next;
+
+        private EntryIterator(Slots slots) {
+            this.slots = slots;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null) {
+                if (value instanceof StoredFlowEntry[]
+                        && position < ((StoredFlowEntry[]) value).length) {
+                    next = ((StoredFlowEntry[]) value)[position++];
+                    continue;
+                }
+                if (index >= slots.capacity()) {
+                    return;
+                }
+                value = slots.value(index++);
+                position = 0;
+                if (value instanceof StoredFlowEntry) {
+                    next = (StoredFlowEntry) value;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public FlowEntry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            FlowEntry current = next;
+            advance();
+            return current;
+        }
+    }
+}
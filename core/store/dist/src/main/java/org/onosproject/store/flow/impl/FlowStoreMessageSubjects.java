@@ -26,6 +26,9 @@ public final class FlowStoreMessageSubjects {
     public static final  MessageSubject APPLY_BATCH_FLOWS
         = new MessageSubject("peer-forward-apply-batch");
 
+    public static final MessageSubject APPLY_BATCHES_FLOWS
+        = new MessageSubject("peer-forward-apply-batches");
+
     public static final MessageSubject GET_FLOW_ENTRY
         = new MessageSubject("peer-forward-get-flow-entry");
 
@@ -38,6 +41,12 @@ public final class FlowStoreMessageSubjects {
     public static final MessageSubject REMOTE_APPLY_COMPLETED
         = new MessageSubject("peer-apply-completed");
 
+    public static final MessageSubject REMOTE_APPLY_COMPLETED_BATCH
+        = new MessageSubject("peer-apply-completed-batch");
+
     public static final MessageSubject FLOW_TABLE_BACKUP
         = new MessageSubject("peer-flow-table-backup");
+
+    public static final MessageSubject FLOW_TABLE_BACKUP_DELTA
+        = new MessageSubject("peer-flow-table-backup-delta");
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Changes to the flow table of a device shipped from the master to the
+ * backup node. A delta either carries a full snapshot of the flow table,
+ * or the current entries of the flow ids that changed since the version the
+ * backup node is expected to hold; a flow id mapped to no entries was removed.
+ */
+public final class FlowTableDelta {
+
+    private final DeviceId deviceId;
+    private final long baseVersion;
+    private final long version;
+    private final boolean snapshot;
+    private final Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> entries;
+
+    private FlowTableDelta(DeviceId deviceId, long baseVersion, long version, boolean snapshot,
+                           Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> entries) {
+        this.deviceId = checkNotNull(deviceId);
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.snapshot = snapshot;
+        this.entries = ImmutableMap.copyOf(checkNotNull(entries));
+    }
+
+    /**
+     * Creates a delta carrying the whole flow table of a device.
+     *
+     * @param deviceId device identifier
+     * @param version  version of the flow table
+     * @param entries  flow table entries
+     * @return flow table delta
+     */
+    public static FlowTableDelta snapshot(DeviceId deviceId, long version,
+                                          Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> entries) {
+        return new FlowTableDelta(deviceId, 0, version, true, entries);
+    }
+
+    /**
+     * Creates a delta carrying the changes made to the flow table of a device
+     * since the given base version.
+     *
+     * @param deviceId    device identifier
+     * @param baseVersion version the changes apply to
+     * @param version     version of the flow table once the changes are applied
+     * @param entries     current entries of the changed flow ids
+     * @return flow table delta
+     */
+    public static FlowTableDelta changes(DeviceId deviceId, long baseVersion, long version,
+                                         Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> entries) {
+        return new FlowTableDelta(deviceId, baseVersion, version, false, entries);
+    }
+
+    /**
+     * Returns the device whose flow table changed.
+     *
+     * @return device identifier
+     */
+    public DeviceId deviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Returns the version the changes apply to; meaningless for snapshots.
+     *
+     * @return base version
+     */
+    public long baseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * Returns the version of the flow table once this delta is applied.
+     *
+     * @return version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns whether this delta carries the whole flow table.
+     *
+     * @return true for a full snapshot
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the flow entries carried by this delta, keyed by flow id.
+     *
+     * @return flow entries
+     */
+    public Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> entries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("deviceId", deviceId)
+                .add("baseVersion", baseVersion)
+                .add("version", version)
+                .add("snapshot", snapshot)
+                .add("flowIds", entries.size())
+                .toString();
+    }
+
+    @SuppressWarnings("unused")
+    private FlowTableDelta() {
+        this.deviceId = null;
+        this.baseVersion = 0;
+        this.version = 0;
+        this.snapshot = false;
+        this.entries = null;
+    }
+}
@@ -15,9 +15,12 @@
  */
 package org.onosproject.store.flow.impl;
 
+ import com.codahale.metrics.Gauge;
+ import com.codahale.metrics.Meter;
  import com.google.common.collect.ImmutableList;
  import com.google.common.collect.ImmutableMap;
  import com.google.common.collect.Iterables;
+ import com.google.common.collect.Lists;
  import com.google.common.collect.Maps;
  import com.google.common.collect.Sets;
  import com.google.common.util.concurrent.Futures;
@@ -29,11 +32,19 @@ package org.onosproject.store.flow.impl;
  import org.apache.felix.scr.annotations.Reference;
  import org.apache.felix.scr.annotations.ReferenceCardinality;
  import org.apache.felix.scr.annotations.Service;
+ import org.onlab.metrics.MetricsComponent;
+ import org.onlab.metrics.MetricsFeature;
+ import org.onlab.metrics.MetricsService;
+ import org.onlab.util.AbstractAccumulator;
  import org.onlab.util.KryoNamespace;
  import org.onlab.util.Tools;
  import org.onosproject.cfg.ComponentConfigService;
+ import org.onosproject.cluster.ClusterEvent;
+ import org.onosproject.cluster.ClusterEventListener;
  import org.onosproject.cluster.ClusterService;
+ import org.onosproject.cluster.ControllerNode;
  import org.onosproject.cluster.NodeId;
+ import org.onosproject.core.ApplicationId;
  import org.onosproject.core.CoreService;
  import org.onosproject.core.IdGenerator;
  import org.onosproject.mastership.MastershipService;
@@ -68,6 +79,7 @@ package org.onosproject.store.flow.impl;
  import org.onosproject.store.impl.MastershipBasedTimestamp;
  import org.onosproject.store.serializers.KryoNamespaces;
  import org.onosproject.store.serializers.KryoSerializer;
+ import org.onosproject.store.serializers.MeteringSerializer;
  import org.onosproject.store.serializers.StoreSerializer;
  import org.onosproject.store.serializers.custom.DistributedStoreSerializers;
  import org.onosproject.store.service.EventuallyConsistentMap;
@@ -79,20 +91,23 @@ package org.onosproject.store.flow.impl;
  import org.osgi.service.component.ComponentContext;
  import org.slf4j.Logger;
 
+ import java.util.Collection;
  import java.util.Collections;
  import java.util.Dictionary;
  import java.util.HashSet;
+ import java.util.Iterator;
  import java.util.List;
  import java.util.Map;
  import java.util.Objects;
  import java.util.Set;
+ import java.util.Timer;
  import java.util.concurrent.ExecutorService;
  import java.util.concurrent.Executors;
  import java.util.concurrent.ScheduledExecutorService;
  import java.util.concurrent.ScheduledFuture;
  import java.util.concurrent.TimeUnit;
  import java.util.concurrent.atomic.AtomicInteger;
- import java.util.concurrent.atomic.AtomicReference;
+ import java.util.concurrent.atomic.AtomicLong;
  import java.util.stream.Collectors;
 
  import static com.google.common.base.Strings.isNullOrEmpty;
@@ -116,10 +131,15 @@ public class NewDistributedFlowRuleStore
     private static final int MESSAGE_HANDLER_THREAD_POOL_SIZE = 8;
     private static final boolean DEFAULT_BACKUP_ENABLED = true;
     private static final boolean DEFAULT_PERSISTENCE_ENABLED = false;
+    private static final boolean DEFAULT_DELTA_BACKUP_ENABLED = false;
     private static final int DEFAULT_BACKUP_PERIOD_MILLIS = 2000;
     private static final long FLOW_RULE_STORE_TIMEOUT_MILLIS = 5000;
     // number of devices whose flow entries will be backed up in one communication round
     private static final int FLOW_TABLE_BACKUP_BATCH_SIZE = 1;
+    // thresholds for sending batch completions back to the requesting node
+    private static final int MAX_COMPLETIONS = 1000;
+    private static final int MAX_COMPLETION_BATCH_MS = 10;
+    private static final int MAX_COMPLETION_IDLE_MS = 2;
 
     @Property(name = "msgHandlerPoolSize", intValue = MESSAGE_HANDLER_THREAD_POOL_SIZE,
             label = "Number of threads in the message handler pool")
@@ -136,6 +156,10 @@ public class NewDistributedFlowRuleStore
             label = "Indicates whether or not changes in the flow table should be persisted to disk.")
     private boolean persistenceEnabled = DEFAULT_PERSISTENCE_ENABLED;
 
+    @Property(name = "deltaBackupEnabled", boolValue = DEFAULT_DELTA_BACKUP_ENABLED,
+            label = "Indicates whether backups only carry the flow entries changed since the previous backup")
+    private boolean deltaBackupEnabled = DEFAULT_DELTA_BACKUP_ENABLED;
+
     private InternalFlowTable flowTable = new InternalFlowTable();
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
@@ -162,7 +186,25 @@ public class NewDistributedFlowRuleStore
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected PersistenceService persistenceService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
+    private static final String METRICS_COMPONENT = "FlowRuleStore";
+    private static final String BACKUP_FEATURE = "backup";
+    private static final String BACKUP_LAG_FEATURE = "backupLag";
+    private static final String BACKUP_BYTES = "bytes";
+
+    // Rate of bytes shipped to backup nodes
+    private final Meter backupBytes = new Meter();
+    private MetricsComponent metricsComponent;
+    private MetricsFeature backupFeature;
+    private MetricsFeature backupLagFeature;
+
     private Map<Long, NodeId> pendingResponses = Maps.newConcurrentMap();
+    // batch completions on their way back to the requesting nodes
+    private final Map<NodeId, CompletionAccumulator> completions = Maps.newConcurrentMap();
+    private Timer completionTimer;
+    private final ClusterEventListener clusterListener = new InternalClusterListener();
     private ExecutorService messageHandlingExecutor;
 
     private ScheduledFuture<?> backupTask;
@@ -182,6 +224,7 @@ public class NewDistributedFlowRuleStore
             serializerPool = KryoNamespace.newBuilder()
                     .register(DistributedStoreSerializers.STORE_COMMON)
                     .nextId(DistributedStoreSerializers.STORE_CUSTOM_BEGIN)
+                    .register(FlowTableDelta.class)
                     .build();
         }
     };
@@ -201,11 +244,14 @@ public class NewDistributedFlowRuleStore
         idGenerator = coreService.getIdGenerator(FlowRuleService.FLOW_OP_TOPIC);
 
         local = clusterService.getLocalNode().id();
+        completionTimer = new Timer("onos-flow-batch-completions");
+        clusterService.addListener(clusterListener);
 
         messageHandlingExecutor = Executors.newFixedThreadPool(
                 msgHandlerPoolSize, groupedThreads("onos/store/flow", "message-handlers"));
 
         registerMessageHandlers(messageHandlingExecutor);
+        registerMetrics();
 
         if (backupEnabled) {
             replicaInfoManager.addListener(flowTable);
@@ -236,8 +282,12 @@ public class NewDistributedFlowRuleStore
         }
         configService.unregisterProperties(getClass(), false);
         unregisterMessageHandlers();
+        clusterService.removeListener(clusterListener);
+        completionTimer.cancel();
+        completions.clear();
         deviceTableStats.removeListener(tableStatsListener);
         deviceTableStats.destroy();
+        removeMetrics();
         messageHandlingExecutor.shutdownNow();
         backupSenderExecutor.shutdownNow();
         log.info("Stopped");
@@ -256,6 +306,7 @@ public class NewDistributedFlowRuleStore
         int newPoolSize;
         boolean newBackupEnabled;
         int newBackupPeriod;
+        boolean newDeltaBackupEnabled;
         try {
             String s = get(properties, "msgHandlerPoolSize");
             newPoolSize = isNullOrEmpty(s) ? msgHandlerPoolSize : Integer.parseInt(s.trim());
@@ -266,10 +317,20 @@ public class NewDistributedFlowRuleStore
             s = get(properties, "backupPeriod");
             newBackupPeriod = isNullOrEmpty(s) ? backupPeriod : Integer.parseInt(s.trim());
 
+            s = get(properties, "deltaBackupEnabled");
+            newDeltaBackupEnabled = isNullOrEmpty(s) ? deltaBackupEnabled : Boolean.parseBoolean(s.trim());
+
         } catch (NumberFormatException | ClassCastException e) {
             newPoolSize = MESSAGE_HANDLER_THREAD_POOL_SIZE;
             newBackupEnabled = DEFAULT_BACKUP_ENABLED;
             newBackupPeriod = DEFAULT_BACKUP_PERIOD_MILLIS;
+            newDeltaBackupEnabled = DEFAULT_DELTA_BACKUP_ENABLED;
+        }
+
+        if (newDeltaBackupEnabled != deltaBackupEnabled) {
+            deltaBackupEnabled = newDeltaBackupEnabled;
+            // changes were not tracked in the other mode; start over from a snapshot
+            flowTable.resetBackupStates();
         }
 
         boolean restartBackupTask = false;
@@ -317,18 +378,24 @@ public class NewDistributedFlowRuleStore
     private void registerMessageHandlers(ExecutorService executor) {
 
         clusterCommunicator.addSubscriber(APPLY_BATCH_FLOWS, new OnStoreBatch(), executor);
+        clusterCommunicator.addSubscriber(APPLY_BATCHES_FLOWS, new OnStoreBatches(), executor);
         clusterCommunicator.<FlowRuleBatchEvent>addSubscriber(
                 REMOTE_APPLY_COMPLETED, SERIALIZER::decode, this::notifyDelegate, executor);
+        clusterCommunicator.<List<FlowRuleBatchEvent>>addSubscriber(
+                REMOTE_APPLY_COMPLETED_BATCH, SERIALIZER::decode, events -> events.forEach(this::notifyDelegate),
+                executor);
         clusterCommunicator.addSubscriber(
                 GET_FLOW_ENTRY, SERIALIZER::decode, flowTable::getFlowEntry, SERIALIZER::encode, executor);
         clusterCommunicator.addSubscriber(
-                GET_DEVICE_FLOW_ENTRIES, SERIALIZER::decode, flowTable::getFlowEntries, SERIALIZER::encode, executor);
+                GET_DEVICE_FLOW_ENTRIES, SERIALIZER::decode, flowTable::copyFlowEntries, SERIALIZER::encode, executor);
         clusterCommunicator.addSubscriber(
                 REMOVE_FLOW_ENTRY, SERIALIZER::decode, this::removeFlowRuleInternal, SERIALIZER::encode, executor);
         clusterCommunicator.addSubscriber(
                 REMOVE_FLOW_ENTRY, SERIALIZER::decode, this::removeFlowRuleInternal, SERIALIZER::encode, executor);
         clusterCommunicator.addSubscriber(
-                FLOW_TABLE_BACKUP, SERIALIZER::decode, flowTable::onBackupReceipt, SERIALIZER::encode, executor);
+                FLOW_TABLE_BACKUP, SERIALIZER, flowTable::onBackupReceipt, executor);
+        clusterCommunicator.addSubscriber(
+                FLOW_TABLE_BACKUP_DELTA, SERIALIZER, flowTable::onBackupDeltaReceipt, executor);
     }
 
     private void unregisterMessageHandlers() {
@@ -336,13 +403,44 @@ public class NewDistributedFlowRuleStore
         clusterCommunicator.removeSubscriber(GET_DEVICE_FLOW_ENTRIES);
         clusterCommunicator.removeSubscriber(GET_FLOW_ENTRY);
         clusterCommunicator.removeSubscriber(APPLY_BATCH_FLOWS);
+        clusterCommunicator.removeSubscriber(APPLY_BATCHES_FLOWS);
         clusterCommunicator.removeSubscriber(REMOTE_APPLY_COMPLETED);
+        clusterCommunicator.removeSubscriber(REMOTE_APPLY_COMPLETED_BATCH);
         clusterCommunicator.removeSubscriber(FLOW_TABLE_BACKUP);
+        clusterCommunicator.removeSubscriber(FLOW_TABLE_BACKUP_DELTA);
+    }
+
+    private void registerMetrics() {
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+            backupFeature = metricsComponent.registerFeature(BACKUP_FEATURE);
+            backupLagFeature = metricsComponent.registerFeature(BACKUP_LAG_FEATURE);
+            metricsService.registerMetric(metricsComponent, backupFeature, BACKUP_BYTES, backupBytes);
+        }
+    }
+
+    private void removeMetrics() {
+        if (metricsService != null && metricsComponent != null) {
+            metricsService.removeMetric(metricsComponent, backupFeature, BACKUP_BYTES);
+            flowTable.backupStates.keySet().forEach(this::removeBackupLagMetric);
+        }
+    }
+
+    private void registerBackupLagMetric(DeviceId deviceId, Gauge<Long> lag) {
+        if (metricsService != null && metricsComponent != null) {
+            metricsService.registerMetric(metricsComponent, backupLagFeature, deviceId.toString(), lag);
+        }
+    }
+
+    private void removeBackupLagMetric(DeviceId deviceId) {
+        if (metricsService != null && metricsComponent != null) {
+            metricsService.removeMetric(metricsComponent, backupLagFeature, deviceId.toString());
+        }
     }
 
     private void logConfig(String prefix) {
-        log.info("{} with msgHandlerPoolSize = {}; backupEnabled = {}, backupPeriod = {}",
-                 prefix, msgHandlerPoolSize, backupEnabled, backupPeriod);
+        log.info("{} with msgHandlerPoolSize = {}; backupEnabled = {}, backupPeriod = {}, deltaBackupEnabled = {}",
+                 prefix, msgHandlerPoolSize, backupEnabled, backupPeriod, deltaBackupEnabled);
     }
 
     // This is not a efficient operation on a distributed sharded
@@ -407,6 +505,22 @@ public class NewDistributedFlowRuleStore
                                Collections.emptyList());
     }
 
+    @Override
+    public Iterable<FlowEntry> getFlowEntriesByApp(DeviceId deviceId, ApplicationId appId) {
+        if (mastershipService.isLocalMaster(deviceId)) {
+            return flowTable.getFlowEntriesByApp(deviceId, appId.id());
+        }
+        return FlowRuleStore.super.getFlowEntriesByApp(deviceId, appId);
+    }
+
+    @Override
+    public Iterable<FlowEntry> getFlowEntriesByTable(DeviceId deviceId, int tableId) {
+        if (mastershipService.isLocalMaster(deviceId)) {
+            return flowTable.getFlowEntriesByTable(deviceId, tableId);
+        }
+        return FlowRuleStore.super.getFlowEntriesByTable(deviceId, tableId);
+    }
+
     @Override
     public void storeFlowRule(FlowRule rule) {
         storeBatch(new FlowRuleBatchOperation(
@@ -465,6 +579,54 @@ public class NewDistributedFlowRuleStore
                            });
     }
 
+    @Override
+    public void storeBatches(Collection<FlowRuleBatchOperation> operations) {
+        // Batches for remotely mastered devices are forwarded to each master
+        // in a single message; the rest is handled as individual batches.
+        Map<NodeId, List<FlowRuleBatchOperation>> remote = Maps.newHashMap();
+        for (FlowRuleBatchOperation operation : operations) {
+            NodeId master = operation.getOperations().isEmpty() ? null :
+                    mastershipService.getMasterFor(operation.deviceId());
+            if (master == null || Objects.equals(local, master)) {
+                storeBatch(operation);
+            } else {
+                remote.computeIfAbsent(master, k -> Lists.newArrayList()).add(operation);
+            }
+        }
+        remote.forEach(this::forwardBatches);
+    }
+
+    private void forwardBatches(NodeId master, List<FlowRuleBatchOperation> operations) {
+        if (operations.size() == 1) {
+            storeBatch(operations.get(0));
+            return;
+        }
+
+        log.trace("Forwarding {} batches to {}, which is the primary (master) for their devices",
+                  operations.size(), master);
+
+        clusterCommunicator.unicast(operations,
+                                    APPLY_BATCHES_FLOWS,
+                                    SERIALIZER::encode,
+                                    master)
+                           .whenComplete((result, error) -> {
+                               if (error != null) {
+                                   log.warn("Failed to forward {} batches to {}", operations.size(), master, error);
+                                   operations.forEach(operation -> notifyDelegate(FlowRuleBatchEvent.completed(
+                                           new FlowRuleBatchRequest(operation.id(), Collections.emptySet()),
+                                           allFailed(operation))));
+                               }
+                           });
+    }
+
+    private static CompletedBatchOperation allFailed(FlowRuleBatchOperation operation) {
+        Set<FlowRule> failures = new HashSet<>(operation.size());
+        for (FlowRuleBatchEntry op : operation.getOperations()) {
+            failures.add(op.target());
+        }
+        return new CompletedBatchOperation(false, failures, operation.deviceId());
+    }
+
     private void storeBatchInternal(FlowRuleBatchOperation operation) {
 
         final DeviceId did = operation.deviceId();
@@ -500,6 +662,7 @@ public class NewDistributedFlowRuleStore
                             if (entry != null) {
                                 //FIXME modification of "stored" flow entry outside of flow table
                                 entry.setState(FlowEntryState.PENDING_REMOVE);
+                                flowTable.markUpdated(entry);
                                 log.debug("Setting state of rule to pending remove: {}", entry);
                                 return op;
                             }
@@ -532,6 +695,7 @@ public class NewDistributedFlowRuleStore
             if (stored != null &&
                     stored.state() != FlowEntryState.PENDING_ADD) {
                 stored.setState(FlowEntryState.PENDING_ADD);
+                flowTable.markUpdated(stored);
                 return new FlowRuleEvent(Type.RULE_UPDATED, rule);
             }
         }
@@ -559,6 +723,7 @@ public class NewDistributedFlowRuleStore
             stored.setLife(rule.life());
             stored.setPackets(rule.packets());
             stored.setLastSeen();
+            flowTable.markUpdated(stored);
             if (stored.state() == FlowEntryState.PENDING_ADD) {
                 stored.setState(FlowEntryState.ADDED);
                 return new FlowRuleEvent(Type.RULE_ADDED, rule);
@@ -621,10 +786,48 @@ public class NewDistributedFlowRuleStore
         NodeId nodeId = pendingResponses.remove(event.subject().batchId());
         if (nodeId == null) {
             notifyDelegate(event);
+        } else if (clusterService.getState(nodeId) != ControllerNode.State.ACTIVE) {
+            log.debug("Dropping completion of batch {} for inactive node {}",
+                      event.subject().batchId(), nodeId);
         } else {
-            // TODO check unicast return value
-            clusterCommunicator.unicast(event, REMOTE_APPLY_COMPLETED, SERIALIZER::encode, nodeId);
-            //error log: log.warn("Failed to respond to peer for batch operation result");
+            // completions bound for the same node are sent back together
+            completions.computeIfAbsent(nodeId, CompletionAccumulator::new).add(event);
+        }
+    }
+
+    // Discards the completions still queued for nodes that left the cluster.
+    private final class InternalClusterListener implements ClusterEventListener {
+        @Override
+        public void event(ClusterEvent event) {
+            if (event.type() == ClusterEvent.Type.INSTANCE_REMOVED ||
+                    event.type() == ClusterEvent.Type.INSTANCE_DEACTIVATED) {
+                completions.remove(event.subject().id());
+            }
+        }
+    }
+
+    // Accumulates batch completions bound for one peer into a single message.
+    private final class CompletionAccumulator extends AbstractAccumulator<FlowRuleBatchEvent> {
+
+        private final NodeId peer;
+
+        private CompletionAccumulator(NodeId peer) {
+            super(completionTimer, MAX_COMPLETIONS, MAX_COMPLETION_BATCH_MS, MAX_COMPLETION_IDLE_MS);
+            this.peer = peer;
+        }
+
+        @Override
+        public void processItems(List<FlowRuleBatchEvent> items) {
+            clusterCommunicator.unicast(ImmutableList.copyOf(items),
+                                        REMOTE_APPLY_COMPLETED_BATCH,
+                                        SERIALIZER::encode,
+                                        peer)
+                               .whenComplete((result, error) -> {
+                                   if (error != null) {
+                                       log.warn("Failed to respond to {} for {} batch operation results",
+                                                peer, items.size(), error);
+                                   }
+                               });
         }
     }
 
@@ -656,16 +859,48 @@ public class NewDistributedFlowRuleStore
         }
     }
 
+    private final class OnStoreBatches implements ClusterMessageHandler {
+
+        @Override
+        public void handle(final ClusterMessage message) {
+            List<FlowRuleBatchOperation> operations = SERIALIZER.decode(message.payload());
+            NodeId sender = message.sender();
+            log.debug("received {} batch requests from {}", operations.size(), sender);
+
+            for (FlowRuleBatchOperation operation : operations) {
+                NodeId master = mastershipService.getMasterFor(operation.deviceId());
+                if (!Objects.equals(local, master)) {
+                    // This node is no longer the master, respond as all failed.
+                    completions.computeIfAbsent(sender, CompletionAccumulator::new)
+                            .add(FlowRuleBatchEvent.completed(
+                                    new FlowRuleBatchRequest(operation.id(), Collections.emptySet()),
+                                    allFailed(operation)));
+                    continue;
+                }
+                pendingResponses.put(operation.id(), sender);
+                storeBatchInternal(operation);
+            }
+        }
+    }
+
     private class InternalFlowTable implements ReplicaInfoEventListener {
 
-        //TODO replace the Map<V,V> with ExtendedSet
-        private final Map<DeviceId, Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>
-                flowEntries = Maps.newConcurrentMap();
+        private final Map<DeviceId, DeviceFlowTable> flowEntries = Maps.newConcurrentMap();
 
         private final Map<DeviceId, Long> lastBackupTimes = Maps.newConcurrentMap();
         private final Map<DeviceId, Long> lastUpdateTimes = Maps.newConcurrentMap();
         private final Map<DeviceId, NodeId> lastBackupNodes = Maps.newConcurrentMap();
 
+        // master side: changes not yet shipped to the backup node, per device
+        private final Map<DeviceId, BackupState> backupStates = Maps.newConcurrentMap();
+        // backup side: version of the flow table last received from the master
+        private final Map<DeviceId, Long> backupVersions = Maps.newConcurrentMap();
+        private final AtomicLong versions = new AtomicLong();
+
+        // serializes backups, metering their size
+        private final MeteringSerializer backupSerializer =
+                new MeteringSerializer(SERIALIZER, bytes -> backupBytes.mark(bytes));
+
         @Override
         public void event(ReplicaInfoEvent event) {
             if (!backupEnabled) {
@@ -715,17 +950,20 @@ public class NewDistributedFlowRuleStore
             if (deviceIds.isEmpty()) {
                 return;
             }
+            if (deltaBackupEnabled) {
+                backupFlowTableDeltas(nodeId, deviceIds);
+                return;
+            }
             log.debug("Sending flowEntries for devices {} to {} as backup.", deviceIds, nodeId);
             Map<DeviceId, Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>
                     deviceFlowEntries = Maps.newConcurrentMap();
-            deviceIds.forEach(id -> deviceFlowEntries.put(id, ImmutableMap.copyOf(getFlowTable(id))));
+            deviceIds.forEach(id -> deviceFlowEntries.put(id, copyFlowTable(id)));
             clusterCommunicator.<Map<DeviceId,
                                  Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>,
                                  Set<DeviceId>>
                     sendAndReceive(deviceFlowEntries,
                                    FLOW_TABLE_BACKUP,
-                                   SERIALIZER::encode,
-                                   SERIALIZER::decode,
+                                   backupSerializer,
                                    nodeId)
                     .whenComplete((backedupDevices, error) -> {
                         Set<DeviceId> devicesNotBackedup = error != null ?
@@ -744,15 +982,117 @@ public class NewDistributedFlowRuleStore
                     });
         }
 
+        private void backupFlowTableDeltas(NodeId nodeId, Set<DeviceId> deviceIds) {
+            long sendTime = System.currentTimeMillis();
+            List<FlowTableDelta> deltas = deviceIds.stream()
+                    .map(id -> createDelta(nodeId, id))
+                    .collect(Collectors.toList());
+            log.debug("Sending flow table deltas {} to {} as backup.", deltas, nodeId);
+            clusterCommunicator.<List<FlowTableDelta>, Set<DeviceId>>
+                    sendAndReceive(deltas,
+                                   FLOW_TABLE_BACKUP_DELTA,
+                                   backupSerializer,
+                                   nodeId)
+                    .whenComplete((backedupDevices, error) -> {
+                        Set<DeviceId> devicesNotBackedup = Sets.newHashSet(deviceIds);
+                        if (backedupDevices != null) {
+                            devicesNotBackedup.removeAll(backedupDevices);
+                            backedupDevices.forEach(id -> {
+                                // changes made while the deltas were in flight are still pending
+                                lastBackupTimes.put(id, sendTime);
+                                lastBackupNodes.put(id, nodeId);
+                                BackupState state = backupStates.get(id);
+                                if (state != null) {
+                                    state.acknowledged(sendTime);
+                                }
+                            });
+                        }
+                        if (!devicesNotBackedup.isEmpty()) {
+                            log.warn("Failed to backup devices: {}. Reason: {}",
+                                     devicesNotBackedup, error != null ? error.getMessage() : "rejected");
+                            // fall back to a full snapshot on the next run
+                            devicesNotBackedup.forEach(id -> {
+                                BackupState state = backupStates.get(id);
+                                if (state != null) {
+                                    state.reset();
+                                }
+                            });
+                        }
+                    });
+        }
+
+        private FlowTableDelta createDelta(NodeId nodeId, DeviceId deviceId) {
+            BackupState state = getBackupState(deviceId);
+            long version = versions.incrementAndGet();
+            Set<FlowId> changed = state.drain();
+            DeviceFlowTable table = getFlowTable(deviceId);
+            Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> entries = Maps.newHashMap();
+            FlowTableDelta delta;
+            if (state.version == 0 || !Objects.equals(state.node, nodeId)) {
+                // new backup node, or previous backup failed
+                table.forEachFlowId((flowId, flowEntries) -> entries.put(flowId, toMap(flowEntries)));
+                delta = FlowTableDelta.snapshot(deviceId, version, entries);
+            } else {
+                changed.forEach(flowId -> {
+                    entries.put(flowId, toMap(table.get(flowId)));
+                });
+                delta = FlowTableDelta.changes(deviceId, state.version, version, entries);
+            }
+            state.node = nodeId;
+            state.version = version;
+            return delta;
+        }
+
+        private BackupState getBackupState(DeviceId deviceId) {
+            BackupState state = backupStates.get(deviceId);
+            if (state == null) {
+                BackupState newState = new BackupState();
+                state = backupStates.putIfAbsent(deviceId, newState);
+                if (state == null) {
+                    state = newState;
+                    registerBackupLagMetric(deviceId, state::lag);
+                }
+            }
+            return state;
+        }
+
+        private boolean hasPendingChanges(DeviceId deviceId) {
+            BackupState state = deltaBackupEnabled ? backupStates.get(deviceId) : null;
+            return state != null && (state.version == 0 || !state.dirty.isEmpty());
+        }
+
+        private void resetBackupStates() {
+            backupStates.values().forEach(BackupState::reset);
+        }
+
+        /**
+         * Records a change of the given stored flow entry which happened
+         * outside of the flow table, such as a state or statistics update.
+         *
+         * @param entry flow entry that changed
+         */
+        public void markUpdated(FlowEntry entry) {
+            if (deltaBackupEnabled) {
+                markDirty(entry);
+                lastUpdateTimes.put(entry.deviceId(), System.currentTimeMillis());
+            }
+        }
+
+        private void markDirty(FlowRule rule) {
+            if (deltaBackupEnabled) {
+                getBackupState(rule.deviceId()).markDirty(rule.id());
+            }
+        }
+
         /**
          * Returns the flow table for specified device.
          *
          * @param deviceId identifier of the device
-         * @return Map representing Flow Table of given device.
+         * @return Flow Table of given device.
          */
-        private Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> getFlowTable(DeviceId deviceId) {
+        private DeviceFlowTable getFlowTable(DeviceId deviceId) {
             if (persistenceEnabled) {
-                return flowEntries.computeIfAbsent(deviceId, id -> persistenceService
+                return flowEntries.computeIfAbsent(deviceId, id -> new DeviceFlowTable(persistenceService
                         .<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>persistentMapBuilder()
                         .withName("FlowTable:" + deviceId.toString())
                         .withSerializer(new Serializer() {
@@ -766,74 +1106,87 @@ public class NewDistributedFlowRuleStore
                                 return SERIALIZER.decode(bytes);
                             }
                         })
-                        .build());
+                        .build()));
             } else {
-                return flowEntries.computeIfAbsent(deviceId, id -> Maps.newConcurrentMap());
+                return flowEntries.computeIfAbsent(deviceId, id -> new DeviceFlowTable());
             }
         }
 
-        private Map<StoredFlowEntry, StoredFlowEntry> getFlowEntriesInternal(DeviceId deviceId, FlowId flowId) {
-            return getFlowTable(deviceId).computeIfAbsent(flowId, id -> Maps.newConcurrentMap());
+        /**
+         * Returns the flow table of the given device as a map from flow id
+         * to the entries sharing it, as shipped to backup nodes.
+         *
+         * @param deviceId identifier of the device
+         * @return copy of the flow table
+         */
+        private Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> copyFlowTable(DeviceId deviceId) {
+            Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> copy = Maps.newHashMap();
+            getFlowTable(deviceId).forEachFlowId((flowId, entries) -> copy.put(flowId, toMap(entries)));
+            return copy;
         }
 
-        private StoredFlowEntry getFlowEntryInternal(FlowRule rule) {
-            return getFlowEntriesInternal(rule.deviceId(), rule.id()).get(rule);
+        private Map<StoredFlowEntry, StoredFlowEntry> toMap(List<StoredFlowEntry> entries) {
+            ImmutableMap.Builder<StoredFlowEntry, StoredFlowEntry> builder = ImmutableMap.builder();
+            entries.forEach(entry -> builder.put(entry, entry));
+            return builder.build();
         }
 
-        private Set<FlowEntry> getFlowEntriesInternal(DeviceId deviceId) {
-            return getFlowTable(deviceId).values().stream()
-                        .flatMap(m -> m.values().stream())
-                        .collect(Collectors.toSet());
+        public StoredFlowEntry getFlowEntry(FlowRule rule) {
+            return getFlowTable(rule.deviceId()).get(rule);
         }
 
-        public StoredFlowEntry getFlowEntry(FlowRule rule) {
-            return getFlowEntryInternal(rule);
+        public Iterable<FlowEntry> getFlowEntries(DeviceId deviceId) {
+            return getFlowTable(deviceId);
         }
 
-        public Set<FlowEntry> getFlowEntries(DeviceId deviceId) {
-            return getFlowEntriesInternal(deviceId);
+        public Set<FlowEntry> copyFlowEntries(DeviceId deviceId) {
+            return Sets.newHashSet(getFlowTable(deviceId));
+        }
+
+        public Iterable<FlowEntry> getFlowEntriesByApp(DeviceId deviceId, short appId) {
+            return getFlowTable(deviceId).getByApp(appId);
+        }
+
+        public Iterable<FlowEntry> getFlowEntriesByTable(DeviceId deviceId, int tableId) {
+            return getFlowTable(deviceId).getByTable(tableId);
         }
 
         public void add(FlowEntry rule) {
-            getFlowEntriesInternal(rule.deviceId(), rule.id())
-                    .compute((StoredFlowEntry) rule, (k, stored) -> {
-                        //TODO compare stored and rule timestamps
-                        //TODO the key is not updated
-                        return (StoredFlowEntry) rule;
-                    });
+            //TODO compare stored and rule timestamps
+            getFlowTable(rule.deviceId()).put((StoredFlowEntry) rule);
+            markDirty(rule);
             lastUpdateTimes.put(rule.deviceId(), System.currentTimeMillis());
         }
 
         public FlowEntry remove(DeviceId deviceId, FlowEntry rule) {
-            final AtomicReference<FlowEntry> removedRule = new AtomicReference<>();
-            getFlowEntriesInternal(rule.deviceId(), rule.id())
-                .computeIfPresent((StoredFlowEntry) rule, (k, stored) -> {
-                    if (rule instanceof DefaultFlowEntry) {
-                        DefaultFlowEntry toRemove = (DefaultFlowEntry) rule;
-                        if (stored instanceof DefaultFlowEntry) {
-                            DefaultFlowEntry storedEntry = (DefaultFlowEntry) stored;
-                            if (toRemove.created() < storedEntry.created()) {
-                                log.debug("Trying to remove more recent flow entry {} (stored: {})",
-                                          toRemove, stored);
-                                // the key is not updated, removedRule remains null
-                                return stored;
-                            }
+            FlowEntry removedRule = getFlowTable(rule.deviceId()).remove(rule, stored -> {
+                if (rule instanceof DefaultFlowEntry) {
+                    DefaultFlowEntry toRemove = (DefaultFlowEntry) rule;
+                    if (stored instanceof DefaultFlowEntry) {
+                        DefaultFlowEntry storedEntry = (DefaultFlowEntry) stored;
+                        if (toRemove.created() < storedEntry.created()) {
+                            log.debug("Trying to remove more recent flow entry {} (stored: {})",
+                                      toRemove, stored);
+                            return false;
                         }
                     }
-                    removedRule.set(stored);
-                    return null;
-                });
+                }
+                return true;
+            });
 
-            if (removedRule.get() != null) {
+            if (removedRule != null) {
+                markDirty(rule);
                 lastUpdateTimes.put(deviceId, System.currentTimeMillis());
-                return removedRule.get();
-            } else {
-                return null;
             }
+            return removedRule;
         }
 
         public void purgeFlowRule(DeviceId deviceId) {
             flowEntries.remove(deviceId);
+            backupVersions.remove(deviceId);
+            if (backupStates.remove(deviceId) != null) {
+                removeBackupLagMetric(deviceId);
+            }
         }
 
         private NodeId getBackupNode(DeviceId deviceId) {
@@ -847,8 +1200,16 @@ public class NewDistributedFlowRuleStore
                 return;
             }
             try {
+                Set<DeviceId> masteredDevices = mastershipService.getDevicesOf(local);
+                // backups of devices we no longer master must start over from a snapshot
+                backupStates.forEach((deviceId, state) -> {
+                    if (!masteredDevices.contains(deviceId)) {
+                        state.reset();
+                    }
+                });
+
                 // determine the set of devices that we need to backup during this run.
-                Set<DeviceId> devicesToBackup = mastershipService.getDevicesOf(local)
+                Set<DeviceId> devicesToBackup = masteredDevices
                             .stream()
                             .filter(deviceId -> {
                                 Long lastBackupTime = lastBackupTimes.get(deviceId);
@@ -857,7 +1218,8 @@ public class NewDistributedFlowRuleStore
                                 NodeId newBackupNode = getBackupNode(deviceId);
                                 return lastBackupTime == null
                                         ||  !Objects.equals(lastBackupNode, newBackupNode)
-                                        || (lastUpdateTime != null && lastUpdateTime > lastBackupTime);
+                                        || (lastUpdateTime != null && lastUpdateTime > lastBackupTime)
+                                        || hasPendingChanges(deviceId);
                             })
                             .collect(Collectors.toSet());
 
@@ -885,10 +1247,10 @@ public class NewDistributedFlowRuleStore
                 flowTables.forEach((deviceId, deviceFlowTable) -> {
                     // Only process those devices are that not managed by the local node.
                     if (!Objects.equals(local, mastershipService.getMasterFor(deviceId))) {
-                        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backupFlowTable =
-                                getFlowTable(deviceId);
+                        DeviceFlowTable backupFlowTable = getFlowTable(deviceId);
                         backupFlowTable.clear();
-                        backupFlowTable.putAll(deviceFlowTable);
+                        deviceFlowTable.forEach((flowId, flowEntries) ->
+                                backupFlowTable.replace(flowId, flowEntries.values()));
                         backedupDevices.add(deviceId);
                     }
                 });
@@ -897,6 +1259,74 @@ public class NewDistributedFlowRuleStore
             }
             return backedupDevices;
         }
+
+        private Set<DeviceId> onBackupDeltaReceipt(List<FlowTableDelta> deltas) {
+            log.debug("Received flow table deltas {} to backup", deltas);
+            Set<DeviceId> backedupDevices = Sets.newHashSet();
+            try {
+                deltas.forEach(delta -> {
+                    DeviceId deviceId = delta.deviceId();
+                    // Only process those devices are that not managed by the local node.
+                    if (Objects.equals(local, mastershipService.getMasterFor(deviceId))) {
+                        return;
+                    }
+                    DeviceFlowTable backupFlowTable = getFlowTable(deviceId);
+                    if (delta.isSnapshot()) {
+                        backupFlowTable.clear();
+                    } else if (!Objects.equals(backupVersions.get(deviceId), delta.baseVersion())) {
+                        log.debug("Ignoring {}; backup of {} is at version {}",
+                                  delta, deviceId, backupVersions.get(deviceId));
+                        return;
+                    }
+                    delta.entries().forEach((flowId, flowEntries) ->
+                            backupFlowTable.replace(flowId, flowEntries.values()));
+                    backupVersions.put(deviceId, delta.version());
+                    backedupDevices.add(deviceId);
+                });
+            } catch (Exception e) {
+                log.warn("Failure processing backup request", e);
+            }
+            return backedupDevices;
+        }
+    }
+
+    // Changes of the flow table of a device not yet acknowledged by its backup node.
+    private static final class BackupState {
+        private final Set<FlowId> dirty = Sets.newConcurrentHashSet();
+        // time of the oldest change not yet acknowledged; 0 if there is none
+        private final AtomicLong pendingSince = new AtomicLong();
+        // backup node and flow table version last sent to it; 0 if a snapshot is needed
+        private volatile NodeId node;
+        private volatile long version;
+
+        private void markDirty(FlowId flowId) {
+            dirty.add(flowId);
+            pendingSince.compareAndSet(0, System.currentTimeMillis());
+        }
+
+        private Set<FlowId> drain() {
+            Set<FlowId> changed = Sets.newHashSet();
+            Iterator<FlowId> it = dirty.iterator();
+            while (it.hasNext()) {
+                changed.add(it.next());
+                it.remove();
+            }
+            return changed;
+        }
+
+        private void acknowledged(long sendTime) {
+            // anything marked since the send is no older than the send time
+            pendingSince.set(dirty.isEmpty() ? 0 : sendTime);
+        }
+
+        private void reset() {
+            version = 0;
+        }
+
+        private long lag() {
+            long since = pendingSince.get();
+            return since == 0 ? 0 : System.currentTimeMillis() - since;
+        }
     }
 
     @Override
@@ -24,6 +24,7 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
 import org.onlab.packet.VlanId;
@@ -53,15 +54,12 @@ import org.onosproject.store.service.StorageService;
 import org.onosproject.store.service.Versioned;
 import org.slf4j.Logger;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -92,6 +90,15 @@ public class DistributedHostStore
     private MapEventListener<HostId, DefaultHost> hostLocationTracker =
             new HostLocationTracker();
 
+    // Secondary indexes over hosts; filled in by the write path, pruned by
+    // the location tracker
+    private final HostIndexes indexes = new HostIndexes(id -> hosts.get(id), prevHosts::get);
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
+    private static final String METRICS_COMPONENT = "HostStore";
+
     @Activate
     public void activate() {
         KryoNamespace.Builder hostSerializer = KryoNamespace.newBuilder()
@@ -106,8 +113,10 @@ public class DistributedHostStore
         hosts = host.asJavaMap();
 
         prevHosts.putAll(hosts);
+        prevHosts.values().forEach(h -> indexes.update(null, h));
 
         host.addListener(hostLocationTracker);
+        indexes.registerMetrics(metricsService, METRICS_COMPONENT);
 
         log.info("Started");
     }
@@ -115,7 +124,9 @@ public class DistributedHostStore
     @Deactivate
     public void deactivate() {
         host.removeListener(hostLocationTracker);
+        indexes.removeMetrics();
         prevHosts.clear();
+        indexes.clear();
 
         log.info("Stopped");
     }
@@ -194,10 +205,13 @@ public class DistributedHostStore
                                                   annotations);
                        });
 
-        Tools.retryable(supplier,
+        Versioned<DefaultHost> stored = Tools.retryable(supplier,
                         ConsistentMapException.ConcurrentModification.class,
                         Integer.MAX_VALUE,
                         50).get();
+        if (stored != null) {
+            indexes.update(null, stored.value());
+        }
 
         return null;
     }
@@ -212,7 +226,7 @@ public class DistributedHostStore
     // TODO No longer need to return HostEvent
     @Override
     public HostEvent removeIp(HostId hostId, IpAddress ipAddress) {
-        hosts.compute(hostId, (id, existingHost) -> {
+        DefaultHost stored = hosts.compute(hostId, (id, existingHost) -> {
             if (existingHost != null) {
                 checkState(Objects.equals(hostId.mac(), existingHost.mac()),
                         "Existing and new MAC addresses differ.");
@@ -236,6 +250,9 @@ public class DistributedHostStore
             }
             return null;
         });
+        if (stored != null) {
+            indexes.update(null, stored);
+        }
         return null;
     }
 
@@ -256,39 +273,27 @@ public class DistributedHostStore
 
     @Override
     public Set<Host> getHosts(VlanId vlanId) {
-        return filter(hosts.values(), host -> Objects.equals(host.vlan(), vlanId));
+        return indexes.getHosts(vlanId);
     }
 
     @Override
     public Set<Host> getHosts(MacAddress mac) {
-        return filter(hosts.values(), host -> Objects.equals(host.mac(), mac));
+        return indexes.getHosts(mac);
     }
 
     @Override
     public Set<Host> getHosts(IpAddress ip) {
-        return filter(hosts.values(), host -> host.ipAddresses().contains(ip));
+        return indexes.getHosts(ip);
     }
 
     @Override
     public Set<Host> getConnectedHosts(ConnectPoint connectPoint) {
-        Set<Host> filtered = hosts.entrySet().stream()
-                .filter(entry -> entry.getValue().location().equals(connectPoint))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
-        return ImmutableSet.copyOf(filtered);
+        return ImmutableSet.copyOf(indexes.getConnectedHosts(connectPoint));
     }
 
     @Override
     public Set<Host> getConnectedHosts(DeviceId deviceId) {
-        Set<Host> filtered = hosts.entrySet().stream()
-                .filter(entry -> entry.getValue().location().deviceId().equals(deviceId))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
-        return ImmutableSet.copyOf(filtered);
-    }
-
-    private Set<Host> filter(Collection<DefaultHost> collection, Predicate<DefaultHost> predicate) {
-        return collection.stream().filter(predicate).collect(Collectors.toSet());
+        return ImmutableSet.copyOf(indexes.getConnectedHosts(deviceId));
     }
 
     private class HostLocationTracker implements MapEventListener<HostId, DefaultHost> {
@@ -298,9 +303,11 @@ public class DistributedHostStore
             Host prevHost = prevHosts.put(host.id(), host);
             switch (event.type()) {
                 case INSERT:
+                    indexes.update(prevHost, host);
                     notifyDelegate(new HostEvent(HOST_ADDED, host));
                     break;
                 case UPDATE:
+                    indexes.update(prevHost, host);
                     if (!Objects.equals(prevHost.location(), host.location())) {
                         notifyDelegate(new HostEvent(HOST_MOVED, host, prevHost));
                     } else if (!Objects.equals(prevHost, host)) {
@@ -308,7 +315,10 @@ public class DistributedHostStore
                     }
                     break;
                 case REMOVE:
-                    if (prevHosts.remove(host.id()) != null) {
+                    boolean removed = prevHosts.remove(host.id()) != null;
+                    indexes.remove(prevHost);
+                    indexes.remove(host);
+                    if (removed) {
                         notifyDelegate(new HostEvent(HOST_REMOVED, host));
                     }
                     break;
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.host.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onlab.util.KryoNamespace;
+import org.onosproject.net.Annotations;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultAnnotations;
+import org.onosproject.net.DefaultHost;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.host.HostDescription;
+import org.onosproject.net.host.HostEvent;
+import org.onosproject.net.host.HostStore;
+import org.onosproject.net.host.HostStoreDelegate;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.AbstractStore;
+import org.onosproject.store.Timestamp;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.EventuallyConsistentMap;
+import org.onosproject.store.service.EventuallyConsistentMapEvent;
+import org.onosproject.store.service.EventuallyConsistentMapListener;
+import org.onosproject.store.service.MultiValuedTimestamp;
+import org.onosproject.store.service.StorageService;
+import org.slf4j.Logger;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.onosproject.net.DefaultAnnotations.merge;
+import static org.onosproject.net.host.HostEvent.Type.*;
+import static org.onosproject.store.service.EventuallyConsistentMapEvent.Type.PUT;
+import static org.onosproject.store.service.EventuallyConsistentMapEvent.Type.REMOVE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Manages the inventory of hosts using a {@code EventuallyConsistentMap}.
+ * <p>
+ * Host descriptions are applied locally and gossiped to the peers instead
+ * of going through consensus. Updates are ordered by the time at which the
+ * host was seen at its location, clamped to the local clock so that a host
+ * rediscovered after its removal wins over the tombstone even when the
+ * provider reports no location time.
+ * Since host discoveries are reported by the master of the device the host
+ * is attached to, updates to a host are effectively sharded by its location.
+ * <p>
+ * This store is an alternative to {@link DistributedHostStore} and is
+ * disabled by default.
+ */
+@Component(immediate = true, enabled = false)
+@Service
+public class ECHostStore
+    extends AbstractStore<HostEvent, HostStoreDelegate>
+    implements HostStore {
+
+    private final Logger log = getLogger(getClass());
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected StorageService storageService;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
+    private static final String METRICS_COMPONENT = "ECHostStore";
+
+    private EventuallyConsistentMap<HostId, DefaultHost> hosts;
+
+    private final ConcurrentHashMap<HostId, DefaultHost> prevHosts =
+            new ConcurrentHashMap<>();
+
+    // Secondary indexes over hosts; filled in by the write path, pruned by
+    // the host tracker
+    private final HostIndexes indexes = new HostIndexes(id -> hosts.get(id), prevHosts::get);
+
+    private final EventuallyConsistentMapListener<HostId, DefaultHost> hostTracker =
+            new HostTracker();
+
+    // Logical tie-breaker for updates seen at the same time
+    private final AtomicLong sequenceNumber = new AtomicLong(0);
+
+    @Activate
+    public void activate() {
+        KryoNamespace.Builder hostSerializer = KryoNamespace.newBuilder()
+                .register(KryoNamespaces.API)
+                .register(MultiValuedTimestamp.class);
+
+        hosts = storageService.<HostId, DefaultHost>eventuallyConsistentMapBuilder()
+                .withName("onos-ec-hosts")
+                .withSerializer(hostSerializer)
+                .withTimestampProvider(this::timestamp)
+                .build();
+
+        hosts.entrySet().forEach(e -> {
+            prevHosts.put(e.getKey(), e.getValue());
+            indexes.update(null, e.getValue());
+        });
+
+        hosts.addListener(hostTracker);
+        indexes.registerMetrics(metricsService, METRICS_COMPONENT);
+
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        hosts.removeListener(hostTracker);
+        hosts.destroy();
+        indexes.removeMetrics();
+        prevHosts.clear();
+        indexes.clear();
+
+        log.info("Stopped");
+    }
+
+    // Orders the updates of a host by the time it was seen at its location,
+    // but never before the local clock. Some providers report no location
+    // time at all, and a put must still be newer than the stored version or
+    // the tombstone a removal left behind. Removals carry no host and are
+    // ordered by the local clock.
+    private Timestamp timestamp(HostId hostId, Host host) {
+        long now = System.currentTimeMillis();
+        if (host == null) {
+            return new MultiValuedTimestamp<>(now, sequenceNumber.getAndIncrement());
+        }
+        return new MultiValuedTimestamp<>(Math.max(host.location().time(), now),
+                                          sequenceNumber.getAndIncrement());
+    }
+
+    private boolean shouldUpdate(DefaultHost existingHost,
+                                 ProviderId providerId,
+                                 HostDescription hostDescription,
+                                 boolean replaceIPs) {
+        if (existingHost == null) {
+            return true;
+        }
+
+        if (!Objects.equals(existingHost.providerId(), providerId) ||
+                !Objects.equals(existingHost.mac(), hostDescription.hwAddress()) ||
+                !Objects.equals(existingHost.vlan(), hostDescription.vlan()) ||
+                !Objects.equals(existingHost.location(), hostDescription.location())) {
+            return true;
+        }
+
+        if (replaceIPs) {
+            if (!Objects.equals(hostDescription.ipAddress(),
+                                existingHost.ipAddresses())) {
+                return true;
+            }
+        } else {
+            if (!existingHost.ipAddresses().containsAll(hostDescription.ipAddress())) {
+                return true;
+            }
+        }
+
+        return hostDescription.annotations().keys().stream()
+                    .anyMatch(k -> !Objects.equals(hostDescription.annotations().value(k),
+                                                   existingHost.annotations().value(k)));
+    }
+
+    @Override
+    public HostEvent createOrUpdateHost(ProviderId providerId,
+                                        HostId hostId,
+                                        HostDescription hostDescription,
+                                        boolean replaceIPs) {
+        // Every write is gossiped to the peers, so redundant discoveries
+        // are filtered out before touching the map
+        DefaultHost existingHost = hosts.get(hostId);
+        if (!shouldUpdate(existingHost, providerId, hostDescription, replaceIPs)) {
+            return null;
+        }
+
+        final Set<IpAddress> addresses;
+        if (existingHost == null || replaceIPs) {
+            addresses = ImmutableSet.copyOf(hostDescription.ipAddress());
+        } else {
+            addresses = Sets.newHashSet(existingHost.ipAddresses());
+            addresses.addAll(hostDescription.ipAddress());
+        }
+
+        final Annotations annotations;
+        if (existingHost != null) {
+            annotations = merge((DefaultAnnotations) existingHost.annotations(),
+                                hostDescription.annotations());
+        } else {
+            annotations = hostDescription.annotations();
+        }
+
+        hosts.put(hostId, new DefaultHost(providerId,
+                                          hostId,
+                                          hostDescription.hwAddress(),
+                                          hostDescription.vlan(),
+                                          hostDescription.location(),
+                                          addresses,
+                                          annotations));
+        index(hostId);
+        return null;
+    }
+
+    @Override
+    public HostEvent removeHost(HostId hostId) {
+        hosts.remove(hostId);
+        return null;
+    }
+
+    @Override
+    public HostEvent removeIp(HostId hostId, IpAddress ipAddress) {
+        DefaultHost existingHost = hosts.get(hostId);
+        if (existingHost == null || !existingHost.ipAddresses().contains(ipAddress)) {
+            return null;
+        }
+        checkState(Objects.equals(hostId.mac(), existingHost.mac()),
+                   "Existing and new MAC addresses differ.");
+        checkState(Objects.equals(hostId.vlanId(), existingHost.vlan()),
+                   "Existing and new VLANs differ.");
+
+        Set<IpAddress> addresses = Sets.newHashSet(existingHost.ipAddresses());
+        addresses.remove(ipAddress);
+        hosts.put(hostId, new DefaultHost(existingHost.providerId(),
+                                          hostId,
+                                          existingHost.mac(),
+                                          existingHost.vlan(),
+                                          existingHost.location(),
+                                          ImmutableSet.copyOf(addresses),
+                                          existingHost.annotations()));
+        index(hostId);
+        return null;
+    }
+
+    // Indexes whichever version of the host the map kept, as a write with
+    // an older timestamp than the stored one is discarded
+    private void index(HostId hostId) {
+        DefaultHost stored = hosts.get(hostId);
+        if (stored != null) {
+            indexes.update(null, stored);
+        }
+    }
+
+    @Override
+    public int getHostCount() {
+        return hosts.size();
+    }
+
+    @Override
+    public Iterable<Host> getHosts() {
+        return ImmutableSet.copyOf(hosts.values());
+    }
+
+    @Override
+    public Host getHost(HostId hostId) {
+        return hosts.get(hostId);
+    }
+
+    @Override
+    public Set<Host> getHosts(VlanId vlanId) {
+        return indexes.getHosts(vlanId);
+    }
+
+    @Override
+    public Set<Host> getHosts(MacAddress mac) {
+        return indexes.getHosts(mac);
+    }
+
+    @Override
+    public Set<Host> getHosts(IpAddress ip) {
+        return indexes.getHosts(ip);
+    }
+
+    @Override
+    public Set<Host> getConnectedHosts(ConnectPoint connectPoint) {
+        return ImmutableSet.copyOf(indexes.getConnectedHosts(connectPoint));
+    }
+
+    @Override
+    public Set<Host> getConnectedHosts(DeviceId deviceId) {
+        return ImmutableSet.copyOf(indexes.getConnectedHosts(deviceId));
+    }
+
+    private class HostTracker implements EventuallyConsistentMapListener<HostId, DefaultHost> {
+        @Override
+        public void event(EventuallyConsistentMapEvent<HostId, DefaultHost> event) {
+            if (event.type() == PUT) {
+                DefaultHost host = event.value();
+                DefaultHost prevHost = prevHosts.put(event.key(), host);
+                indexes.update(prevHost, host);
+                if (prevHost == null) {
+                    notifyDelegate(new HostEvent(HOST_ADDED, host));
+                } else if (!Objects.equals(prevHost.location(), host.location())) {
+                    notifyDelegate(new HostEvent(HOST_MOVED, host, prevHost));
+                } else if (!Objects.equals(prevHost, host)) {
+                    notifyDelegate(new HostEvent(HOST_UPDATED, host, prevHost));
+                }
+            } else if (event.type() == REMOVE) {
+                DefaultHost prevHost = prevHosts.remove(event.key());
+                if (prevHost != null) {
+                    indexes.remove(prevHost);
+                    notifyDelegate(new HostEvent(HOST_REMOVED, prevHost));
+                }
+            }
+        }
+    }
+}
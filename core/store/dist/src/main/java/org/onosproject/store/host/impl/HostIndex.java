@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.host.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Secondary index of hosts by an attribute such as the MAC address, the IP
+ * addresses or the location. Maps each attribute value to the identifiers
+ * of the hosts which carry it.
+ * <p>
+ * The index may hold more identifiers than there are matching hosts: a
+ * host is only dropped from a value once the version of the host last seen
+ * by the host tracker no longer carries that value. Lookups are therefore
+ * expected to check the hosts they resolve.
+ * </p>
+ *
+ * @param <K> type of the indexed attribute
+ */
+final class HostIndex<K> {
+
+    private final ConcurrentMap<K, Set<HostId>> index = new ConcurrentHashMap<>();
+    private final Function<Host, Collection<K>> keys;
+    private final Function<HostId, ? extends Host> tracked;
+
+    /**
+     * Creates a new index.
+     *
+     * @param keys    function extracting the attribute values of a host
+     * @param tracked function resolving a host identifier to the version of
+     *                the host last seen by the host tracker, or null if it is
+     *                gone; it is called under the lock of an index entry and
+     *                must not block
+     */
+    HostIndex(Function<Host, Collection<K>> keys,
+              Function<HostId, ? extends Host> tracked) {
+        this.keys = keys;
+        this.tracked = tracked;
+    }
+
+    /**
+     * Updates the index for a host which was added or changed. New values
+     * are indexed before stale ones are dropped so that lookups never miss
+     * a host which keeps a value across the update.
+     *
+     * @param previous previous version of the host; null if new
+     * @param current  current version of the host
+     */
+    void update(Host previous, Host current) {
+        Collection<K> currentKeys = keys.apply(current);
+        currentKeys.forEach(key -> add(key, current.id()));
+        if (previous != null) {
+            keys.apply(previous).stream()
+                    .filter(key -> !currentKeys.contains(key))
+                    .forEach(key -> remove(key, previous.id()));
+        }
+    }
+
+    /**
+     * Drops a removed host from the index.
+     *
+     * @param host removed host
+     */
+    void remove(Host host) {
+        keys.apply(host).forEach(key -> remove(key, host.id()));
+    }
+
+    /**
+     * Returns the identifiers of the hosts carrying the given value.
+     *
+     * @param key attribute value
+     * @return snapshot of host identifiers
+     */
+    Set<HostId> get(K key) {
+        Set<HostId> ids = index.get(key);
+        return ids == null ? ImmutableSet.of() : ImmutableSet.copyOf(ids);
+    }
+
+    /**
+     * Returns the number of distinct values in the index.
+     *
+     * @return number of indexed values
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the number of value to host mappings held by the index.
+     *
+     * @return number of index entries
+     */
+    long entries() {
+        return index.values().stream().mapToLong(Set::size).sum();
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    void clear() {
+        index.clear();
+    }
+
+    private void add(K key, HostId id) {
+        index.compute(key, (k, ids) -> {
+            Set<HostId> updated = ids == null ? Sets.newConcurrentHashSet() : ids;
+            updated.add(id);
+            return updated;
+        });
+    }
+
+    // Checked under the lock of the value so that a concurrent tracker update
+    // which records the host first and indexes it afterwards is never undone
+    private void remove(K key, HostId id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            Host current = tracked.apply(id);
+            if (current == null || !keys.apply(current).contains(k)) {
+                ids.remove(id);
+            }
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.host.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Secondary indexes of a host store by MAC address, IP address, VLAN,
+ * connect point and device. The indexes hold host identifiers which are
+ * resolved against the map of hosts kept by the store, so lookups agree
+ * with {@code getHost}. Stores index a host in their write path as soon as
+ * it is stored and leave stale entries to be dropped from the map events.
+ */
+final class HostIndexes {
+
+    private static final String INDEX_FEATURE = "index";
+    private static final String LOOKUP_LATENCY = "lookupLatency";
+    private static final String ENTRIES_SUFFIX = "Entries";
+
+    private final HostIndex<MacAddress> macIndex;
+    private final HostIndex<IpAddress> ipIndex;
+    private final HostIndex<VlanId> vlanIndex;
+    private final HostIndex<ConnectPoint> locationIndex;
+    private final HostIndex<DeviceId> deviceIndex;
+    private final Map<String, HostIndex<?>> indexes;
+
+    private final Function<HostId, ? extends Host> resolver;
+
+    // Latency of the lookups served by the indexes
+    private final Timer lookupLatency = new Timer();
+    private MetricsService metricsService;
+    private MetricsComponent metricsComponent;
+    private MetricsFeature indexFeature;
+
+    /**
+     * Creates the indexes.
+     *
+     * @param resolver function resolving a host identifier to the current
+     *                 version of the host, or null if it is gone; used by
+     *                 lookups
+     * @param tracked  function resolving a host identifier to the version of
+     *                 the host last seen by the host tracker, or null if it is
+     *                 gone; used when pruning the indexes and must not block
+     */
+    HostIndexes(Function<HostId, ? extends Host> resolver,
+                Function<HostId, ? extends Host> tracked) {
+        this.resolver = resolver;
+        this.macIndex = new HostIndex<>(host -> ImmutableSet.of(host.mac()), tracked);
+        this.ipIndex = new HostIndex<>(Host::ipAddresses, tracked);
+        this.vlanIndex = new HostIndex<>(host -> ImmutableSet.of(host.vlan()), tracked);
+        this.locationIndex = new HostIndex<>(
+                host -> ImmutableSet.of(new ConnectPoint(host.location().elementId(),
+                                                         host.location().port())),
+                tracked);
+        this.deviceIndex = new HostIndex<>(host -> ImmutableSet.of(host.location().deviceId()),
+                                           tracked);
+        this.indexes = ImmutableMap.<String, HostIndex<?>>of(
+                "mac", macIndex, "ip", ipIndex, "vlan", vlanIndex,
+                "location", locationIndex, "device", deviceIndex);
+    }
+
+    /**
+     * Updates the indexes for a host which was added or changed.
+     *
+     * @param previous previous version of the host; null if new
+     * @param current  current version of the host
+     */
+    void update(Host previous, Host current) {
+        indexes.values().forEach(index -> index.update(previous, current));
+    }
+
+    /**
+     * Drops a removed host from the indexes, unless the host tracker has
+     * seen it stored again since.
+     *
+     * @param removed removed host; may be null
+     */
+    void remove(Host removed) {
+        if (removed != null) {
+            indexes.values().forEach(index -> index.remove(removed));
+        }
+    }
+
+    /**
+     * Removes all entries from the indexes.
+     */
+    void clear() {
+        indexes.values().forEach(HostIndex::clear);
+    }
+
+    Set<Host> getHosts(VlanId vlanId) {
+        return lookup(vlanIndex, vlanId, host -> Objects.equals(host.vlan(), vlanId));
+    }
+
+    Set<Host> getHosts(MacAddress mac) {
+        return lookup(macIndex, mac, host -> Objects.equals(host.mac(), mac));
+    }
+
+    Set<Host> getHosts(IpAddress ip) {
+        return lookup(ipIndex, ip, host -> host.ipAddresses().contains(ip));
+    }
+
+    Set<Host> getConnectedHosts(ConnectPoint connectPoint) {
+        return lookup(locationIndex, connectPoint, host -> host.location().equals(connectPoint));
+    }
+
+    Set<Host> getConnectedHosts(DeviceId deviceId) {
+        return lookup(deviceIndex, deviceId, host -> host.location().deviceId().equals(deviceId));
+    }
+
+    /**
+     * Exposes the lookup latency and the number of entries of each index
+     * under the given metrics component.
+     *
+     * @param service   metrics service; may be null
+     * @param component name of the metrics component
+     */
+    void registerMetrics(MetricsService service, String component) {
+        if (service != null) {
+            metricsService = service;
+            metricsComponent = service.registerComponent(component);
+            indexFeature = metricsComponent.registerFeature(INDEX_FEATURE);
+            service.registerMetric(metricsComponent, indexFeature, LOOKUP_LATENCY, lookupLatency);
+            indexes.forEach((name, index) ->
+                    service.registerMetric(metricsComponent, indexFeature, name + ENTRIES_SUFFIX,
+                                           (Gauge<Long>) index::entries));
+        }
+    }
+
+    /**
+     * Removes the metrics registered by {@link #registerMetrics}.
+     */
+    void removeMetrics() {
+        if (metricsService != null && metricsComponent != null) {
+            metricsService.removeMetric(metricsComponent, indexFeature, LOOKUP_LATENCY);
+            indexes.keySet().forEach(name ->
+                    metricsService.removeMetric(metricsComponent, indexFeature, name + ENTRIES_SUFFIX));
+            metricsComponent = null;
+        }
+    }
+
+    // Resolves the hosts found in the given index; the predicate guards
+    // against hosts which changed since they were looked up.
+    private <K> Set<Host> lookup(HostIndex<K> index, K key, Predicate<Host> predicate) {
+        final Timer.Context timer = lookupLatency.time();
+        try {
+            return index.get(key).stream()
+                    .<Host>map(resolver)
+                    .filter(host -> host != null && predicate.test(host))
+                    .collect(Collectors.toSet());
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.onosproject.store.intent.impl;
 
+import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 
 import org.apache.commons.lang.math.RandomUtils;
@@ -28,6 +29,9 @@ import org.onlab.util.KryoNamespace;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.ControllerNode;
 import org.onosproject.cluster.NodeId;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.intent.Intent;
 import org.onosproject.net.intent.IntentData;
 import org.onosproject.net.intent.IntentEvent;
@@ -39,7 +43,11 @@ import org.onosproject.net.intent.IntentPartitionService;
 import org.onosproject.store.AbstractStore;
 import org.onosproject.store.service.MultiValuedTimestamp;
 import org.onosproject.store.service.WallClockTimestamp;
+import org.onosproject.store.serializers.ConnectPointSerializer;
+import org.onosproject.store.serializers.DefaultApplicationIdSerializer;
+import org.onosproject.store.serializers.DeviceIdSerializer;
 import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.serializers.NodeIdSerializer;
 import org.onosproject.store.service.EventuallyConsistentMap;
 import org.onosproject.store.service.EventuallyConsistentMapEvent;
 import org.onosproject.store.service.EventuallyConsistentMapListener;
@@ -89,11 +97,18 @@ public class GossipIntentStore
 
     @Activate
     public void activate() {
+        // Replicas received from peers intern the identifiers which recur
+        // across intents, so that they are not held once per intent
         KryoNamespace.Builder intentSerializer = KryoNamespace.newBuilder()
                 .register(KryoNamespaces.API)
                 .register(IntentData.class)
                 .register(MultiValuedTimestamp.class)
-                .register(WallClockTimestamp.class);
+                .register(WallClockTimestamp.class)
+                .register(new InterningSerializer<>(new DeviceIdSerializer()), DeviceId.class)
+                .register(new InterningSerializer<>(new ConnectPointSerializer()), ConnectPoint.class)
+                .register(new InterningSerializer<>(new NodeIdSerializer()), NodeId.class)
+                .register(new InterningSerializer<>(new DefaultApplicationIdSerializer()),
+                          DefaultApplicationId.class);
 
         currentMap = storageService.<Key, IntentData>eventuallyConsistentMapBuilder()
                 .withName("intent-current")
@@ -133,9 +148,8 @@ public class GossipIntentStore
 
     @Override
     public Iterable<Intent> getIntents() {
-        return currentMap.values().stream()
-                .map(IntentData::intent)
-                .collect(Collectors.toList());
+        // live view; avoids materializing the whole intent set per call
+        return Collections2.transform(currentMap.values(), IntentData::intent);
     }
 
     @Override
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.intent.impl;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Kryo serializer which interns the immutable objects it reads, so that the
+ * replicas of intents received from peers share a single instance of each
+ * device identifier, connect point, etc. instead of holding one per intent.
+ *
+ * @param <T> type of the serialized objects
+ */
+final class InterningSerializer<T> extends Serializer<T> {
+
+    private final Serializer<T> delegate;
+    private final Interner<T> interner = Interners.newWeakInterner();
+
+    /**
+     * Creates an interning serializer on top of the given serializer.
+     *
+     * @param delegate serializer of immutable objects
+     */
+    InterningSerializer(Serializer<T> delegate) {
+        super(delegate.getAcceptsNull(), true);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, T object) {
+        delegate.write(kryo, output, object);
+    }
+
+    @Override
+    public T read(Kryo kryo, Input input, Class<T> type) {
+        T object = delegate.read(kryo, input, type);
+        return object == null ? null : interner.intern(object);
+    }
+}
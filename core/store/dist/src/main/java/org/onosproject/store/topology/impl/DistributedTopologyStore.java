@@ -15,6 +15,7 @@
  */
 package org.onosproject.store.topology.impl;
 
+import com.google.common.base.Strings;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -44,6 +45,7 @@ import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.MetricLinkWeight;
 import org.onosproject.net.topology.PathAdminService;
+import org.onosproject.net.topology.PathCacheStatistics;
 import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyCluster;
 import org.onosproject.net.topology.TopologyEdge;
@@ -68,6 +70,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -91,7 +94,7 @@ public class DistributedTopologyStore
 
     private final Logger log = getLogger(getClass());
 
-    private static final String FORMAT = "Settings: linkWeightFunction={}";
+    private static final String FORMAT = "Settings: linkWeightFunction={}, warmPathCache={}";
 
     private volatile DefaultTopology current =
             new DefaultTopology(ProviderId.NONE,
@@ -123,6 +126,13 @@ public class DistributedTopologyStore
             label = "Default link-weight function: hopCount, linkMetric, geoDistance")
     private String linkWeightFunction = DEFAULT_LINK_WEIGHT_FUNCTION;
 
+    private static final boolean DEFAULT_WARM_PATH_CACHE = false;
+    @Property(name = "warmPathCache", boolValue = DEFAULT_WARM_PATH_CACHE,
+            label = "Compute the shortest paths of each new topology in the background")
+    private boolean warmPathCache = DEFAULT_WARM_PATH_CACHE;
+
+    private ForkJoinPool warmUpPool;
+
     // Cluster root to broadcast points bindings to allow convergence to
     // a shared broadcast tree; node that is the master of the cluster root
     // is the primary.
@@ -143,6 +153,7 @@ public class DistributedTopologyStore
                 .withTimestampProvider((k, v) -> clockService.getTimestamp())
                 .build();
         broadcastPoints.addListener(listener);
+        warmUpPool = new ForkJoinPool();
         log.info("Started");
     }
 
@@ -151,6 +162,7 @@ public class DistributedTopologyStore
         configService.unregisterProperties(getClass(), false);
         broadcastPoints.removeListener(listener);
         broadcastPoints.destroy();
+        warmUpPool.shutdownNow();
         log.info("Stopped");
     }
 
@@ -168,7 +180,10 @@ public class DistributedTopologyStore
                             new GeoDistanceLinkWeight(deviceService) : null;
             setDefaultLinkWeight(weight);
         }
-        log.info(FORMAT, linkWeightFunction);
+
+        String s = get(properties, "warmPathCache");
+        warmPathCache = Strings.isNullOrEmpty(s) ? DEFAULT_WARM_PATH_CACHE : Boolean.parseBoolean(s);
+        log.info(FORMAT, linkWeightFunction, warmPathCache);
     }
 
     @Override
@@ -251,6 +266,11 @@ public class DistributedTopologyStore
         return defaultTopology(topology).isBroadcastPoint(connectPoint);
     }
 
+    @Override
+    public PathCacheStatistics getPathCacheStatistics(Topology topology) {
+        return defaultTopology(topology).pathCacheStatistics();
+    }
+
     private boolean isBroadcastPoint(ConnectPoint connectPoint) {
         // Any non-infrastructure, i.e. edge points are assumed to be OK.
         if (!current.isInfrastructure(connectPoint)) {
@@ -277,10 +297,14 @@ public class DistributedTopologyStore
             return null;
         }
 
-        // Have the default topology construct self from the description data.
+        // Have the default topology construct self from the description data,
+        // reusing the shortest paths of the current one which are still valid.
         DefaultTopology newTopology =
-                new DefaultTopology(providerId, graphDescription, this::isBroadcastPoint);
+                new DefaultTopology(providerId, graphDescription, this::isBroadcastPoint, current);
         updateBroadcastPoints(newTopology);
+        if (warmPathCache && warmUpPool != null) {
+            newTopology.warmPathCache(warmUpPool);
+        }
 
         // Promote the new topology to current and return a ready-to-send event.
         synchronized (this) {
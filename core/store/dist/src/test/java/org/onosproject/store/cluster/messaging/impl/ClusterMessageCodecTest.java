@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.cluster.messaging.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.store.cluster.messaging.ClusterMessage;
+import org.onosproject.store.cluster.messaging.MessageSubject;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.serializers.KryoSerializer;
+import org.onosproject.store.serializers.MeteringSerializer;
+import org.onosproject.store.serializers.StoreSerializer;
+import org.onosproject.store.service.Serializer;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the cluster message envelope codec.
+ */
+public class ClusterMessageCodecTest {
+
+    private static final NodeId SENDER = new NodeId("n1");
+    private static final MessageSubject SUBJECT = new MessageSubject("test-subject");
+    private static final List<String> MESSAGE = ImmutableList.of("hello", "world");
+
+    private static final StoreSerializer SERIALIZER = new KryoSerializer();
+
+    /*
+     * Serializing into a Netty frame must produce the same bytes as the
+     * ClusterMessage layout.
+     */
+    @Test
+    public void writeIntoFrame() {
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.buffer();
+        try {
+            frame.writeInt(42);
+            ClusterMessageCodec.writeEnvelope(SENDER, SUBJECT, MESSAGE, SERIALIZER, new ByteBufOutputStream(frame));
+            assertEquals("incorrect prefix", 42, frame.readInt());
+            byte[] envelope = new byte[frame.readableBytes()];
+            frame.readBytes(envelope);
+
+            byte[] expected = new ClusterMessage(SENDER, SUBJECT, SERIALIZER.encode(MESSAGE)).getBytes();
+            assertArrayEquals("incorrect envelope", expected, envelope);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /*
+     * Other streams get the envelope through an encoded byte array.
+     */
+    @Test
+    public void writeIntoStream() {
+        Serializer serializer = Serializer.using(KryoNamespaces.API);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ClusterMessageCodec.writeEnvelope(SENDER, SUBJECT, MESSAGE, serializer, stream);
+
+        ClusterMessage message = ClusterMessage.fromBytes(stream.toByteArray());
+        assertEquals(SENDER, message.sender());
+        assertEquals(SUBJECT, message.subject());
+        assertEquals(MESSAGE, serializer.decode(message.payload()));
+    }
+
+    @Test
+    public void decodePayload() {
+        byte[] envelope = new ClusterMessage(SENDER, SUBJECT, SERIALIZER.encode(MESSAGE)).getBytes();
+        assertEquals(MESSAGE, ClusterMessageCodec.decodePayload(new ByteArrayInputStream(envelope), SERIALIZER));
+        assertEquals(MESSAGE, ClusterMessageCodec.decodePayload(new ByteArrayInputStream(envelope),
+                                                                Serializer.using(KryoNamespaces.API)));
+    }
+
+    /*
+     * Payloads are deserialized straight from an inbound frame, which is
+     * left positioned past the envelope.
+     */
+    @Test
+    public void decodeFromFrame() {
+        byte[] envelope = new ClusterMessage(SENDER, SUBJECT, SERIALIZER.encode(MESSAGE)).getBytes();
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.buffer();
+        try {
+            frame.writeBytes(envelope);
+            assertEquals(MESSAGE, ClusterMessageCodec.decodePayload(new ByteBufInputStream(frame), SERIALIZER));
+            assertEquals("envelope not consumed", 0, frame.readableBytes());
+        } finally {
+            frame.release();
+        }
+    }
+
+    /*
+     * Metering serializers see the bytes written into the frame.
+     */
+    @Test
+    public void meteredWriteIntoFrame() {
+        AtomicLong metered = new AtomicLong();
+        StoreSerializer serializer = new MeteringSerializer(SERIALIZER, metered::addAndGet);
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.buffer();
+        try {
+            ClusterMessageCodec.writeEnvelope(SENDER, SUBJECT, MESSAGE, serializer, new ByteBufOutputStream(frame));
+            assertEquals(SERIALIZER.encode(MESSAGE).length, metered.get());
+        } finally {
+            frame.release();
+        }
+    }
+}
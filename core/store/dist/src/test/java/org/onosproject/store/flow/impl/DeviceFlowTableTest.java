@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the device flow table.
+ */
+public class DeviceFlowTableTest {
+
+    private static final DeviceId DID = DeviceId.deviceId("of:1");
+    private static final ApplicationId APP1 = new DefaultApplicationId(1, "app1");
+    private static final ApplicationId APP2 = new DefaultApplicationId(2, "app2");
+
+    private static FlowRule rule(ApplicationId appId, int port, int tableId) {
+        return DefaultFlowRule.builder()
+                .forDevice(DID)
+                .withSelector(DefaultTrafficSelector.builder()
+                                      .matchInPort(PortNumber.portNumber(port))
+                                      .build())
+                .withTreatment(DefaultTrafficTreatment.builder()
+                                       .setOutput(PortNumber.portNumber(port + 1))
+                                       .build())
+                .withPriority(10)
+                .fromApp(appId)
+                .forTable(tableId)
+                .makePermanent()
+                .build();
+    }
+
+    private static StoredFlowEntry entry(FlowRule rule) {
+        return new DefaultFlowEntry(rule);
+    }
+
+    @Test
+    public void basics() {
+        DeviceFlowTable table = new DeviceFlowTable();
+        FlowRule r1 = rule(APP1, 1, 0);
+        FlowRule r2 = rule(APP1, 2, 0);
+        StoredFlowEntry e1 = entry(r1);
+        table.put(e1);
+        table.put(entry(r2));
+        assertEquals(2, table.size());
+        assertSame(e1, table.get(r1));
+
+        StoredFlowEntry e1b = entry(r1);
+        table.put(e1b);
+        assertEquals(2, table.size());
+        assertSame(e1b, table.get(r1));
+
+        assertSame(e1b, table.remove(r1, stored -> true));
+        assertNull(table.get(r1));
+        assertNull(table.remove(r1, stored -> true));
+        assertEquals(1, table.size());
+        assertEquals(ImmutableSet.of(entry(r2)), Sets.newHashSet(table));
+    }
+
+    @Test
+    public void conditionalRemove() {
+        DeviceFlowTable table = new DeviceFlowTable();
+        FlowRule r1 = rule(APP1, 1, 0);
+        table.put(entry(r1));
+        assertNull(table.remove(r1, stored -> false));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void growAndShrink() {
+        DeviceFlowTable table = new DeviceFlowTable();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            table.put(entry(rule(APP1, i, 0)));
+        }
+        assertEquals(count, table.size());
+        assertEquals(count, Iterables.size(table));
+        for (int i = 0; i < count; i += 2) {
+            table.remove(rule(APP1, i, 0), stored -> true);
+        }
+        assertEquals(count / 2, table.size());
+        for (int i = 0; i < count; i++) {
+            FlowEntry stored = table.get(rule(APP1, i, 0));
+            assertEquals(i % 2 == 1, stored != null);
+        }
+        // churn through removed slots
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < count; i += 2) {
+                table.put(entry(rule(APP2, i, 1)));
+            }
+            for (int i = 0; i < count; i += 2) {
+                table.remove(rule(APP2, i, 1), stored -> true);
+            }
+        }
+        assertEquals(count / 2, table.size());
+        assertEquals(count / 2, Iterables.size(table));
+    }
+
+    @Test
+    public void concurrentReadersAndWriter() throws Exception {
+        DeviceFlowTable table = new DeviceFlowTable();
+        int count = 64;
+        List<FlowRule> rules = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            rules.add(rule(APP1, i, 0));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Runnable reader = () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (!done.get() && failure.get() == null) {
+                FlowRule rule = rules.get(random.nextInt(count));
+                for (StoredFlowEntry entry : table.get(rule.id())) {
+                    if (!entry.id().equals(rule.id())) {
+                        failure.compareAndSet(null, "Got " + entry.id() + " for " + rule.id());
+                    }
+                }
+                FlowEntry stored = table.get(rule);
+                if (stored != null && !stored.equals(rule)) {
+                    failure.compareAndSet(null, "Got " + stored + " for " + rule);
+                }
+            }
+        };
+        List<Thread> readers = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(reader);
+            thread.start();
+            readers.add(thread);
+        }
+
+        // churn so that removed slots keep being reused by other flow ids
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 0; round < 200_000 && failure.get() == null; round++) {
+            FlowRule rule = rules.get(random.nextInt(count));
+            if (table.get(rule) == null) {
+                table.put(entry(rule));
+            } else {
+                table.remove(rule, stored -> true);
+            }
+        }
+        done.set(true);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void indexes() {
+        DeviceFlowTable table = new DeviceFlowTable();
+        table.put(entry(rule(APP1, 1, 0)));
+        table.put(entry(rule(APP1, 2, 1)));
+        table.put(entry(rule(APP2, 3, 1)));
+
+        assertEquals(2, table.getByApp(APP1.id()).size());
+        assertEquals(1, table.getByApp(APP2.id()).size());
+        assertEquals(1, table.getByTable(0).size());
+        assertEquals(2, table.getByTable(1).size());
+
+        table.remove(rule(APP2, 3, 1), stored -> true);
+        assertTrue(table.getByApp(APP2.id()).isEmpty());
+        assertEquals(1, table.getByTable(1).size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertTrue(table.getByApp(APP1.id()).isEmpty());
+    }
+
+    @Test
+    public void replaceAndBackingMap() {
+        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backing = Maps.newConcurrentMap();
+        DeviceFlowTable table = new DeviceFlowTable(backing);
+        FlowRule r1 = rule(APP1, 1, 0);
+        StoredFlowEntry e1 = entry(r1);
+        table.replace(r1.id(), ImmutableList.of(e1));
+        assertSame(e1, table.get(r1));
+        assertEquals(ImmutableList.of(e1), table.get(r1.id()));
+        assertTrue(backing.containsKey(r1.id()));
+
+        DeviceFlowTable reloaded = new DeviceFlowTable(backing);
+        assertEquals(e1, reloaded.get(r1));
+        assertEquals(1, reloaded.getByApp(APP1.id()).size());
+
+        table.replace(r1.id(), ImmutableList.of());
+        assertNull(table.get(r1));
+        assertTrue(backing.isEmpty());
+
+        Set<FlowId> ids = Sets.newHashSet();
+        table.put(entry(rule(APP1, 2, 0)));
+        table.forEachFlowId((flowId, entries) -> ids.add(flowId));
+        assertEquals(ImmutableSet.of(rule(APP1, 2, 0).id()), ids);
+    }
+}
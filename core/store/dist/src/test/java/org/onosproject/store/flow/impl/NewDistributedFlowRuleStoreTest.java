@@ -0,0 +1,520 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.junit.TestUtils;
+import org.onlab.packet.IpAddress;
+import org.onosproject.cfg.ComponentConfigAdapter;
+import org.onosproject.cluster.ClusterEvent;
+import org.onosproject.cluster.ClusterEventListener;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.DefaultControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.core.CoreServiceAdapter;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.core.IdGenerator;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.MastershipRole;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.CompletedBatchOperation;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleBatchEntry;
+import org.onosproject.net.flow.FlowRuleBatchEvent;
+import org.onosproject.net.flow.FlowRuleBatchOperation;
+import org.onosproject.net.flow.FlowRuleBatchRequest;
+import org.onosproject.net.flow.StoredFlowEntry;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationServiceAdapter;
+import org.onosproject.store.cluster.messaging.ClusterMessage;
+import org.onosproject.store.cluster.messaging.ClusterMessageHandler;
+import org.onosproject.store.cluster.messaging.MessageSubject;
+import org.onosproject.store.flow.ReplicaInfo;
+import org.onosproject.store.flow.ReplicaInfoEventListener;
+import org.onosproject.store.flow.ReplicaInfoService;
+import org.onosproject.store.service.TestStorageService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onlab.junit.TestTools.assertAfter;
+import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.net.flow.FlowRuleBatchEntry.FlowRuleOperation.ADD;
+import static org.onosproject.store.flow.impl.FlowStoreMessageSubjects.APPLY_BATCHES_FLOWS;
+import static org.onosproject.store.flow.impl.FlowStoreMessageSubjects.APPLY_BATCH_FLOWS;
+import static org.onosproject.store.flow.impl.FlowStoreMessageSubjects.FLOW_TABLE_BACKUP_DELTA;
+import static org.onosproject.store.flow.impl.FlowStoreMessageSubjects.REMOTE_APPLY_COMPLETED_BATCH;
+
+/**
+ * Unit tests for the distributed flow rule store.
+ */
+public class NewDistributedFlowRuleStoreTest {
+
+    private static final NodeId LOCAL = new NodeId("local");
+    private static final NodeId PEER = new NodeId("peer");
+    private static final NodeId OTHER = new NodeId("other");
+
+    private static final DeviceId DID1 = deviceId("of:1");
+    private static final DeviceId DID2 = deviceId("of:2");
+    private static final DeviceId DID3 = deviceId("of:3");
+    private static final DeviceId DID4 = deviceId("of:4");
+
+    private final Map<DeviceId, NodeId> masters = Maps.newConcurrentMap();
+    private final Set<NodeId> activeNodes = Collections.newSetFromMap(Maps.newConcurrentMap());
+    private final List<FlowRuleBatchEvent> delegateEvents = Lists.newCopyOnWriteArrayList();
+    private final AtomicLong ids = new AtomicLong();
+
+    private NewDistributedFlowRuleStore store;
+    private TestClusterCommunicator communicator;
+    private TestClusterService clusterService;
+    private volatile NodeId backupNode = PEER;
+
+    @Before
+    public void setUp() throws TestUtils.TestUtilsException {
+        masters.put(DID1, LOCAL);
+        masters.put(DID2, PEER);
+        masters.put(DID3, PEER);
+        masters.put(DID4, OTHER);
+        activeNodes.addAll(ImmutableSet.of(LOCAL, PEER, OTHER));
+
+        communicator = new TestClusterCommunicator();
+        clusterService = new TestClusterService();
+
+        store = new NewDistributedFlowRuleStore();
+        store.clusterCommunicator = communicator;
+        store.clusterService = clusterService;
+        store.mastershipService = new TestMastershipService();
+        store.configService = new ComponentConfigAdapter();
+        store.coreService = new TestCoreService();
+        store.storageService = new TestStorageService();
+        store.replicaInfoManager = new TestReplicaInfoService();
+        // backups are driven explicitly by the tests that need them
+        TestUtils.setField(store, "backupEnabled", false);
+        store.activate(null);
+        store.setDelegate(delegateEvents::add);
+    }
+
+    @After
+    public void tearDown() throws TestUtils.TestUtilsException {
+        // tests may turn backups on, but the backup task is never scheduled
+        TestUtils.setField(store, "backupEnabled", false);
+        store.deactivate(null);
+    }
+
+    private static FlowRule rule(DeviceId deviceId, int port) {
+        return DefaultFlowRule.builder()
+                .forDevice(deviceId)
+                .withSelector(DefaultTrafficSelector.builder()
+                                      .matchInPort(PortNumber.portNumber(port))
+                                      .build())
+                .withTreatment(DefaultTrafficTreatment.builder()
+                                       .setOutput(PortNumber.portNumber(port + 1))
+                                       .build())
+                .withPriority(10)
+                .fromApp(new DefaultApplicationId(1, "app"))
+                .makePermanent()
+                .build();
+    }
+
+    private FlowRuleBatchOperation batch(DeviceId deviceId) {
+        return new FlowRuleBatchOperation(ImmutableList.of(new FlowRuleBatchEntry(ADD, rule(deviceId, 1))),
+                                          deviceId, ids.incrementAndGet());
+    }
+
+    private static FlowRuleBatchEvent completed(FlowRuleBatchOperation operation) {
+        return FlowRuleBatchEvent.completed(
+                new FlowRuleBatchRequest(operation.id(), Collections.emptySet()),
+                new CompletedBatchOperation(true, Collections.emptySet(), operation.deviceId()));
+    }
+
+    private List<Sent> sent(MessageSubject subject) {
+        List<Sent> matching = Lists.newArrayList();
+        communicator.sent.stream().filter(s -> s.subject.equals(subject)).forEach(matching::add);
+        return matching;
+    }
+
+    @Test
+    public void storeBatchesPerMaster() {
+        FlowRuleBatchOperation local = batch(DID1);
+        FlowRuleBatchOperation peer1 = batch(DID2);
+        FlowRuleBatchOperation peer2 = batch(DID3);
+        FlowRuleBatchOperation other = batch(DID4);
+        store.storeBatches(ImmutableList.of(local, peer1, peer2, other));
+
+        // locally mastered batch is handed straight to the delegate
+        assertEquals(1, delegateEvents.size());
+        assertEquals(FlowRuleBatchEvent.Type.BATCH_OPERATION_REQUESTED, delegateEvents.get(0).type());
+        assertEquals(local.id(), delegateEvents.get(0).subject().batchId());
+
+        // batches for the same remote master travel together
+        List<Sent> grouped = sent(APPLY_BATCHES_FLOWS);
+        assertEquals(1, grouped.size());
+        assertEquals(PEER, grouped.get(0).node);
+        assertEquals(ImmutableList.of(peer1, peer2), grouped.get(0).message);
+
+        List<Sent> single = sent(APPLY_BATCH_FLOWS);
+        assertEquals(1, single.size());
+        assertEquals(OTHER, single.get(0).node);
+        assertEquals(other, single.get(0).message);
+    }
+
+    @Test
+    public void completionsSentBackTogether() throws TestUtils.TestUtilsException {
+        masters.put(DID2, LOCAL);
+        FlowRuleBatchOperation op1 = batch(DID1);
+        FlowRuleBatchOperation op2 = batch(DID2);
+        communicator.receive(PEER, APPLY_BATCHES_FLOWS, Lists.newArrayList(op1, op2));
+        assertEquals(2, delegateEvents.size());
+
+        // Hold the completion timer so that the idle period cannot elapse
+        // between the two completions.
+        CountDownLatch completed = new CountDownLatch(1);
+        Timer timer = TestUtils.getField(store, "completionTimer");
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    completed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 0);
+        store.batchOperationComplete(completed(op1));
+        store.batchOperationComplete(completed(op2));
+        completed.countDown();
+
+        assertAfter(1000, () -> {
+            List<Sent> responses = sent(REMOTE_APPLY_COMPLETED_BATCH);
+            assertEquals(1, responses.size());
+            assertEquals(PEER, responses.get(0).node);
+            assertEquals(2, ((List<?>) responses.get(0).message).size());
+        });
+    }
+
+    @Test
+    public void completionsForDepartedPeer() throws TestUtils.TestUtilsException {
+        FlowRuleBatchOperation op1 = batch(DID1);
+        communicator.receive(PEER, APPLY_BATCHES_FLOWS, Lists.newArrayList(op1));
+
+        activeNodes.remove(PEER);
+        clusterService.post(new ClusterEvent(ClusterEvent.Type.INSTANCE_DEACTIVATED, node(PEER)));
+        store.batchOperationComplete(completed(op1));
+
+        Map<NodeId, ?> completions = TestUtils.getField(store, "completions");
+        assertTrue(completions.isEmpty());
+        assertTrue(sent(REMOTE_APPLY_COMPLETED_BATCH).isEmpty());
+    }
+
+    private void enableDeltaBackups() throws TestUtils.TestUtilsException {
+        TestUtils.setField(store, "backupEnabled", true);
+        TestUtils.setField(store, "deltaBackupEnabled", true);
+    }
+
+    private void runBackup() throws TestUtils.TestUtilsException {
+        TestUtils.callMethod(TestUtils.getField(store, "flowTable"), "backup", new Class<?>[]{});
+    }
+
+    private Set<FlowId> backedUpFlowIds(DeviceId deviceId) throws TestUtils.TestUtilsException {
+        Set<FlowEntry> entries = TestUtils.callMethod(TestUtils.getField(store, "flowTable"),
+                                                      "copyFlowEntries", DeviceId.class, deviceId);
+        return entries.stream().map(FlowEntry::id).collect(Collectors.toSet());
+    }
+
+    private List<FlowTableDelta> lastBackup(NodeId node) {
+        List<Sent> backups = sent(FLOW_TABLE_BACKUP_DELTA);
+        assertFalse(backups.isEmpty());
+        Sent last = backups.get(backups.size() - 1);
+        assertEquals(node, last.node);
+        @SuppressWarnings("unchecked")
+        List<FlowTableDelta> deltas = (List<FlowTableDelta>) last.message;
+        assertEquals(1, deltas.size());
+        assertEquals(DID1, deltas.get(0).deviceId());
+        return deltas;
+    }
+
+    private static Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> entries(StoredFlowEntry... entries) {
+        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> map = Maps.newHashMap();
+        for (StoredFlowEntry entry : entries) {
+            map.put(entry.id(), ImmutableMap.of(entry, entry));
+        }
+        return map;
+    }
+
+    private Set<DeviceId> receiveBackup(FlowTableDelta delta) {
+        return communicator.request(FLOW_TABLE_BACKUP_DELTA, Lists.newArrayList(delta));
+    }
+
+    @Test
+    public void deltaBackupSendsOnlyChanges() throws TestUtils.TestUtilsException {
+        enableDeltaBackups();
+        FlowRule rule1 = rule(DID1, 1);
+        FlowRule rule2 = rule(DID1, 3);
+        FlowRule rule3 = rule(DID1, 5);
+        store.addOrUpdateFlowRule(new DefaultFlowEntry(rule1));
+        store.addOrUpdateFlowRule(new DefaultFlowEntry(rule2));
+
+        // the first backup of a device is a snapshot of its whole table
+        runBackup();
+        FlowTableDelta first = lastBackup(PEER).get(0);
+        assertTrue(first.isSnapshot());
+        assertEquals(ImmutableSet.of(rule1.id(), rule2.id()), first.entries().keySet());
+
+        // later ones only carry what changed since the acknowledged version
+        store.addOrUpdateFlowRule(new DefaultFlowEntry(rule3));
+        runBackup();
+        FlowTableDelta second = lastBackup(PEER).get(0);
+        assertFalse(second.isSnapshot());
+        assertEquals(first.version(), second.baseVersion());
+        assertTrue(second.version() > first.version());
+        assertEquals(ImmutableSet.of(rule3.id()), second.entries().keySet());
+
+        // nothing changed, nothing sent
+        runBackup();
+        assertEquals(2, sent(FLOW_TABLE_BACKUP_DELTA).size());
+    }
+
+    @Test
+    public void rejectedDeltaFallsBackToSnapshot() throws TestUtils.TestUtilsException {
+        enableDeltaBackups();
+        FlowRule rule1 = rule(DID1, 1);
+        FlowRule rule2 = rule(DID1, 3);
+        store.addOrUpdateFlowRule(new DefaultFlowEntry(rule1));
+        runBackup();
+
+        // backup node lost track of the table and acknowledges nothing
+        communicator.backupReplies = deltas -> Collections.emptySet();
+        store.addOrUpdateFlowRule(new DefaultFlowEntry(rule2));
+        runBackup();
+        assertFalse(lastBackup(PEER).get(0).isSnapshot());
+
+        communicator.backupReplies = TestClusterCommunicator::acknowledgeAll;
+        runBackup();
+        FlowTableDelta retry = lastBackup(PEER).get(0);
+        assertTrue(retry.isSnapshot());
+        assertEquals(ImmutableSet.of(rule1.id(), rule2.id()), retry.entries().keySet());
+    }
+
+    @Test
+    public void newBackupNodeGetsSnapshot() throws TestUtils.TestUtilsException {
+        enableDeltaBackups();
+        FlowRule rule1 = rule(DID1, 1);
+        store.addOrUpdateFlowRule(new DefaultFlowEntry(rule1));
+        runBackup();
+        assertTrue(lastBackup(PEER).get(0).isSnapshot());
+
+        backupNode = OTHER;
+        runBackup();
+        FlowTableDelta moved = lastBackup(OTHER).get(0);
+        assertTrue(moved.isSnapshot());
+        assertEquals(ImmutableSet.of(rule1.id()), moved.entries().keySet());
+    }
+
+    @Test
+    public void backupAppliesDeltasInVersionOrder() throws TestUtils.TestUtilsException {
+        DefaultFlowEntry entry1 = new DefaultFlowEntry(rule(DID2, 1));
+        DefaultFlowEntry entry2 = new DefaultFlowEntry(rule(DID2, 3));
+        DefaultFlowEntry entry3 = new DefaultFlowEntry(rule(DID2, 5));
+
+        assertEquals(ImmutableSet.of(DID2), receiveBackup(FlowTableDelta.snapshot(DID2, 5, entries(entry1))));
+        assertEquals(ImmutableSet.of(entry1.id()), backedUpFlowIds(DID2));
+
+        assertEquals(ImmutableSet.of(DID2), receiveBackup(FlowTableDelta.changes(DID2, 5, 6, entries(entry2))));
+        assertEquals(ImmutableSet.of(entry1.id(), entry2.id()), backedUpFlowIds(DID2));
+
+        // a delta against a version this node never saw is refused
+        assertTrue(receiveBackup(FlowTableDelta.changes(DID2, 7, 8, entries(entry3))).isEmpty());
+        assertEquals(ImmutableSet.of(entry1.id(), entry2.id()), backedUpFlowIds(DID2));
+
+        // a flow id without entries was removed on the master
+        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> removal = Maps.newHashMap();
+        removal.put(entry1.id(), ImmutableMap.of());
+        assertEquals(ImmutableSet.of(DID2), receiveBackup(FlowTableDelta.changes(DID2, 6, 7, removal)));
+        assertEquals(ImmutableSet.of(entry2.id()), backedUpFlowIds(DID2));
+
+        // a snapshot replaces the table whatever its version
+        assertEquals(ImmutableSet.of(DID2), receiveBackup(FlowTableDelta.snapshot(DID2, 9, entries(entry3))));
+        assertEquals(ImmutableSet.of(entry3.id()), backedUpFlowIds(DID2));
+    }
+
+    private static ControllerNode node(NodeId nodeId) {
+        return new DefaultControllerNode(nodeId, IpAddress.valueOf(1));
+    }
+
+    // Message sent by the store to a peer.
+    private static final class Sent {
+        private final MessageSubject subject;
+        private final Object message;
+        private final NodeId node;
+
+        private Sent(MessageSubject subject, Object message, NodeId node) {
+            this.subject = subject;
+            this.message = message;
+            this.node = node;
+        }
+    }
+
+    private static class TestClusterCommunicator extends ClusterCommunicationServiceAdapter {
+        private final Map<MessageSubject, ClusterMessageHandler> handlers = Maps.newConcurrentMap();
+        private final Map<MessageSubject, Function<byte[], byte[]>> responders = Maps.newConcurrentMap();
+        private final List<Sent> sent = Lists.newCopyOnWriteArrayList();
+        private volatile Function<List<FlowTableDelta>, Set<DeviceId>> backupReplies =
+                TestClusterCommunicator::acknowledgeAll;
+
+        private static Set<DeviceId> acknowledgeAll(List<FlowTableDelta> deltas) {
+            return deltas.stream().map(FlowTableDelta::deviceId).collect(Collectors.toSet());
+        }
+
+        @Override
+        public void addSubscriber(MessageSubject subject, ClusterMessageHandler subscriber,
+                                  ExecutorService executor) {
+            handlers.put(subject, subscriber);
+        }
+
+        @Override
+        public <M, R> void addSubscriber(MessageSubject subject,
+                                         Function<byte[], M> decoder, Function<M, R> handler,
+                                         Function<R, byte[]> encoder, Executor executor) {
+            responders.put(subject, bytes -> encoder.apply(handler.apply(decoder.apply(bytes))));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <M, R> CompletableFuture<R> sendAndReceive(M message, MessageSubject subject,
+                                                          Function<M, byte[]> encoder,
+                                                          Function<byte[], R> decoder, NodeId toNodeId) {
+            Object decoded = NewDistributedFlowRuleStore.SERIALIZER.decode(encoder.apply(message));
+            sent.add(new Sent(subject, decoded, toNodeId));
+            if (!subject.equals(FLOW_TABLE_BACKUP_DELTA)) {
+                return super.sendAndReceive(message, subject, encoder, decoder, toNodeId);
+            }
+            Set<DeviceId> reply = backupReplies.apply((List<FlowTableDelta>) decoded);
+            return CompletableFuture.completedFuture(
+                    decoder.apply(NewDistributedFlowRuleStore.SERIALIZER.encode(reply)));
+        }
+
+        @Override
+        public <M> CompletableFuture<Void> unicast(M message, MessageSubject subject,
+                                                   Function<M, byte[]> encoder, NodeId toNodeId) {
+            // round trip through the encoder, as the peer would see it
+            sent.add(new Sent(subject, NewDistributedFlowRuleStore.SERIALIZER.decode(encoder.apply(message)),
+                              toNodeId));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        private void receive(NodeId sender, MessageSubject subject, Object message) {
+            handlers.get(subject).handle(new ClusterMessage(sender, subject,
+                    NewDistributedFlowRuleStore.SERIALIZER.encode(message)));
+        }
+
+        private <R> R request(MessageSubject subject, Object message) {
+            return NewDistributedFlowRuleStore.SERIALIZER.decode(
+                    responders.get(subject).apply(NewDistributedFlowRuleStore.SERIALIZER.encode(message)));
+        }
+    }
+
+    private class TestClusterService extends ClusterServiceAdapter {
+        private ClusterEventListener listener;
+
+        @Override
+        public ControllerNode.State getState(NodeId nodeId) {
+            return activeNodes.contains(nodeId) ? ControllerNode.State.ACTIVE : ControllerNode.State.INACTIVE;
+        }
+
+        @Override
+        public void addListener(ClusterEventListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void removeListener(ClusterEventListener listener) {
+            this.listener = null;
+        }
+
+        private void post(ClusterEvent event) {
+            listener.event(event);
+        }
+    }
+
+    private class TestMastershipService extends MastershipServiceAdapter {
+        @Override
+        public NodeId getMasterFor(DeviceId deviceId) {
+            return masters.get(deviceId);
+        }
+
+        @Override
+        public MastershipRole getLocalRole(DeviceId deviceId) {
+            return LOCAL.equals(masters.get(deviceId)) ? MastershipRole.MASTER : MastershipRole.STANDBY;
+        }
+
+        @Override
+        public Set<DeviceId> getDevicesOf(NodeId nodeId) {
+            return masters.keySet().stream()
+                    .filter(deviceId -> nodeId.equals(masters.get(deviceId)))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private class TestReplicaInfoService implements ReplicaInfoService {
+        @Override
+        public ReplicaInfo getReplicaInfoFor(DeviceId deviceId) {
+            return new ReplicaInfo(masters.get(deviceId), ImmutableList.of(backupNode));
+        }
+
+        @Override
+        public void addListener(ReplicaInfoEventListener listener) {
+        }
+
+        @Override
+        public void removeListener(ReplicaInfoEventListener listener) {
+        }
+    }
+
+    private class TestCoreService extends CoreServiceAdapter {
+        @Override
+        public IdGenerator getIdGenerator(String topic) {
+            return ids::incrementAndGet;
+        }
+    }
+}
@@ -19,14 +19,20 @@ import junit.framework.TestCase;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.junit.TestUtils;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
+import org.onosproject.net.DefaultHost;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.Host;
 import org.onosproject.net.HostId;
 import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.host.DefaultHostDescription;
 import org.onosproject.net.host.HostDescription;
 import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.MapEventListener;
 import org.onosproject.store.service.TestStorageService;
 
 import java.util.HashSet;
@@ -46,6 +52,11 @@ public class DistributedHostStoreTest extends TestCase {
 
     private static final ProviderId PID = new ProviderId("of", "foo");
 
+    private static final HostLocation LOC1 =
+            new HostLocation(DeviceId.deviceId("of:1"), PortNumber.portNumber(1), 0);
+    private static final HostLocation LOC2 =
+            new HostLocation(DeviceId.deviceId("of:2"), PortNumber.portNumber(2), 0);
+
     @Before
     public void setUp() {
         ecXHostStore = new DistributedHostStore();
@@ -78,6 +89,86 @@ public class DistributedHostStoreTest extends TestCase {
 
         assertFalse(host.ipAddresses().contains(IP1));
         assertTrue(host.ipAddresses().contains(IP2));
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+        assertEquals(1, ecXHostStore.getHosts(IP2).size());
+    }
+
+    /**
+     * Tests the lookups served by the secondary indexes.
+     */
+    @Test
+    public void testIndexedLookups() {
+        Set<IpAddress> ips = new HashSet<>();
+        ips.add(IP1);
+
+        HostDescription description = new DefaultHostDescription(HOSTID.mac(),
+                                                                  HOSTID.vlanId(),
+                                                                  LOC1,
+                                                                  ips);
+        ecXHostStore.createOrUpdateHost(PID, HOSTID, description, false);
+
+        assertEquals(1, ecXHostStore.getHosts(HOSTID.mac()).size());
+        assertEquals(1, ecXHostStore.getHosts(HOSTID.vlanId()).size());
+        assertEquals(1, ecXHostStore.getHosts(IP1).size());
+        assertEquals(1, ecXHostStore.getConnectedHosts(LOC1).size());
+        assertEquals(1, ecXHostStore.getConnectedHosts(LOC1.deviceId()).size());
+
+        // move the host and check that the location indexes follow
+        description = new DefaultHostDescription(HOSTID.mac(), HOSTID.vlanId(), LOC2, ips);
+        ecXHostStore.createOrUpdateHost(PID, HOSTID, description, false);
+
+        assertTrue(ecXHostStore.getConnectedHosts(LOC1).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(LOC1.deviceId()).isEmpty());
+        assertEquals(1, ecXHostStore.getConnectedHosts(LOC2).size());
+        assertEquals(1, ecXHostStore.getHosts(IP1).size());
+
+        ecXHostStore.removeHost(HOSTID);
+
+        assertTrue(ecXHostStore.getHosts(HOSTID.mac()).isEmpty());
+        assertTrue(ecXHostStore.getHosts(HOSTID.vlanId()).isEmpty());
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(LOC2).isEmpty());
+    }
+
+    /**
+     * Tests that the lookups see a write before its map event is delivered.
+     */
+    @Test
+    public void testLookupsBeforeMapEvent() throws TestUtils.TestUtilsException {
+        ConsistentMap<HostId, DefaultHost> map = TestUtils.getField(ecXHostStore, "host");
+        MapEventListener<HostId, DefaultHost> listener =
+                TestUtils.getField(ecXHostStore, "hostLocationTracker");
+        map.removeListener(listener);
+
+        Set<IpAddress> ips = new HashSet<>();
+        ips.add(IP1);
+        ips.add(IP2);
+
+        HostDescription description = new DefaultHostDescription(HOSTID.mac(),
+                                                                  HOSTID.vlanId(),
+                                                                  LOC1,
+                                                                  ips);
+        ecXHostStore.createOrUpdateHost(PID, HOSTID, description, false);
+
+        assertEquals(ecXHostStore.getHost(HOSTID),
+                     ecXHostStore.getHosts(HOSTID.mac()).iterator().next());
+        assertEquals(1, ecXHostStore.getHosts(IP1).size());
+        assertEquals(1, ecXHostStore.getConnectedHosts(LOC1).size());
+
+        // stale entries are filtered against the stored host
+        description = new DefaultHostDescription(HOSTID.mac(), HOSTID.vlanId(), LOC2, ips);
+        ecXHostStore.createOrUpdateHost(PID, HOSTID, description, false);
+        ecXHostStore.removeIp(HOSTID, IP1);
+
+        assertTrue(ecXHostStore.getConnectedHosts(LOC1).isEmpty());
+        assertEquals(1, ecXHostStore.getConnectedHosts(LOC2).size());
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+        assertEquals(1, ecXHostStore.getHosts(IP2).size());
+
+        ecXHostStore.removeHost(HOSTID);
+
+        assertTrue(ecXHostStore.getHosts(HOSTID.mac()).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(LOC2).isEmpty());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.host.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.DefaultHost;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.host.HostDescription;
+import org.onosproject.net.host.HostEvent;
+import org.onosproject.net.host.HostStoreDelegate;
+import org.onosproject.net.host.DefaultHostDescription;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.Timestamp;
+import org.onosproject.store.service.EventuallyConsistentMapBuilder;
+import org.onosproject.store.service.MultiValuedTimestamp;
+import org.onosproject.store.service.TestEventuallyConsistentMap;
+import org.onosproject.store.service.TestStorageService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.host.HostEvent.Type.*;
+
+/**
+ * Tests for the ECHostStore.
+ */
+public class ECHostStoreTest {
+
+    private static final HostId HOSTID = HostId.hostId(MacAddress.valueOf("1a:1a:1a:1a:1a:1a"));
+
+    private static final IpAddress IP1 = IpAddress.valueOf("10.2.0.2");
+    private static final IpAddress IP2 = IpAddress.valueOf("10.2.0.3");
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+
+    private static final HostLocation LOC1 =
+            new HostLocation(DeviceId.deviceId("of:1"), PortNumber.portNumber(1), 0);
+    private static final HostLocation LOC2 =
+            new HostLocation(DeviceId.deviceId("of:2"), PortNumber.portNumber(2), 0);
+
+    private ECHostStore store;
+    private final List<HostEvent> events = new ArrayList<>();
+    private BiFunction<HostId, DefaultHost, Timestamp> timestamps;
+
+    @Before
+    public void setUp() {
+        store = new ECHostStore();
+        store.storageService = new TimestampCapturingStorageService();
+        store.activate();
+        HostStoreDelegate delegate = events::add;
+        store.setDelegate(delegate);
+    }
+
+    @After
+    public void tearDown() {
+        store.deactivate();
+    }
+
+    private HostDescription description(HostLocation location, IpAddress... ips) {
+        return new DefaultHostDescription(HOSTID.mac(), HOSTID.vlanId(), location,
+                                          ImmutableSet.copyOf(ips));
+    }
+
+    /**
+     * Tests adding, moving and removing a host.
+     */
+    @Test
+    public void testHostLifecycle() {
+        store.createOrUpdateHost(PID, HOSTID, description(LOC1, IP1), false);
+        assertEquals(1, store.getHostCount());
+        assertEquals(1, store.getConnectedHosts(LOC1).size());
+
+        // a redundant discovery is not written
+        store.createOrUpdateHost(PID, HOSTID, description(LOC1, IP1), false);
+
+        store.createOrUpdateHost(PID, HOSTID, description(LOC2, IP1), false);
+        assertTrue(store.getConnectedHosts(LOC1).isEmpty());
+        assertTrue(store.getConnectedHosts(LOC1.deviceId()).isEmpty());
+        assertEquals(1, store.getConnectedHosts(LOC2).size());
+
+        store.removeHost(HOSTID);
+        assertNull(store.getHost(HOSTID));
+        assertTrue(store.getHosts(HOSTID.mac()).isEmpty());
+        assertTrue(store.getHosts(IP1).isEmpty());
+
+        assertEquals(3, events.size());
+        assertEquals(HOST_ADDED, events.get(0).type());
+        assertEquals(HOST_MOVED, events.get(1).type());
+        assertEquals(HOST_REMOVED, events.get(2).type());
+    }
+
+    /**
+     * Tests the removeIp method call.
+     */
+    @Test
+    public void testRemoveIp() {
+        store.createOrUpdateHost(PID, HOSTID, description(LOC1, IP1, IP2), false);
+        store.removeIp(HOSTID, IP1);
+        Host host = store.getHost(HOSTID);
+
+        assertFalse(host.ipAddresses().contains(IP1));
+        assertTrue(host.ipAddresses().contains(IP2));
+        assertTrue(store.getHosts(IP1).isEmpty());
+        assertEquals(1, store.getHosts(IP2).size());
+        assertEquals(HOST_UPDATED, events.get(events.size() - 1).type());
+    }
+
+    /**
+     * Tests that removing an address is ordered after the stored version of
+     * the host, even if a peer with a higher sequence number wrote it.
+     */
+    @Test
+    public void testRemoveIpNewerThanPeerVersion() {
+        store.createOrUpdateHost(PID, HOSTID, description(LOC1, IP1, IP2), false);
+        Timestamp peerVersion = new MultiValuedTimestamp<>(LOC1.time(), Long.MAX_VALUE);
+
+        DefaultHost stored = (DefaultHost) store.getHost(HOSTID);
+        DefaultHost withoutIp1 = new DefaultHost(stored.providerId(), HOSTID, stored.mac(), stored.vlan(),
+                                                 stored.location(), ImmutableSet.of(IP2), stored.annotations());
+        assertTrue(timestamps.apply(HOSTID, withoutIp1).isNewerThan(peerVersion));
+    }
+
+    /**
+     * Tests that a host rediscovered after its removal by a provider which
+     * reports no location time is ordered after the tombstone.
+     */
+    @Test
+    public void testRediscoveryNewerThanTombstone() {
+        store.createOrUpdateHost(PID, HOSTID, description(LOC1, IP1), false);
+        DefaultHost stored = (DefaultHost) store.getHost(HOSTID);
+
+        store.removeHost(HOSTID);
+        Timestamp tombstone = timestamps.apply(HOSTID, null);
+
+        assertEquals(0, LOC1.time());
+        assertTrue(timestamps.apply(HOSTID, stored).isNewerThan(tombstone));
+
+        store.createOrUpdateHost(PID, HOSTID, description(LOC1, IP1), false);
+        assertEquals(stored, store.getHost(HOSTID));
+        assertEquals(HOST_ADDED, events.get(events.size() - 1).type());
+    }
+
+    /**
+     * Tests that a discovery is still ordered by the time the host was seen
+     * when that time is ahead of the local clock.
+     */
+    @Test
+    public void testDiscoveryOrderedByLocationTime() {
+        store.createOrUpdateHost(PID, HOSTID, description(LOC1, IP1), false);
+        DefaultHost stored = (DefaultHost) store.getHost(HOSTID);
+
+        long future = System.currentTimeMillis() + 60_000;
+        DefaultHost seenLater = new DefaultHost(PID, HOSTID, stored.mac(), stored.vlan(),
+                                                new HostLocation(LOC1, future), stored.ipAddresses(),
+                                                stored.annotations());
+        assertTrue(timestamps.apply(HOSTID, seenLater)
+                           .isNewerThan(new MultiValuedTimestamp<>(future - 1, Long.MAX_VALUE)));
+        assertFalse(timestamps.apply(HOSTID, seenLater)
+                           .isNewerThan(new MultiValuedTimestamp<>(future + 1, 0L)));
+    }
+
+    // Captures the timestamp provider of the host map
+    private final class TimestampCapturingStorageService extends TestStorageService {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> EventuallyConsistentMapBuilder<K, V> eventuallyConsistentMapBuilder() {
+            return new TestEventuallyConsistentMap.Builder<K, V>() {
+                @Override
+                public EventuallyConsistentMapBuilder<K, V>
+                        withTimestampProvider(BiFunction<K, V, Timestamp> timestampProvider) {
+                    timestamps = (BiFunction<HostId, DefaultHost, Timestamp>) timestampProvider;
+                    return super.withTimestampProvider(timestampProvider);
+                }
+            };
+        }
+    }
+}
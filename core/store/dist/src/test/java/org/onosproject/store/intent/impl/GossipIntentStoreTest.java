@@ -33,6 +33,7 @@ import org.onosproject.net.intent.MockIdGenerator;
 import org.onosproject.net.intent.IntentPartitionServiceAdapter;
 import org.onosproject.store.service.TestStorageService;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
@@ -102,6 +103,31 @@ public class GossipIntentStoreTest {
         assertThat(intentStore.getIntentCount(), is(5L));
     }
 
+    /**
+     * Tests the paged and filtered intent data query.
+     */
+    @Test
+    public void testPagedQuery() {
+        intentStore.batchWrite(generateIntentList(10));
+
+        List<IntentData> all = intentStore.getIntentData(data -> true, 0, 100);
+        assertThat(all, hasSize(10));
+
+        List<IntentData> first = intentStore.getIntentData(data -> true, 0, 4);
+        List<IntentData> second = intentStore.getIntentData(data -> true, 4, 4);
+        List<IntentData> last = intentStore.getIntentData(data -> true, 8, 4);
+        assertThat(first, hasSize(4));
+        assertThat(second, hasSize(4));
+        assertThat(last, hasSize(2));
+        assertThat(first.get(0), is(all.get(0)));
+        assertThat(second.get(0), is(all.get(4)));
+        assertThat(last.get(1), is(all.get(9)));
+
+        List<IntentData> filtered = intentStore.getIntentData(
+                data -> data.intent().priority() > 7, 0, 100);
+        assertThat(filtered, hasSize(3));
+    }
+
     /**
      * Tests the batch add API.
      */
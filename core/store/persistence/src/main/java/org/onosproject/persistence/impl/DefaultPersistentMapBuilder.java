@@ -26,12 +26,15 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Default builder for persistent maps stored in the mapDB local database via the persistence service.
+ * Default builder for persistent maps stored in the mapDB local database or the write-ahead log store
+ * via the persistence service.
  */
 public class DefaultPersistentMapBuilder<K, V> implements PersistentMapBuilder<K, V> {
 
     private final DB localDB;
 
+    private final WriteAheadLogStore walStore;
+
     private String name = null;
 
     private Serializer serializer = null;
@@ -40,6 +43,12 @@ public class DefaultPersistentMapBuilder<K, V> implements PersistentMapBuilder<K
     public DefaultPersistentMapBuilder(DB localDB) {
         checkNotNull(localDB, "The local database cannot be null.");
         this.localDB = localDB;
+        this.walStore = null;
+    }
+
+    DefaultPersistentMapBuilder(WriteAheadLogStore walStore) {
+        this.localDB = null;
+        this.walStore = checkNotNull(walStore, "The write-ahead log store cannot be null.");
     }
 
     public PersistentMapBuilder<K, V> withName(String name) {
@@ -58,6 +67,9 @@ public class DefaultPersistentMapBuilder<K, V> implements PersistentMapBuilder<K
         checkNotNull(name, "The name must be assigned.");
         checkNotNull(serializer, "The key serializer must be assigned.");
 
+        if (walStore != null) {
+            return new PersistentMap<K, V>(serializer, walStore.map(name), name);
+        }
         return new PersistentMap<K, V>(serializer, localDB, name);
     }
 }
\ No newline at end of file
@@ -24,18 +24,27 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Default builder for persistent sets stored in the mapDB local database via the persistence service..
+ * Default builder for persistent sets stored in the mapDB local database or the write-ahead log store
+ * via the persistence service.
  */
 public class DefaultPersistentSetBuilder<E> implements PersistentSetBuilder<E> {
 
     private final DB localDB;
 
+    private final WriteAheadLogStore walStore;
+
     private String name = null;
 
     private Serializer serializer = null;
 
     public DefaultPersistentSetBuilder(DB localDB) {
         this.localDB = checkNotNull(localDB, "The local database cannot be null.");
+        this.walStore = null;
+    }
+
+    DefaultPersistentSetBuilder(WriteAheadLogStore walStore) {
+        this.localDB = null;
+        this.walStore = checkNotNull(walStore, "The write-ahead log store cannot be null.");
     }
 
     public PersistentSetBuilder<E> withName(String name) {
@@ -54,6 +63,9 @@ public class DefaultPersistentSetBuilder<E> implements PersistentSetBuilder<E> {
         checkNotNull(name, "The name must be assigned.");
         checkNotNull(serializer, "The serializer must be assigned.");
 
+        if (walStore != null) {
+            return new PersistentSet<E>(serializer, walStore.set(name), name);
+        }
         return new PersistentSet<E>(serializer, localDB, name);
     }
 }
\ No newline at end of file
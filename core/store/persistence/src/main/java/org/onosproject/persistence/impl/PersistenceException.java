@@ -27,4 +27,8 @@ public class PersistenceException extends RuntimeException {
     public PersistenceException(String s) {
         super(s);
     }
+
+    public PersistenceException(String s, Throwable cause) {
+        super(s, cause);
+    }
 }
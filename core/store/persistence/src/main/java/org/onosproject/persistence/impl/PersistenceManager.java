@@ -19,28 +19,36 @@ package org.onosproject.persistence.impl;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Service;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.onosproject.persistence.PersistenceService;
 import org.onosproject.persistence.PersistentMapBuilder;
 import org.onosproject.persistence.PersistentSetBuilder;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Dictionary;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.onlab.util.Tools.get;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Service that maintains local disk backed maps and sets.  This implementation automatically deletes empty structures
- * on shutdown.
+ * on shutdown.  Structures are kept either in a MapDB file database committed periodically, or in memory backed by
+ * a write-ahead log with group commit; the choice is made when the service is activated.
  */
 @Component(immediate = true)
 @Service
@@ -48,6 +56,7 @@ public class PersistenceManager implements PersistenceService {
 
     private static final String DATABASE_PATH = "../data/localDB";
     private static final String ENCLOSING_FOLDER = "../data";
+    private static final String WAL_PATH = "../data/localWAL";
 
     static final String MAP_PREFIX = "map:";
 
@@ -63,8 +72,75 @@ public class PersistenceManager implements PersistenceService {
 
     private final CommitTask commitTask = new CommitTask();
 
+    private static final boolean DEFAULT_WAL_ENABLED = false;
+    @Property(name = "walEnabled", boolValue = DEFAULT_WAL_ENABLED,
+            label = "Keep structures in a write-ahead log instead of the MapDB database; " +
+                    "takes effect on the next activation")
+    private boolean walEnabled = DEFAULT_WAL_ENABLED;
+
+    private static final int DEFAULT_WAL_FLUSH_MILLIS = 10;
+    @Property(name = "walFlushMillis", intValue = DEFAULT_WAL_FLUSH_MILLIS,
+            label = "Maximum time in millis between write-ahead log group commits")
+    private int walFlushMillis = DEFAULT_WAL_FLUSH_MILLIS;
+
+    private static final boolean DEFAULT_WAL_SYNC_WRITES = false;
+    @Property(name = "walSyncWrites", boolValue = DEFAULT_WAL_SYNC_WRITES,
+            label = "Hold each update until the group commit including it completes")
+    private boolean walSyncWrites = DEFAULT_WAL_SYNC_WRITES;
+
+    private static final int WAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long WAL_COMPACTION_THRESHOLD = 4L * WAL_SEGMENT_SIZE;
+
+    private WriteAheadLogStore walStore = null;
+
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        readComponentConfiguration(context);
+        if (walEnabled) {
+            activateWal();
+        } else {
+            activateMapDb();
+        }
+        log.info("Started");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        log.warn("Persistence settings take effect on the next activation");
+    }
+
+    private void readComponentConfiguration(ComponentContext context) {
+        Dictionary<?, ?> properties = context != null ? context.getProperties() : new Properties();
+        try {
+            String s = get(properties, "walEnabled");
+            walEnabled = isNullOrEmpty(s) ? walEnabled : Boolean.parseBoolean(s.trim());
+
+            s = get(properties, "walFlushMillis");
+            walFlushMillis = isNullOrEmpty(s) ? walFlushMillis : Integer.parseInt(s.trim());
+
+            s = get(properties, "walSyncWrites");
+            walSyncWrites = isNullOrEmpty(s) ? walSyncWrites : Boolean.parseBoolean(s.trim());
+        } catch (NumberFormatException e) {
+            log.warn(e.getMessage());
+        }
+        log.info("Settings: walEnabled={}, walFlushMillis={}, walSyncWrites={}",
+                 walEnabled, walFlushMillis, walSyncWrites);
+    }
+
+    private void activateWal() {
+        Path walPath = Paths.get(WAL_PATH);
+        try {
+            Files.createDirectories(walPath);
+        } catch (IOException e) {
+            log.error("Could not create the required folder for the write-ahead log.");
+            throw new PersistenceException("Write-ahead log folder could not be created.", e);
+        }
+        walStore = new WriteAheadLogStore(walPath, WAL_SEGMENT_SIZE, Math.max(1, walFlushMillis),
+                                          walSyncWrites, WAL_COMPACTION_THRESHOLD);
+        walStore.open();
+    }
+
+    private void activateMapDb() {
         timer = new Timer();
         Path dbPath = Paths.get(DATABASE_PATH);
         Path dbFolderPath = Paths.get(ENCLOSING_FOLDER);
@@ -91,11 +167,17 @@ public class PersistenceManager implements PersistenceService {
                 .closeOnJvmShutdown()
                 .make();
         timer.schedule(commitTask, FLUSH_FREQUENCY_MILLIS, FLUSH_FREQUENCY_MILLIS);
-        log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
+        if (walStore != null) {
+            walStore.dropEmpty();
+            walStore.close();
+            walStore = null;
+            log.info("Stopped");
+            return;
+        }
         timer.cancel();
         for (Map.Entry<String, Object> entry : localDB.getAll().entrySet()) {
             String key = entry.getKey();
@@ -122,10 +204,16 @@ public class PersistenceManager implements PersistenceService {
     }
 
     public <K, V> PersistentMapBuilder<K, V> persistentMapBuilder() {
+        if (walStore != null) {
+            return new DefaultPersistentMapBuilder<>(walStore);
+        }
         return new DefaultPersistentMapBuilder<>(localDB);
     }
 
     public <E> PersistentSetBuilder<E> persistentSetBuilder() {
+        if (walStore != null) {
+            return new DefaultPersistentSetBuilder<>(walStore);
+        }
         return new DefaultPersistentSetBuilder<>(localDB);
     }
 
@@ -36,23 +36,32 @@ public class PersistentMap<K, V> implements Map<K, V> {
 
     private final Serializer serializer;
 
-    private final org.mapdb.DB database;
-
     private final Map<byte[], byte[]> items;
 
     private final String name;
 
     public PersistentMap(Serializer serializer, DB database, String name) {
+        this(serializer,
+             checkNotNull(database)
+                     .createHashMap(name)
+                     .keySerializer(org.mapdb.Serializer.BYTE_ARRAY)
+                     .valueSerializer(org.mapdb.Serializer.BYTE_ARRAY)
+                     .hasher(Hasher.BYTE_ARRAY)
+                     .makeOrGet(),
+             name);
+    }
+
+    /**
+     * Creates a map backed by the given map of serialized entries.
+     *
+     * @param serializer serializer for keys and values
+     * @param items      backing map; must compare byte array keys by content
+     * @param name       map name
+     */
+    PersistentMap(Serializer serializer, Map<byte[], byte[]> items, String name) {
         this.serializer = checkNotNull(serializer);
-        this.database = checkNotNull(database);
+        this.items = checkNotNull(items);
         this.name = checkNotNull(name);
-
-        items = database
-                .createHashMap(name)
-                .keySerializer(org.mapdb.Serializer.BYTE_ARRAY)
-                .valueSerializer(org.mapdb.Serializer.BYTE_ARRAY)
-                .hasher(Hasher.BYTE_ARRAY)
-                .makeOrGet();
     }
 
     /**
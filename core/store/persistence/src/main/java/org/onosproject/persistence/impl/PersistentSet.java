@@ -35,22 +35,31 @@ public class PersistentSet<E> implements Set<E> {
 
     private final org.onosproject.store.service.Serializer serializer;
 
-    private final org.mapdb.DB database;
-
     private final Set<byte[]> items;
 
     private final String name;
 
     public PersistentSet(org.onosproject.store.service.Serializer serializer, DB database, String name) {
+        this(serializer,
+             checkNotNull(database)
+                     .createHashSet(name)
+                     .serializer(Serializer.BYTE_ARRAY)
+                     .hasher(Hasher.BYTE_ARRAY)
+                     .makeOrGet(),
+             name);
+    }
+
+    /**
+     * Creates a set backed by the given set of serialized elements.
+     *
+     * @param serializer serializer for elements
+     * @param items      backing set; must compare byte arrays by content
+     * @param name       set name
+     */
+    PersistentSet(org.onosproject.store.service.Serializer serializer, Set<byte[]> items, String name) {
         this.serializer = checkNotNull(serializer);
-        this.database = checkNotNull(database);
+        this.items = checkNotNull(items);
         this.name = checkNotNull(name);
-
-        items = database
-                .createHashSet(name)
-                .serializer(Serializer.BYTE_ARRAY)
-                .hasher(Hasher.BYTE_ARRAY)
-                .makeOrGet();
     }
 
     public void readInto(Set<E> items) {
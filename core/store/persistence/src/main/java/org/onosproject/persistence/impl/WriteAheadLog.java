@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.persistence.impl;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Append-only write-ahead log made of memory-mapped segment files. Records
+ * are appended to the mapped buffer of the current segment and made durable
+ * in groups: a flusher thread forces all records appended since its last
+ * pass in a single step, either periodically or as soon as a writer waits
+ * for durability.
+ * <p>
+ * Every record is framed by its length and CRC; replay stops at the first
+ * frame which is empty or fails its check, which is where the log ended
+ * when the process went down.
+ */
+class WriteAheadLog {
+
+    private final Logger log = getLogger(getClass());
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Frame header: record length followed by its CRC
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushMillis;
+
+    // Guards the current segment and the appended counter
+    private final Object appendLock = new Object();
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long appended;
+    private long bytesSinceCheckpoint;
+
+    // Guards the durable counter and flush requests
+    private final Object flushLock = new Object();
+    private volatile long durable;
+    private boolean flushRequested;
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Creates a write-ahead log in the given directory.
+     *
+     * @param directory   directory holding the segment files
+     * @param segmentSize size in bytes of each segment file
+     * @param flushMillis maximum time in millis between group commits
+     */
+    WriteAheadLog(Path directory, int segmentSize, long flushMillis) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushMillis = flushMillis;
+    }
+
+    /**
+     * Replays the records of all segments starting with the given one, in
+     * order, then opens a fresh segment for appending.
+     *
+     * @param fromSegment first segment to replay
+     * @param consumer    consumer of the replayed records
+     * @return number of segments replayed
+     */
+    int open(long fromSegment, Consumer<ByteBuffer> consumer) {
+        List<Long> segments = segments();
+        long last = fromSegment - 1;
+        int replayed = 0;
+        for (long seq : segments) {
+            if (seq >= fromSegment) {
+                replay(seq, consumer);
+                replayed++;
+            }
+            last = Math.max(last, seq);
+        }
+        synchronized (appendLock) {
+            startSegment(last + 1, segmentSize);
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "onos-persistence-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        return replayed;
+    }
+
+    /**
+     * Appends a record to the log. The record is not durable until a
+     * subsequent group commit; see {@link #awaitDurable(long)}.
+     *
+     * @param record record bytes
+     * @return sequence number of the appended record
+     */
+    long append(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        synchronized (appendLock) {
+            int frame = HEADER_SIZE + record.length;
+            // keep room for an empty header marking the end of the segment
+            if (buffer.remaining() < frame + HEADER_SIZE) {
+                forceSegment();
+                startSegment(segment + 1, Math.max(segmentSize, frame + HEADER_SIZE));
+            }
+            buffer.putInt(record.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(record);
+            bytesSinceCheckpoint += frame;
+            return ++appended;
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is durable.
+     * Concurrent waiters are satisfied by a single group commit.
+     *
+     * @param seq record sequence number
+     */
+    void awaitDurable(long seq) {
+        synchronized (flushLock) {
+            while (durable < seq && running) {
+                flushRequested = true;
+                flushLock.notifyAll();
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment and returns its sequence number; records in the
+     * segments before it may be dropped once a snapshot covering them has
+     * been written.
+     *
+     * @return sequence number of the new segment
+     */
+    long checkpoint() {
+        synchronized (appendLock) {
+            forceSegment();
+            startSegment(segment + 1, segmentSize);
+            bytesSinceCheckpoint = 0;
+            return segment;
+        }
+    }
+
+    /**
+     * Returns the number of bytes appended since the last checkpoint.
+     *
+     * @return log size in bytes
+     */
+    long bytesSinceCheckpoint() {
+        synchronized (appendLock) {
+            return bytesSinceCheckpoint;
+        }
+    }
+
+    /**
+     * Deletes the segment files preceding the given segment.
+     *
+     * @param seq first segment to keep
+     */
+    void truncate(long seq) {
+        for (long s : segments()) {
+            if (s < seq) {
+                try {
+                    Files.deleteIfExists(segmentPath(s));
+                } catch (IOException e) {
+                    log.warn("Unable to delete log segment {}", s, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes all appended records durable and closes the log.
+     */
+    void close() {
+        running = false;
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (appendLock) {
+            forceSegment();
+            closeChannel();
+        }
+    }
+
+    // Group commit loop; forces the current segment whenever records were
+    // appended since the last pass.
+    private void flushLoop() {
+        while (running) {
+            synchronized (flushLock) {
+                if (!flushRequested) {
+                    try {
+                        flushLock.wait(flushMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                flushRequested = false;
+            }
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        MappedByteBuffer target;
+        long seq;
+        synchronized (appendLock) {
+            target = buffer;
+            seq = appended;
+        }
+        if (seq > durable && target != null) {
+            target.force();
+        }
+        synchronized (flushLock) {
+            durable = Math.max(durable, seq);
+            flushLock.notifyAll();
+        }
+    }
+
+    // Must be called while holding the append lock.
+    private void startSegment(long seq, int size) {
+        closeChannel();
+        try {
+            channel = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE_NEW,
+                                       StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            segment = seq;
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to create log segment " + seq, e);
+        }
+    }
+
+    // Must be called while holding the append lock.
+    private void forceSegment() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    // Must be called while holding the append lock.
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Unable to close log segment {}", segment, e);
+            }
+            channel = null;
+        }
+    }
+
+    private void replay(long seq, Consumer<ByteBuffer> consumer) {
+        try (FileChannel in = FileChannel.open(segmentPath(seq), StandardOpenOption.READ)) {
+            MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= HEADER_SIZE) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining()) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                data.get(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Log segment {} has a corrupt record; ignoring the rest of it", seq);
+                    break;
+                }
+                consumer.accept(ByteBuffer.wrap(record));
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to replay log segment " + seq, e);
+        }
+    }
+
+    private List<Long> segments() {
+        List<Long> segments = Lists.newArrayList();
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                                           name.length() - SEGMENT_SUFFIX.length()), 16));
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new PersistenceException("Unable to list log segments in " + directory, e);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(String.format("%s%016x%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.persistence.impl;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Local store of named maps and sets of byte arrays kept in memory and made
+ * persistent by a {@link WriteAheadLog}. Every update is applied in memory
+ * and appended to the log; once the log grows past a threshold, the state is
+ * compacted in the background into a snapshot and the log segments it
+ * covers are deleted. On startup the snapshot is loaded and the remaining
+ * log segments are replayed on top of it.
+ */
+class WriteAheadLogStore {
+
+    private final Logger log = getLogger(getClass());
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SNAPSHOT_TMP_FILE = "snapshot.tmp";
+    private static final long SNAPSHOT_MAGIC = 0x4f4e4f5357414c31L;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Path directory;
+    private final WriteAheadLog wal;
+    private final boolean syncWrites;
+    private final long compactionThreshold;
+
+    private final ConcurrentMap<String, ConcurrentMap<ByteBuffer, byte[]>> structures =
+            new ConcurrentHashMap<>();
+
+    // Orders updates in memory and in the log
+    private final Object writeLock = new Object();
+
+    private final ExecutorService compactor =
+            newSingleThreadExecutor(groupedThreads("onos/persistence", "wal-compactor"));
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    /**
+     * Creates a store in the given directory.
+     *
+     * @param directory           directory holding the log and snapshot files
+     * @param segmentSize         size in bytes of each log segment
+     * @param flushMillis         maximum time in millis between group commits
+     * @param syncWrites          whether updates wait until they are durable
+     * @param compactionThreshold log size in bytes which triggers compaction
+     */
+    WriteAheadLogStore(Path directory, int segmentSize, long flushMillis,
+                       boolean syncWrites, long compactionThreshold) {
+        this.directory = directory;
+        this.wal = new WriteAheadLog(directory, segmentSize, flushMillis);
+        this.syncWrites = syncWrites;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Restores the state from the snapshot and the log.
+     */
+    void open() {
+        long start = System.currentTimeMillis();
+        long base = readSnapshot();
+        int replayed = wal.open(base, this::apply);
+        log.info("Restored {} structures from snapshot and {} log segments in {} ms",
+                 structures.size(), replayed, System.currentTimeMillis() - start);
+        if (replayed > 1) {
+            // fold the replayed segments into a snapshot to speed up the next start
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Makes all updates durable and closes the store.
+     */
+    void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        wal.close();
+    }
+
+    /**
+     * Returns a view of the named map.
+     *
+     * @param name map name
+     * @return map view
+     */
+    Map<byte[], byte[]> map(String name) {
+        return new MapView(name);
+    }
+
+    /**
+     * Returns a view of the named set.
+     *
+     * @param name set name
+     * @return set view
+     */
+    Set<byte[]> set(String name) {
+        return new SetView(name);
+    }
+
+    /**
+     * Forgets the structures which hold no entries.
+     */
+    void dropEmpty() {
+        synchronized (writeLock) {
+            structures.values().removeIf(Map::isEmpty);
+        }
+    }
+
+    /**
+     * Folds the log into a new snapshot.
+     */
+    void compact() {
+        Map<String, Map<ByteBuffer, byte[]>> copy = Maps.newHashMap();
+        long base;
+        synchronized (writeLock) {
+            base = wal.checkpoint();
+            structures.forEach((name, entries) -> copy.put(name, Maps.newHashMap(entries)));
+        }
+        writeSnapshot(copy, base);
+        wal.truncate(base);
+        log.debug("Compacted log into snapshot of {} structures", copy.size());
+    }
+
+    private ConcurrentMap<ByteBuffer, byte[]> structure(String name) {
+        return structures.computeIfAbsent(name, n -> new ConcurrentHashMap<>());
+    }
+
+    // Byte arrays handed to the store are owned by it from then on.
+    private byte[] put(String name, byte[] key, byte[] value) {
+        byte[] previous;
+        long seq;
+        synchronized (writeLock) {
+            previous = structure(name).put(ByteBuffer.wrap(key), value);
+            seq = wal.append(record(PUT, name, key, value));
+        }
+        committed(seq);
+        return previous;
+    }
+
+    private byte[] remove(String name, byte[] key) {
+        byte[] previous;
+        long seq;
+        synchronized (writeLock) {
+            previous = structure(name).remove(ByteBuffer.wrap(key));
+            if (previous == null) {
+                return null;
+            }
+            seq = wal.append(record(REMOVE, name, key, null));
+        }
+        committed(seq);
+        return previous;
+    }
+
+    private void clear(String name) {
+        long seq;
+        synchronized (writeLock) {
+            ConcurrentMap<ByteBuffer, byte[]> entries = structure(name);
+            if (entries.isEmpty()) {
+                return;
+            }
+            entries.clear();
+            seq = wal.append(record(CLEAR, name, null, null));
+        }
+        committed(seq);
+    }
+
+    private void committed(long seq) {
+        if (syncWrites) {
+            wal.awaitDurable(seq);
+        }
+        if (wal.bytesSinceCheckpoint() > compactionThreshold) {
+            scheduleCompaction();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (PersistenceException e) {
+                    log.warn("Unable to compact log", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private static byte[] record(byte op, String name, byte[] key, byte[] value) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int size = 1 + Integer.BYTES + nameBytes.length;
+        if (key != null) {
+            size += Integer.BYTES + key.length;
+        }
+        if (value != null) {
+            size += Integer.BYTES + value.length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.put(op);
+        putArray(record, nameBytes);
+        if (key != null) {
+            putArray(record, key);
+        }
+        if (value != null) {
+            putArray(record, value);
+        }
+        return record.array();
+    }
+
+    private static void putArray(ByteBuffer buffer, byte[] array) {
+        buffer.putInt(array.length);
+        buffer.put(array);
+    }
+
+    private static byte[] getArray(ByteBuffer buffer) {
+        byte[] array = new byte[buffer.getInt()];
+        buffer.get(array);
+        return array;
+    }
+
+    // Applies a replayed log record.
+    private void apply(ByteBuffer record) {
+        byte op = record.get();
+        String name = new String(getArray(record), StandardCharsets.UTF_8);
+        switch (op) {
+            case PUT:
+                byte[] key = getArray(record);
+                structure(name).put(ByteBuffer.wrap(key), getArray(record));
+                break;
+            case REMOVE:
+                structure(name).remove(ByteBuffer.wrap(getArray(record)));
+                break;
+            case CLEAR:
+                structure(name).clear();
+                break;
+            default:
+                throw new PersistenceException("Unknown log record type " + op);
+        }
+    }
+
+    private void writeSnapshot(Map<String, Map<ByteBuffer, byte[]>> copy, long base) {
+        Path tmp = directory.resolve(SNAPSHOT_TMP_FILE);
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeLong(base);
+            out.writeInt(copy.size());
+            for (Map.Entry<String, Map<ByteBuffer, byte[]>> structure : copy.entrySet()) {
+                out.writeUTF(structure.getKey());
+                out.writeInt(structure.getValue().size());
+                for (Map.Entry<ByteBuffer, byte[]> entry : structure.getValue().entrySet()) {
+                    writeArray(out, entry.getKey().array());
+                    writeArray(out, entry.getValue());
+                }
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to write snapshot", e);
+        }
+        try {
+            Files.move(tmp, directory.resolve(SNAPSHOT_FILE),
+                       StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to install snapshot", e);
+        }
+    }
+
+    // Loads the snapshot, if any, and returns the first log segment it does not cover.
+    private long readSnapshot() {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(snapshot.toFile())), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readLong() != SNAPSHOT_MAGIC) {
+                throw new PersistenceException("Snapshot " + snapshot + " is not recognized");
+            }
+            long base = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ConcurrentMap<ByteBuffer, byte[]> entries = structure(in.readUTF());
+                int size = in.readInt();
+                for (int j = 0; j < size; j++) {
+                    byte[] key = readArray(in);
+                    entries.put(ByteBuffer.wrap(key), readArray(in));
+                }
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new PersistenceException("Snapshot " + snapshot + " is corrupt");
+            }
+            return base;
+        } catch (IOException e) {
+            throw new PersistenceException("Unable to read snapshot " + snapshot, e);
+        }
+    }
+
+    private static void writeArray(DataOutputStream out, byte[] array) throws IOException {
+        out.writeInt(array.length);
+        out.write(array);
+    }
+
+    private static byte[] readArray(DataInputStream in) throws IOException {
+        byte[] array = new byte[in.readInt()];
+        in.readFully(array);
+        return array;
+    }
+
+    // Map view of a named structure.
+    private final class MapView extends AbstractMap<byte[], byte[]> {
+        private final String name;
+
+        private MapView(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int size() {
+            return structure(name).size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof byte[] && structure(name).containsKey(ByteBuffer.wrap((byte[]) key));
+        }
+
+        @Override
+        public byte[] get(Object key) {
+            return key instanceof byte[] ? structure(name).get(ByteBuffer.wrap((byte[]) key)) : null;
+        }
+
+        @Override
+        public byte[] put(byte[] key, byte[] value) {
+            return WriteAheadLogStore.this.put(name, key, value);
+        }
+
+        @Override
+        public byte[] remove(Object key) {
+            return key instanceof byte[] ? WriteAheadLogStore.this.remove(name, (byte[]) key) : null;
+        }
+
+        @Override
+        public void clear() {
+            WriteAheadLogStore.this.clear(name);
+        }
+
+        @Override
+        public Set<Entry<byte[], byte[]>> entrySet() {
+            return new AbstractSet<Entry<byte[], byte[]>>() {
+                @Override
+                public Iterator<Entry<byte[], byte[]>> iterator() {
+                    return new ViewIterator<>(name, e -> new SimpleImmutableEntry<>(e.getKey().array(),
+                                                                                     e.getValue()));
+                }
+
+                @Override
+                public int size() {
+                    return structure(name).size();
+                }
+            };
+        }
+    }
+
+    // Set view of a named structure; elements are stored as keys with empty values.
+    private final class SetView extends AbstractSet<byte[]> {
+        private final String name;
+
+        private SetView(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int size() {
+            return structure(name).size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof byte[] && structure(name).containsKey(ByteBuffer.wrap((byte[]) o));
+        }
+
+        @Override
+        public boolean add(byte[] e) {
+            return WriteAheadLogStore.this.put(name, e, EMPTY) == null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof byte[] && WriteAheadLogStore.this.remove(name, (byte[]) o) != null;
+        }
+
+        @Override
+        public void clear() {
+            WriteAheadLogStore.this.clear(name);
+        }
+
+        @Override
+        public Iterator<byte[]> iterator() {
+            return new ViewIterator<>(name, e -> e.getKey().array());
+        }
+    }
+
+    // Weakly consistent iterator over a named structure which removes
+    // entries through the store.
+    private final class ViewIterator<T> implements Iterator<T> {
+        private final String name;
+        private final Iterator<T> items;
+        private ByteBuffer last;
+
+        private ViewIterator(String name, Function<Map.Entry<ByteBuffer, byte[]>, T> transform) {
+            this.name = name;
+            this.items = Iterators.transform(structure(name).entrySet().iterator(), e -> {
+                last = e.getKey();
+                return transform.apply(e);
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            return items.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return items.next();
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            WriteAheadLogStore.this.remove(name, last.array());
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.persistence.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test suite for the write-ahead log store.
+ */
+public class WriteAheadLogStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final long COMPACTION_THRESHOLD = Long.MAX_VALUE;
+
+    private Path directory;
+    private WriteAheadLogStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-test");
+        store = open(false);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private WriteAheadLogStore open(boolean syncWrites) {
+        WriteAheadLogStore s = new WriteAheadLogStore(directory, SEGMENT_SIZE, 10,
+                                                      syncWrites, COMPACTION_THRESHOLD);
+        s.open();
+        return s;
+    }
+
+    private WriteAheadLogStore reopen() {
+        store.close();
+        store = open(false);
+        return store;
+    }
+
+    private static byte[] bytes(int i) {
+        return new byte[]{(byte) (i >> 8), (byte) i};
+    }
+
+    @Test
+    public void testMapReplay() {
+        Map<byte[], byte[]> map = store.map("map:test");
+        map.put(bytes(1), bytes(10));
+        map.put(bytes(2), bytes(20));
+        map.put(bytes(1), bytes(11));
+        map.remove(bytes(2));
+
+        map = reopen().map("map:test");
+        assertEquals(1, map.size());
+        assertArrayEquals(bytes(11), map.get(bytes(1)));
+        assertNull(map.get(bytes(2)));
+    }
+
+    @Test
+    public void testSetReplay() {
+        Set<byte[]> set = store.set("set:test");
+        assertTrue(set.add(bytes(1)));
+        assertFalse(set.add(bytes(1)));
+        assertTrue(set.add(bytes(2)));
+        assertTrue(set.remove(bytes(1)));
+
+        set = reopen().set("set:test");
+        assertEquals(1, set.size());
+        assertTrue(set.contains(bytes(2)));
+        assertFalse(set.contains(bytes(1)));
+    }
+
+    @Test
+    public void testClearReplay() {
+        Map<byte[], byte[]> map = store.map("map:test");
+        map.put(bytes(1), bytes(10));
+        map.clear();
+        map.put(bytes(2), bytes(20));
+
+        map = reopen().map("map:test");
+        assertEquals(1, map.size());
+        assertArrayEquals(bytes(20), map.get(bytes(2)));
+    }
+
+    @Test
+    public void testSegmentRotation() {
+        Map<byte[], byte[]> map = store.map("map:test");
+        // enough records to span several segments
+        for (int i = 0; i < 1000; i++) {
+            map.put(bytes(i), bytes(i + 1));
+        }
+
+        map = reopen().map("map:test");
+        assertEquals(1000, map.size());
+        assertArrayEquals(bytes(500), map.get(bytes(499)));
+    }
+
+    @Test
+    public void testCompaction() {
+        Map<byte[], byte[]> map = store.map("map:test");
+        for (int i = 0; i < 100; i++) {
+            map.put(bytes(i), bytes(i));
+        }
+        store.compact();
+        map.remove(bytes(0));
+        map.put(bytes(1), bytes(1000));
+
+        map = reopen().map("map:test");
+        assertEquals(99, map.size());
+        assertNull(map.get(bytes(0)));
+        assertArrayEquals(bytes(1000), map.get(bytes(1)));
+    }
+
+    @Test
+    public void testSyncWrites() {
+        store.close();
+        store = open(true);
+        store.map("map:test").put(bytes(1), bytes(1));
+
+        assertArrayEquals(bytes(1), reopen().map("map:test").get(bytes(1)));
+    }
+
+    @Test
+    public void testDropEmpty() {
+        store.map("map:empty").put(bytes(1), bytes(1));
+        store.map("map:empty").remove(bytes(1));
+        store.map("map:full").put(bytes(1), bytes(1));
+        store.dropEmpty();
+        store.compact();
+
+        assertTrue(reopen().map("map:empty").isEmpty());
+        assertEquals(1, store.map("map:full").size());
+    }
+}
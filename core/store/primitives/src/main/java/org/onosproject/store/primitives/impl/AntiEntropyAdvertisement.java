@@ -17,10 +17,13 @@ package org.onosproject.store.primitives.impl;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import org.onosproject.cluster.NodeId;
 
 import java.util.Map;
+import java.util.Set;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -30,6 +33,7 @@ public class AntiEntropyAdvertisement<K> {
 
     private final NodeId sender;
     private final Map<K, MapValue.Digest> digest;
+    private final Set<Integer> buckets;
 
     /**
      * Creates a new anti entropy advertisement message.
@@ -39,8 +43,23 @@ public class AntiEntropyAdvertisement<K> {
      */
     public AntiEntropyAdvertisement(NodeId sender,
                                     Map<K, MapValue.Digest> digest) {
+        this(sender, digest, null);
+    }
+
+    /**
+     * Creates a new anti entropy advertisement message which only covers the
+     * entries in the given buckets of the map.
+     *
+     * @param sender  the sender's node ID
+     * @param digest  for map entries in the given buckets
+     * @param buckets buckets covered by the digest; null for the whole map
+     */
+    public AntiEntropyAdvertisement(NodeId sender,
+                                    Map<K, MapValue.Digest> digest,
+                                    Set<Integer> buckets) {
         this.sender = checkNotNull(sender);
         this.digest = ImmutableMap.copyOf(checkNotNull(digest));
+        this.buckets = buckets == null ? null : ImmutableSet.copyOf(buckets);
     }
 
     /**
@@ -61,11 +80,31 @@ public class AntiEntropyAdvertisement<K> {
         return digest;
     }
 
+    /**
+     * Returns the buckets covered by this advertisement.
+     *
+     * @return bucket indexes, or null if the whole map is covered
+     */
+    public Set<Integer> buckets() {
+        return buckets;
+    }
+
+    /**
+     * Returns whether this advertisement covers the given bucket.
+     *
+     * @param bucket bucket index
+     * @return true if entries of the bucket are included in the digest
+     */
+    public boolean covers(int bucket) {
+        return buckets == null || buckets.contains(bucket);
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(getClass())
                 .add("sender", sender)
                 .add("totalEntries", digest.size())
+                .add("buckets", buckets)
                 .toString();
     }
 }
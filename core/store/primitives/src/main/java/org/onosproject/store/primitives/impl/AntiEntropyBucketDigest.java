@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import com.google.common.base.MoreObjects;
+
+import org.onosproject.cluster.NodeId;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Anti-entropy message carrying the bucket hashes of an eventually
+ * consistent map, used to find the parts of the map that differ between
+ * two replicas before exchanging per-key digests.
+ */
+public class AntiEntropyBucketDigest {
+
+    private final NodeId sender;
+    private final long[] hashes;
+
+    /**
+     * Creates a new bucket digest message.
+     *
+     * @param sender the sender's node ID
+     * @param hashes hashes of the map buckets
+     */
+    public AntiEntropyBucketDigest(NodeId sender, long[] hashes) {
+        this.sender = checkNotNull(sender);
+        this.hashes = checkNotNull(hashes);
+    }
+
+    /**
+     * Returns the sender's node ID.
+     *
+     * @return the sender's node ID
+     */
+    public NodeId sender() {
+        return sender;
+    }
+
+    /**
+     * Returns the hashes of the map buckets.
+     *
+     * @return bucket hashes
+     */
+    public long[] hashes() {
+        return hashes;
+    }
+
+    @SuppressWarnings("unused")
+    private AntiEntropyBucketDigest() {
+        this.sender = null;
+        this.hashes = null;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("sender", sender)
+                .add("buckets", hashes.length)
+                .toString();
+    }
+}
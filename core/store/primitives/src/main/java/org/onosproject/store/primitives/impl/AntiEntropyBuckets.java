@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bucketed summary of the entries of an eventually consistent map.
+ * <p>
+ * Keys are spread over a fixed number of buckets using a hash of their
+ * serialized form, so that all replicas agree on the bucket of a key. Each
+ * bucket keeps the XOR of the hashes of its entries, where the hash of an
+ * entry covers the key and the timestamp and tombstone flag of its value.
+ * Since XOR is commutative the bucket hashes are maintained incrementally as
+ * entries change and do not depend on the order in which updates are applied.
+ * </p>
+ * <p>
+ * The key and entry hashes of a value are cached on the value itself, so a
+ * key is serialized only when it enters the map and anti-entropy rounds
+ * find the bucket of an entry without serializing anything.
+ * </p>
+ *
+ * @param <K> key type
+ */
+final class AntiEntropyBuckets<K> {
+
+    private static final HashFunction HASH_FN = Hashing.murmur3_128();
+
+    private final int size;
+    private final AtomicLongArray hashes;
+    private final Function<Object, byte[]> encoder;
+
+    /**
+     * Creates a new set of buckets.
+     *
+     * @param size    number of buckets
+     * @param encoder function used to serialize keys and timestamps
+     */
+    AntiEntropyBuckets(int size, Function<Object, byte[]> encoder) {
+        checkArgument(size > 0, "Number of buckets must be positive");
+        this.size = size;
+        this.hashes = new AtomicLongArray(size);
+        this.encoder = checkNotNull(encoder);
+    }
+
+    /**
+     * Returns the number of buckets.
+     *
+     * @return number of buckets
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bucket the given key falls into.
+     *
+     * @param key map key
+     * @return bucket index
+     */
+    int bucket(K key) {
+        return bucket(keyHash(key));
+    }
+
+    /**
+     * Returns the bucket the given entry falls into.
+     *
+     * @param key   map key
+     * @param value value of the key
+     * @return bucket index
+     */
+    int bucket(K key, MapValue<?> value) {
+        return bucket(entryHash(key, value, null).keyHash);
+    }
+
+    /**
+     * Accounts for the value of the given key changing from one value to
+     * another. Either value may be null if the key was absent.
+     *
+     * @param key      map key
+     * @param oldValue previous value, or null
+     * @param newValue current value, or null
+     */
+    void update(K key, MapValue<?> oldValue, MapValue<?> newValue) {
+        if (oldValue == newValue) {
+            return;
+        }
+        EntryHash oldHash = oldValue == null ? null : entryHash(key, oldValue, null);
+        EntryHash newHash = newValue == null ? null : entryHash(key, newValue, oldHash);
+        HashCode keyHash = oldHash != null ? oldHash.keyHash : newHash.keyHash;
+        long delta = (oldHash == null ? 0 : oldHash.hash) ^ (newHash == null ? 0 : newHash.hash);
+        if (delta != 0) {
+            hashes.accumulateAndGet(bucket(keyHash), delta, (a, b) -> a ^ b);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the bucket hashes.
+     *
+     * @return bucket hashes
+     */
+    long[] snapshot() {
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = hashes.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the buckets whose hash differs from the given remote hashes.
+     * All buckets are reported if the remote uses a different bucket count.
+     *
+     * @param remote remote bucket hashes
+     * @return indexes of the mismatched buckets
+     */
+    Set<Integer> mismatched(long[] remote) {
+        ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        for (int i = 0; i < size; i++) {
+            if (remote.length != size || remote[i] != hashes.get(i)) {
+                builder.add(i);
+            }
+        }
+        return builder.build();
+    }
+
+    private HashCode keyHash(K key) {
+        return HASH_FN.hashBytes(encoder.apply(key));
+    }
+
+    private int bucket(HashCode keyHash) {
+        return Math.floorMod(keyHash.asInt(), size);
+    }
+
+    // Returns the hashes cached on the value, computing them if needed; the
+    // key hash is taken from a sibling value of the same key if available.
+    private EntryHash entryHash(K key, MapValue<?> value, EntryHash sibling) {
+        EntryHash cached = value.entryHash();
+        if (cached != null && cached.key.equals(key)) {
+            return cached;
+        }
+        HashCode keyHash = sibling != null ? sibling.keyHash : keyHash(key);
+        long hash = HASH_FN.newHasher()
+                .putBytes(keyHash.asBytes())
+                .putBytes(encoder.apply(value.timestamp()))
+                .putBoolean(value.isTombstone())
+                .hash().asLong();
+        EntryHash computed = new EntryHash(key, keyHash, hash);
+        value.setEntryHash(computed);
+        return computed;
+    }
+
+    /**
+     * Key and entry hashes of a map value.
+     */
+    static final class EntryHash {
+        private final Object key;
+        private final HashCode keyHash;
+        private final long hash;
+
+        private EntryHash(Object key, HashCode keyHash, long hash) {
+            this.key = key;
+            this.keyHash = keyHash;
+            this.hash = hash;
+        }
+    }
+}
@@ -54,6 +54,7 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.app.ApplicationEvent;
 import org.onosproject.app.ApplicationListener;
 import org.onosproject.app.ApplicationService;
@@ -136,6 +137,9 @@ public class DatabaseManager implements StorageService, StorageAdminService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected PersistenceService persistenceService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
     protected String nodeIdToUri(NodeId nodeId) {
         ControllerNode node = clusterService.getNode(nodeId);
         return String.format("onos://%s:%d", node.ip(), node.tcpPort());
@@ -311,7 +315,8 @@ public class DatabaseManager implements StorageService, StorageAdminService {
     public <K, V> EventuallyConsistentMapBuilder<K, V> eventuallyConsistentMapBuilder() {
         return new EventuallyConsistentMapBuilderImpl<>(clusterService,
                                                         clusterCommunicator,
-                                                        persistenceService);
+                                                        persistenceService,
+                                                        metricsService);
     }
 
     @Override
@@ -42,6 +42,9 @@ import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.AbstractAccumulator;
 import org.onlab.util.KryoNamespace;
 import org.onlab.util.SlidingWindowCounter;
@@ -55,6 +58,7 @@ import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
 import org.onosproject.store.cluster.messaging.MessageSubject;
 import org.onosproject.store.serializers.KryoNamespaces;
 import org.onosproject.store.serializers.KryoSerializer;
+import org.onosproject.store.serializers.MeteringSerializer;
 import org.onosproject.store.service.EventuallyConsistentMap;
 import org.onosproject.store.service.EventuallyConsistentMapEvent;
 import org.onosproject.store.service.EventuallyConsistentMapListener;
@@ -63,6 +67,8 @@ import org.onosproject.store.service.WallClockTimestamp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -91,6 +97,7 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private final MessageSubject updateMessageSubject;
     private final MessageSubject antiEntropyAdvertisementSubject;
+    private final MessageSubject antiEntropyBucketDigestSubject;
 
     private final Set<EventuallyConsistentMapListener<K, V>> listeners
             = Sets.newCopyOnWriteArraySet();
@@ -114,6 +121,7 @@ public class EventuallyConsistentMapImpl<K, V>
     private final long initialDelaySec = 5;
     private final boolean lightweightAntiEntropy;
     private final boolean tombstonesDisabled;
+    private final AntiEntropyBuckets<K> buckets;
 
     private static final int WINDOW_SIZE = 5;
     private static final int HIGH_LOAD_THRESHOLD = 0;
@@ -124,6 +132,20 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private static final String PERSISTENT_LOCAL_MAP_NAME = "itemsMap";
 
+    private static final String METRICS_COMPONENT = "EventuallyConsistentMap";
+    private static final String ANTI_ENTROPY_BYTES = "antiEntropyBytes";
+    private static final String ANTI_ENTROPY_BYTES_RECEIVED = "antiEntropyBytesReceived";
+
+    // Size of each anti-entropy message sent and received by this replica;
+    // shared with any earlier replica of the same name that was not destroyed
+    private final Histogram antiEntropyBytes;
+    private final Histogram antiEntropyBytesReceived;
+    private final MetricsService metricsService;
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
+
+    // serializes and deserializes anti-entropy messages, metering their size
+    private final MeteringSerializer antiEntropySerializer;
 
     /**
      * Creates a new eventually consistent map shared amongst multiple instances.
@@ -150,9 +172,14 @@ public class EventuallyConsistentMapImpl<K, V>
      * @param antiEntropyPeriod     period that the anti-entropy task should run
      * @param antiEntropyTimeUnit   time unit for anti-entropy period
      * @param convergeFaster        make anti-entropy try to converge faster
+     * @param antiEntropyBuckets    number of buckets to exchange digests of
+     *                              during anti-entropy; 0 to advertise a
+     *                              digest of every entry
      * @param persistent            persist data to disk
      * @param persistenceService    persistence service
+     * @param metricsService        metrics service; may be null
      */
+    // CHECKSTYLE IGNORE ParameterNumber FOR NEXT 1 LINES
     EventuallyConsistentMapImpl(String mapName,
                                 ClusterService clusterService,
                                 ClusterCommunicationService clusterCommunicator,
@@ -166,8 +193,10 @@ public class EventuallyConsistentMapImpl<K, V>
                                 long antiEntropyPeriod,
                                 TimeUnit antiEntropyTimeUnit,
                                 boolean convergeFaster,
+                                int antiEntropyBuckets,
                                 boolean persistent,
-                                PersistenceService persistenceService) {
+                                PersistenceService persistenceService,
+                                MetricsService metricsService) {
         this.mapName = mapName;
         this.serializer = createSerializer(serializerBuilder);
         this.persistenceService = persistenceService;
@@ -235,6 +264,24 @@ public class EventuallyConsistentMapImpl<K, V>
                     newSingleThreadScheduledExecutor(groupedThreads("onos/ecm", mapName + "-bg-%d"));
         }
 
+        if (antiEntropyBuckets > 0) {
+            this.buckets = new AntiEntropyBuckets<>(antiEntropyBuckets, serializer::encode);
+            // account for entries restored from disk
+            items.forEach((key, value) -> buckets.update(key, null, value));
+        } else {
+            this.buckets = null;
+        }
+
+        this.metricsService = metricsService;
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+            metricsFeature = metricsComponent.registerFeature(mapName);
+        }
+        antiEntropyBytes = createHistogram(ANTI_ENTROPY_BYTES);
+        antiEntropyBytesReceived = createHistogram(ANTI_ENTROPY_BYTES_RECEIVED);
+        antiEntropySerializer = new MeteringSerializer(serializer, antiEntropyBytes::update,
+                                                       antiEntropyBytesReceived::update);
+
         // start anti-entropy thread
         this.backgroundExecutor.scheduleAtFixedRate(this::sendAdvertisement,
                                                     initialDelaySec, antiEntropyPeriod,
@@ -242,20 +289,35 @@ public class EventuallyConsistentMapImpl<K, V>
 
         updateMessageSubject = new MessageSubject("ecm-" + mapName + "-update");
         clusterCommunicator.addSubscriber(updateMessageSubject,
-                                          serializer::decode,
+                                          serializer,
                                           this::processUpdates,
                                           this.executor);
 
         antiEntropyAdvertisementSubject = new MessageSubject("ecm-" + mapName + "-anti-entropy");
         clusterCommunicator.addSubscriber(antiEntropyAdvertisementSubject,
-                                          serializer::decode,
+                                          antiEntropySerializer,
                                           this::handleAntiEntropyAdvertisement,
                                           this.backgroundExecutor);
 
+        antiEntropyBucketDigestSubject = new MessageSubject("ecm-" + mapName + "-anti-entropy-buckets");
+        if (buckets != null) {
+            clusterCommunicator.addSubscriber(antiEntropyBucketDigestSubject,
+                                              antiEntropySerializer,
+                                              this::handleAntiEntropyBucketDigest,
+                                              this.backgroundExecutor);
+        }
+
         this.tombstonesDisabled = tombstonesDisabled;
         this.lightweightAntiEntropy = !convergeFaster;
     }
 
+    // Returns the existing histogram if one is already registered
+    private Histogram createHistogram(String name) {
+        Histogram histogram = metricsService == null ? null
+                : metricsService.createHistogram(metricsComponent, metricsFeature, name);
+        return histogram != null ? histogram : new Histogram(new ExponentiallyDecayingReservoir());
+    }
+
     private KryoSerializer createSerializer(KryoNamespace.Builder builder) {
         return new KryoSerializer() {
             @Override
@@ -270,6 +332,8 @@ public class EventuallyConsistentMapImpl<K, V>
                         .register(UpdateEntry.class)
                         .register(MapValue.class)
                         .register(MapValue.Digest.class)
+                        .register(long[].class)
+                        .register(AntiEntropyBucketDigest.class)
                         .build();
             }
         };
@@ -393,6 +457,9 @@ public class EventuallyConsistentMapImpl<K, V>
                 return existing;
             }
         });
+        if (updated.get()) {
+            updateBuckets(key, previousValue.get(), tombstone.orElse(null));
+        }
         return previousValue.get();
     }
 
@@ -416,6 +483,7 @@ public class EventuallyConsistentMapImpl<K, V>
             }
         });
         if (updated.get()) {
+            updateBuckets(key, previousValue.get(), computedValue);
             notifyPeers(new UpdateEntry<>(key, computedValue), peerUpdateFunction.apply(key, computedValue.get()));
             EventuallyConsistentMapEvent.Type updateType = computedValue.isTombstone() ? REMOVE : PUT;
             V value = computedValue.isTombstone()
@@ -478,16 +546,27 @@ public class EventuallyConsistentMapImpl<K, V>
         checkState(newValue.isAlive());
         counter.incrementCount();
         AtomicBoolean updated = new AtomicBoolean(false);
+        AtomicReference<MapValue<V>> previousValue = new AtomicReference<>();
         items.compute(key, (k, existing) -> {
             if (existing == null || newValue.isNewerThan(existing)) {
                 updated.set(true);
+                previousValue.set(existing);
                 return newValue;
             }
             return existing;
         });
+        if (updated.get()) {
+            updateBuckets(key, previousValue.get(), newValue);
+        }
         return updated.get();
     }
 
+    private void updateBuckets(K key, MapValue<V> oldValue, MapValue<V> newValue) {
+        if (buckets != null) {
+            buckets.update(key, oldValue, newValue);
+        }
+    }
+
     @Override
     public void addListener(EventuallyConsistentMapListener<K, V> listener) {
         checkState(!destroyed, destroyedMessage);
@@ -514,6 +593,13 @@ public class EventuallyConsistentMapImpl<K, V>
 
         clusterCommunicator.removeSubscriber(updateMessageSubject);
         clusterCommunicator.removeSubscriber(antiEntropyAdvertisementSubject);
+        if (buckets != null) {
+            clusterCommunicator.removeSubscriber(antiEntropyBucketDigestSubject);
+        }
+        if (metricsService != null) {
+            metricsService.removeMetric(metricsComponent, metricsFeature, ANTI_ENTROPY_BYTES);
+            metricsService.removeMetric(metricsComponent, metricsFeature, ANTI_ENTROPY_BYTES_RECEIVED);
+        }
         return CompletableFuture.completedFuture(null);
     }
 
@@ -563,20 +649,72 @@ public class EventuallyConsistentMapImpl<K, V>
     }
 
     private void sendAdvertisementToPeer(NodeId peer) {
-        clusterCommunicator.unicast(createAdvertisement(),
-                antiEntropyAdvertisementSubject,
-                serializer::encode,
+        if (buckets != null) {
+            sendToPeer(new AntiEntropyBucketDigest(localNodeId, buckets.snapshot()),
+                       antiEntropyBucketDigestSubject, peer);
+        } else {
+            sendAdvertisementToPeer(peer, null);
+        }
+    }
+
+    private void sendAdvertisementToPeer(NodeId peer, Set<Integer> scope) {
+        sendToPeer(createAdvertisement(scope), antiEntropyAdvertisementSubject, peer);
+    }
+
+    private void sendToPeer(Object message, MessageSubject subject, NodeId peer) {
+        clusterCommunicator.unicast(message,
+                subject,
+                antiEntropySerializer,
                 peer)
                 .whenComplete((result, error) -> {
                     if (error != null) {
-                        log.debug("Failed to send anti-entropy advertisement to {}", peer, error);
+                        log.debug("Failed to send anti-entropy message to {}", peer, error);
                     }
                 });
     }
 
-    private AntiEntropyAdvertisement<K> createAdvertisement() {
-        return new AntiEntropyAdvertisement<K>(localNodeId,
-                ImmutableMap.copyOf(Maps.transformValues(items, MapValue::digest)));
+    private AntiEntropyAdvertisement<K> createAdvertisement(Set<Integer> scope) {
+        if (scope == null || buckets == null) {
+            return new AntiEntropyAdvertisement<K>(localNodeId,
+                    ImmutableMap.copyOf(Maps.transformValues(items, MapValue::digest)));
+        }
+        Map<K, MapValue.Digest> digest = Maps.newHashMap();
+        items.forEach((key, value) -> {
+            if (scope.contains(buckets.bucket(key, value))) {
+                digest.put(key, value.digest());
+            }
+        });
+        return new AntiEntropyAdvertisement<K>(localNodeId, digest, scope);
+    }
+
+    // Checks whether the key falls within the part of the map covered by the ad
+    private boolean isCovered(AntiEntropyAdvertisement<K> ad, K key, MapValue<V> value) {
+        return ad.buckets() == null || buckets == null || ad.covers(buckets.bucket(key, value));
+    }
+
+    private void handleAntiEntropyBucketDigest(AntiEntropyBucketDigest digest) {
+        if (destroyed || underHighLoad()) {
+            return;
+        }
+        try {
+            if (digest.hashes().length != buckets.size()) {
+                log.debug("Bucket count mismatch with {} for {}; advertising all entries",
+                          digest.sender(), mapName);
+                sendAdvertisementToPeer(digest.sender(), null);
+                return;
+            }
+            Set<Integer> mismatched = buckets.mismatched(digest.hashes());
+            if (log.isTraceEnabled()) {
+                log.trace("Received anti-entropy bucket digest from {} for {} with {} mismatched buckets",
+                          digest.sender(), mapName, mismatched.size());
+            }
+            if (!mismatched.isEmpty()) {
+                // let the sender reconcile the entries of the mismatched buckets
+                sendAdvertisementToPeer(digest.sender(), mismatched);
+            }
+        } catch (Exception e) {
+            log.warn("Error handling anti-entropy bucket digest", e);
+        }
     }
 
     private void handleAntiEntropyAdvertisement(AntiEntropyAdvertisement<K> ad) {
@@ -595,7 +733,7 @@ public class EventuallyConsistentMapImpl<K, V>
                 // TODO: Missing keys is not the way local copy can be behind.
                 if (Sets.difference(ad.digest().keySet(), items.keySet()).size() > 0) {
                     // TODO: Send ad for missing keys and for entries that are stale
-                    sendAdvertisementToPeer(ad.sender());
+                    sendAdvertisementToPeer(ad.sender(), ad.buckets());
                 }
             }
         } catch (Exception e) {
@@ -608,12 +746,16 @@ public class EventuallyConsistentMapImpl<K, V>
      * 1. If peer has an old entry, updates peer.
      * 2. If peer indicates an entry is removed and has a more recent
      * timestamp than the local entry, update local state.
+     * Only local entries in the buckets covered by the ad are considered.
      */
     private List<EventuallyConsistentMapEvent<K, V>> antiEntropyCheckLocalItems(
             AntiEntropyAdvertisement<K> ad) {
         final List<EventuallyConsistentMapEvent<K, V>> externalEvents = Lists.newLinkedList();
         final NodeId sender = ad.sender();
         items.forEach((key, localValue) -> {
+            if (!isCovered(ad, key, localValue)) {
+                return;
+            }
             MapValue.Digest remoteValueDigest = ad.digest().get(key);
             if (remoteValueDigest == null || localValue.isNewerThan(remoteValueDigest.timestamp())) {
                 // local value is more recent, push to sender
@@ -675,7 +817,7 @@ public class EventuallyConsistentMapImpl<K, V>
             communicationExecutor.submit(() -> {
                 clusterCommunicator.unicast(ImmutableList.copyOf(map.values()),
                                             updateMessageSubject,
-                                            serializer::encode,
+                                            serializer,
                                             peer)
                                    .whenComplete((result, error) -> {
                                        if (error != null) {
@@ -31,6 +31,9 @@ public class MapValue<V> implements Comparable<MapValue<V>> {
     private final Timestamp timestamp;
     private final V value;
 
+    // Anti-entropy hashes of this value; filled in lazily, never serialized
+    private transient volatile AntiEntropyBuckets.EntryHash entryHash;
+
     /**
      * Creates a tombstone value with the specified timestamp.
      * @param timestamp timestamp for tombstone
@@ -83,6 +86,14 @@ public class MapValue<V> implements Comparable<MapValue<V>> {
         return new Digest(timestamp, isTombstone());
     }
 
+    AntiEntropyBuckets.EntryHash entryHash() {
+        return entryHash;
+    }
+
+    void setEntryHash(AntiEntropyBuckets.EntryHash entryHash) {
+        this.entryHash = entryHash;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(timestamp, value);
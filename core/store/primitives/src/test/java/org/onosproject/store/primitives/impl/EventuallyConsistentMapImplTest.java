@@ -50,6 +50,7 @@ import java.util.function.Function;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
 import org.onlab.packet.IpAddress;
 import org.onlab.util.KryoNamespace;
 import org.onosproject.cluster.ClusterService;
@@ -69,8 +70,10 @@ import org.onosproject.store.serializers.KryoSerializer;
 import org.onosproject.store.service.EventuallyConsistentMap;
 import org.onosproject.store.service.EventuallyConsistentMapEvent;
 import org.onosproject.store.service.EventuallyConsistentMapListener;
+import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.WallClockTimestamp;
 
+import com.codahale.metrics.MetricFilter;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -145,7 +148,7 @@ public class EventuallyConsistentMapImplTest {
         // allows us to get a reference to the map's internal cluster message
         // handlers so we can induce events coming in from a peer.
         clusterCommunicator.<String>addSubscriber(anyObject(MessageSubject.class),
-                anyObject(Function.class), anyObject(Consumer.class), anyObject(Executor.class));
+                anyObject(Serializer.class), anyObject(Consumer.class), anyObject(Executor.class));
         expectLastCall().andDelegateTo(new TestClusterCommunicationService()).times(2);
 
         replay(clusterCommunicator);
@@ -674,6 +677,29 @@ public class EventuallyConsistentMapImplTest {
         }
     }
 
+    @Test
+    public void testRebuildWithSameName() throws Exception {
+        MetricsManager metricsService = new MetricsManager();
+        EventuallyConsistentMap<String, String> first = buildMap(metricsService);
+        // Rebuilding a map under the same name must not fail on its metrics
+        EventuallyConsistentMap<String, String> second = buildMap(metricsService);
+        assertEquals(2, metricsService.getHistograms(MetricFilter.ALL).size());
+
+        second.destroy();
+        first.destroy();
+        assertTrue(metricsService.getHistograms(MetricFilter.ALL).isEmpty());
+    }
+
+    private EventuallyConsistentMap<String, String> buildMap(MetricsManager metricsService) {
+        return new EventuallyConsistentMapBuilderImpl<String, String>(
+                        clusterService, new ClusterCommunicationServiceAdapter(),
+                        persistenceService, metricsService)
+                .withName(MAP_NAME)
+                .withSerializer(KryoNamespace.newBuilder().register(KryoNamespaces.API))
+                .withTimestampProvider((k, v) -> new WallClockTimestamp())
+                .build();
+    }
+
     private UpdateEntry<String, String> generatePutMessage(String key, String value, Timestamp timestamp) {
         return new UpdateEntry<>(key, new MapValue<>(value, timestamp));
     }
@@ -758,7 +784,7 @@ public class EventuallyConsistentMapImplTest {
         expect(clusterCommunicator.<T>unicast(
                     anyObject(),
                     anyObject(MessageSubject.class),
-                    anyObject(Function.class),
+                    anyObject(Serializer.class),
                     anyObject(NodeId.class)))
                 .andReturn(CompletableFuture.completedFuture(null))
                 .anyTimes();
@@ -794,7 +820,7 @@ public class EventuallyConsistentMapImplTest {
 
         @Override
         public <M> void addSubscriber(MessageSubject subject,
-                Function<byte[], M> decoder, Consumer<M> handler,
+                Serializer serializer, Consumer<M> handler,
                 Executor executor) {
             if (subject.equals(UPDATE_MESSAGE_SUBJECT)) {
                 updateHandler = (Consumer<Collection<UpdateEntry<String, String>>>) handler;
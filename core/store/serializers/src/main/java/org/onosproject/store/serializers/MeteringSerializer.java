@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.serializers;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.LongConsumer;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * StoreSerializer that reports the size of every object it encodes and,
+ * optionally, decodes.
+ */
+public class MeteringSerializer implements StoreSerializer {
+
+    private final StoreSerializer serializer;
+    private final LongConsumer encodedBytes;
+    private final LongConsumer decodedBytes;
+
+    /**
+     * Creates a serializer that delegates to the given one and passes the
+     * number of bytes of every encoded object to the given meter.
+     *
+     * @param serializer   serializer to delegate to
+     * @param encodedBytes meter of encoded bytes
+     */
+    public MeteringSerializer(StoreSerializer serializer, LongConsumer encodedBytes) {
+        this(serializer, encodedBytes, bytes -> { });
+    }
+
+    /**
+     * Creates a serializer that delegates to the given one and passes the
+     * number of bytes of every encoded and decoded object to the given meters.
+     *
+     * @param serializer   serializer to delegate to
+     * @param encodedBytes meter of encoded bytes
+     * @param decodedBytes meter of decoded bytes
+     */
+    public MeteringSerializer(StoreSerializer serializer, LongConsumer encodedBytes,
+                              LongConsumer decodedBytes) {
+        this.serializer = checkNotNull(serializer);
+        this.encodedBytes = checkNotNull(encodedBytes);
+        this.decodedBytes = checkNotNull(decodedBytes);
+    }
+
+    @Override
+    public byte[] encode(final Object obj) {
+        byte[] bytes = serializer.encode(obj);
+        encodedBytes.accept(bytes.length);
+        return bytes;
+    }
+
+    @Override
+    public void encode(Object obj, ByteBuffer buffer) {
+        int start = buffer.position();
+        serializer.encode(obj, buffer);
+        encodedBytes.accept(buffer.position() - start);
+    }
+
+    @Override
+    public void encode(Object obj, OutputStream stream) {
+        CountingOutputStream counter = new CountingOutputStream(stream);
+        serializer.encode(obj, counter);
+        encodedBytes.accept(counter.getCount());
+    }
+
+    @Override
+    public <T> T decode(final byte[] bytes) {
+        decodedBytes.accept(bytes.length);
+        return serializer.decode(bytes);
+    }
+
+    @Override
+    public <T> T decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        T obj = serializer.decode(buffer);
+        decodedBytes.accept(buffer.position() - start);
+        return obj;
+    }
+
+    @Override
+    public <T> T decode(InputStream stream) {
+        CountingInputStream counter = new CountingInputStream(stream);
+        T obj = serializer.decode(counter);
+        decodedBytes.accept(counter.getCount());
+        return obj;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("serializer", serializer)
+                .toString();
+    }
+}
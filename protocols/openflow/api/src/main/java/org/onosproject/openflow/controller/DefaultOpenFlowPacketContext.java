@@ -15,8 +15,8 @@
  */
 package org.onosproject.openflow.controller;
 
-import org.onlab.packet.DeserializationException;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.PacketView;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
 import org.projectfloodlight.openflow.protocol.OFPacketOut;
 import org.projectfloodlight.openflow.protocol.OFVersion;
@@ -28,7 +28,6 @@ import org.projectfloodlight.openflow.types.OFPort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.BufferUnderflowException;
 import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -49,10 +48,14 @@ public final class DefaultOpenFlowPacketContext implements OpenFlowPacketContext
 
     private final boolean isBuffered;
 
+    // Parses the frame once, on first use, for all packet listeners
+    private final PacketView view;
+
     private DefaultOpenFlowPacketContext(OpenFlowSwitch s, OFPacketIn pkt) {
         this.sw = s;
         this.pktin = pkt;
         this.isBuffered = pktin.getBufferId() != OFBufferId.NO_BUFFER;
+        this.view = PacketView.wrap(pktin.getData());
     }
 
     @Override
@@ -61,6 +64,8 @@ public final class DefaultOpenFlowPacketContext implements OpenFlowPacketContext
 
         if (block() && isBuilt.get()) {
             sw.sendMsg(pktout);
+            // Packet-outs are latency sensitive; do not wait for write coalescing
+            sw.flush();
         }
     }
 
@@ -99,14 +104,12 @@ public final class DefaultOpenFlowPacketContext implements OpenFlowPacketContext
     public Ethernet parsed() {
         checkPermission(PACKET_READ);
 
-        try {
-            return Ethernet.deserializer().deserialize(pktin.getData(), 0, pktin.getData().length);
-        } catch (BufferUnderflowException | NullPointerException |
-                DeserializationException e) {
+        Ethernet eth = view.ethernet();
+        if (eth == null) {
             Logger log = LoggerFactory.getLogger(getClass());
-            log.error("packet deserialization problem : {}", e.getMessage());
-            return null;
+            log.error("packet deserialization problem : {}", view);
         }
+        return eth;
     }
 
     @Override
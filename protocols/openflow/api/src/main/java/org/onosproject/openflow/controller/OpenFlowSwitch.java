@@ -49,6 +49,14 @@ public interface OpenFlowSwitch {
      */
     void sendMsg(List<OFMessage> msgs);
 
+    /**
+     * Writes out any messages buffered for coalesced delivery to the switch.
+     * Latency-sensitive callers may use this to avoid waiting for the
+     * coalescing delay to expire.
+     */
+    default void flush() {
+    }
+
     /**
      * Handle a message from the switch.
      * @param fromSwitch the message to handle
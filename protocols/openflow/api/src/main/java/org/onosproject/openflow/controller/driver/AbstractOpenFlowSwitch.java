@@ -18,6 +18,9 @@ package org.onosproject.openflow.controller.driver;
 
 import static org.onlab.util.Tools.groupedThreads;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
 import com.google.common.collect.Lists;
 import org.jboss.netty.channel.Channel;
 import org.onlab.packet.IpAddress;
@@ -56,6 +59,8 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -103,6 +108,27 @@ public abstract class AbstractOpenFlowSwitch extends AbstractHandlerBehaviour
     private final AtomicReference<List<OFMessage>> messagesPendingMastership
             = new AtomicReference<>();
 
+    // Outbound messages awaiting a coalesced write; also guards the channel
+    // writes so that coalesced and direct writes keep their relative order.
+    private final List<OFMessage> writeBuffer = new ArrayList<>();
+    private long bufferedSince;
+
+    // Coalescing settings of the owning controller; null writes through
+    private volatile WriteCoalescing writeCoalescing;
+
+    private final Histogram messagesPerFlush = new Histogram(new UniformReservoir());
+    private final Timer flushLatency = new Timer();
+
+    /**
+     * Sets the outbound write coalescing settings of this switch. Without
+     * them every message is written straight to the channel.
+     *
+     * @param writeCoalescing write coalescing settings
+     */
+    public final void setWriteCoalescing(WriteCoalescing writeCoalescing) {
+        this.writeCoalescing = writeCoalescing;
+    }
+
     @Override
     public void init(Dpid dpid, OFDescStatsReply desc, OFVersion ofv) {
         this.dpid = dpid;
@@ -117,6 +143,9 @@ public abstract class AbstractOpenFlowSwitch extends AbstractHandlerBehaviour
     @Override
     public final void disconnectSwitch() {
         setConnected(false);
+        synchronized (writeBuffer) {
+            writeBuffer.clear();
+        }
         this.channel.close();
     }
 
@@ -138,7 +167,7 @@ public abstract class AbstractOpenFlowSwitch extends AbstractHandlerBehaviour
         if (role == RoleState.MASTER) {
             // fast path send when we are master
 
-            sendMsgsOnChannel(msgs);
+            writeMsgs(msgs);
             return;
         }
         // check to see if mastership transition is in progress
@@ -150,7 +179,7 @@ public abstract class AbstractOpenFlowSwitch extends AbstractHandlerBehaviour
             */
             if (role == RoleState.MASTER) {
                 // transition to MASTER complete, send messages
-                sendMsgsOnChannel(msgs);
+                writeMsgs(msgs);
                 return;
             }
 
@@ -179,7 +208,80 @@ public abstract class AbstractOpenFlowSwitch extends AbstractHandlerBehaviour
         }
     }
 
+    @Override
+    public void flush() {
+        synchronized (writeBuffer) {
+            if (writeBuffer.isEmpty()) {
+                return;
+            }
+            List<OFMessage> batch = new ArrayList<>(writeBuffer);
+            writeBuffer.clear();
+            messagesPerFlush.update(batch.size());
+            flushLatency.update(System.nanoTime() - bufferedSince, TimeUnit.NANOSECONDS);
+            writeOnChannel(batch);
+        }
+    }
+
+    /**
+     * Returns the distribution of the number of messages per coalesced write.
+     *
+     * @return messages per flush histogram
+     */
+    public Histogram messagesPerFlush() {
+        return messagesPerFlush;
+    }
+
+    /**
+     * Returns the time messages spend buffered before a coalesced write.
+     *
+     * @return flush latency timer
+     */
+    public Timer flushLatency() {
+        return flushLatency;
+    }
+
+    // Buffers the messages for a coalesced write or writes them right away
+    // if coalescing is disabled.
+    private void writeMsgs(List<OFMessage> msgs) {
+        WriteCoalescing coalescing = writeCoalescing;
+        if (coalescing == null || coalescing.batchSize() <= 1) {
+            sendMsgsOnChannel(msgs);
+            return;
+        }
+        synchronized (writeBuffer) {
+            boolean scheduled = !writeBuffer.isEmpty();
+            if (!scheduled) {
+                bufferedSince = System.nanoTime();
+                scheduled = scheduleFlush(coalescing);
+            }
+            writeBuffer.addAll(msgs);
+            if (!scheduled || writeBuffer.size() >= coalescing.batchSize() ||
+                    msgs.stream().anyMatch(m -> m.getType() == OFType.BARRIER_REQUEST)) {
+                flush();
+            }
+        }
+    }
+
+    // Returns false if the timer is shut down and nothing will flush later.
+    private boolean scheduleFlush(WriteCoalescing coalescing) {
+        try {
+            coalescing.timer().schedule(this::flush, coalescing.delayMillis(),
+                                        TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
     private void sendMsgsOnChannel(List<OFMessage> msgs) {
+        synchronized (writeBuffer) {
+            // Pending coalesced messages must reach the switch first
+            flush();
+            writeOnChannel(msgs);
+        }
+    }
+
+    private void writeOnChannel(List<OFMessage> msgs) {
         if (channel.isConnected()) {
             channel.write(msgs);
         } else {
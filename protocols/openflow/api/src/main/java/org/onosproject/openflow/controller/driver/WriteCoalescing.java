@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.driver;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Outbound write coalescing settings shared by the switches of a controller.
+ * Messages sent while mastership is held are buffered and written to the
+ * channel as a single batch once the batch size is reached, the delay has
+ * elapsed since the first buffered message, a barrier request is sent or
+ * the switch is flushed. The owner of the timer is responsible for shutting
+ * it down.
+ */
+public final class WriteCoalescing {
+
+    private final ScheduledExecutorService timer;
+    private volatile int batchSize = 1;
+    private volatile int delayMillis = 1;
+
+    /**
+     * Creates write coalescing settings that schedule delayed flushes on the
+     * given timer. Coalescing is disabled until configured.
+     *
+     * @param timer executor for delayed flushes
+     */
+    public WriteCoalescing(ScheduledExecutorService timer) {
+        this.timer = checkNotNull(timer);
+    }
+
+    /**
+     * Changes the coalescing settings.
+     *
+     * @param batchSize   maximum number of messages per write; 1 disables
+     *                    coalescing
+     * @param delayMillis maximum number of millis a message is buffered
+     */
+    public void configure(int batchSize, int delayMillis) {
+        checkArgument(batchSize > 0, "Batch size must be positive");
+        checkArgument(delayMillis > 0, "Delay must be positive");
+        this.delayMillis = delayMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the maximum number of messages per write.
+     *
+     * @return batch size
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the maximum number of millis a message is buffered.
+     *
+     * @return flush delay in millis
+     */
+    public int delayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * Returns the executor on which delayed flushes are scheduled.
+     *
+     * @return flush timer
+     */
+    public ScheduledExecutorService timer() {
+        return timer;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("batchSize", batchSize)
+                .add("delayMillis", delayMillis)
+                .toString();
+    }
+}
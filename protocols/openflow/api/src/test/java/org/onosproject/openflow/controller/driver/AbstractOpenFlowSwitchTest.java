@@ -19,13 +19,25 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onosproject.openflow.controller.Dpid;
 import org.onosproject.openflow.controller.OpenFlowEventListener;
+import org.onosproject.openflow.controller.RoleState;
+import org.projectfloodlight.openflow.protocol.OFControllerRole;
+import org.projectfloodlight.openflow.protocol.OFFactories;
 import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.types.U64;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 
@@ -56,6 +68,50 @@ public class AbstractOpenFlowSwitchTest {
         }
     }
 
+    /**
+     * Mock channel that records the message batches written to it.
+     */
+    static class TestChannel extends ChannelAdapter {
+        private final List<List<OFMessage>> writes = new ArrayList<>();
+
+        List<List<OFMessage>> writes() {
+            return writes;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ChannelFuture write(Object o) {
+            writes.add(new ArrayList<>((List<OFMessage>) o));
+            return null;
+        }
+    }
+
+    /**
+     * Mock flush timer that holds on to scheduled flushes until run.
+     */
+    static class TestTimer extends ScheduledThreadPoolExecutor {
+        private final List<Runnable> scheduled = new ArrayList<>();
+
+        TestTimer() {
+            super(1);
+        }
+
+        List<Runnable> scheduled() {
+            return scheduled;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            scheduled.add(command);
+            return null;
+        }
+    }
+
     /**
      * Sets up switches to use as data.
      */
@@ -103,6 +159,108 @@ public class AbstractOpenFlowSwitchTest {
         assertThat(executorService.submittedMessages().get(0), is(ofStatsRequest));
     }
 
+    /**
+     * Sets up a master switch that coalesces up to three messages per write.
+     */
+    private TestChannel coalescingSwitch(TestTimer timer) {
+        TestChannel channel = new TestChannel();
+        ofSwitch.setChannel(channel);
+        WriteCoalescing coalescing = new WriteCoalescing(timer);
+        coalescing.configure(3, 5);
+        ofSwitch.setWriteCoalescing(coalescing);
+        ofSwitch.role = RoleState.MASTER;
+        return channel;
+    }
+
+    /**
+     * Tests that messages are written as one batch once the batch size is
+     * reached.
+     */
+    @Test
+    public void testCoalescingBatchSize() {
+        TestChannel channel = coalescingSwitch(new TestTimer());
+        OFMessage m1 = new MockOfFlowMod();
+        OFMessage m2 = new MockOfFlowMod();
+        OFMessage m3 = new MockOfPacketOut();
+        ofSwitch.sendMsg(m1);
+        ofSwitch.sendMsg(m2);
+        assertThat(channel.writes(), is(empty()));
+        ofSwitch.sendMsg(m3);
+        assertThat(channel.writes(), hasSize(1));
+        assertThat(channel.writes().get(0), contains(m1, m2, m3));
+    }
+
+    /**
+     * Tests that a barrier request flushes the messages buffered before it.
+     */
+    @Test
+    public void testCoalescingBarrierFlush() {
+        TestChannel channel = coalescingSwitch(new TestTimer());
+        OFMessage flowMod = new MockOfFlowMod();
+        OFMessage barrier = new OfMessageAdapter(OFType.BARRIER_REQUEST);
+        ofSwitch.sendMsg(flowMod);
+        ofSwitch.sendMsg(barrier);
+        assertThat(channel.writes(), hasSize(1));
+        assertThat(channel.writes().get(0), contains(flowMod, barrier));
+    }
+
+    /**
+     * Tests that the flush timer writes a partial batch.
+     */
+    @Test
+    public void testCoalescingTimerFlush() {
+        TestTimer timer = new TestTimer();
+        TestChannel channel = coalescingSwitch(timer);
+        OFMessage flowMod = new MockOfFlowMod();
+        ofSwitch.sendMsg(flowMod);
+        ofSwitch.sendMsg(flowMod);
+        assertThat(timer.scheduled(), hasSize(1));
+        assertThat(channel.writes(), is(empty()));
+
+        timer.scheduled().get(0).run();
+        assertThat(channel.writes(), hasSize(1));
+        assertThat(channel.writes().get(0), contains(flowMod, flowMod));
+        assertThat(ofSwitch.messagesPerFlush().getCount(), is(1L));
+    }
+
+    /**
+     * Tests that role requests are written after the buffered messages.
+     */
+    @Test
+    public void testCoalescingOrdering() {
+        TestChannel channel = coalescingSwitch(new TestTimer());
+        OFMessage flowMod = new MockOfFlowMod();
+        OFMessage roleRequest = OFFactories.getFactory(OFVersion.OF_13).buildRoleRequest()
+                .setRole(OFControllerRole.ROLE_MASTER)
+                .setGenerationId(U64.ZERO)
+                .build();
+        ofSwitch.sendMsg(flowMod);
+        ofSwitch.sendRoleRequest(roleRequest);
+        assertThat(channel.writes(), hasSize(2));
+        assertThat(channel.writes().get(0), contains(flowMod));
+        assertThat(channel.writes().get(1), contains(roleRequest));
+    }
+
+    /**
+     * Tests that messages are written through once the timer is shut down.
+     */
+    @Test
+    public void testCoalescingTimerShutdown() {
+        TestChannel channel = new TestChannel();
+        ofSwitch.setChannel(channel);
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+        WriteCoalescing coalescing = new WriteCoalescing(timer);
+        coalescing.configure(3, 5);
+        ofSwitch.setWriteCoalescing(coalescing);
+        ofSwitch.role = RoleState.MASTER;
+        timer.shutdown();
+
+        OFMessage flowMod = new MockOfFlowMod();
+        ofSwitch.sendMsg(flowMod);
+        assertThat(channel.writes(), hasSize(1));
+        assertThat(channel.writes().get(0), contains(flowMod));
+    }
+
     protected class OpenFlowSwitchImpl extends AbstractOpenFlowSwitch {
 
         @Override
@@ -31,8 +31,10 @@ import org.onosproject.net.driver.DefaultDriverHandler;
 import org.onosproject.net.driver.Driver;
 import org.onosproject.net.driver.DriverService;
 import org.onosproject.openflow.controller.Dpid;
+import org.onosproject.openflow.controller.driver.AbstractOpenFlowSwitch;
 import org.onosproject.openflow.controller.driver.OpenFlowAgent;
 import org.onosproject.openflow.controller.driver.OpenFlowSwitchDriver;
+import org.onosproject.openflow.controller.driver.WriteCoalescing;
 import org.projectfloodlight.openflow.protocol.OFDescStatsReply;
 import org.projectfloodlight.openflow.protocol.OFFactories;
 import org.projectfloodlight.openflow.protocol.OFFactory;
@@ -87,6 +89,7 @@ public class Controller {
     protected long systemStartTime;
 
     private OpenFlowAgent agent;
+    private WriteCoalescing writeCoalescing;
 
     private NioServerSocketChannelFactory execFactory;
 
@@ -162,6 +165,15 @@ public class Controller {
         }
     }
 
+    /**
+     * Sets the outbound write coalescing settings handed to new switches.
+     *
+     * @param writeCoalescing write coalescing settings
+     */
+    public void setWriteCoalescing(WriteCoalescing writeCoalescing) {
+        this.writeCoalescing = writeCoalescing;
+    }
+
     public void setConfigParams(Dictionary<?, ?> properties) {
         String ports = get(properties, "openflowPorts");
         if (!Strings.isNullOrEmpty(ports)) {
@@ -296,6 +308,9 @@ public class Controller {
             ofSwitchDriver.init(did, desc, ofv);
             ofSwitchDriver.setAgent(agent);
             ofSwitchDriver.setRoleHandler(new RoleManager(ofSwitchDriver));
+            if (ofSwitchDriver instanceof AbstractOpenFlowSwitch) {
+                ((AbstractOpenFlowSwitch) ofSwitchDriver).setWriteCoalescing(writeCoalescing);
+            }
             log.info("OpenFlow handshaker found for device {}: {}", dpid, ofSwitchDriver);
             return ofSwitchDriver;
         }
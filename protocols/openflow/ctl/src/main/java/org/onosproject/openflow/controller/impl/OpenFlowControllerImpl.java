@@ -26,6 +26,9 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.driver.DefaultDriverProviderService;
@@ -39,7 +42,9 @@ import org.onosproject.openflow.controller.OpenFlowSwitch;
 import org.onosproject.openflow.controller.OpenFlowSwitchListener;
 import org.onosproject.openflow.controller.PacketListener;
 import org.onosproject.openflow.controller.RoleState;
+import org.onosproject.openflow.controller.driver.AbstractOpenFlowSwitch;
 import org.onosproject.openflow.controller.driver.OpenFlowAgent;
+import org.onosproject.openflow.controller.driver.WriteCoalescing;
 import org.osgi.service.component.ComponentContext;
 import org.projectfloodlight.openflow.protocol.OFCalientFlowStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFCalientFlowStatsReply;
@@ -69,6 +74,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -77,8 +83,11 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 
 @Component(immediate = true)
@@ -87,6 +96,15 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     private static final String APP_ID = "org.onosproject.openflow-base";
     private static final String DEFAULT_OFPORT = "6633,6653";
     private static final int DEFAULT_WORKER_THREADS = 16;
+    private static final int DEFAULT_PACKET_IN_THREADS = 0;
+    private static final int DEFAULT_PACKET_IN_QUEUE_SIZE = 1024;
+    private static final String DEFAULT_PACKET_IN_POLICY = "DROP_NEWEST";
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 1;
+    private static final int DEFAULT_WRITE_BATCH_DELAY_MS = 5;
+
+    private static final String METRICS_COMPONENT = "OpenFlowController";
+    private static final String METRICS_PACKET_IN = "packetIn";
+    private static final String METRICS_SWITCH = "switch-";
 
     private static final Logger log =
             LoggerFactory.getLogger(OpenFlowControllerImpl.class);
@@ -104,6 +122,9 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ComponentConfigService cfgService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     @Property(name = "openflowPorts", value = DEFAULT_OFPORT,
             label = "Port numbers (comma separated) used by OpenFlow protocol; default is 6633,6653")
     private String openflowPorts = DEFAULT_OFPORT;
@@ -112,6 +133,30 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             label = "Number of controller worker threads; default is 16")
     private int workerThreads = DEFAULT_WORKER_THREADS;
 
+    @Property(name = "packetInThreads", intValue = DEFAULT_PACKET_IN_THREADS,
+            label = "Number of threads handling packet-ins off the I/O threads; " +
+                    "0 handles packet-ins in-line; default is 0")
+    private int packetInThreads = DEFAULT_PACKET_IN_THREADS;
+
+    @Property(name = "packetInQueueSize", intValue = DEFAULT_PACKET_IN_QUEUE_SIZE,
+            label = "Maximum number of packet-ins queued per switch; default is 1024")
+    private int packetInQueueSize = DEFAULT_PACKET_IN_QUEUE_SIZE;
+
+    @Property(name = "packetInOverflowPolicy", value = DEFAULT_PACKET_IN_POLICY,
+            label = "Policy applied to packet-ins when a switch queue is full: " +
+                    "DROP_NEWEST or DROP_OLDEST; default is DROP_NEWEST")
+    private String packetInOverflowPolicy = DEFAULT_PACKET_IN_POLICY;
+
+    @Property(name = "writeBatchSize", intValue = DEFAULT_WRITE_BATCH_SIZE,
+            label = "Maximum number of messages coalesced into a single write " +
+                    "to a switch; 1 disables coalescing; default is 1")
+    private int writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+
+    @Property(name = "writeBatchDelayMs", intValue = DEFAULT_WRITE_BATCH_DELAY_MS,
+            label = "Maximum number of millis a message is held for a coalesced " +
+                    "write to a switch; default is 5")
+    private int writeBatchDelayMs = DEFAULT_WRITE_BATCH_DELAY_MS;
+
     protected ExecutorService executorMsgs =
         Executors.newFixedThreadPool(32, groupedThreads("onos/of", "event-stats-%d"));
 
@@ -158,10 +203,21 @@ public class OpenFlowControllerImpl implements OpenFlowController {
 
     private final Controller ctrl = new Controller();
 
+    private ScheduledExecutorService writeFlushTimer;
+    private WriteCoalescing writeCoalescing;
+
+    private volatile PacketInPipeline packetInPipeline;
+
     @Activate
     public void activate(ComponentContext context) {
         coreService.registerApplication(APP_ID, this::preDeactivate);
         cfgService.registerProperties(getClass());
+        writeFlushTimer = Executors.newSingleThreadScheduledExecutor(
+                groupedThreads("onos/of", "write-flush"));
+        writeCoalescing = new WriteCoalescing(writeFlushTimer);
+        configurePacketIn(context.getProperties());
+        configureWriteCoalescing(context.getProperties());
+        ctrl.setWriteCoalescing(writeCoalescing);
         ctrl.setConfigParams(context.getProperties());
         ctrl.start(agent, driverService);
     }
@@ -175,6 +231,8 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     @Deactivate
     public void deactivate() {
         cfgService.unregisterProperties(getClass(), false);
+        stopPacketInPipeline();
+        writeFlushTimer.shutdown();
         connectedSwitches.clear();
         activeMasterSwitches.clear();
         activeEqualSwitches.clear();
@@ -182,6 +240,8 @@ public class OpenFlowControllerImpl implements OpenFlowController {
 
     @Modified
     public void modified(ComponentContext context) {
+        configurePacketIn(context.getProperties());
+        configureWriteCoalescing(context.getProperties());
         ctrl.stop();
         ctrl.setConfigParams(context.getProperties());
         ctrl.start(agent, driverService);
@@ -279,11 +339,11 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             }
             break;
         case PACKET_IN:
-            OpenFlowPacketContext pktCtx = DefaultOpenFlowPacketContext
-            .packetContextFromPacketIn(this.getSwitch(dpid),
-                    (OFPacketIn) msg);
-            for (PacketListener p : ofPacketListener.values()) {
-                p.handlePacket(pktCtx);
+            PacketInPipeline pipeline = packetInPipeline;
+            if (pipeline != null) {
+                pipeline.submit(dpid, (OFPacketIn) msg);
+            } else {
+                handlePacketIn(dpid, (OFPacketIn) msg);
             }
             if (monitorAllEvents) {
                 executorPacketIn.submit(new OFMessageHandler(dpid, msg));
@@ -435,6 +495,134 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         }
     }
 
+    // Delivers the packet-in to the registered packet listeners.
+    private void handlePacketIn(Dpid dpid, OFPacketIn pin) {
+        OpenFlowSwitch sw = getSwitch(dpid);
+        if (sw == null) {
+            log.debug("Switch {} disconnected; discarding packet-in", dpid);
+            return;
+        }
+        OpenFlowPacketContext pktCtx = DefaultOpenFlowPacketContext
+                .packetContextFromPacketIn(sw, pin);
+        for (PacketListener p : ofPacketListener.values()) {
+            p.handlePacket(pktCtx);
+        }
+    }
+
+    // Applies the packet-in pipeline settings, rebuilding the pipeline if needed.
+    private synchronized void configurePacketIn(Dictionary<?, ?> properties) {
+        int threads = packetInThreads;
+        int queueSize = packetInQueueSize;
+        String policy = packetInOverflowPolicy;
+        try {
+            String s = get(properties, "packetInThreads");
+            threads = isNullOrEmpty(s) ? threads : Integer.parseInt(s);
+            s = get(properties, "packetInQueueSize");
+            queueSize = isNullOrEmpty(s) ? queueSize : Integer.parseInt(s);
+            s = get(properties, "packetInOverflowPolicy");
+            policy = isNullOrEmpty(s) ? policy : PacketInPipeline.OverflowPolicy.valueOf(s).name();
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid packet-in pipeline settings; keeping current ones", e);
+            return;
+        }
+        if (threads < 0 || queueSize <= 0) {
+            log.warn("packetInThreads must be non-negative and packetInQueueSize positive");
+            return;
+        }
+        if (packetInPipeline != null && threads == packetInThreads &&
+                queueSize == packetInQueueSize && policy.equals(packetInOverflowPolicy)) {
+            return;
+        }
+
+        packetInThreads = threads;
+        packetInQueueSize = queueSize;
+        packetInOverflowPolicy = policy;
+
+        stopPacketInPipeline();
+        if (packetInThreads > 0) {
+            PacketInPipeline pipeline = new PacketInPipeline(
+                    packetInThreads, packetInQueueSize,
+                    PacketInPipeline.OverflowPolicy.valueOf(packetInOverflowPolicy),
+                    this::handlePacketIn);
+            registerPacketInMetrics(pipeline);
+            packetInPipeline = pipeline;
+        }
+        log.info("Settings: packetInThreads={}, packetInQueueSize={}, packetInOverflowPolicy={}",
+                 packetInThreads, packetInQueueSize, packetInOverflowPolicy);
+    }
+
+    // Applies the outbound write coalescing settings shared by all switches.
+    private void configureWriteCoalescing(Dictionary<?, ?> properties) {
+        int batchSize = writeBatchSize;
+        int delayMs = writeBatchDelayMs;
+        try {
+            String s = get(properties, "writeBatchSize");
+            batchSize = isNullOrEmpty(s) ? batchSize : Integer.parseInt(s);
+            s = get(properties, "writeBatchDelayMs");
+            delayMs = isNullOrEmpty(s) ? delayMs : Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid write coalescing settings; keeping current ones", e);
+            return;
+        }
+        if (batchSize <= 0 || delayMs <= 0) {
+            log.warn("writeBatchSize and writeBatchDelayMs must be positive");
+            return;
+        }
+        writeBatchSize = batchSize;
+        writeBatchDelayMs = delayMs;
+        writeCoalescing.configure(writeBatchSize, writeBatchDelayMs);
+        log.info("Settings: writeBatchSize={}, writeBatchDelayMs={}",
+                 writeBatchSize, writeBatchDelayMs);
+    }
+
+    private void registerSwitchMetrics(Dpid dpid, OpenFlowSwitch sw) {
+        if (metricsService != null && sw instanceof AbstractOpenFlowSwitch) {
+            AbstractOpenFlowSwitch driver = (AbstractOpenFlowSwitch) sw;
+            MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature f = c.registerFeature(METRICS_SWITCH + dpid);
+            metricsService.registerMetric(c, f, "messagesPerFlush", driver.messagesPerFlush());
+            metricsService.registerMetric(c, f, "flushLatency", driver.flushLatency());
+        }
+    }
+
+    private void removeSwitchMetrics(Dpid dpid) {
+        if (metricsService != null) {
+            MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature f = c.registerFeature(METRICS_SWITCH + dpid);
+            metricsService.removeMetric(c, f, "messagesPerFlush");
+            metricsService.removeMetric(c, f, "flushLatency");
+        }
+    }
+
+    private void stopPacketInPipeline() {
+        PacketInPipeline pipeline = packetInPipeline;
+        packetInPipeline = null;
+        if (pipeline != null) {
+            pipeline.shutdown();
+            removePacketInMetrics();
+        }
+    }
+
+    private void registerPacketInMetrics(PacketInPipeline pipeline) {
+        if (metricsService != null) {
+            MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature f = c.registerFeature(METRICS_PACKET_IN);
+            metricsService.registerMetric(c, f, "enqueued", pipeline.enqueued());
+            metricsService.registerMetric(c, f, "dropped", pipeline.dropped());
+            metricsService.registerMetric(c, f, "processing", pipeline.processing());
+        }
+    }
+
+    private void removePacketInMetrics() {
+        if (metricsService != null) {
+            MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature f = c.registerFeature(METRICS_PACKET_IN);
+            metricsService.removeMetric(c, f, "enqueued");
+            metricsService.removeMetric(c, f, "dropped");
+            metricsService.removeMetric(c, f, "processing");
+        }
+    }
+
     private synchronized Collection<OFFlowStatsEntry> publishFlowStats(Dpid dpid,
                                                                        OFFlowStatsReply reply) {
         //TODO: Get rid of synchronized
@@ -514,6 +702,7 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             } else {
                 log.info("Added switch {}", dpid);
                 connectedSwitches.put(dpid, sw);
+                registerSwitchMetrics(dpid, sw);
                 for (OpenFlowSwitchListener l : ofSwitchListener) {
                     l.switchAdded(dpid);
                 }
@@ -623,6 +812,11 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         @Override
         public void removeConnectedSwitch(Dpid dpid) {
             connectedSwitches.remove(dpid);
+            PacketInPipeline pipeline = packetInPipeline;
+            if (pipeline != null) {
+                pipeline.purge(dpid);
+            }
+            removeSwitchMetrics(dpid);
             OpenFlowSwitch sw = activeMasterSwitches.remove(dpid);
             if (sw == null) {
                 log.debug("sw was null for {}", dpid);
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import org.onosproject.openflow.controller.Dpid;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Packet-in processing stage that takes PACKET_IN messages off the channel
+ * I/O threads. Each switch gets a bounded queue which is drained by a shared
+ * worker pool; at most one worker drains a given switch queue at a time so
+ * packets from the same switch are handled in the order they arrived.
+ */
+class PacketInPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(PacketInPipeline.class);
+
+    // Maximum number of packets handled per drain before yielding the worker.
+    private static final int DRAIN_BATCH = 64;
+
+    /**
+     * Policy applied when the queue of a switch is full.
+     */
+    enum OverflowPolicy {
+        /**
+         * Discards the arriving packet.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Discards the oldest queued packet to admit the arriving one.
+         */
+        DROP_OLDEST
+    }
+
+    private final BiConsumer<Dpid, OFPacketIn> handler;
+    private final int queueSize;
+    private final OverflowPolicy policy;
+    private final ExecutorService workers;
+
+    private final ConcurrentMap<Dpid, SwitchQueue> queues = new ConcurrentHashMap<>();
+
+    private final Counter enqueued = new Counter();
+    private final Counter dropped = new Counter();
+    private final Timer processing = new Timer();
+
+    /**
+     * Creates a new packet-in pipeline.
+     *
+     * @param threads   number of worker threads
+     * @param queueSize capacity of each per-switch queue
+     * @param policy    overflow policy
+     * @param handler   packet handler invoked on the worker threads
+     */
+    PacketInPipeline(int threads, int queueSize, OverflowPolicy policy,
+                     BiConsumer<Dpid, OFPacketIn> handler) {
+        checkArgument(threads > 0, "Number of threads must be positive");
+        checkArgument(queueSize > 0, "Queue size must be positive");
+        this.queueSize = queueSize;
+        this.policy = policy;
+        this.handler = handler;
+        this.workers = newFixedThreadPool(threads, groupedThreads("onos/of", "packet-in-%d"));
+    }
+
+    /**
+     * Enqueues the packet-in received from the given switch.
+     *
+     * @param dpid switch dpid
+     * @param pin  packet-in message
+     * @return true if the packet was accepted; false if it was dropped,
+     * including when the pipeline has been shut down
+     */
+    boolean submit(Dpid dpid, OFPacketIn pin) {
+        SwitchQueue queue = queues.computeIfAbsent(dpid, SwitchQueue::new);
+        if (!queue.offer(pin)) {
+            dropped.inc();
+            log.trace("Dropped packet-in from {}; queue full or closed", dpid);
+            return false;
+        }
+        enqueued.inc();
+        return queue.schedule();
+    }
+
+    /**
+     * Discards any packets pending for the given switch.
+     *
+     * @param dpid switch dpid
+     */
+    void purge(Dpid dpid) {
+        SwitchQueue queue = queues.remove(dpid);
+        if (queue != null) {
+            queue.purge();
+        }
+    }
+
+    /**
+     * Stops the worker pool; pending packets are discarded.
+     */
+    void shutdown() {
+        workers.shutdownNow();
+        queues.clear();
+    }
+
+    /**
+     * Returns the number of packets pending for the given switch.
+     *
+     * @param dpid switch dpid
+     * @return queue depth
+     */
+    int queueDepth(Dpid dpid) {
+        SwitchQueue queue = queues.get(dpid);
+        return queue == null ? 0 : queue.packets.size();
+    }
+
+    /**
+     * Returns the counter of packets accepted into the pipeline.
+     *
+     * @return enqueued packet counter
+     */
+    Counter enqueued() {
+        return enqueued;
+    }
+
+    /**
+     * Returns the counter of packets discarded by the pipeline.
+     *
+     * @return dropped packet counter
+     */
+    Counter dropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the timer measuring the time spent handling each packet.
+     *
+     * @return processing timer
+     */
+    Timer processing() {
+        return processing;
+    }
+
+    // Bounded queue of a single switch, drained by at most one worker.
+    private final class SwitchQueue implements Runnable {
+        private final Dpid dpid;
+        private final BlockingQueue<OFPacketIn> packets;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        // Set once the switch is purged; a purged queue is never drained
+        // again, even by a worker that already picked it up
+        private volatile boolean purged;
+
+        private SwitchQueue(Dpid dpid) {
+            this.dpid = dpid;
+            this.packets = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        private boolean offer(OFPacketIn pin) {
+            if (purged || workers.isShutdown()) {
+                return false;
+            }
+            if (packets.offer(pin)) {
+                return true;
+            }
+            switch (policy) {
+                case DROP_OLDEST:
+                    if (packets.poll() != null) {
+                        dropped.inc();
+                    }
+                    return packets.offer(pin);
+                case DROP_NEWEST:
+                default:
+                    return false;
+            }
+        }
+
+        // Hands the queue to a worker unless one already has it; returns
+        // false if the packets were discarded instead, because the pipeline
+        // was shut down or the switch purged under the caller.
+        private boolean schedule() {
+            if (purged) {
+                discard();
+                return false;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this);
+                } catch (RejectedExecutionException e) {
+                    log.trace("Dropped packet-ins from {}; pipeline shut down", dpid);
+                    scheduled.set(false);
+                    discard();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Stops the queue from draining further and discards its packets.
+        private void purge() {
+            purged = true;
+            discard();
+        }
+
+        private void discard() {
+            int count = 0;
+            while (packets.poll() != null) {
+                count++;
+            }
+            dropped.inc(count);
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < DRAIN_BATCH && !purged; i++) {
+                OFPacketIn pin = packets.poll();
+                if (pin == null) {
+                    break;
+                }
+                final Timer.Context context = processing.time();
+                try {
+                    handler.accept(dpid, pin);
+                } catch (Exception e) {
+                    log.warn("Unable to process packet-in from {}", dpid, e);
+                } finally {
+                    context.stop();
+                }
+            }
+            scheduled.set(false);
+            // Re-arm if packets arrived meanwhile or the batch was exhausted
+            if (!purged && !packets.isEmpty() && !workers.isShutdown()) {
+                schedule();
+            }
+        }
+    }
+}
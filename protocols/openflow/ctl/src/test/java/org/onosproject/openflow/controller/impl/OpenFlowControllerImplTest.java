@@ -147,7 +147,7 @@ public class OpenFlowControllerImplTest {
         Dictionary<String, String> properties = new Hashtable<>();
         properties.put("openflowPorts",
                        Integer.toString(TestTools.findAvailablePort(0)));
-        expect(mockContext.getProperties()).andReturn(properties);
+        expect(mockContext.getProperties()).andReturn(properties).anyTimes();
         replay(mockContext);
         controller.activate(mockContext);
     }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.onosproject.openflow.MockOfPacketIn;
+import org.onosproject.openflow.controller.Dpid;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests of the packet-in pipeline.
+ */
+public class PacketInPipelineTest {
+
+    private static final Dpid DPID1 = new Dpid(1L);
+
+    private PacketInPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        pipeline.shutdown();
+    }
+
+    /**
+     * Tests that packets from the same switch are handled in arrival order.
+     */
+    @Test
+    public void testOrdering() throws InterruptedException {
+        List<OFPacketIn> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        pipeline = new PacketInPipeline(4, 16, PacketInPipeline.OverflowPolicy.DROP_NEWEST,
+                                        (dpid, pin) -> {
+                                            handled.add(pin);
+                                            latch.countDown();
+                                        });
+        OFPacketIn p1 = new MockOfPacketIn();
+        OFPacketIn p2 = new MockOfPacketIn();
+        OFPacketIn p3 = new MockOfPacketIn();
+        pipeline.submit(DPID1, p1);
+        pipeline.submit(DPID1, p2);
+        pipeline.submit(DPID1, p3);
+
+        assertThat(latch.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(handled, contains(p1, p2, p3));
+        assertThat(pipeline.enqueued().getCount(), is(3L));
+        assertThat(pipeline.dropped().getCount(), is(0L));
+    }
+
+    /**
+     * Tests that packets beyond the queue capacity are dropped.
+     */
+    @Test
+    public void testOverflow() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline = new PacketInPipeline(1, 1, PacketInPipeline.OverflowPolicy.DROP_NEWEST,
+                                        (dpid, pin) -> {
+                                            started.countDown();
+                                            try {
+                                                release.await();
+                                            } catch (InterruptedException e) {
+                                                Thread.currentThread().interrupt();
+                                            }
+                                        });
+        assertThat(pipeline.submit(DPID1, new MockOfPacketIn()), is(true));
+        assertThat(started.await(1, TimeUnit.SECONDS), is(true));
+
+        // The worker is busy; one packet fits the queue, the next is dropped
+        assertThat(pipeline.submit(DPID1, new MockOfPacketIn()), is(true));
+        assertThat(pipeline.submit(DPID1, new MockOfPacketIn()), is(false));
+        assertThat(pipeline.queueDepth(DPID1), is(1));
+        assertThat(pipeline.dropped().getCount(), is(1L));
+        release.countDown();
+    }
+
+    /**
+     * Tests that packets submitted after shutdown are counted as dropped.
+     */
+    @Test
+    public void testSubmitAfterShutdown() {
+        pipeline = new PacketInPipeline(1, 16, PacketInPipeline.OverflowPolicy.DROP_NEWEST,
+                                        (dpid, pin) -> { });
+        pipeline.shutdown();
+        assertThat(pipeline.submit(DPID1, new MockOfPacketIn()), is(false));
+        assertThat(pipeline.dropped().getCount(), is(1L));
+    }
+
+    /**
+     * Tests that a purged queue is not drained further by the worker that
+     * held it, while packets of a reconnected switch are still handled.
+     */
+    @Test
+    public void testPurgeStopsDraining() throws InterruptedException {
+        List<OFPacketIn> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        pipeline = new PacketInPipeline(2, 16, PacketInPipeline.OverflowPolicy.DROP_NEWEST,
+                                        (dpid, pin) -> {
+                                            handled.add(pin);
+                                            started.countDown();
+                                            try {
+                                                release.await();
+                                            } catch (InterruptedException e) {
+                                                Thread.currentThread().interrupt();
+                                            }
+                                            done.countDown();
+                                        });
+        OFPacketIn p1 = new MockOfPacketIn();
+        pipeline.submit(DPID1, p1);
+        assertThat(started.await(1, TimeUnit.SECONDS), is(true));
+        pipeline.submit(DPID1, new MockOfPacketIn());
+        pipeline.submit(DPID1, new MockOfPacketIn());
+
+        pipeline.purge(DPID1);
+        assertThat(pipeline.dropped().getCount(), is(2L));
+
+        OFPacketIn p4 = new MockOfPacketIn();
+        release.countDown();
+        pipeline.submit(DPID1, p4);
+        assertThat(done.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(handled, contains(p1, p4));
+    }
+}
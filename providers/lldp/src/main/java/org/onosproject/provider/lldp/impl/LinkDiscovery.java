@@ -56,13 +56,11 @@ class LinkDiscovery implements TimerTask {
 
     private final Logger log = getLogger(getClass());
 
-    private static final String SRC_MAC = "DE:AD:BE:EF:BA:11";
-
     private final Device device;
     private final DiscoveryContext context;
 
-    private final Ethernet ethPacket;
-    private final Ethernet bddpEth;
+    // Probe frames of the device, rebuilt when the fingerprint changes
+    private volatile LinkProbeTemplate template;
 
     private Timeout timeout;
     private volatile boolean isStopped;
@@ -72,8 +70,7 @@ class LinkDiscovery implements TimerTask {
     private final Set<Long> ports = Sets.newConcurrentHashSet();
 
     /**
-     * Instantiates discovery manager for the given physical switch. Creates a
-     * generic LLDP packet that will be customized for the port it is sent out on.
+     * Instantiates discovery manager for the given physical switch.
      * Starts the the timer for the discovery process.
      *
      * @param device  the physical switch
@@ -83,16 +80,6 @@ class LinkDiscovery implements TimerTask {
         this.device = device;
         this.context = context;
 
-        ethPacket = new Ethernet();
-        ethPacket.setEtherType(Ethernet.TYPE_LLDP);
-        ethPacket.setDestinationMACAddress(ONOSLLDP.LLDP_NICIRA);
-        ethPacket.setPad(true);
-
-        bddpEth = new Ethernet();
-        bddpEth.setEtherType(Ethernet.TYPE_BSN);
-        bddpEth.setDestinationMACAddress(ONOSLLDP.BDDP_MULTICAST);
-        bddpEth.setPad(true);
-
         fingerprinted = false;
         isStopped = true;
         start();
@@ -112,12 +99,19 @@ class LinkDiscovery implements TimerTask {
     synchronized void start() {
         if (isStopped) {
             isStopped = false;
-            timeout = Timer.getTimer().newTimeout(this, 0, MILLISECONDS);
+            timeout = Timer.getTimer().newTimeout(this, initialDelay(), MILLISECONDS);
         } else {
             log.warn("LinkDiscovery started multiple times?");
         }
     }
 
+    // Spreads the probe rounds of the devices over the probe period so that
+    // they do not all fire on the same timer tick; new ports are probed
+    // right away by addPort regardless.
+    private long initialDelay() {
+        return Math.floorMod(device.id().hashCode(), Math.max(context.probeRate(), 1));
+    }
+
     synchronized boolean isStopped() {
         return isStopped || timeout.isCancelled();
     }
@@ -133,7 +127,7 @@ class LinkDiscovery implements TimerTask {
         boolean isMaster = context.mastershipService().isLocalMaster(device.id());
         if (newPort && isMaster) {
             log.debug("Sending initial probe to port {}@{}", port.number().toLong(), device.id());
-            sendProbes(port.number().toLong());
+            sendProbes(probeTemplate(), port.number().toLong());
         }
     }
 
@@ -223,7 +217,8 @@ class LinkDiscovery implements TimerTask {
 
         if (context.mastershipService().isLocalMaster(device.id())) {
             log.trace("Sending probes from {}", device.id());
-            ports.forEach(this::sendProbes);
+            LinkProbeTemplate probes = probeTemplate();
+            ports.forEach(port -> sendProbes(probes, port));
         }
 
         if (!isStopped()) {
@@ -232,54 +227,38 @@ class LinkDiscovery implements TimerTask {
     }
 
     /**
-     * Creates packet_out LLDP for specified output port.
+     * Returns the probe templates matching the current fingerprint.
      *
-     * @param port the port
-     * @return Packet_out message with LLDP data
+     * @return probe templates
      */
-    private OutboundPacket createOutBoundLldp(Long port) {
-        if (port == null) {
-            return null;
+    private LinkProbeTemplate probeTemplate() {
+        String domain = fingerprinted ? context.fingerprint() : null;
+        LinkProbeTemplate current = template;
+        if (current == null || !current.isFor(domain)) {
+            current = new LinkProbeTemplate(device, domain);
+            template = current;
         }
-        ONOSLLDP lldp = getLinkProbe(port);
-        ethPacket.setSourceMACAddress(SRC_MAC).setPayload(lldp);
-        return new DefaultOutboundPacket(device.id(),
-                                         builder().setOutput(portNumber(port)).build(),
-                                         ByteBuffer.wrap(ethPacket.serialize()));
+        return current;
     }
 
     /**
-     * Creates packet_out BDDP for specified output port.
+     * Creates packet_out carrying the given probe frame for specified output port.
      *
-     * @param port the port
-     * @return Packet_out message with LLDP data
+     * @param port  the port
+     * @param frame serialized probe frame
+     * @return Packet_out message with the probe
      */
-    private OutboundPacket createOutBoundBddp(Long port) {
-        if (port == null) {
-            return null;
-        }
-        ONOSLLDP lldp = getLinkProbe(port);
-        bddpEth.setSourceMACAddress(SRC_MAC).setPayload(lldp);
+    private OutboundPacket createOutBoundProbe(long port, byte[] frame) {
         return new DefaultOutboundPacket(device.id(),
                                          builder().setOutput(portNumber(port)).build(),
-                                         ByteBuffer.wrap(bddpEth.serialize()));
-    }
-
-    private ONOSLLDP getLinkProbe(Long port) {
-        return fingerprinted
-                ? ONOSLLDP.fingerprintedLLDP(device.id().toString(), device.chassisId(),
-                                             port.intValue(), context.fingerprint())
-                : ONOSLLDP.onosLLDP(device.id().toString(), device.chassisId(),
-                                    port.intValue());
+                                         ByteBuffer.wrap(frame));
     }
 
-    private void sendProbes(Long portNumber) {
+    private void sendProbes(LinkProbeTemplate probes, Long portNumber) {
         log.trace("Sending probes out to {}@{}", portNumber, device.id());
-        OutboundPacket pkt = createOutBoundLldp(portNumber);
-        context.packetService().emit(pkt);
+        context.packetService().emit(createOutBoundProbe(portNumber, probes.lldp(portNumber)));
         if (context.useBddp()) {
-            OutboundPacket bpkt = createOutBoundBddp(portNumber);
-            context.packetService().emit(bpkt);
+            context.packetService().emit(createOutBoundProbe(portNumber, probes.bddp(portNumber)));
         }
     }
 
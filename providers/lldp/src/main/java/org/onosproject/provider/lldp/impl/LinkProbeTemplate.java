@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.lldp.impl;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.ONOSLLDP;
+import org.onosproject.net.Device;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Pre-serialized LLDP and BDDP probe frames of a device. The frames of all
+ * ports of the device only differ in the port TLV, so probes are produced by
+ * copying the template and patching the port number in place instead of
+ * building and serializing a new probe for every port.
+ */
+final class LinkProbeTemplate {
+
+    private static final String SRC_MAC = "DE:AD:BE:EF:BA:11";
+
+    private static final int ETH_HEADER_LENGTH = 14;
+    private static final int TLV_HEADER_LENGTH = 2;
+    private static final int PORT_SUBTYPE_LENGTH = 1;
+
+    private final String domain;
+    private final byte[] lldp;
+    private final byte[] bddp;
+    private final int portOffset;
+
+    /**
+     * Creates the probe templates of the given device.
+     *
+     * @param device the physical switch
+     * @param domain fingerprint carried by the probes; null for probes
+     *               which are not fingerprinted
+     */
+    LinkProbeTemplate(Device device, String domain) {
+        this.domain = domain;
+
+        ONOSLLDP probe = domain != null
+                ? ONOSLLDP.fingerprintedLLDP(device.id().toString(), device.chassisId(), 0, domain)
+                : ONOSLLDP.onosLLDP(device.id().toString(), device.chassisId(), 0);
+
+        // The port identifier follows the chassis TLV and the port subtype
+        portOffset = ETH_HEADER_LENGTH + TLV_HEADER_LENGTH + probe.getChassisId().getLength()
+                + TLV_HEADER_LENGTH + PORT_SUBTYPE_LENGTH;
+
+        lldp = frame(Ethernet.TYPE_LLDP, ONOSLLDP.LLDP_NICIRA, probe);
+        bddp = frame(Ethernet.TYPE_BSN, ONOSLLDP.BDDP_MULTICAST, probe);
+    }
+
+    private static byte[] frame(short etherType, byte[] destination, ONOSLLDP probe) {
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(etherType);
+        eth.setDestinationMACAddress(destination);
+        eth.setSourceMACAddress(SRC_MAC);
+        eth.setPad(true);
+        eth.setPayload(probe);
+        return eth.serialize();
+    }
+
+    /**
+     * Indicates whether the templates carry the given fingerprint.
+     *
+     * @param domain fingerprint, or null for probes which are not fingerprinted
+     * @return true if the templates match the fingerprint
+     */
+    boolean isFor(String domain) {
+        return Objects.equals(this.domain, domain);
+    }
+
+    /**
+     * Returns the LLDP probe frame for the given port.
+     *
+     * @param port port number
+     * @return serialized LLDP frame
+     */
+    byte[] lldp(long port) {
+        return patch(lldp, port);
+    }
+
+    /**
+     * Returns the BDDP probe frame for the given port.
+     *
+     * @param port port number
+     * @return serialized BDDP frame
+     */
+    byte[] bddp(long port) {
+        return patch(bddp, port);
+    }
+
+    // Frames are handed to the packet service, so each probe gets its own copy
+    private byte[] patch(byte[] template, long port) {
+        byte[] frame = Arrays.copyOf(template, template.length);
+        ByteBuffer.wrap(frame).putInt(portOffset, (int) port);
+        return frame;
+    }
+}
@@ -25,7 +25,7 @@ import org.apache.felix.scr.annotations.Modified;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
-import org.onlab.packet.Ethernet;
+import org.onlab.packet.ONOSLLDP;
 import org.onlab.util.Tools;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.cluster.ClusterMetadata;
@@ -56,6 +56,7 @@ import org.onosproject.net.link.LinkProvider;
 import org.onosproject.net.link.LinkProviderRegistry;
 import org.onosproject.net.link.LinkProviderService;
 import org.onosproject.net.link.LinkService;
+import org.onosproject.net.packet.InboundPacket;
 import org.onosproject.net.packet.PacketContext;
 import org.onosproject.net.packet.PacketPriority;
 import org.onosproject.net.packet.PacketProcessor;
@@ -66,6 +67,7 @@ import org.onosproject.store.service.ConsistentMapException;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.Dictionary;
 import java.util.EnumSet;
 import java.util.Map;
@@ -331,7 +333,11 @@ public class LldpLinkProvider extends AbstractProvider implements LinkProvider {
         providerService = providerRegistry.register(this);
         masterService.addListener(roleListener);
         deviceService.addListener(deviceListener);
-        packetService.addProcessor(packetProcessor, PacketProcessor.advisor(0));
+        packetService.addProcessor(packetProcessor, PacketProcessor.advisor(0),
+                                   ImmutableSet.of(DefaultTrafficSelector.builder()
+                                                           .matchEthType(TYPE_LLDP).build(),
+                                                   DefaultTrafficSelector.builder()
+                                                           .matchEthType(TYPE_BSN).build()));
 
         loadDevices();
 
@@ -640,8 +646,9 @@ public class LldpLinkProvider extends AbstractProvider implements LinkProvider {
                 return;
             }
 
-            Ethernet eth = context.inPacket().parsed();
-            if (eth == null || (eth.getEtherType() != TYPE_LLDP && eth.getEtherType() != TYPE_BSN)) {
+            // Recognize probes on the raw frame so that other packets are
+            // passed on without being parsed
+            if (!isProbe(context.inPacket())) {
                 return;
             }
 
@@ -654,6 +661,15 @@ public class LldpLinkProvider extends AbstractProvider implements LinkProvider {
                 context.block();
             }
         }
+
+        private boolean isProbe(InboundPacket packet) {
+            ByteBuffer data = packet.unparsed();
+            if (data != null) {
+                return ONOSLLDP.isOnosProbe(data);
+            }
+            short etherType = packet.view().etherType();
+            return etherType == TYPE_LLDP || etherType == TYPE_BSN;
+        }
     }
 
     /**
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.lldp.impl;
+
+import org.junit.Test;
+import org.onlab.packet.ChassisId;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.ONOSLLDP;
+import org.onosproject.net.DefaultDevice;
+import org.onosproject.net.Device;
+import org.onosproject.net.provider.ProviderId;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.DeviceId.deviceId;
+
+/**
+ * Tests of the link probe templates.
+ */
+public class LinkProbeTemplateTest {
+
+    private static final Device DEVICE =
+            new DefaultDevice(new ProviderId("of", "test"), deviceId("of:0000000000000001"),
+                              Device.Type.SWITCH, "m", "h", "s", "n", new ChassisId(0x1234L));
+
+    private static final String DOMAIN = "test-domain";
+
+    private static byte[] expected(short etherType, byte[] destination, ONOSLLDP probe) {
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(etherType);
+        eth.setDestinationMACAddress(destination);
+        eth.setSourceMACAddress("DE:AD:BE:EF:BA:11");
+        eth.setPad(true);
+        eth.setPayload(probe);
+        return eth.serialize();
+    }
+
+    @Test
+    public void probes() {
+        LinkProbeTemplate template = new LinkProbeTemplate(DEVICE, null);
+        for (int port : new int[]{1, 48, 0xfffffff0}) {
+            ONOSLLDP probe = ONOSLLDP.onosLLDP(DEVICE.id().toString(), DEVICE.chassisId(), port);
+            assertArrayEquals(expected(Ethernet.TYPE_LLDP, ONOSLLDP.LLDP_NICIRA, probe),
+                              template.lldp(port));
+            assertArrayEquals(expected(Ethernet.TYPE_BSN, ONOSLLDP.BDDP_MULTICAST, probe),
+                              template.bddp(port));
+        }
+    }
+
+    @Test
+    public void fingerprintedProbes() {
+        LinkProbeTemplate template = new LinkProbeTemplate(DEVICE, DOMAIN);
+        assertTrue(template.isFor(DOMAIN));
+        assertFalse(template.isFor(null));
+
+        byte[] frame = template.lldp(7);
+        ONOSLLDP probe = ONOSLLDP.fingerprintedLLDP(DEVICE.id().toString(), DEVICE.chassisId(),
+                                                    7, DOMAIN);
+        assertArrayEquals(expected(Ethernet.TYPE_LLDP, ONOSLLDP.LLDP_NICIRA, probe), frame);
+
+        Ethernet eth = new Ethernet();
+        eth.deserialize(frame, 0, frame.length);
+        ONOSLLDP parsed = ONOSLLDP.parseONOSLLDP(eth);
+        assertEquals(7, (int) parsed.getPort());
+        assertEquals(DOMAIN, parsed.getDomainString());
+        assertEquals(DEVICE.id().toString(), parsed.getDeviceString());
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.of.flow.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.openflow.controller.Dpid;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Scheduler shared by the adaptive flow statistics collectors of all switches.
+ * Polling tasks run on a small, fixed pool of threads and start at a random
+ * offset within their period so that requests to different switches are
+ * spread out in time. The number of FLOW stats requests awaiting a reply is
+ * capped globally; requests that would exceed the cap are deferred by the
+ * collectors to their next round.
+ */
+class FlowStatsScheduler {
+
+    private final Logger log = getLogger(getClass());
+
+    private static final String METRICS_COMPONENT = "OpenFlowRuleProvider";
+    private static final String STATS_FEATURE = "flowStats";
+    private static final String POLL_LAG_FEATURE = "flowStatsPollLag";
+    private static final String THROTTLED = "throttled";
+    private static final String TIMEOUTS = "timeouts";
+    private static final String OUTSTANDING = "outstanding";
+
+    // Minimum delay before the first run of a polling task
+    private static final long MIN_INITIAL_DELAY_MS = 1000;
+
+    // Interval between sweeps for unanswered requests
+    private static final long SWEEP_INTERVAL_MS = 1000;
+
+    private final ScheduledExecutorService executor;
+    private final ScheduledFuture<?> sweeper;
+    private final long requestTimeoutNanos;
+    private final MetricsService metricsService;
+
+    private final ConcurrentMap<Dpid, DeviceState> devices = new ConcurrentHashMap<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile int maxOutstanding;
+
+    // Rate of requests deferred because of the outstanding request cap
+    private final Meter throttled = new Meter();
+    // Rate of requests which received no reply in time
+    private final Meter timeouts = new Meter();
+    private MetricsComponent metricsComponent;
+    private MetricsFeature statsFeature;
+    private MetricsFeature pollLagFeature;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param threads          number of polling threads
+     * @param maxOutstanding   maximum number of FLOW stats requests awaiting a reply
+     * @param requestTimeoutMs time in millis after which an unanswered request
+     *                         no longer counts against the cap
+     * @param metricsService   metrics service; may be null
+     */
+    FlowStatsScheduler(int threads, int maxOutstanding, long requestTimeoutMs,
+                       MetricsService metricsService) {
+        checkArgument(threads > 0, "Number of threads must be positive");
+        checkArgument(requestTimeoutMs > 0, "Request timeout must be positive");
+        setMaxOutstanding(maxOutstanding);
+        this.requestTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(requestTimeoutMs);
+        this.metricsService = metricsService;
+        this.executor = Executors.newScheduledThreadPool(threads,
+                groupedThreads("onos/flow", "device-stats-collector-%d"));
+        this.sweeper = executor.scheduleWithFixedDelay(this::expire, SWEEP_INTERVAL_MS,
+                SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        registerMetrics();
+    }
+
+    /**
+     * Changes the maximum number of FLOW stats requests awaiting a reply.
+     *
+     * @param maxOutstanding new cap
+     */
+    void setMaxOutstanding(int maxOutstanding) {
+        checkArgument(maxOutstanding > 0, "Maximum outstanding requests must be positive");
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    /**
+     * Schedules a periodic polling task. The first run is jittered over the
+     * given period.
+     *
+     * @param task   polling task
+     * @param period period in seconds
+     * @return future of the scheduled task
+     */
+    ScheduledFuture<?> schedule(Runnable task, int period) {
+        long periodMs = TimeUnit.SECONDS.toMillis(period);
+        long delayMs = MIN_INITIAL_DELAY_MS + ThreadLocalRandom.current().nextLong(periodMs);
+        return executor.scheduleWithFixedDelay(task, delayMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the given switch and its expected poll interval; used to
+     * report the poll lag of the switch.
+     *
+     * @param dpid         switch dpid
+     * @param pollInterval expected interval between full polls in seconds
+     */
+    void register(Dpid dpid, int pollInterval) {
+        DeviceState state = devices.computeIfAbsent(dpid, d -> {
+            DeviceState s = new DeviceState();
+            registerPollLagMetric(d, s::lag);
+            return s;
+        });
+        state.intervalNanos = TimeUnit.SECONDS.toNanos(pollInterval);
+        state.lastPollNanos = System.nanoTime();
+    }
+
+    /**
+     * Forgets the given switch and releases the requests it still has pending.
+     *
+     * @param dpid switch dpid
+     */
+    void unregister(Dpid dpid) {
+        DeviceState state = devices.remove(dpid);
+        if (state != null) {
+            state.pending.keySet().forEach(xid -> release(state, xid));
+            removePollLagMetric(dpid);
+        }
+    }
+
+    /**
+     * Attempts to reserve room for a FLOW stats request to the given switch.
+     * Must be called before the request is sent.
+     *
+     * @param dpid switch dpid
+     * @param xid  transaction id of the request
+     * @return true if the request may be sent; false if it must be deferred
+     */
+    boolean tryAcquire(Dpid dpid, long xid) {
+        DeviceState state = devices.get(dpid);
+        if (state == null) {
+            return false;
+        }
+        int current;
+        do {
+            current = outstanding.get();
+            if (current >= maxOutstanding) {
+                throttled.mark();
+                return false;
+            }
+        } while (!outstanding.compareAndSet(current, current + 1));
+        state.pending.put(xid, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * Notes that the reply to the given request has been fully received.
+     *
+     * @param dpid switch dpid
+     * @param xid  transaction id of the request
+     */
+    void completed(Dpid dpid, long xid) {
+        DeviceState state = devices.get(dpid);
+        if (state != null) {
+            release(state, xid);
+        }
+    }
+
+    /**
+     * Notes that a full polling round of the given switch has been sent.
+     *
+     * @param dpid switch dpid
+     */
+    void polled(Dpid dpid) {
+        DeviceState state = devices.get(dpid);
+        if (state != null) {
+            state.lastPollNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the number of FLOW stats requests awaiting a reply.
+     *
+     * @return outstanding request count
+     */
+    int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Stops all polling tasks.
+     */
+    void shutdown() {
+        sweeper.cancel(false);
+        executor.shutdownNow();
+        devices.keySet().forEach(this::unregister);
+        removeMetrics();
+    }
+
+    private void release(DeviceState state, long xid) {
+        if (state.pending.remove(xid) != null) {
+            outstanding.decrementAndGet();
+        }
+    }
+
+    // Releases requests that were not answered in time
+    private void expire() {
+        long now = System.nanoTime();
+        devices.forEach((dpid, state) -> {
+            for (Map.Entry<Long, Long> e : state.pending.entrySet()) {
+                if (now - e.getValue() > requestTimeoutNanos
+                        && state.pending.remove(e.getKey(), e.getValue())) {
+                    outstanding.decrementAndGet();
+                    timeouts.mark();
+                    log.debug("FLOW stats request {} to {} timed out", e.getKey(), dpid);
+                }
+            }
+        });
+    }
+
+    private void registerMetrics() {
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+            statsFeature = metricsComponent.registerFeature(STATS_FEATURE);
+            pollLagFeature = metricsComponent.registerFeature(POLL_LAG_FEATURE);
+            metricsService.registerMetric(metricsComponent, statsFeature, THROTTLED, throttled);
+            metricsService.registerMetric(metricsComponent, statsFeature, TIMEOUTS, timeouts);
+            metricsService.registerMetric(metricsComponent, statsFeature, OUTSTANDING,
+                                          (Gauge<Integer>) outstanding::get);
+        }
+    }
+
+    private void removeMetrics() {
+        if (metricsService != null && metricsComponent != null) {
+            metricsService.removeMetric(metricsComponent, statsFeature, THROTTLED);
+            metricsService.removeMetric(metricsComponent, statsFeature, TIMEOUTS);
+            metricsService.removeMetric(metricsComponent, statsFeature, OUTSTANDING);
+        }
+    }
+
+    private void registerPollLagMetric(Dpid dpid, Gauge<Long> lag) {
+        if (metricsService != null && metricsComponent != null) {
+            metricsService.registerMetric(metricsComponent, pollLagFeature, dpid.toString(), lag);
+        }
+    }
+
+    private void removePollLagMetric(Dpid dpid) {
+        if (metricsService != null && metricsComponent != null) {
+            metricsService.removeMetric(metricsComponent, pollLagFeature, dpid.toString());
+        }
+    }
+
+    // Polling state of a single switch
+    private static final class DeviceState {
+        // Transaction id of pending requests mapped to the time they were sent
+        private final ConcurrentMap<Long, Long> pending = new ConcurrentHashMap<>();
+        private volatile long intervalNanos;
+        private volatile long lastPollNanos;
+
+        // Millis by which the switch is behind its expected polling schedule
+        private long lag() {
+            long behind = System.nanoTime() - lastPollNanos - intervalNanos;
+            return behind > 0 ? TimeUnit.NANOSECONDS.toMillis(behind) : 0;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.onosproject.net.flow.StoredFlowEntry;
 import org.onosproject.net.flow.TypedStoredFlowEntry;
 import org.onosproject.net.flow.instructions.Instruction;
 import org.onosproject.net.flow.instructions.Instructions;
+import org.onosproject.openflow.controller.Dpid;
 import org.onosproject.openflow.controller.OpenFlowSwitch;
 import org.onosproject.openflow.controller.RoleState;
 import org.projectfloodlight.openflow.protocol.OFFlowStatsRequest;
@@ -37,18 +38,16 @@ import org.projectfloodlight.openflow.types.OFPort;
 import org.projectfloodlight.openflow.types.TableId;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.flow.TypedStoredFlowEntry.FlowLiveType;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -60,9 +59,9 @@ public class NewAdaptiveFlowStatsCollector {
 
     private final DriverService driverService;
     private final OpenFlowSwitch sw;
+    private final Dpid dpid;
 
-    private ScheduledExecutorService adaptiveFlowStatsScheduler =
-            Executors.newScheduledThreadPool(4, groupedThreads("onos/flow", "device-stats-collector-%d"));
+    private final FlowStatsScheduler adaptiveFlowStatsScheduler;
     private ScheduledFuture<?> calAndShortFlowsThread;
     private ScheduledFuture<?> midFlowsThread;
     private ScheduledFuture<?> longFlowsThread;
@@ -99,6 +98,10 @@ public class NewAdaptiveFlowStatsCollector {
 
     private InternalDeviceFlowTable deviceFlowTable = new InternalDeviceFlowTable();
 
+    // First flow not polled in the last throttled round, per live type;
+    // the next round of that type starts there
+    private final Map<FlowLiveType, FlowId> resumeFrom = Maps.newConcurrentMap();
+
     private boolean isFirstTimeStart = true;
 
     public static final long NO_FLOW_MISSING_XID = (-1);
@@ -107,13 +110,17 @@ public class NewAdaptiveFlowStatsCollector {
     /**
      * Creates a new adaptive collector for the given switch and default cal_and_poll frequency.
      *
-     * @param sw           switch to pull
-     * @param pollInterval cal and immediate poll frequency in seconds
+     * @param driverService driver service
+     * @param scheduler     scheduler shared by the collectors of all switches
+     * @param sw            switch to pull
+     * @param pollInterval  cal and immediate poll frequency in seconds
      */
-    NewAdaptiveFlowStatsCollector(
-            DriverService driverService, OpenFlowSwitch sw, int pollInterval) {
+    NewAdaptiveFlowStatsCollector(DriverService driverService, FlowStatsScheduler scheduler,
+                                  OpenFlowSwitch sw, int pollInterval) {
         this.driverService = driverService;
+        this.adaptiveFlowStatsScheduler = checkNotNull(scheduler);
         this.sw = sw;
+        this.dpid = new Dpid(sw.getId());
         initMemberVars(pollInterval);
     }
 
@@ -157,28 +164,23 @@ public class NewAdaptiveFlowStatsCollector {
             longFlowsThread.cancel(false);
         }
 
+        scheduleTasks();
+
+        log.debug("calAndPollInterval=" + calAndPollInterval + "is adjusted");
+    }
+
+    // schedule all tasks on the shared scheduler, which spreads their first run over their period
+    private void scheduleTasks() {
+        adaptiveFlowStatsScheduler.register(dpid, entirePollInterval);
+
         calAndShortFlowsTask = new CalAndShortFlowsTask();
-        calAndShortFlowsThread = adaptiveFlowStatsScheduler.scheduleWithFixedDelay(
-                calAndShortFlowsTask,
-                0,
-                calAndPollInterval,
-                TimeUnit.SECONDS);
+        calAndShortFlowsThread = adaptiveFlowStatsScheduler.schedule(calAndShortFlowsTask, calAndPollInterval);
 
         midFlowsTask = new MidFlowsTask();
-        midFlowsThread = adaptiveFlowStatsScheduler.scheduleWithFixedDelay(
-                midFlowsTask,
-                0,
-                midPollInterval,
-                TimeUnit.SECONDS);
+        midFlowsThread = adaptiveFlowStatsScheduler.schedule(midFlowsTask, midPollInterval);
 
         longFlowsTask = new LongFlowsTask();
-        longFlowsThread = adaptiveFlowStatsScheduler.scheduleWithFixedDelay(
-                longFlowsTask,
-                0,
-                longPollInterval,
-                TimeUnit.SECONDS);
-
-        log.debug("calAndPollInterval=" + calAndPollInterval + "is adjusted");
+        longFlowsThread = adaptiveFlowStatsScheduler.schedule(longFlowsTask, longPollInterval);
     }
 
     private class CalAndShortFlowsTask implements Runnable {
@@ -191,16 +193,18 @@ public class NewAdaptiveFlowStatsCollector {
                     // isFirstTimeStart, get entire flow stats from a given switch sw
                     log.trace("CalAndShortFlowsTask Collecting Entire AdaptiveStats at first time start for {}",
                             sw.getStringId());
-                    ofFlowStatsRequestAllSend();
-
-                    callCountCalAndShortFlowsTask += CAL_AND_POLL_TIMES;
-                    isFirstTimeStart = false;
+                    // if throttled, retry at the next call
+                    if (ofFlowStatsRequestAllSend()) {
+                        callCountCalAndShortFlowsTask += CAL_AND_POLL_TIMES;
+                        isFirstTimeStart = false;
+                    }
                 } else  if (callCountCalAndShortFlowsTask == ENTIRE_POLL_TIMES) {
                     // entire_poll_times, get entire flow stats from a given switch sw
                     log.trace("CalAndShortFlowsTask Collecting Entire AdaptiveStats for {}", sw.getStringId());
-                    ofFlowStatsRequestAllSend();
-
-                    callCountCalAndShortFlowsTask = CAL_AND_POLL_TIMES;
+                    // if throttled, retry at the next call
+                    if (ofFlowStatsRequestAllSend()) {
+                        callCountCalAndShortFlowsTask = CAL_AND_POLL_TIMES;
+                    }
                     //TODO: check flows deleted in switch, but exist in controller flow table, then remove them
                     //
                 } else {
@@ -211,8 +215,9 @@ public class NewAdaptiveFlowStatsCollector {
         }
     }
 
-    // send openflow flow stats request message with getting all flow entries to a given switch sw
-    private void ofFlowStatsRequestAllSend() {
+    // send openflow flow stats request message with getting all flow entries to a given switch sw,
+    // returns false if the request is deferred because too many requests are outstanding
+    private boolean ofFlowStatsRequestAllSend() {
         OFFlowStatsRequest request = sw.factory().buildFlowStatsRequest()
                 .setMatch(sw.factory().matchWildcardAll())
                 .setTableId(TableId.ALL)
@@ -220,6 +225,11 @@ public class NewAdaptiveFlowStatsCollector {
                 .build();
 
         synchronized (this) {
+            if (!adaptiveFlowStatsScheduler.tryAcquire(dpid, request.getXid())) {
+                log.debug("ofFlowStatsRequestAllSend: too many outstanding requests, deferred for {}",
+                        sw.getStringId());
+                return false;
+            }
             // set the request xid to check the reply in OpenFlowRuleProvider
             // After processing the reply of this request message,
             // this must be set to NO_FLOW_MISSING_XID(-1) by provider
@@ -228,10 +238,13 @@ public class NewAdaptiveFlowStatsCollector {
 
             sw.sendMsg(request);
         }
+        adaptiveFlowStatsScheduler.polled(dpid);
+        return true;
     }
 
-    // send openflow flow stats request message with getting the specific flow entry(fe) to a given switch sw
-    private void ofFlowStatsRequestFlowSend(FlowEntry fe) {
+    // send openflow flow stats request message with getting the specific flow entry(fe) to a given switch sw,
+    // returns false if the request is deferred because too many requests are outstanding
+    private boolean ofFlowStatsRequestFlowSend(FlowEntry fe) {
         // set find match
         Match match = FlowModBuilder.builder(fe, sw.factory(), Optional.empty(),
                 Optional.of(driverService)).buildMatch();
@@ -255,6 +268,9 @@ public class NewAdaptiveFlowStatsCollector {
                 .build();
 
         synchronized (this) {
+            if (!adaptiveFlowStatsScheduler.tryAcquire(dpid, request.getXid())) {
+                return false;
+            }
             if (getFlowMissingXid() != NO_FLOW_MISSING_XID) {
                 log.debug("ofFlowStatsRequestFlowSend: previous FlowStatsRequestAll does not be processed yet,"
                                 + " set no flow missing xid anyway, for {}",
@@ -264,14 +280,52 @@ public class NewAdaptiveFlowStatsCollector {
 
             sw.sendMsg(request);
         }
+        return true;
+    }
+
+    // send flow stats requests for the given flows until throttled; a throttled
+    // round is resumed by the next round of the same live type, so that the
+    // flows at the end of the set are not starved
+    private void ofFlowStatsRequestFlowSend(Set<StoredFlowEntry> flowEntries, FlowLiveType liveType) {
+        List<StoredFlowEntry> round = resumeOrder(flowEntries, resumeFrom.remove(liveType));
+        for (int i = 0; i < round.size(); i++) {
+            if (!ofFlowStatsRequestFlowSend(round.get(i))) {
+                resumeFrom.put(liveType, round.get(i).id());
+                log.debug("ofFlowStatsRequestFlowSend: too many outstanding requests, deferred {} flows for {}",
+                        round.size() - i, sw.getStringId());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Orders the given flow entries so that the one with the given id comes
+     * first, followed by the entries after it and then by those before it.
+     *
+     * @param flowEntries flow entries
+     * @param first       id of the entry to start with; null, or an id not
+     *                    among the entries, keeps the original order
+     * @param <E>         type of the flow entries
+     * @return flow entries in polling order
+     */
+    static <E extends FlowEntry> List<E> resumeOrder(Collection<E> flowEntries, FlowId first) {
+        List<E> ordered = new ArrayList<>(flowEntries);
+        if (first != null) {
+            for (int i = 0; i < ordered.size(); i++) {
+                if (ordered.get(i).id().equals(first)) {
+                    List<E> rotated = new ArrayList<>(ordered.subList(i, ordered.size()));
+                    rotated.addAll(ordered.subList(0, i));
+                    return rotated;
+                }
+            }
+        }
+        return ordered;
     }
 
     private void calAndShortFlowsTaskInternal() {
         deviceFlowTable.checkAndMoveLiveFlowAll();
 
-        deviceFlowTable.getShortFlows().forEach(fe -> {
-            ofFlowStatsRequestFlowSend(fe);
-        });
+        ofFlowStatsRequestFlowSend(deviceFlowTable.getShortFlows(), FlowLiveType.SHORT_FLOW);
     }
 
     private class MidFlowsTask implements Runnable {
@@ -292,9 +346,7 @@ public class NewAdaptiveFlowStatsCollector {
     }
 
     private void midFlowsTaskInternal() {
-        deviceFlowTable.getMidFlows().forEach(fe -> {
-            ofFlowStatsRequestFlowSend(fe);
-        });
+        ofFlowStatsRequestFlowSend(deviceFlowTable.getMidFlows(), FlowLiveType.MID_FLOW);
     }
 
     private class LongFlowsTask implements Runnable {
@@ -315,9 +367,7 @@ public class NewAdaptiveFlowStatsCollector {
     }
 
     private void longFlowsTaskInternal() {
-        deviceFlowTable.getLongFlows().forEach(fe -> {
-            ofFlowStatsRequestFlowSend(fe);
-        });
+        ofFlowStatsRequestFlowSend(deviceFlowTable.getLongFlows(), FlowLiveType.LONG_FLOW);
     }
 
     /**
@@ -332,27 +382,7 @@ public class NewAdaptiveFlowStatsCollector {
 
         isFirstTimeStart = true;
 
-        // Initially start polling quickly. Then drop down to configured value
-        calAndShortFlowsTask = new CalAndShortFlowsTask();
-        calAndShortFlowsThread = adaptiveFlowStatsScheduler.scheduleWithFixedDelay(
-                calAndShortFlowsTask,
-                1,
-                calAndPollInterval,
-                TimeUnit.SECONDS);
-
-        midFlowsTask = new MidFlowsTask();
-        midFlowsThread = adaptiveFlowStatsScheduler.scheduleWithFixedDelay(
-                midFlowsTask,
-                1,
-                midPollInterval,
-                TimeUnit.SECONDS);
-
-        longFlowsTask = new LongFlowsTask();
-        longFlowsThread = adaptiveFlowStatsScheduler.scheduleWithFixedDelay(
-                longFlowsTask,
-                1,
-                longPollInterval,
-                TimeUnit.SECONDS);
+        scheduleTasks();
 
         log.info("Started");
     }
@@ -373,7 +403,7 @@ public class NewAdaptiveFlowStatsCollector {
             longFlowsThread.cancel(true);
         }
 
-        adaptiveFlowStatsScheduler.shutdownNow();
+        adaptiveFlowStatsScheduler.unregister(dpid);
 
         isFirstTimeStart = false;
 
@@ -494,6 +524,16 @@ public class NewAdaptiveFlowStatsCollector {
         });
     }
 
+    /**
+     * notifies that the reply to the flow stats request with the given xid has been fully received.
+     *
+     * @param xid the OFFlowStatsRequest message Id
+     *
+     */
+    public void statsReplyReceived(long xid) {
+        adaptiveFlowStatsScheduler.completed(dpid, xid);
+    }
+
     /**
      * returns flowMissingXid that indicates the execution of flowMissing process or not(NO_FLOW_MISSING_XID(-1)).
      *
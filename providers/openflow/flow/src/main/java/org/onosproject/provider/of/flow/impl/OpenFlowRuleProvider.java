@@ -28,6 +28,7 @@ import org.apache.felix.scr.annotations.Modified;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.net.DeviceId;
@@ -64,6 +65,7 @@ import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
 import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPortStatus;
 import org.projectfloodlight.openflow.protocol.OFStatsReply;
+import org.projectfloodlight.openflow.protocol.OFStatsReplyFlags;
 import org.projectfloodlight.openflow.protocol.OFStatsType;
 import org.projectfloodlight.openflow.protocol.OFTableStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFTableStatsReply;
@@ -109,6 +111,9 @@ public class OpenFlowRuleProvider extends AbstractProvider
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DriverService driverService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
     private static final int DEFAULT_POLL_FREQUENCY = 5;
     @Property(name = "flowPollFrequency", intValue = DEFAULT_POLL_FREQUENCY,
             label = "Frequency (in seconds) for polling flow statistics")
@@ -119,6 +124,14 @@ public class OpenFlowRuleProvider extends AbstractProvider
             label = "Adaptive Flow Sampling is on or off")
     private boolean adaptiveFlowSampling = DEFAULT_ADAPTIVE_FLOW_SAMPLING;
 
+    private static final int DEFAULT_MAX_OUTSTANDING_FLOW_STATS = 1000;
+    @Property(name = "maxOutstandingFlowStats", intValue = DEFAULT_MAX_OUTSTANDING_FLOW_STATS,
+            label = "Maximum number of adaptive FLOW stats requests awaiting a reply across all switches")
+    private int maxOutstandingFlowStats = DEFAULT_MAX_OUTSTANDING_FLOW_STATS;
+
+    private static final int FLOW_STATS_THREADS = 4;
+    private static final long FLOW_STATS_TIMEOUT_MS = 10000;
+
     private FlowRuleProviderService providerService;
 
     private final InternalFlowProvider listener = new InternalFlowProvider();
@@ -128,8 +141,9 @@ public class OpenFlowRuleProvider extends AbstractProvider
     private final Timer timer = new Timer("onos-openflow-collector");
     private final Map<Dpid, FlowStatsCollector> simpleCollectors = Maps.newHashMap();
 
-    // NewAdaptiveFlowStatsCollector Set
+    // NewAdaptiveFlowStatsCollector Set, polled on a scheduler shared by all switches
     private final Map<Dpid, NewAdaptiveFlowStatsCollector> afsCollectors = Maps.newHashMap();
+    private FlowStatsScheduler afsScheduler;
     private final Map<Dpid, FlowStatsCollector> collectors = Maps.newHashMap();
     private final Map<Dpid, TableStatisticsCollector> tableStatsCollectors = Maps.newHashMap();
 
@@ -147,6 +161,9 @@ public class OpenFlowRuleProvider extends AbstractProvider
         controller.addListener(listener);
         controller.addEventListener(listener);
 
+        afsScheduler = new FlowStatsScheduler(FLOW_STATS_THREADS, maxOutstandingFlowStats,
+                                              FLOW_STATS_TIMEOUT_MS, metricsService);
+
         modified(context);
 
         pendingBatches = createBatchCache();
@@ -161,6 +178,7 @@ public class OpenFlowRuleProvider extends AbstractProvider
     public void deactivate(ComponentContext context) {
         cfgService.unregisterProperties(getClass(), false);
         stopCollectors();
+        afsScheduler.shutdown();
         providerRegistry.unregister(this);
         providerService = null;
 
@@ -199,6 +217,22 @@ public class OpenFlowRuleProvider extends AbstractProvider
         }
 
         log.info("Settings: adaptiveFlowSampling={}", adaptiveFlowSampling);
+
+        int newMaxOutstandingFlowStats;
+        try {
+            s = get(properties, "maxOutstandingFlowStats");
+            newMaxOutstandingFlowStats = isNullOrEmpty(s) ?
+                    maxOutstandingFlowStats : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            newMaxOutstandingFlowStats = maxOutstandingFlowStats;
+        }
+
+        if (newMaxOutstandingFlowStats != maxOutstandingFlowStats && newMaxOutstandingFlowStats > 0) {
+            maxOutstandingFlowStats = newMaxOutstandingFlowStats;
+            afsScheduler.setMaxOutstanding(maxOutstandingFlowStats);
+        }
+
+        log.info("Settings: maxOutstandingFlowStats={}", maxOutstandingFlowStats);
     }
 
     private Cache<Long, InternalCacheEntry> createBatchCache() {
@@ -220,7 +254,7 @@ public class OpenFlowRuleProvider extends AbstractProvider
         if (adaptiveFlowSampling) {
             // NewAdaptiveFlowStatsCollector Constructor
             NewAdaptiveFlowStatsCollector fsc =
-                    new NewAdaptiveFlowStatsCollector(driverService, sw, flowPollFrequency);
+                    new NewAdaptiveFlowStatsCollector(driverService, afsScheduler, sw, flowPollFrequency);
             fsc.start();
             afsCollectors.put(new Dpid(sw.getId()), fsc);
         } else {
@@ -514,6 +548,11 @@ public class OpenFlowRuleProvider extends AbstractProvider
             if (adaptiveFlowSampling)  {
                 NewAdaptiveFlowStatsCollector afsc = afsCollectors.get(dpid);
 
+                // the request no longer counts against the outstanding cap once fully answered
+                if (!replies.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
+                    afsc.statsReplyReceived(replies.getXid());
+                }
+
                 synchronized (afsc) {
                     if (afsc.getFlowMissingXid() != NewAdaptiveFlowStatsCollector.NO_FLOW_MISSING_XID) {
                         log.debug("OpenFlowRuleProvider:pushFlowMetrics, flowMissingXid={}, "
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.of.flow.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.onosproject.openflow.controller.Dpid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onlab.junit.TestTools.assertAfter;
+
+/**
+ * Unit tests for the flow statistics scheduler.
+ */
+public class FlowStatsSchedulerTest {
+
+    private static final Dpid DPID1 = new Dpid(1);
+    private static final Dpid DPID2 = new Dpid(2);
+
+    private FlowStatsScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Tests that the outstanding requests of all switches are capped.
+     */
+    @Test
+    public void outstandingCap() {
+        scheduler = new FlowStatsScheduler(1, 2, 60000, null);
+        scheduler.register(DPID1, 5);
+        scheduler.register(DPID2, 5);
+
+        assertTrue(scheduler.tryAcquire(DPID1, 1));
+        assertTrue(scheduler.tryAcquire(DPID2, 2));
+        assertFalse(scheduler.tryAcquire(DPID1, 3));
+        assertEquals(2, scheduler.outstanding());
+
+        // a reply makes room for another request
+        scheduler.completed(DPID2, 2);
+        assertEquals(1, scheduler.outstanding());
+        assertTrue(scheduler.tryAcquire(DPID1, 3));
+
+        // lowering the cap defers requests until enough replies came in
+        scheduler.setMaxOutstanding(1);
+        scheduler.completed(DPID1, 1);
+        assertFalse(scheduler.tryAcquire(DPID2, 4));
+        scheduler.completed(DPID1, 3);
+        assertTrue(scheduler.tryAcquire(DPID2, 4));
+
+        // replies to unknown requests leave the count alone
+        scheduler.completed(DPID2, 42);
+        assertEquals(1, scheduler.outstanding());
+    }
+
+    /**
+     * Tests that requests of unknown switches are refused and that the
+     * requests of an unregistered switch are released.
+     */
+    @Test
+    public void unregister() {
+        scheduler = new FlowStatsScheduler(1, 10, 60000, null);
+        assertFalse(scheduler.tryAcquire(DPID1, 1));
+
+        scheduler.register(DPID1, 5);
+        assertTrue(scheduler.tryAcquire(DPID1, 1));
+        assertTrue(scheduler.tryAcquire(DPID1, 2));
+        assertEquals(2, scheduler.outstanding());
+
+        scheduler.unregister(DPID1);
+        assertEquals(0, scheduler.outstanding());
+        assertFalse(scheduler.tryAcquire(DPID1, 3));
+    }
+
+    /**
+     * Tests that the sweeper releases requests which were not answered in time.
+     */
+    @Test
+    public void sweeper() {
+        scheduler = new FlowStatsScheduler(1, 1, 1, null);
+        scheduler.register(DPID1, 5);
+        assertTrue(scheduler.tryAcquire(DPID1, 1));
+        assertFalse(scheduler.tryAcquire(DPID1, 2));
+
+        assertAfter(5000, () -> assertEquals(0, scheduler.outstanding()));
+        assertTrue(scheduler.tryAcquire(DPID1, 2));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.of.flow.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowId;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.provider.of.flow.impl.NewAdaptiveFlowStatsCollector.resumeOrder;
+
+/**
+ * Unit tests for the polling order of the adaptive flow statistics collector.
+ */
+public class NewAdaptiveFlowStatsCollectorTest {
+
+    private static FlowEntry flow(long cookie) {
+        return new DefaultFlowEntry(DefaultFlowRule.builder()
+                .forDevice(DeviceId.deviceId("of:1"))
+                .withCookie(cookie)
+                .withSelector(DefaultTrafficSelector.emptySelector())
+                .withPriority(10)
+                .makePermanent()
+                .build());
+    }
+
+    private final FlowEntry f1 = flow(1);
+    private final FlowEntry f2 = flow(2);
+    private final FlowEntry f3 = flow(3);
+    private final List<FlowEntry> flows = ImmutableList.of(f1, f2, f3);
+
+    /**
+     * Tests that a round without a resume point keeps the original order.
+     */
+    @Test
+    public void noResumePoint() {
+        assertEquals(flows, resumeOrder(flows, null));
+        assertEquals(flows, resumeOrder(flows, FlowId.valueOf(42)));
+    }
+
+    /**
+     * Tests that a round resumes at the first flow left out by a throttled
+     * round and wraps around to the flows before it.
+     */
+    @Test
+    public void resumeAfterThrottling() {
+        assertEquals(ImmutableList.of(f2, f3, f1), resumeOrder(flows, f2.id()));
+        assertEquals(ImmutableList.of(f3, f1, f2), resumeOrder(flows, f3.id()));
+        assertEquals(flows, resumeOrder(flows, f1.id()));
+    }
+}
@@ -120,7 +120,8 @@ public class OpenFlowPacketProvider extends AbstractProvider implements PacketPr
                 sw.sendMsg(po);
             }
         }
-
+        // Packet-outs are latency sensitive; do not wait for write coalescing
+        sw.flush();
     }
 
     private OFPortDesc portDesc(PortNumber port) {
@@ -154,14 +155,16 @@ public class OpenFlowPacketProvider extends AbstractProvider implements PacketPr
         public void handlePacket(OpenFlowPacketContext pktCtx) {
             DeviceId id = DeviceId.deviceId(Dpid.uri(pktCtx.dpid().value()));
 
+            // The frame is only parsed if and when a processor asks for it.
+            byte[] data = pktCtx.unparsed();
             DefaultInboundPacket inPkt = new DefaultInboundPacket(
                     new ConnectPoint(id, PortNumber.portNumber(pktCtx.inPort())),
-                    pktCtx.parsed(), ByteBuffer.wrap(pktCtx.unparsed()));
+                    ByteBuffer.wrap(data));
 
             DefaultOutboundPacket outPkt = null;
             if (!pktCtx.isBuffered()) {
                 outPkt = new DefaultOutboundPacket(id, null,
-                        ByteBuffer.wrap(pktCtx.unparsed()));
+                        ByteBuffer.wrap(data));
             }
 
             OpenFlowCorePacketContext corePktCtx =
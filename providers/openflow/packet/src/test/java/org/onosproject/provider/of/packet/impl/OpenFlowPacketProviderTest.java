@@ -186,6 +186,22 @@ public class OpenFlowPacketProviderTest {
 
     }
 
+    @Test
+    public void sendFromContext() {
+        OFPacketIn pkt = sw.factory().buildPacketIn()
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setInPort(OFPort.of(PN1))
+                .setReason(OFPacketInReason.NO_MATCH)
+                .build();
+
+        OpenFlowPacketContext context =
+                DefaultOpenFlowPacketContext.packetContextFromPacketIn(sw, pkt);
+        context.build(OFPort.of(PN2));
+        context.send();
+        assertEquals("message not sent", 1, sw.sent.size());
+        assertEquals("packet-out not flushed", 1, sw.flushes);
+    }
+
     private static OFPortDesc portDesc(int port) {
         OFPortDesc.Builder builder = OFFactoryVer10.INSTANCE.buildPortDesc();
         builder.setPortNo(OFPort.of(port));
@@ -337,6 +353,7 @@ public class OpenFlowPacketProviderTest {
 
         RoleState state;
         List<OFMessage> sent = new ArrayList<OFMessage>();
+        int flushes;
         OFFactory factory = OFFactoryVer10.INSTANCE;
 
         @Override
@@ -348,6 +365,11 @@ public class OpenFlowPacketProviderTest {
         public void sendMsg(List<OFMessage> msgs) {
         }
 
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
         @Override
         public void handleMessage(OFMessage fromSwitch) {
         }
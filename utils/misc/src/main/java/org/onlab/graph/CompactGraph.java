@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable, int-indexed view of a graph in compressed sparse row (CSR)
+ * form. Vertexes and edges are numbered densely; the egress edges of each
+ * vertex occupy a contiguous range of edge indexes, in the order in which
+ * the backing graph reports them. This lets the searches in
+ * {@link CompactGraphSearch} run over primitive arrays instead of maps and
+ * sets of boxed objects.
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public final class CompactGraph<V extends Vertex, E extends Edge<V>> {
+
+    private final Graph<V, E> graph;
+
+    private final Object[] vertexes;
+    private final Object[] edges;
+    private final ImmutableMap<V, Integer> vertexIndexes;
+    private final ImmutableMap<E, Integer> edgeIndexes;
+
+    // Egress edges of vertex v are [offsets[v], offsets[v + 1])
+    private final int[] offsets;
+    private final int[] sources;
+    private final int[] targets;
+
+    /**
+     * Creates a compact index of the specified graph.
+     *
+     * @param graph graph to index
+     */
+    public CompactGraph(Graph<V, E> graph) {
+        this.graph = checkNotNull(graph, "Graph cannot be null");
+
+        int n = graph.getVertexes().size();
+        int m = graph.getEdges().size();
+        this.vertexes = new Object[n];
+        this.edges = new Object[m];
+        this.offsets = new int[n + 1];
+        this.sources = new int[m];
+        this.targets = new int[m];
+
+        ImmutableMap.Builder<V, Integer> vertexBuilder = ImmutableMap.builder();
+        int v = 0;
+        for (V vertex : graph.getVertexes()) {
+            vertexes[v] = vertex;
+            vertexBuilder.put(vertex, v++);
+        }
+        this.vertexIndexes = vertexBuilder.build();
+
+        ImmutableMap.Builder<E, Integer> edgeBuilder = ImmutableMap.builder();
+        int e = 0;
+        for (v = 0; v < n; v++) {
+            offsets[v] = e;
+            @SuppressWarnings("unchecked")
+            V vertex = (V) vertexes[v];
+            for (E edge : graph.getEdgesFrom(vertex)) {
+                edges[e] = edge;
+                sources[e] = v;
+                targets[e] = vertexIndexes.get(edge.dst());
+                edgeBuilder.put(edge, e++);
+            }
+        }
+        offsets[n] = e;
+        this.edgeIndexes = edgeBuilder.build();
+    }
+
+    /**
+     * Returns the graph backing this index.
+     *
+     * @return backing graph
+     */
+    public Graph<V, E> graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of vertexes.
+     *
+     * @return vertex count
+     */
+    public int vertexCount() {
+        return vertexes.length;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return edge count
+     */
+    public int edgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * Returns the index of the specified vertex.
+     *
+     * @param vertex vertex
+     * @return vertex index or -1 if the vertex is not part of the graph
+     */
+    public int index(V vertex) {
+        Integer index = vertexIndexes.get(vertex);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Returns the index of the specified edge.
+     *
+     * @param edge edge
+     * @return edge index or -1 if the edge is not part of the graph
+     */
+    public int edgeIndex(E edge) {
+        Integer index = edgeIndexes.get(edge);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Returns the vertex with the specified index.
+     *
+     * @param index vertex index
+     * @return vertex
+     */
+    @SuppressWarnings("unchecked")
+    public V vertex(int index) {
+        return (V) vertexes[index];
+    }
+
+    /**
+     * Returns the edge with the specified index.
+     *
+     * @param index edge index
+     * @return edge
+     */
+    @SuppressWarnings("unchecked")
+    public E edge(int index) {
+        return (E) edges[index];
+    }
+
+    /**
+     * Returns the index of the source vertex of the specified edge.
+     *
+     * @param edge edge index
+     * @return source vertex index
+     */
+    public int source(int edge) {
+        return sources[edge];
+    }
+
+    /**
+     * Returns the index of the destination vertex of the specified edge.
+     *
+     * @param edge edge index
+     * @return destination vertex index
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the index of the first egress edge of the specified vertex.
+     *
+     * @param vertex vertex index
+     * @return first egress edge index
+     */
+    public int firstEdge(int vertex) {
+        return offsets[vertex];
+    }
+
+    /**
+     * Returns the index following the last egress edge of the specified
+     * vertex.
+     *
+     * @param vertex vertex index
+     * @return end of the egress edge range, exclusive
+     */
+    public int endEdge(int vertex) {
+        return offsets[vertex + 1];
+    }
+
+    /**
+     * Evaluates the given edge weight function over all edges. If the
+     * function is null, all edges are given weight of 1.
+     *
+     * @param weight edge weight function; may be null
+     * @return array of edge weights indexed by edge index
+     */
+    public double[] weights(EdgeWeight<V, E> weight) {
+        double[] weights = new double[edges.length];
+        if (weight == null) {
+            Arrays.fill(weights, 1.0);
+        } else {
+            for (int e = 0; e < edges.length; e++) {
+                weights[e] = weight.weight(edge(e));
+            }
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("vertexes", vertexes.length)
+                .add("edges", edges.length)
+                .toString();
+    }
+}
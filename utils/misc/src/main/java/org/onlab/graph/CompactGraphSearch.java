@@ -0,0 +1,653 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.onlab.graph.TarjanGraphSearch.SccResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+
+/**
+ * Graph searches over a {@link CompactGraph}, equivalent to
+ * {@link DijkstraGraphSearch}, {@link BreadthFirstSearch},
+ * {@link TarjanGraphSearch} and {@link SuurballeGraphSearch}, but operating
+ * on primitive arrays indexed by vertex and edge number. Edge weights are
+ * supplied as an array as produced by {@link CompactGraph#weights}; a null
+ * array gives all edges weight of 1. Negative weights exclude an edge, as
+ * they do for the object-based searches.
+ */
+public final class CompactGraphSearch {
+
+    // Same as the default sameness threshold of the graph path searches
+    private static final double SAMENESS = Double.MIN_VALUE;
+
+    private static final double UNREACHED = Double.POSITIVE_INFINITY;
+
+    // Prohibit instantiation
+    private CompactGraphSearch() {
+    }
+
+    /**
+     * Searches for the shortest paths from the source using Dijkstra's
+     * algorithm.
+     *
+     * @param graph    compact graph
+     * @param src      source vertex index
+     * @param dst      destination vertex index or -1 for all destinations
+     * @param weights  edge weights; may be null
+     * @param maxPaths maximum number of parents recorded per vertex, or
+     *                 {@link GraphPathSearch#ALL_PATHS}
+     * @param <V>      vertex type
+     * @param <E>      edge type
+     * @return search result
+     */
+    public static <V extends Vertex, E extends Edge<V>> CompactPathTree<V, E>
+    dijkstra(CompactGraph<V, E> graph, int src, int dst, double[] weights, int maxPaths) {
+        checkVertexes(graph, src, dst);
+        int n = graph.vertexCount();
+        Parents parents = new Parents(n, graph.edgeCount(), maxPaths);
+        double[] costs = unreached(n);
+        boolean[] settled = new boolean[n];
+        MinQueue queue = new MinQueue(costs);
+
+        costs[src] = 0.0;
+        queue.push(src);
+        while (!queue.isEmpty()) {
+            int nearest = queue.pop();
+            if (nearest == dst) {
+                break;
+            }
+            settled[nearest] = true;
+
+            double cost = costs[nearest];
+            for (int e = graph.firstEdge(nearest), end = graph.endEdge(nearest); e < end; e++) {
+                double weight = weight(weights, e);
+                if (weight < 0) {
+                    continue;
+                }
+                int v = graph.target(e);
+                double newCost = cost + weight;
+                if (Math.abs(newCost - costs[v]) <= SAMENESS) {
+                    parents.add(v, e);
+                } else if (newCost < costs[v]) {
+                    costs[v] = newCost;
+                    parents.replace(v, e);
+                    if (!settled[v]) {
+                        queue.push(v);
+                    }
+                }
+            }
+        }
+        return parents.build(graph, src, dst, costs);
+    }
+
+    /**
+     * Searches for the paths with the fewest hops from the source using
+     * breadth-first search; path costs are accrued using the edge weights.
+     *
+     * @param graph    compact graph
+     * @param src      source vertex index
+     * @param dst      destination vertex index or -1 for all destinations
+     * @param weights  edge weights; may be null
+     * @param maxPaths maximum number of paths, or {@link GraphPathSearch#ALL_PATHS}
+     * @param <V>      vertex type
+     * @param <E>      edge type
+     * @return search result
+     */
+    public static <V extends Vertex, E extends Edge<V>> CompactPathTree<V, E>
+    breadthFirst(CompactGraph<V, E> graph, int src, int dst, double[] weights, int maxPaths) {
+        checkVertexes(graph, src, dst);
+        int n = graph.vertexCount();
+        Parents parents = new Parents(n, graph.edgeCount(), maxPaths);
+        double[] costs = unreached(n);
+        int[] frontier = new int[n];
+        int[] next = new int[n];
+
+        costs[src] = 0.0;
+        frontier[0] = src;
+        int frontierSize = 1;
+        boolean reachedEnd = false;
+        while (!reachedEnd && frontierSize > 0) {
+            int nextSize = 0;
+            for (int i = 0; i < frontierSize && !reachedEnd; i++) {
+                int vertex = frontier[i];
+                for (int e = graph.firstEdge(vertex), end = graph.endEdge(vertex); e < end; e++) {
+                    int v = graph.target(e);
+                    if (costs[v] == UNREACHED) {
+                        costs[v] = costs[vertex] + weight(weights, e);
+                        parents.replace(v, e);
+                        if (v == dst) {
+                            reachedEnd = true;
+                            break;
+                        }
+                        next[nextSize++] = v;
+                    }
+                }
+            }
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+            frontierSize = nextSize;
+        }
+        return parents.build(graph, src, dst, costs);
+    }
+
+    /**
+     * Searches for the strongly connected components using Tarjan's
+     * algorithm, iteratively rather than recursively.
+     *
+     * @param graph   compact graph
+     * @param weights edge weights; may be null
+     * @param <V>     vertex type
+     * @param <E>     edge type
+     * @return search result, with clusters in the same order as produced by
+     * {@link TarjanGraphSearch}
+     */
+    public static <V extends Vertex, E extends Edge<V>> SccResult<V, E>
+    tarjan(CompactGraph<V, E> graph, double[] weights) {
+        int n = graph.vertexCount();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        int[] component = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] callVertex = new int[n];
+        int[] callEdge = new int[n];
+        Arrays.fill(index, -1);
+
+        List<Set<V>> clusterVertexes = new ArrayList<>();
+        int counter = 0;
+        int sp = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callVertex[0] = root;
+            callEdge[0] = graph.firstEdge(root);
+            index[root] = counter;
+            lowLink[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int vertex = callVertex[depth];
+                int e = callEdge[depth];
+                if (e < graph.endEdge(vertex)) {
+                    callEdge[depth] = e + 1;
+                    if (weights != null && weights[e] < 0) {
+                        continue;
+                    }
+                    int v = graph.target(e);
+                    if (index[v] < 0) {
+                        // Descend into the next vertex.
+                        index[v] = counter;
+                        lowLink[v] = counter++;
+                        stack[sp++] = v;
+                        onStack[v] = true;
+                        depth++;
+                        callVertex[depth] = v;
+                        callEdge[depth] = graph.firstEdge(v);
+                    } else if (onStack[v]) {
+                        lowLink[vertex] = Math.min(lowLink[vertex], index[v]);
+                    }
+                    continue;
+                }
+
+                // All egress edges scanned; emit the cluster if this is its root.
+                if (lowLink[vertex] == index[vertex]) {
+                    Set<V> vertexes = new HashSet<>();
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        component[w] = clusterVertexes.size();
+                        vertexes.add(graph.vertex(w));
+                    } while (w != vertex);
+                    clusterVertexes.add(Collections.unmodifiableSet(vertexes));
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callVertex[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+                }
+            }
+        }
+
+        List<Set<E>> edges = new ArrayList<>(clusterVertexes.size());
+        for (int i = 0; i < clusterVertexes.size(); i++) {
+            edges.add(new HashSet<>());
+        }
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            int c = component[graph.source(e)];
+            if (c == component[graph.target(e)]) {
+                edges.get(c).add(graph.edge(e));
+            }
+        }
+        List<Set<E>> clusterEdges = new ArrayList<>(edges.size());
+        edges.forEach(set -> clusterEdges.add(Collections.unmodifiableSet(set)));
+        return new SccResult<>(graph.graph(), clusterVertexes, clusterEdges);
+    }
+
+    /**
+     * Searches for the shortest pair of edge-disjoint paths between the
+     * source and destination using Suurballe's algorithm.
+     *
+     * @param graph   compact graph
+     * @param src     source vertex index
+     * @param dst     destination vertex index
+     * @param weights edge weights; may be null
+     * @param <V>     vertex type
+     * @param <E>     edge type
+     * @return disjoint path pair with the cheaper path as primary, or with
+     * no secondary path if there is no disjoint pair; null if the destination
+     * is unreachable
+     */
+    public static <V extends Vertex, E extends Edge<V>> DisjointPathPair<V, E>
+    suurballe(CompactGraph<V, E> graph, int src, int dst, double[] weights) {
+        checkVertexes(graph, src, dst);
+        checkArgument(dst >= 0, "Destination is required");
+
+        // Find the shortest path tree and pick one shortest path.
+        CompactPathTree<V, E> first = dijkstra(graph, src, -1, weights, 1);
+        if (src == dst || first.cost(dst) == UNREACHED) {
+            return null;
+        }
+        int[] primary = new int[graph.vertexCount()];
+        Arrays.fill(primary, -1);
+        for (int v = dst; v != src; v = graph.source(primary[v])) {
+            primary[v] = first.parent(v, 0);
+        }
+        Parents residual = residualSearch(graph, src, dst, weights, first, primary, 1);
+        int[] residualPath = new int[graph.vertexCount()];
+        int length = 0;
+        for (int v = dst; residual.count[v] > 0; v = residualSource(graph, residual.head[v])) {
+            residualPath[length++] = residual.head[v];
+        }
+        return pair(graph, src, dst, weights, primary, residualPath, length);
+    }
+
+    /**
+     * Searches for all shortest pairs of edge-disjoint paths between the
+     * source and destination, yielding the same pairs as
+     * {@link SuurballeGraphSearch}: Suurballe's algorithm is run from each
+     * shortest path using each shortest path of the residual graph. If no
+     * pair has a secondary path, a single pair holding one shortest path
+     * alone is yielded.
+     *
+     * @param graph   compact graph
+     * @param src     source vertex index
+     * @param dst     destination vertex index
+     * @param weights edge weights; may be null
+     * @param <V>     vertex type
+     * @param <E>     edge type
+     * @return disjoint path pairs; empty if the destination is unreachable
+     */
+    public static <V extends Vertex, E extends Edge<V>> Set<DisjointPathPair<V, E>>
+    suurballeAll(CompactGraph<V, E> graph, int src, int dst, double[] weights) {
+        checkVertexes(graph, src, dst);
+        checkArgument(dst >= 0, "Destination is required");
+
+        CompactPathTree<V, E> first = dijkstra(graph, src, -1, weights, ALL_PATHS);
+        if (src == dst || first.cost(dst) == UNREACHED) {
+            return Collections.emptySet();
+        }
+        Set<DisjointPathPair<V, E>> pairs = new LinkedHashSet<>();
+        DisjointPathPair<V, E> primaryOnly = null;
+        for (int[] primaryPath : pathsInto(graph, src, dst, first::parentCount, first::parent)) {
+            int[] primary = new int[graph.vertexCount()];
+            Arrays.fill(primary, -1);
+            for (int e : primaryPath) {
+                primary[graph.target(e)] = e;
+            }
+            Parents residual = residualSearch(graph, src, dst, weights, first, primary, ALL_PATHS);
+            if (residual.count[dst] == 0) {
+                if (primaryOnly == null) {
+                    primaryOnly = pair(graph, src, dst, weights, primary, new int[0], 0);
+                }
+                continue;
+            }
+            for (int[] residualPath : pathsInto(graph, src, dst, v -> residual.count[v], residual::get)) {
+                DisjointPathPair<V, E> pair =
+                        pair(graph, src, dst, weights, primary, residualPath, residualPath.length);
+                if (pair != null) {
+                    pairs.add(pair);
+                }
+            }
+        }
+        if (pairs.isEmpty() && primaryOnly != null) {
+            pairs.add(primaryOnly);
+        }
+        return pairs;
+    }
+
+    // Searches the residual graph of the primary path given by the edge into
+    // each of its vertexes; edges take on reduced costs, the path edges are
+    // reversed at no cost and edges into the source are dropped. Reversed
+    // edges are recorded as edgeCount + edge.
+    private static <V extends Vertex, E extends Edge<V>> Parents
+    residualSearch(CompactGraph<V, E> graph, int src, int dst, double[] weights,
+                   CompactPathTree<V, E> first, int[] primary, int maxPaths) {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        boolean[] onPath = new boolean[m];
+        for (int e : primary) {
+            if (e >= 0) {
+                onPath[e] = true;
+            }
+        }
+        Parents parents = new Parents(n, 2 * m, maxPaths);
+        double[] costs = unreached(n);
+        boolean[] settled = new boolean[n];
+        MinQueue queue = new MinQueue(costs);
+        costs[src] = 0.0;
+        queue.push(src);
+        while (!queue.isEmpty()) {
+            int u = queue.pop();
+            if (u == dst) {
+                break;
+            }
+            settled[u] = true;
+            for (int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+                double weight = weight(weights, e);
+                int v = graph.target(e);
+                if (weight < 0 || onPath[e] || v == src || first.cost(v) == UNREACHED) {
+                    continue;
+                }
+                double reduced = weight + first.cost(u) - first.cost(v);
+                relax(queue, costs, parents, settled, u, v, reduced, e);
+            }
+            int reverse = primary[u];
+            if (reverse >= 0 && graph.source(reverse) != src) {
+                relax(queue, costs, parents, settled, u, graph.source(reverse), 0.0, m + reverse);
+            }
+        }
+        return parents;
+    }
+
+    // Relaxes the residual edge into v; equal cost edges become additional
+    // parents unless v is already settled, which keeps the parents acyclic.
+    private static void relax(MinQueue queue, double[] costs, Parents parents, boolean[] settled,
+                              int u, int v, double weight, int edge) {
+        if (settled[v]) {
+            return;
+        }
+        double newCost = costs[u] + weight;
+        if (Math.abs(newCost - costs[v]) <= SAMENESS) {
+            parents.add(v, edge);
+        } else if (newCost < costs[v]) {
+            costs[v] = newCost;
+            parents.replace(v, edge);
+            queue.push(v);
+        }
+    }
+
+    // Returns the vertex a residual edge leaves from.
+    private static int residualSource(CompactGraph<?, ?> graph, int edge) {
+        int m = graph.edgeCount();
+        return edge < m ? graph.source(edge) : graph.target(edge - m);
+    }
+
+    // Combines the primary path with a residual path, given from the
+    // destination backwards, cancelling path edges traversed in reverse.
+    private static <V extends Vertex, E extends Edge<V>> DisjointPathPair<V, E>
+    pair(CompactGraph<V, E> graph, int src, int dst, double[] weights,
+         int[] primary, int[] residualPath, int length) {
+        int m = graph.edgeCount();
+        boolean[] used = new boolean[m];
+        for (int e : primary) {
+            if (e >= 0) {
+                used[e] = true;
+            }
+        }
+        if (length == 0) {
+            return new DisjointPathPair<>(extract(graph, src, dst, used, weights), null);
+        }
+        for (int i = 0; i < length; i++) {
+            int e = residualPath[i];
+            if (e < m) {
+                used[e] = true;
+            } else {
+                used[e - m] = false;
+            }
+        }
+        Path<V, E> one = extract(graph, src, dst, used, weights);
+        Path<V, E> two = extract(graph, src, dst, used, weights);
+        if (one == null || two == null) {
+            return null;
+        }
+        return one.cost() <= two.cost() ?
+                new DisjointPathPair<>(one, two) : new DisjointPathPair<>(two, one);
+    }
+
+    // Enumerates the paths from the source into the destination following
+    // the parent edges of each vertex; the edges of each path are listed
+    // from the destination backwards.
+    private static List<int[]> pathsInto(CompactGraph<?, ?> graph, int src, int dst,
+                                         IntUnaryOperator parentCount, IntBinaryOperator parent) {
+        int n = graph.vertexCount();
+        List<int[]> paths = new ArrayList<>();
+        int[] vertexes = new int[n];
+        int[] edges = new int[n];
+        int[] choice = new int[n];
+        boolean[] visited = new boolean[n];
+        int depth = 0;
+        vertexes[0] = dst;
+        visited[dst] = true;
+        while (depth >= 0) {
+            int vertex = vertexes[depth];
+            if (vertex == src) {
+                paths.add(Arrays.copyOf(edges, depth));
+            } else if (choice[depth] < parentCount.applyAsInt(vertex)) {
+                int e = parent.applyAsInt(vertex, choice[depth]++);
+                int next = residualSource(graph, e);
+                if (!visited[next]) {
+                    edges[depth++] = e;
+                    vertexes[depth] = next;
+                    choice[depth] = 0;
+                    visited[next] = true;
+                }
+                continue;
+            }
+            visited[vertex] = false;
+            depth--;
+        }
+        return paths;
+    }
+
+    // Follows and consumes used edges from the source to the destination.
+    private static <V extends Vertex, E extends Edge<V>> Path<V, E>
+    extract(CompactGraph<V, E> graph, int src, int dst, boolean[] used, double[] weights) {
+        List<E> edges = new ArrayList<>();
+        double cost = 0.0;
+        int vertex = src;
+        while (vertex != dst) {
+            int next = -1;
+            for (int e = graph.firstEdge(vertex), end = graph.endEdge(vertex); e < end; e++) {
+                if (used[e]) {
+                    next = e;
+                    break;
+                }
+            }
+            if (next < 0 || edges.size() == graph.edgeCount()) {
+                return null;
+            }
+            used[next] = false;
+            edges.add(graph.edge(next));
+            cost += weight(weights, next);
+            vertex = graph.target(next);
+        }
+        return new DefaultPath<>(edges, cost);
+    }
+
+    private static double weight(double[] weights, int edge) {
+        return weights == null ? 1.0 : weights[edge];
+    }
+
+    private static double[] unreached(int n) {
+        double[] costs = new double[n];
+        Arrays.fill(costs, UNREACHED);
+        return costs;
+    }
+
+    private static void checkVertexes(CompactGraph<?, ?> graph, int src, int dst) {
+        checkArgument(src >= 0 && src < graph.vertexCount(), "Source not in the graph");
+        checkArgument(dst < graph.vertexCount(), "Destination not in graph");
+    }
+
+    // Parent edges recorded during a search as per-vertex linked lists
+    // threaded through an array indexed by edge.
+    private static final class Parents {
+        private final int[] head;
+        private final int[] next;
+        private final int[] count;
+        private final int maxPaths;
+
+        private Parents(int vertexCount, int edgeCount, int maxPaths) {
+            this.head = new int[vertexCount];
+            this.next = new int[edgeCount];
+            this.count = new int[vertexCount];
+            this.maxPaths = maxPaths;
+            Arrays.fill(head, -1);
+        }
+
+        private void replace(int vertex, int edge) {
+            head[vertex] = edge;
+            next[edge] = -1;
+            count[vertex] = 1;
+        }
+
+        private int get(int vertex, int i) {
+            int edge = head[vertex];
+            for (int j = 0; j < i; j++) {
+                edge = next[edge];
+            }
+            return edge;
+        }
+
+        private void add(int vertex, int edge) {
+            if (maxPaths == ALL_PATHS || count[vertex] < maxPaths) {
+                next[edge] = head[vertex];
+                head[vertex] = edge;
+                count[vertex]++;
+            }
+        }
+
+        // Packs the lists into contiguous per-vertex ranges.
+        private <V extends Vertex, E extends Edge<V>> CompactPathTree<V, E>
+        build(CompactGraph<V, E> graph, int src, int dst, double[] costs) {
+            int n = head.length;
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] = offsets[v] + count[v];
+            }
+            int[] edges = new int[offsets[n]];
+            for (int v = 0; v < n; v++) {
+                int i = offsets[v];
+                for (int e = head[v]; e >= 0; e = next[e]) {
+                    edges[i++] = e;
+                }
+            }
+            return new CompactPathTree<>(graph, src, dst, maxPaths, costs, offsets, edges);
+        }
+    }
+
+    // Indexed binary min-heap of vertexes keyed by their current cost,
+    // supporting decrease-key by pushing a vertex again.
+    private static final class MinQueue {
+        private final double[] keys;
+        private final int[] heap;
+        private final int[] position;
+        private int size;
+
+        private MinQueue(double[] keys) {
+            this.keys = keys;
+            this.heap = new int[keys.length];
+            this.position = new int[keys.length];
+            Arrays.fill(position, -1);
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void push(int vertex) {
+            int i = position[vertex];
+            if (i < 0) {
+                i = size++;
+                heap[i] = vertex;
+                position[vertex] = i;
+            }
+            siftUp(i);
+        }
+
+        private int pop() {
+            int top = heap[0];
+            position[top] = -1;
+            int last = heap[--size];
+            if (size > 0) {
+                heap[0] = last;
+                position[last] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int vertex = heap[i];
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (keys[heap[p]] <= keys[vertex]) {
+                    break;
+                }
+                heap[i] = heap[p];
+                position[heap[i]] = i;
+                i = p;
+            }
+            heap[i] = vertex;
+            position[vertex] = i;
+        }
+
+        private void siftDown(int i) {
+            int vertex = heap[i];
+            int half = size >>> 1;
+            while (i < half) {
+                int c = 2 * i + 1;
+                if (c + 1 < size && keys[heap[c + 1]] < keys[heap[c]]) {
+                    c++;
+                }
+                if (keys[vertex] <= keys[heap[c]]) {
+                    break;
+                }
+                heap[i] = heap[c];
+                position[heap[i]] = i;
+                i = c;
+            }
+            heap[i] = vertex;
+            position[vertex] = i;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+
+/**
+ * Path search result over a {@link CompactGraph}. Costs and parent edges
+ * are held in primitive arrays indexed by vertex; {@link Path} objects and
+ * the map views required by {@link GraphPathSearch.Result} are only
+ * materialized when asked for.
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public final class CompactPathTree<V extends Vertex, E extends Edge<V>>
+        implements GraphPathSearch.Result<V, E> {
+
+    private final CompactGraph<V, E> graph;
+    private final int src;
+    private final int dst;
+    private final int maxPaths;
+
+    // Cost of reaching each vertex; infinite if unreachable
+    private final double[] costs;
+
+    // Parent edges of vertex v are parentEdges[parentOffsets[v]..parentOffsets[v + 1])
+    private final int[] parentOffsets;
+    private final int[] parentEdges;
+
+    private volatile Set<Path<V, E>> paths;
+
+    CompactPathTree(CompactGraph<V, E> graph, int src, int dst, int maxPaths,
+                    double[] costs, int[] parentOffsets, int[] parentEdges) {
+        this.graph = graph;
+        this.src = src;
+        this.dst = dst;
+        this.maxPaths = maxPaths;
+        this.costs = costs;
+        this.parentOffsets = parentOffsets;
+        this.parentEdges = parentEdges;
+    }
+
+    /**
+     * Returns the graph over which this result was computed.
+     *
+     * @return compact graph
+     */
+    public CompactGraph<V, E> graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the cost of reaching the specified vertex.
+     *
+     * @param vertex vertex index
+     * @return cost or {@link Double#POSITIVE_INFINITY} if unreachable
+     */
+    public double cost(int vertex) {
+        return costs[vertex];
+    }
+
+    /**
+     * Returns the number of parent edges of the specified vertex.
+     *
+     * @param vertex vertex index
+     * @return parent edge count
+     */
+    public int parentCount(int vertex) {
+        return parentOffsets[vertex + 1] - parentOffsets[vertex];
+    }
+
+    /**
+     * Returns the i-th parent edge of the specified vertex.
+     *
+     * @param vertex vertex index
+     * @param i      ordinal of the parent edge
+     * @return parent edge index
+     */
+    public int parent(int vertex, int i) {
+        return parentEdges[parentOffsets[vertex] + i];
+    }
+
+    /**
+     * Indicates whether the specified edge is a parent edge of its
+     * destination vertex.
+     *
+     * @param edge edge index
+     * @return true if the edge lies on a shortest path
+     */
+    public boolean isParent(int edge) {
+        int vertex = graph.target(edge);
+        for (int i = parentOffsets[vertex]; i < parentOffsets[vertex + 1]; i++) {
+            if (parentEdges[i] == edge) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V src() {
+        return graph.vertex(src);
+    }
+
+    @Override
+    public V dst() {
+        return dst < 0 ? null : graph.vertex(dst);
+    }
+
+    @Override
+    public Set<Path<V, E>> paths() {
+        Set<Path<V, E>> result = paths;
+        if (result == null) {
+            Set<Path<V, E>> builder = new HashSet<>();
+            if (dst >= 0) {
+                collect(dst, builder, maxPaths);
+            } else {
+                for (int v = 0; v < costs.length; v++) {
+                    if (v != src) {
+                        collect(v, builder, maxPaths);
+                    }
+                }
+            }
+            paths = builder;
+            result = builder;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the shortest paths from the source to the specified vertex.
+     *
+     * @param vertex destination vertex index
+     * @return set of shortest paths
+     */
+    public Set<Path<V, E>> paths(int vertex) {
+        if (vertex == src || costs[vertex] == Double.POSITIVE_INFINITY) {
+            return ImmutableSet.of();
+        }
+        Set<Path<V, E>> result = new HashSet<>();
+        collect(vertex, result, maxPaths);
+        return result;
+    }
+
+    @Override
+    public Map<V, Double> costs() {
+        ImmutableMap.Builder<V, Double> builder = ImmutableMap.builder();
+        for (int v = 0; v < costs.length; v++) {
+            if (costs[v] != Double.POSITIVE_INFINITY) {
+                builder.put(graph.vertex(v), costs[v]);
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<V, Set<E>> parents() {
+        ImmutableMap.Builder<V, Set<E>> builder = ImmutableMap.builder();
+        for (int v = 0; v < costs.length; v++) {
+            if (parentCount(v) > 0) {
+                ImmutableSet.Builder<E> edges = ImmutableSet.builder();
+                for (int i = parentOffsets[v]; i < parentOffsets[v + 1]; i++) {
+                    edges.add(graph.edge(parentEdges[i]));
+                }
+                builder.put(graph.vertex(v), edges.build());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns an equivalent result over another index of a graph, typically
+     * that of the next version of the graph. All reachable vertexes and parent
+     * edges must be present in the other graph.
+     *
+     * @param other other compact graph
+     * @return equivalent result or null if it cannot be mapped onto the graph
+     */
+    public CompactPathTree<V, E> rebase(CompactGraph<V, E> other) {
+        int newSrc = other.index(graph.vertex(src));
+        int newDst = dst < 0 ? -1 : other.index(graph.vertex(dst));
+        if (newSrc < 0 || (dst >= 0 && newDst < 0)) {
+            return null;
+        }
+
+        int n = other.vertexCount();
+        double[] newCosts = new double[n];
+        Arrays.fill(newCosts, Double.POSITIVE_INFINITY);
+        int[] newCounts = new int[n];
+        int[] vertexMap = new int[costs.length];
+        for (int v = 0; v < costs.length; v++) {
+            vertexMap[v] = -1;
+            if (costs[v] != Double.POSITIVE_INFINITY) {
+                int nv = other.index(graph.vertex(v));
+                if (nv < 0) {
+                    return null;
+                }
+                vertexMap[v] = nv;
+                newCosts[nv] = costs[v];
+                newCounts[nv] = parentCount(v);
+            }
+        }
+
+        int[] newOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            newOffsets[v + 1] = newOffsets[v] + newCounts[v];
+        }
+        int[] newParents = new int[newOffsets[n]];
+        for (int v = 0; v < costs.length; v++) {
+            int nv = vertexMap[v];
+            if (nv < 0) {
+                continue;
+            }
+            int at = newOffsets[nv];
+            for (int i = parentOffsets[v]; i < parentOffsets[v + 1]; i++) {
+                int ne = other.edgeIndex(graph.edge(parentEdges[i]));
+                if (ne < 0) {
+                    return null;
+                }
+                newParents[at++] = ne;
+            }
+        }
+        return new CompactPathTree<>(other, newSrc, newDst, maxPaths,
+                                     newCosts, newOffsets, newParents);
+    }
+
+    // Walks the parent edges back from the given vertex to the source,
+    // adding the resulting paths until the limit is reached.
+    private void collect(int vertex, Set<Path<V, E>> result, int limit) {
+        if (vertex == src || costs[vertex] == Double.POSITIVE_INFINITY ||
+                (limit != ALL_PATHS && result.size() >= limit)) {
+            return;
+        }
+        collect(vertex, new LinkedList<>(), costs[vertex], result, limit);
+    }
+
+    private boolean collect(int vertex, LinkedList<E> edges, double cost,
+                            Set<Path<V, E>> result, int limit) {
+        if (vertex == src) {
+            List<E> path = new ArrayList<>(edges);
+            result.add(new DefaultPath<>(path, cost));
+            return limit == ALL_PATHS || result.size() < limit;
+        }
+        for (int i = parentOffsets[vertex]; i < parentOffsets[vertex + 1]; i++) {
+            int e = parentEdges[i];
+            edges.addFirst(graph.edge(e));
+            boolean more = collect(graph.source(e), edges, cost, result, limit);
+            edges.removeFirst();
+            if (!more) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -114,6 +114,15 @@ public class TarjanGraphSearch<V extends Vertex, E extends Edge<V>>
             this.graph = graph;
         }
 
+        // Creates a result from clusters computed elsewhere
+        SccResult(Graph<V, E> graph, List<Set<V>> clusterVertexes,
+                  List<Set<E>> clusterEdges) {
+            this.graph = graph;
+            this.clusterVertexes = clusterVertexes;
+            this.clusterEdges = clusterEdges;
+            build();
+        }
+
         /**
          * Returns the number of SCC clusters in the graph.
          *
@@ -70,6 +70,12 @@ public class ONOSLLDP extends LLDP {
 
     private final byte[] ttlValue = new byte[] {0, 0x78};
 
+    // Constants used to recognize probes directly on the raw frame
+    private static final int ETHERNET_HEADER_LENGTH = 14;
+    private static final int VLAN_HEADER_LENGTH = 4;
+    private static final int TLV_HEADER_LENGTH = 2;
+    private static final byte[] DEFAULT_NAME_BYTES = DEFAULT_NAME.getBytes(StandardCharsets.UTF_8);
+
     // Only needs to be accessed from LinkProbeFactory.
     public ONOSLLDP(byte ... subtype) {
         super();
@@ -218,6 +224,71 @@ public class ONOSLLDP extends LLDP {
         return portBB.getInt();
     }
 
+    /**
+     * Given a raw ethernet frame, determines if this is an LLDP or BDDP
+     * probe from ONOS, without deserializing the frame. The check walks the
+     * LLDP TLVs in place looking for the ONOS name TLV, which is the same
+     * criterion {@link #parseONOSLLDP(Ethernet)} applies to a parsed frame.
+     *
+     * @param frame raw ethernet frame; the buffer position is not changed
+     * @return true if the frame is an ONOS link probe
+     */
+    public static boolean isOnosProbe(ByteBuffer frame) {
+        int at = frame.position();
+        int end = frame.limit();
+        if (end - at < ETHERNET_HEADER_LENGTH) {
+            return false;
+        }
+        short etherType = frame.getShort(at + ETHERNET_HEADER_LENGTH - 2);
+        at += ETHERNET_HEADER_LENGTH;
+        if (etherType == Ethernet.TYPE_VLAN) {
+            if (end - at < VLAN_HEADER_LENGTH) {
+                return false;
+            }
+            etherType = frame.getShort(at + 2);
+            at += VLAN_HEADER_LENGTH;
+        }
+        if (etherType != Ethernet.TYPE_LLDP && etherType != Ethernet.TYPE_BSN) {
+            return false;
+        }
+
+        while (at + TLV_HEADER_LENGTH <= end) {
+            int typeLength = frame.getShort(at) & 0xffff;
+            int type = typeLength >>> 9;
+            int length = typeLength & 0x1ff;
+            at += TLV_HEADER_LENGTH;
+            if (type == 0 || at + length > end) {
+                return false;
+            }
+            if (type == LLDPOrganizationalTLV.ORGANIZATIONAL_TLV_TYPE && isNameTlv(frame, at, length)) {
+                return true;
+            }
+            at += length;
+        }
+        return false;
+    }
+
+    // Checks whether the value at the given offset is the ONOS name TLV.
+    private static boolean isNameTlv(ByteBuffer frame, int at, int length) {
+        if (length != NAME_LENGTH + DEFAULT_NAME_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < OUI_LENGTH; i++) {
+            if (frame.get(at + i) != ONLAB_OUI[i]) {
+                return false;
+            }
+        }
+        if (frame.get(at + OUI_LENGTH) != NAME_SUBTYPE) {
+            return false;
+        }
+        for (int i = 0; i < DEFAULT_NAME_BYTES.length; i++) {
+            if (frame.get(at + NAME_LENGTH + i) != DEFAULT_NAME_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Given an ethernet packet, determines if this is an LLDP from
      * ONOS and returns the device the LLDP came from.
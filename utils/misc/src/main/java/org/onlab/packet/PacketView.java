@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read-only view of a raw Ethernet frame that decodes header fields on
+ * first access, directly from the underlying bytes, and caches them. The
+ * fully parsed {@link Ethernet} tree is only built if asked for and is then
+ * shared by all users of the view.
+ * <p>
+ * Header accessors follow the same rules as the {@link Ethernet} deserializer:
+ * a single 802.1Q tag is skipped and IPv6 extension headers are not.
+ * </p>
+ * <p>
+ * A view may also be created over an already parsed frame, in which case the
+ * header fields are taken from the parsed packets.
+ * </p>
+ */
+public final class PacketView {
+
+    private static final int ETHERNET_HEADER_LENGTH = 14;
+    private static final int VLAN_HEADER_LENGTH = 4;
+    private static final int MAC_LENGTH = 6;
+    private static final int IPV4_MIN_HEADER_LENGTH = 20;
+    private static final int IPV6_HEADER_LENGTH = 40;
+    private static final int TRANSPORT_PORTS_LENGTH = 4;
+
+    private static final short UNDECODABLE = -1;
+    private static final int UNDECODED = Integer.MIN_VALUE;
+
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    // Lazily decoded fields; the plain fields are written ahead of the
+    // volatile fields which publish them.
+    private int networkOffset;
+    private short vlanId;
+    private volatile int etherType = UNDECODED;
+    private int sourcePort;
+    private int destinationPort;
+    private volatile int ipProtocol = UNDECODED;
+
+    private volatile MacAddress destinationMac;
+    private volatile MacAddress sourceMac;
+    private volatile Ethernet ethernet;
+    private volatile boolean parsed;
+
+    private PacketView(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private PacketView(Ethernet ethernet) {
+        this.data = null;
+        this.offset = 0;
+        this.length = -1;
+        this.ethernet = ethernet;
+        this.parsed = true;
+    }
+
+    /**
+     * Creates a view of the frame held in the given byte array range. The
+     * array is not copied and must not be modified afterwards.
+     *
+     * @param data   frame bytes
+     * @param offset offset of the frame
+     * @param length length of the frame
+     * @return packet view
+     */
+    public static PacketView wrap(byte[] data, int offset, int length) {
+        checkNotNull(data, "Data cannot be null");
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IllegalArgumentException("Invalid frame bounds");
+        }
+        return new PacketView(data, offset, length);
+    }
+
+    /**
+     * Creates a view of the frame held in the given byte array. The array
+     * is not copied and must not be modified afterwards.
+     *
+     * @param data frame bytes
+     * @return packet view
+     */
+    public static PacketView wrap(byte[] data) {
+        return wrap(data, 0, data.length);
+    }
+
+    /**
+     * Creates a view of the remaining bytes of the given buffer. The backing
+     * array is used directly when accessible; the buffer position is not
+     * changed.
+     *
+     * @param buffer frame bytes
+     * @return packet view
+     */
+    public static PacketView wrap(ByteBuffer buffer) {
+        checkNotNull(buffer, "Buffer cannot be null");
+        if (buffer.hasArray()) {
+            return new PacketView(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                  buffer.remaining());
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return new PacketView(data, 0, data.length);
+    }
+
+    /**
+     * Creates a view of an already parsed frame.
+     *
+     * @param ethernet parsed Ethernet frame
+     * @return packet view
+     */
+    public static PacketView of(Ethernet ethernet) {
+        return new PacketView(checkNotNull(ethernet, "Ethernet cannot be null"));
+    }
+
+    /**
+     * Returns the destination MAC address.
+     *
+     * @return destination MAC address; null if the frame is too short
+     */
+    public MacAddress destinationMac() {
+        if (data == null) {
+            return ethernet.getDestinationMAC();
+        }
+        MacAddress mac = destinationMac;
+        if (mac == null && length >= ETHERNET_HEADER_LENGTH) {
+            mac = mac(offset);
+            destinationMac = mac;
+        }
+        return mac;
+    }
+
+    /**
+     * Returns the source MAC address.
+     *
+     * @return source MAC address; null if the frame is too short
+     */
+    public MacAddress sourceMac() {
+        if (data == null) {
+            return ethernet.getSourceMAC();
+        }
+        MacAddress mac = sourceMac;
+        if (mac == null && length >= ETHERNET_HEADER_LENGTH) {
+            mac = mac(offset + MAC_LENGTH);
+            sourceMac = mac;
+        }
+        return mac;
+    }
+
+    /**
+     * Returns the Ethernet type of the frame payload, past any VLAN tag.
+     *
+     * @return Ethernet type; -1 if the frame is too short
+     */
+    public short etherType() {
+        decodeLink();
+        return (short) etherType;
+    }
+
+    /**
+     * Returns the VLAN identifier of the frame.
+     *
+     * @return VLAN identifier or {@link Ethernet#VLAN_UNTAGGED}
+     */
+    public short vlanId() {
+        decodeLink();
+        return vlanId;
+    }
+
+    /**
+     * Returns the protocol of the IPv4 payload or the next header of the
+     * IPv6 payload carried by the frame.
+     *
+     * @return IP protocol number; -1 if not an IP packet or too short
+     */
+    public int ipProtocol() {
+        decodeNetwork();
+        return ipProtocol;
+    }
+
+    /**
+     * Returns the source port of the TCP or UDP segment carried by the frame.
+     *
+     * @return source port; -1 if not a TCP or UDP segment or too short
+     */
+    public int sourcePort() {
+        decodeNetwork();
+        return sourcePort;
+    }
+
+    /**
+     * Returns the destination port of the TCP or UDP segment carried by the
+     * frame.
+     *
+     * @return destination port; -1 if not a TCP or UDP segment or too short
+     */
+    public int destinationPort() {
+        decodeNetwork();
+        return destinationPort;
+    }
+
+    /**
+     * Returns the fully parsed frame. The frame is parsed on first access
+     * only and the same instance is returned thereafter.
+     *
+     * @return parsed Ethernet frame; null if the frame cannot be parsed
+     */
+    public Ethernet ethernet() {
+        if (!parsed) {
+            synchronized (this) {
+                if (!parsed) {
+                    try {
+                        ethernet = Ethernet.deserializer().deserialize(data, offset, length);
+                    } catch (DeserializationException | RuntimeException e) {
+                        ethernet = null;
+                    }
+                    parsed = true;
+                }
+            }
+        }
+        return ethernet;
+    }
+
+    /**
+     * Returns a copy of the frame bytes.
+     *
+     * @return frame bytes
+     */
+    public byte[] toByteArray() {
+        return data != null ? Arrays.copyOfRange(data, offset, offset + length) : ethernet.serialize();
+    }
+
+    private MacAddress mac(int at) {
+        return MacAddress.valueOf(Arrays.copyOfRange(data, at, at + MAC_LENGTH));
+    }
+
+    private int unsignedShort(int at) {
+        return ((data[at] & 0xff) << 8) | (data[at + 1] & 0xff);
+    }
+
+    private void decodeLink() {
+        if (etherType != UNDECODED) {
+            return;
+        }
+        if (data == null) {
+            vlanId = ethernet.getVlanID();
+            etherType = ethernet.getEtherType();
+            return;
+        }
+        if (length < ETHERNET_HEADER_LENGTH) {
+            vlanId = Ethernet.VLAN_UNTAGGED;
+            etherType = UNDECODABLE;
+            return;
+        }
+        int at = offset + 2 * MAC_LENGTH;
+        short type = (short) unsignedShort(at);
+        short vlan = Ethernet.VLAN_UNTAGGED;
+        at += 2;
+        if (type == Ethernet.TYPE_VLAN) {
+            if (length < ETHERNET_HEADER_LENGTH + VLAN_HEADER_LENGTH) {
+                vlanId = Ethernet.VLAN_UNTAGGED;
+                etherType = UNDECODABLE;
+                return;
+            }
+            vlan = (short) (unsignedShort(at) & 0x0fff);
+            type = (short) unsignedShort(at + 2);
+            at += VLAN_HEADER_LENGTH;
+        }
+        networkOffset = at;
+        vlanId = vlan;
+        etherType = type;
+    }
+
+    private void decodeNetwork() {
+        if (ipProtocol != UNDECODED) {
+            return;
+        }
+        short type = etherType();
+        sourcePort = UNDECODABLE;
+        destinationPort = UNDECODABLE;
+        if (data == null) {
+            decodeNetwork(ethernet.getPayload());
+            return;
+        }
+
+        int end = offset + length;
+        int at = networkOffset;
+        int transportOffset;
+        int protocol;
+        if (type == Ethernet.TYPE_IPV4 && at + IPV4_MIN_HEADER_LENGTH <= end) {
+            transportOffset = at + (data[at] & 0x0f) * 4;
+            protocol = data[at + 9] & 0xff;
+        } else if (type == Ethernet.TYPE_IPV6 && at + IPV6_HEADER_LENGTH <= end) {
+            transportOffset = at + IPV6_HEADER_LENGTH;
+            protocol = data[at + 6] & 0xff;
+        } else {
+            ipProtocol = UNDECODABLE;
+            return;
+        }
+        if (isTcpOrUdp(protocol) && transportOffset + TRANSPORT_PORTS_LENGTH <= end) {
+            sourcePort = unsignedShort(transportOffset);
+            destinationPort = unsignedShort(transportOffset + 2);
+        }
+        ipProtocol = protocol;
+    }
+
+    // Decodes the network fields from an already parsed packet.
+    private void decodeNetwork(IPacket payload) {
+        int protocol;
+        if (payload instanceof IPv4) {
+            protocol = ((IPv4) payload).getProtocol() & 0xff;
+        } else if (payload instanceof IPv6) {
+            protocol = ((IPv6) payload).getNextHeader() & 0xff;
+        } else {
+            ipProtocol = UNDECODABLE;
+            return;
+        }
+        IPacket transport = payload.getPayload();
+        if (transport instanceof TCP) {
+            sourcePort = ((TCP) transport).getSourcePort();
+            destinationPort = ((TCP) transport).getDestinationPort();
+        } else if (transport instanceof UDP) {
+            sourcePort = ((UDP) transport).getSourcePort();
+            destinationPort = ((UDP) transport).getDestinationPort();
+        }
+        ipProtocol = protocol;
+    }
+
+    private static boolean isTcpOrUdp(int protocol) {
+        return protocol == (IPv4.PROTOCOL_TCP & 0xff) || protocol == (IPv4.PROTOCOL_UDP & 0xff);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("length", data != null ? length : null)
+                .add("etherType", String.format("0x%04x", etherType() & 0xffff))
+                .toString();
+    }
+}
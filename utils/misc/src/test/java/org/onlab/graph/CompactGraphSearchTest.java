@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+import static org.onlab.graph.TarjanGraphSearch.SccResult;
+
+/**
+ * Tests of the graph searches over the compact graph index, verified
+ * against the object-based searches.
+ */
+public class CompactGraphSearchTest extends GraphTest {
+
+    private CompactGraph<TestVertex, TestEdge> index(Graph<TestVertex, TestEdge> graph) {
+        return new CompactGraph<>(graph);
+    }
+
+    @Test
+    public void basics() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        assertEquals("incorrect vertex count", 8, g.vertexCount());
+        assertEquals("incorrect edge count", 12, g.edgeCount());
+        assertEquals("incorrect vertex", A, g.vertex(g.index(A)));
+        assertEquals("incorrect index", -1, g.index(Z));
+
+        int b = g.index(B);
+        assertEquals("incorrect egress count", 3, g.endEdge(b) - g.firstEdge(b));
+        for (int e = g.firstEdge(b); e < g.endEdge(b); e++) {
+            assertEquals("incorrect source", b, g.source(e));
+            assertEquals("incorrect target", g.edge(e).dst(), g.vertex(g.target(e)));
+            assertEquals("incorrect edge index", e, g.edgeIndex(g.edge(e)));
+        }
+    }
+
+    @Test
+    public void dijkstra() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        double[] weights = g.weights(weight);
+        DijkstraGraphSearch<TestVertex, TestEdge> search = new DijkstraGraphSearch<>();
+        for (TestVertex src : vertexes()) {
+            GraphPathSearch.Result<TestVertex, TestEdge> expected =
+                    search.search(graph, src, null, weight, ALL_PATHS);
+            CompactPathTree<TestVertex, TestEdge> result =
+                    CompactGraphSearch.dijkstra(g, g.index(src), -1, weights, ALL_PATHS);
+            assertEquals("incorrect costs", expected.costs(), result.costs());
+            assertEquals("incorrect paths", expected.paths(), result.paths());
+        }
+
+        CompactPathTree<TestVertex, TestEdge> result =
+                CompactGraphSearch.dijkstra(g, g.index(A), g.index(E), weights, ALL_PATHS);
+        assertEquals("incorrect paths count", 1, result.paths().size());
+        assertEquals("incorrect path cost", 3.0, result.cost(g.index(E)), 0.01);
+    }
+
+    @Test
+    public void dijkstraMaxPaths() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        CompactPathTree<TestVertex, TestEdge> result =
+                CompactGraphSearch.dijkstra(g, g.index(A), g.index(E), null, ALL_PATHS);
+        assertEquals("incorrect paths count", 2, result.paths().size());
+        assertEquals("incorrect parent count", 2, result.parentCount(g.index(E)));
+
+        result = CompactGraphSearch.dijkstra(g, g.index(A), g.index(E), null, 1);
+        assertEquals("incorrect paths count", 1, result.paths().size());
+        assertEquals("incorrect parent count", 1, result.parentCount(g.index(E)));
+    }
+
+    @Test
+    public void dijkstraIgnoredEdges() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C),
+                                          of(new TestEdge(A, B, -1),
+                                             new TestEdge(A, C, 1),
+                                             new TestEdge(C, B, 1)));
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        CompactPathTree<TestVertex, TestEdge> result =
+                CompactGraphSearch.dijkstra(g, g.index(A), g.index(B), g.weights(weight), ALL_PATHS);
+        assertEquals("incorrect path cost", 2.0, result.cost(g.index(B)), 0.01);
+        assertEquals("incorrect paths count", 1, result.paths().size());
+    }
+
+    @Test
+    public void breadthFirst() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        BreadthFirstSearch<TestVertex, TestEdge> search = new BreadthFirstSearch<>();
+        GraphPathSearch.Result<TestVertex, TestEdge> expected =
+                search.search(graph, A, null, null, ALL_PATHS);
+        CompactPathTree<TestVertex, TestEdge> result =
+                CompactGraphSearch.breadthFirst(g, g.index(A), -1, null, ALL_PATHS);
+        assertEquals("incorrect costs", expected.costs(), result.costs());
+        assertEquals("incorrect paths count", expected.paths().size(), result.paths().size());
+        assertEquals("incorrect paths count", 1, result.paths(g.index(H)).size());
+        assertEquals("incorrect path cost", 3.0, result.cost(g.index(H)), 0.01);
+    }
+
+    @Test
+    public void tarjan() {
+        graph = new AdjacencyListsGraph<>(vertexes(),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(C, D, 1),
+                                             new TestEdge(D, A, 1),
+                                             new TestEdge(E, F, 1),
+                                             new TestEdge(F, G, 1),
+                                             new TestEdge(G, H, 1),
+                                             new TestEdge(H, E, 1),
+                                             new TestEdge(B, E, -1),
+                                             new TestEdge(E, B, -1)));
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        SccResult<TestVertex, TestEdge> expected = new TarjanGraphSearch<TestVertex, TestEdge>()
+                .search(graph, weight);
+        SccResult<TestVertex, TestEdge> result = CompactGraphSearch.tarjan(g, g.weights(weight));
+        assertEquals("incorrect cluster count", 2, result.clusterCount());
+        assertEquals("incorrect cluster vertexes", expected.clusterVertexes(), result.clusterVertexes());
+        assertEquals("incorrect cluster edges", expected.clusterEdges(), result.clusterEdges());
+
+        result = CompactGraphSearch.tarjan(g, null);
+        assertEquals("incorrect cluster count", 1, result.clusterCount());
+        assertEquals("incorrect edge count", 10, result.clusterEdges().get(0).size());
+    }
+
+    @Test
+    public void tarjanBasic() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        SccResult<TestVertex, TestEdge> expected = new TarjanGraphSearch<TestVertex, TestEdge>()
+                .search(graph, null);
+        SccResult<TestVertex, TestEdge> result = CompactGraphSearch.tarjan(g, null);
+        assertEquals("incorrect cluster count", 6, result.clusterCount());
+        assertEquals("incorrect cluster vertexes", expected.clusterVertexes(), result.clusterVertexes());
+        assertEquals("incorrect cluster edges", expected.clusterEdges(), result.clusterEdges());
+    }
+
+    @Test
+    public void suurballe() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C, D, E),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(A, D, 1),
+                                             new TestEdge(D, C, 1),
+                                             new TestEdge(B, E, 2),
+                                             new TestEdge(C, E, 1)));
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        DisjointPathPair<TestVertex, TestEdge> pair =
+                CompactGraphSearch.suurballe(g, g.index(A), g.index(E), g.weights(weight));
+        assertTrue("missing backup", pair.hasBackup());
+        assertEquals("incorrect pair cost", 6.0, pair.cost(), 0.01);
+        assertEquals("incorrect primary cost", 3.0, pair.primary().cost(), 0.01);
+        for (TestEdge edge : pair.primary().edges()) {
+            assertFalse("paths not disjoint", pair.secondary().edges().contains(edge));
+        }
+    }
+
+    @Test
+    public void suurballeTrap() {
+        // The shortest path A-B-C-D blocks any disjoint pair that uses it;
+        // the search has to reroute around the B-C edge.
+        graph = new AdjacencyListsGraph<>(of(A, B, C, D, E, F),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(C, D, 1),
+                                             new TestEdge(A, E, 2),
+                                             new TestEdge(E, C, 2),
+                                             new TestEdge(B, F, 2),
+                                             new TestEdge(F, D, 2)));
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        DisjointPathPair<TestVertex, TestEdge> pair =
+                CompactGraphSearch.suurballe(g, g.index(A), g.index(D), g.weights(weight));
+        assertTrue("missing backup", pair.hasBackup());
+        assertEquals("incorrect pair cost", 10.0, pair.cost(), 0.01);
+        assertFalse("cancelled edge used", pair.primary().edges().contains(new TestEdge(B, C, 1)));
+        assertFalse("cancelled edge used", pair.secondary().edges().contains(new TestEdge(B, C, 1)));
+    }
+
+    @Test
+    public void suurballeOnePath() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C, D),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(A, C, 4),
+                                             new TestEdge(C, D, 1)));
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        DisjointPathPair<TestVertex, TestEdge> pair =
+                CompactGraphSearch.suurballe(g, g.index(A), g.index(D), g.weights(weight));
+        assertFalse("unexpected backup", pair.hasBackup());
+        assertEquals("incorrect path cost", 3.0, pair.cost(), 0.01);
+
+        assertNull("unexpected pair",
+                   CompactGraphSearch.suurballe(g, g.index(D), g.index(A), g.weights(weight)));
+    }
+
+    @Test
+    public void suurballeAll() {
+        // Three two-hop routes from A to E yield three distinct pairs, as
+        // with the object-based search.
+        graph = new AdjacencyListsGraph<>(of(A, B, C, D, E),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(A, C, 1),
+                                             new TestEdge(A, D, 1),
+                                             new TestEdge(B, E, 1),
+                                             new TestEdge(C, E, 1),
+                                             new TestEdge(D, E, 1)));
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        Set<DisjointPathPair<TestVertex, TestEdge>> pairs =
+                CompactGraphSearch.suurballeAll(g, g.index(A), g.index(E), g.weights(weight));
+        Set<Path<TestVertex, TestEdge>> expected =
+                new SuurballeGraphSearch<TestVertex, TestEdge>().search(graph, A, E, weight, ALL_PATHS).paths();
+        assertEquals("incorrect pair count", 3, pairs.size());
+        assertEquals("incorrect pairs", expected, pairs);
+    }
+
+    @Test
+    public void suurballeAllOnePath() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C, D),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(A, C, 4),
+                                             new TestEdge(C, D, 1)));
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        Set<DisjointPathPair<TestVertex, TestEdge>> pairs =
+                CompactGraphSearch.suurballeAll(g, g.index(A), g.index(D), g.weights(weight));
+        assertEquals("incorrect pair count", 1, pairs.size());
+        DisjointPathPair<TestVertex, TestEdge> pair = pairs.iterator().next();
+        assertFalse("unexpected backup", pair.hasBackup());
+        assertEquals("incorrect path cost", 3.0, pair.cost(), 0.01);
+
+        assertTrue("unexpected pairs",
+                   CompactGraphSearch.suurballeAll(g, g.index(D), g.index(A), g.weights(weight)).isEmpty());
+    }
+
+    @Test
+    public void rebase() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> g = index(graph);
+        CompactPathTree<TestVertex, TestEdge> tree =
+                CompactGraphSearch.dijkstra(g, g.index(A), -1, g.weights(weight), ALL_PATHS);
+
+        // Additional vertex and edge shift the indexes.
+        CompactGraph<TestVertex, TestEdge> other = index(
+                new AdjacencyListsGraph<>(of(Z, A, B, C, D, E, F, G, H),
+                                          of(new TestEdge(Z, A, 1), new TestEdge(A, B, 1), new TestEdge(A, C, 3),
+                                             new TestEdge(B, D, 2), new TestEdge(B, C, 1),
+                                             new TestEdge(B, E, 4), new TestEdge(C, E, 1),
+                                             new TestEdge(D, H, 5), new TestEdge(D, E, 1),
+                                             new TestEdge(E, F, 1), new TestEdge(F, D, 1),
+                                             new TestEdge(F, G, 1), new TestEdge(F, H, 1))));
+        CompactPathTree<TestVertex, TestEdge> rebased = tree.rebase(other);
+        assertEquals("incorrect costs", tree.costs(), rebased.costs());
+        assertEquals("incorrect paths", tree.paths(), rebased.paths());
+        assertEquals("incorrect paths", tree.paths(g.index(H)), rebased.paths(other.index(H)));
+
+        // Missing parent edge prevents the rebase.
+        CompactGraph<TestVertex, TestEdge> partial = index(
+                new AdjacencyListsGraph<>(vertexes(), of(new TestEdge(A, B, 1))));
+        assertNull("unexpected rebase", tree.rebase(partial));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ONOSLLDP class.
+ */
+public class ONOSLLDPTest {
+
+    private static final ChassisId CHASSIS_ID = new ChassisId(0x1234L);
+
+    private static Ethernet frame(short etherType, IPacket payload) {
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(etherType);
+        eth.setDestinationMACAddress(ONOSLLDP.LLDP_NICIRA);
+        eth.setSourceMACAddress("DE:AD:BE:EF:BA:11");
+        eth.setPad(true);
+        eth.setPayload(payload);
+        return eth;
+    }
+
+    private static ONOSLLDP probe() {
+        return ONOSLLDP.onosLLDP("of:0000000000000001", CHASSIS_ID, 1);
+    }
+
+    /**
+     * Tests that ONOS probes are recognized on the raw frame.
+     */
+    @Test
+    public void probes() {
+        assertTrue(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(frame(Ethernet.TYPE_LLDP, probe()).serialize())));
+        assertTrue(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(frame(Ethernet.TYPE_BSN, probe()).serialize())));
+
+        ONOSLLDP fingerprinted = ONOSLLDP.fingerprintedLLDP("of:0000000000000001", CHASSIS_ID, 1, "domain");
+        assertTrue(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(frame(Ethernet.TYPE_LLDP, fingerprinted).serialize())));
+
+        Ethernet tagged = frame(Ethernet.TYPE_LLDP, probe());
+        tagged.setVlanID((short) 10);
+        assertTrue(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(tagged.serialize())));
+    }
+
+    /**
+     * Tests that the buffer position is honored and left unchanged.
+     */
+    @Test
+    public void bufferPosition() {
+        byte[] data = frame(Ethernet.TYPE_LLDP, probe()).serialize();
+        byte[] shifted = new byte[data.length + 3];
+        System.arraycopy(data, 0, shifted, 3, data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(shifted);
+        buffer.position(3);
+
+        assertTrue(ONOSLLDP.isOnosProbe(buffer));
+        assertEquals(3, buffer.position());
+    }
+
+    /**
+     * Tests that other frames are rejected.
+     */
+    @Test
+    public void notProbes() {
+        // an LLDP frame from another speaker
+        ONOSLLDP other = probe();
+        other.setName("Other Discovery");
+        assertFalse(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(frame(Ethernet.TYPE_LLDP, other).serialize())));
+
+        // a frame which is not LLDP
+        Ethernet ip = frame(Ethernet.TYPE_IPV4, new IPv4().setSourceAddress(1).setDestinationAddress(2));
+        assertFalse(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(ip.serialize())));
+
+        // a truncated probe
+        byte[] data = frame(Ethernet.TYPE_LLDP, probe()).serialize();
+        assertFalse(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(Arrays.copyOf(data, 30))));
+        assertFalse(ONOSLLDP.isOnosProbe(ByteBuffer.wrap(Arrays.copyOf(data, 10))));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for class {@link PacketView}.
+ */
+public class PacketViewTest {
+
+    private static final MacAddress SRC_MAC = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress DST_MAC = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final int SRC_PORT = 5000;
+    private static final int DST_PORT = 6000;
+
+    private static Ethernet udpFrame(short vlan) {
+        UDP udp = new UDP();
+        udp.setSourcePort(SRC_PORT);
+        udp.setDestinationPort(DST_PORT);
+        udp.setPayload(new Data(new byte[]{1, 2, 3}));
+
+        IPv4 ip = new IPv4();
+        ip.setSourceAddress("10.0.0.1");
+        ip.setDestinationAddress("10.0.0.2");
+        ip.setProtocol(IPv4.PROTOCOL_UDP);
+        ip.setPayload(udp);
+
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(SRC_MAC);
+        eth.setDestinationMACAddress(DST_MAC);
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setVlanID(vlan);
+        eth.setPayload(ip);
+        return eth;
+    }
+
+    private void assertUdpView(PacketView view, short vlan) {
+        assertEquals("incorrect source MAC", SRC_MAC, view.sourceMac());
+        assertEquals("incorrect destination MAC", DST_MAC, view.destinationMac());
+        assertEquals("incorrect ether type", Ethernet.TYPE_IPV4, view.etherType());
+        assertEquals("incorrect VLAN", vlan, view.vlanId());
+        assertEquals("incorrect IP protocol", IPv4.PROTOCOL_UDP, view.ipProtocol());
+        assertEquals("incorrect source port", SRC_PORT, view.sourcePort());
+        assertEquals("incorrect destination port", DST_PORT, view.destinationPort());
+    }
+
+    /**
+     * Tests decoding of header fields from raw bytes.
+     */
+    @Test
+    public void rawHeaders() {
+        byte[] bytes = udpFrame(Ethernet.VLAN_UNTAGGED).serialize();
+        assertUdpView(PacketView.wrap(bytes), Ethernet.VLAN_UNTAGGED);
+
+        bytes = udpFrame((short) 10).serialize();
+        assertUdpView(PacketView.wrap(bytes), (short) 10);
+
+        // Frame at an offset within a larger buffer.
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 8);
+        buffer.position(8);
+        buffer.put(bytes);
+        buffer.position(8);
+        PacketView view = PacketView.wrap(buffer);
+        assertUdpView(view, (short) 10);
+        assertArrayEquals("incorrect bytes", bytes, view.toByteArray());
+        assertEquals("position changed", 8, buffer.position());
+    }
+
+    /**
+     * Tests decoding of header fields from a parsed frame.
+     */
+    @Test
+    public void parsedHeaders() {
+        Ethernet eth = udpFrame((short) 10);
+        PacketView view = PacketView.of(eth);
+        assertUdpView(view, (short) 10);
+        assertSame("incorrect frame", eth, view.ethernet());
+    }
+
+    /**
+     * Tests that the frame is parsed once and shared.
+     */
+    @Test
+    public void sharedParse() {
+        PacketView view = PacketView.wrap(udpFrame(Ethernet.VLAN_UNTAGGED).serialize());
+        Ethernet eth = view.ethernet();
+        assertEquals("incorrect frame", DST_MAC, eth.getDestinationMAC());
+        assertSame("frame parsed again", eth, view.ethernet());
+    }
+
+    /**
+     * Tests frames which are too short to decode.
+     */
+    @Test
+    public void truncated() {
+        PacketView view = PacketView.wrap(new byte[10]);
+        assertNull("unexpected MAC", view.destinationMac());
+        assertEquals("unexpected ether type", -1, view.etherType());
+        assertEquals("unexpected IP protocol", -1, view.ipProtocol());
+        assertEquals("unexpected port", -1, view.destinationPort());
+        assertNull("unexpected frame", view.ethernet());
+
+        // IPv4 header cut short.
+        byte[] bytes = udpFrame(Ethernet.VLAN_UNTAGGED).serialize();
+        view = PacketView.wrap(bytes, 0, 20);
+        assertEquals("incorrect ether type", Ethernet.TYPE_IPV4, view.etherType());
+        assertEquals("unexpected IP protocol", -1, view.ipProtocol());
+    }
+
+    /**
+     * Tests that non-IP frames yield no network fields.
+     */
+    @Test
+    public void nonIp() {
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(SRC_MAC);
+        eth.setDestinationMACAddress(DST_MAC);
+        eth.setEtherType(Ethernet.TYPE_ARP);
+        eth.setPayload(new Data(new byte[28]));
+        PacketView view = PacketView.wrap(eth.serialize());
+        assertEquals("incorrect ether type", Ethernet.TYPE_ARP, view.etherType());
+        assertEquals("unexpected IP protocol", -1, view.ipProtocol());
+        assertEquals("unexpected port", -1, view.sourcePort());
+    }
+}
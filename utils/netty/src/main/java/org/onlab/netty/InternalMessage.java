@@ -15,6 +15,16 @@
  */
 package org.onlab.netty;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
 import org.onlab.util.ByteArraySizeHashPrinter;
 import org.onosproject.store.cluster.messaging.Endpoint;
 
@@ -29,13 +39,53 @@ public final class InternalMessage {
     private final long id;
     private final Endpoint sender;
     private final String type;
-    private final byte[] payload;
+    private final Consumer<OutputStream> payloadWriter;
+    private volatile byte[] payload;
+    private ByteBuf buffer;
 
     public InternalMessage(long id, Endpoint sender, String type, byte[] payload) {
         this.id = id;
         this.sender = sender;
         this.type = type;
         this.payload = payload;
+        this.payloadWriter = null;
+    }
+
+    /**
+     * Creates a message whose payload is produced on demand by the given
+     * writer. When the message is sent over the wire the writer is invoked
+     * with the outbound frame so the payload is serialized straight into
+     * the pooled channel buffer.
+     *
+     * @param id message id
+     * @param sender message sender
+     * @param type message type
+     * @param payloadWriter writer of the payload
+     */
+    public InternalMessage(long id, Endpoint sender, String type, Consumer<OutputStream> payloadWriter) {
+        this.id = id;
+        this.sender = sender;
+        this.type = type;
+        this.payloadWriter = payloadWriter;
+    }
+
+    /**
+     * Creates a message whose payload is the readable region of the given
+     * inbound buffer. The message takes over the buffer, which is released
+     * by {@link #release()} or once the payload is copied out by
+     * {@link #payload()}.
+     *
+     * @param id message id
+     * @param sender message sender
+     * @param type message type
+     * @param buffer retained buffer holding the payload
+     */
+    InternalMessage(long id, Endpoint sender, String type, ByteBuf buffer) {
+        this.id = id;
+        this.sender = sender;
+        this.type = type;
+        this.buffer = buffer;
+        this.payloadWriter = null;
     }
 
     public long id() {
@@ -50,10 +100,65 @@ public final class InternalMessage {
         return sender;
     }
 
-    public byte[] payload() {
+    /**
+     * Returns the payload as a byte array, copying it out of the inbound
+     * buffer and releasing that buffer if need be.
+     *
+     * @return message payload
+     */
+    public synchronized byte[] payload() {
+        if (payload == null) {
+            if (buffer != null) {
+                byte[] bytes = new byte[buffer.readableBytes()];
+                buffer.getBytes(buffer.readerIndex(), bytes);
+                payload = bytes;
+                release();
+            } else if (payloadWriter != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                payloadWriter.accept(bytes);
+                payload = bytes.toByteArray();
+            }
+        }
         return payload;
     }
 
+    /**
+     * Returns a stream over the payload. While the payload is still held in
+     * the inbound buffer, the stream reads straight from it and is only
+     * valid until {@link #release()} is called.
+     *
+     * @return payload stream
+     */
+    synchronized InputStream payloadStream() {
+        if (buffer != null) {
+            return new ByteBufInputStream(buffer.duplicate());
+        }
+        return new ByteArrayInputStream(payload());
+    }
+
+    /**
+     * Releases the inbound buffer held by this message, if any.
+     */
+    synchronized void release() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+
+    /**
+     * Appends the payload of this message to the given buffer.
+     *
+     * @param out buffer to write to
+     */
+    void writePayload(ByteBuf out) {
+        if (payload == null && payloadWriter != null) {
+            payloadWriter.accept(new ByteBufOutputStream(out));
+        } else {
+            out.writeBytes(payload());
+        }
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -93,9 +93,9 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             contentLength = buffer.readInt();
             checkpoint(DecoderState.READ_CONTENT);
         case READ_CONTENT:
-            //TODO Perform a sanity check on the size before allocating
-            byte[] payload = new byte[contentLength];
-            buffer.readBytes(payload);
+            // hand the payload on as a retained slice of the inbound buffer;
+            // the message releases it once the payload has been consumed
+            ByteBuf payload = buffer.readSlice(contentLength).retain();
             InternalMessage message = new InternalMessage(messageId,
                     new Endpoint(senderIp, senderPort),
                     messageType,
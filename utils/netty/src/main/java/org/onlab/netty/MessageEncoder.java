@@ -77,13 +77,13 @@ public class MessageEncoder extends MessageToByteEncoder<InternalMessage> {
         // write message type bytes
         out.writeBytes(messageTypeBytes);
 
-        byte[] payload = message.payload();
-
-        // write payload length
-        out.writeInt(payload.length);
+        // reserve payload length; it is filled in once the payload is written
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
 
         // write payload.
-        out.writeBytes(payload);
+        message.writePayload(out);
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - Integer.BYTES);
     }
 
     @Override
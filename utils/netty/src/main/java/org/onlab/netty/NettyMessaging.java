@@ -56,6 +56,8 @@ import javax.net.ssl.TrustManagerFactory;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.KeyStore;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -167,6 +169,23 @@ public class NettyMessaging implements MessagingService {
         return sendAsync(ep, message);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The payload is written directly into the pooled outbound frame. The
+     * writer is invoked on the channel I/O thread, so anything it references
+     * must not change after this call.
+     * </p>
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(Endpoint ep, String type, Consumer<OutputStream> payloadWriter) {
+        InternalMessage message = new InternalMessage(messageIdGenerator.incrementAndGet(),
+                                                      localEp,
+                                                      type,
+                                                      payloadWriter);
+        return sendAsync(ep, message);
+    }
+
     protected CompletableFuture<Void> sendAsync(Endpoint ep, InternalMessage message) {
         if (ep.equals(localEp)) {
             try {
@@ -212,48 +231,126 @@ public class NettyMessaging implements MessagingService {
         }).thenCompose(v -> response);
     }
 
+    @Override
+    public CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type,
+                                                    Consumer<OutputStream> payloadWriter) {
+        return sendAndReceive(ep, type, payloadWriter, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Sends a message and expects a reply, writing the payload directly into
+     * the pooled outbound frame.
+     *
+     * @param ep end point to send the message to
+     * @param type type of message
+     * @param payloadWriter writer of the message payload
+     * @param executor executor over which any follow up actions after completion will be executed
+     * @return a response future
+     * @see #sendAsync(Endpoint, String, Consumer)
+     */
+    public CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type,
+                                                    Consumer<OutputStream> payloadWriter,
+                                                    Executor executor) {
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        Callback callback = new Callback(response, executor);
+        Long messageId = messageIdGenerator.incrementAndGet();
+        callbacks.put(messageId, callback);
+        InternalMessage message = new InternalMessage(messageId, localEp, type, payloadWriter);
+        return sendAsync(ep, message).whenComplete((r, e) -> {
+            if (e != null) {
+                callbacks.invalidate(messageId);
+            }
+        }).thenCompose(v -> response);
+    }
+
     @Override
     public void registerHandler(String type, BiConsumer<Endpoint, byte[]> handler, Executor executor) {
-        handlers.put(type, message -> executor.execute(() -> handler.accept(message.sender(), message.payload())));
+        handlers.put(type, message -> {
+            byte[] payload = message.payload();
+            executor.execute(() -> handler.accept(message.sender(), payload));
+        });
     }
 
     @Override
     public void registerHandler(String type, BiFunction<Endpoint, byte[], byte[]> handler, Executor executor) {
+        handlers.put(type, message -> {
+            byte[] payload = message.payload();
+            executor.execute(() -> {
+                byte[] responsePayload = handler.apply(message.sender(), payload);
+                if (responsePayload != null) {
+                    reply(message, responsePayload);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void registerHandler(String type, BiFunction<Endpoint, byte[], CompletableFuture<byte[]>> handler) {
+        handlers.put(type, message -> {
+            handler.apply(message.sender(), message.payload()).whenComplete((result, error) -> {
+                if (error == null) {
+                    reply(message, result);
+                }
+            });
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The handler reads the payload straight from the pooled inbound buffer,
+     * which is released once the handler returns.
+     * </p>
+     */
+    @Override
+    public void registerStreamHandler(String type, BiConsumer<Endpoint, InputStream> handler, Executor executor) {
         handlers.put(type, message -> executor.execute(() -> {
-            byte[] responsePayload = handler.apply(message.sender(), message.payload());
-            if (responsePayload != null) {
-                InternalMessage response = new InternalMessage(message.id(),
-                        localEp,
-                        REPLY_MESSAGE_TYPE,
-                        responsePayload);
-                sendAsync(message.sender(), response).whenComplete((result, error) -> {
-                    if (error != null) {
-                        log.debug("Failed to respond", error);
-                    }
-                });
+            try {
+                handler.accept(message.sender(), message.payloadStream());
+            } finally {
+                message.release();
             }
         }));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The handler reads the payload straight from the pooled inbound buffer,
+     * which is released once the handler returns.
+     * </p>
+     */
     @Override
-    public void registerHandler(String type, BiFunction<Endpoint, byte[], CompletableFuture<byte[]>> handler) {
+    public void registerStreamHandler(String type,
+                                      BiFunction<Endpoint, InputStream, CompletableFuture<byte[]>> handler) {
         handlers.put(type, message -> {
-            handler.apply(message.sender(), message.payload()).whenComplete((result, error) -> {
+            CompletableFuture<byte[]> future;
+            try {
+                future = handler.apply(message.sender(), message.payloadStream());
+            } finally {
+                message.release();
+            }
+            future.whenComplete((result, error) -> {
                 if (error == null) {
-                    InternalMessage response = new InternalMessage(message.id(),
-                                                                   localEp,
-                                                                   REPLY_MESSAGE_TYPE,
-                                                                   result);
-                    sendAsync(message.sender(), response).whenComplete((r, e) -> {
-                        if (e != null) {
-                            log.debug("Failed to respond", e);
-                        }
-                    });
+                    reply(message, result);
                 }
             });
         });
     }
 
+    // Sends the response to the given request back to its sender.
+    private void reply(InternalMessage request, byte[] payload) {
+        InternalMessage response = new InternalMessage(request.id(),
+                                                       localEp,
+                                                       REPLY_MESSAGE_TYPE,
+                                                       payload);
+        sendAsync(request.sender(), response).whenComplete((result, error) -> {
+            if (error != null) {
+                log.debug("Failed to respond", error);
+            }
+        });
+    }
+
     @Override
     public void unregisterHandler(String type) {
         handlers.remove(type);
@@ -463,13 +560,21 @@ public class NettyMessaging implements MessagingService {
                 }
             } finally {
                 callbacks.invalidate(message.id());
+                message.release();
             }
             return;
         }
         Consumer<InternalMessage> handler = handlers.get(type);
         if (handler != null) {
-            handler.accept(message);
+            try {
+                handler.accept(message);
+            } catch (RuntimeException e) {
+                // the handler never took over the inbound buffer
+                message.release();
+                throw e;
+            }
         } else {
+            message.release();
             log.debug("No handler registered for {}", type);
         }
     }
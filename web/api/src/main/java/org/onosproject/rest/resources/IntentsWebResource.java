@@ -20,14 +20,18 @@ import java.io.InputStream;
 import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -38,6 +42,7 @@ import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.intent.HostToHostIntent;
 import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.IntentData;
 import org.onosproject.net.intent.IntentEvent;
 import org.onosproject.net.intent.IntentListener;
 import org.onosproject.net.intent.IntentService;
@@ -49,6 +54,7 @@ import org.slf4j.Logger;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.onlab.util.Tools.nullIsNotFound;
 import static org.onosproject.net.intent.IntentState.FAILED;
 import static org.onosproject.net.intent.IntentState.WITHDRAWN;
@@ -66,17 +72,44 @@ public class IntentsWebResource extends AbstractWebResource {
     private static final int WITHDRAW_EVENT_TIMEOUT_SECONDS = 5;
 
     public static final String INTENT_NOT_FOUND = "Intent is not found";
+    public static final String APP_NOT_FOUND = "Application is not found";
+    public static final String INVALID_OFFSET = "Offset cannot be negative";
+    public static final String INVALID_LIMIT = "Limit cannot be negative";
+
+    private static final String NO_LIMIT = "" + Integer.MAX_VALUE;
 
     /**
      * Get all intents.
-     * Returns array containing all the intents in the system.
+     * Returns array containing all the intents in the system. The intents
+     * can optionally be restricted to those of one application and fetched
+     * one page at a time.
      * @onos.rsModel Intents
-     * @return array of all the intents in the system
+     * @param appId  name of the application whose intents to return (optional)
+     * @param offset number of intents to skip (optional)
+     * @param limit  maximum number of intents to return (optional)
+     * @return array of the intents in the system; BAD_REQUEST if the offset
+     * or the limit is negative
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getIntents() {
-        final Iterable<Intent> intents = get(IntentService.class).getIntents();
+    public Response getIntents(@QueryParam("appId") String appId,
+                               @DefaultValue("0") @QueryParam("offset") int offset,
+                               @DefaultValue(NO_LIMIT) @QueryParam("limit") int limit) {
+        checkArgument(offset >= 0, INVALID_OFFSET);
+        checkArgument(limit >= 0, INVALID_LIMIT);
+        IntentService service = get(IntentService.class);
+        final Iterable<Intent> intents;
+        if (appId == null && offset == 0 && limit == Integer.MAX_VALUE) {
+            intents = service.getIntents();
+        } else {
+            ApplicationId app = appId == null ? null :
+                    nullIsNotFound(get(CoreService.class).getAppId(appId), APP_NOT_FOUND);
+            Predicate<IntentData> filter = data -> app == null || app.equals(data.intent().appId());
+            intents = service.getIntentData(filter, offset, limit)
+                    .stream()
+                    .map(IntentData::intent)
+                    .collect(Collectors.toList());
+        }
         final ObjectNode root = encodeArray(Intent.class, "intents", intents);
         return ok(root).build();
     }
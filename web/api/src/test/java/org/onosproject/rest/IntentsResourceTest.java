@@ -19,9 +19,11 @@ import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
+import com.google.common.collect.ImmutableList;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
+import org.easymock.Capture;
 import org.hamcrest.Description;
 import org.hamcrest.Matchers;
 import org.hamcrest.TypeSafeMatcher;
@@ -37,20 +39,24 @@ import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.core.DefaultApplicationId;
 import org.onosproject.core.IdGenerator;
+import org.onosproject.net.NetTestTools;
 import org.onosproject.net.NetworkResource;
 import org.onosproject.net.intent.FakeIntentManager;
 import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.IntentData;
 import org.onosproject.net.intent.IntentService;
 import org.onosproject.net.intent.IntentState;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.MockIdGenerator;
 import org.onosproject.rest.resources.CoreWebApplication;
+import org.onosproject.store.service.WallClockTimestamp;
 
 import javax.ws.rs.core.MediaType;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.function.Predicate;
 
 import static org.easymock.EasyMock.*;
 import static org.hamcrest.Matchers.*;
@@ -308,6 +314,93 @@ public class IntentsResourceTest extends ResourceTest {
         assertThat(jsonIntents, hasIntent(intent2));
     }
 
+    /**
+     * Tests the result of the rest api GET for a page of the intents.
+     */
+    @Test
+    public void testIntentsPage() {
+        final Intent intent = new MockIntent(4L, Collections.emptyList());
+        expect(mockIntentService.getIntentData(anyObject(), eq(1), eq(1)))
+                .andReturn(ImmutableList.of(new IntentData(intent, IntentState.INSTALLED,
+                                                           new WallClockTimestamp())))
+                .once();
+        replay(mockIntentService);
+
+        final WebResource rs = resource();
+        final String response = rs.path("intents")
+                .queryParam("offset", "1")
+                .queryParam("limit", "1")
+                .get(String.class);
+
+        final JsonArray jsonIntents = Json.parse(response).asObject().get("intents").asArray();
+        assertThat(jsonIntents.size(), is(1));
+        assertThat(jsonIntents, hasIntent(intent));
+    }
+
+    /**
+     * Tests that the intents returned by the rest api GET are restricted to
+     * those of the requested application.
+     */
+    @Test
+    public void testIntentsOfApp() {
+        final Intent intent = new MockIntent(5L, Collections.emptyList());
+        final IntentData data = new IntentData(intent, IntentState.INSTALLED,
+                                               new WallClockTimestamp());
+        final ApplicationId otherApp = new DefaultApplicationId(2, "other");
+        final Capture<Predicate<IntentData>> appFilter = new Capture<>();
+        final Capture<Predicate<IntentData>> otherAppFilter = new Capture<>();
+
+        expect(mockCoreService.getAppId(NetTestTools.APP_ID.name()))
+                .andReturn(NetTestTools.APP_ID).once();
+        expect(mockCoreService.getAppId(otherApp.name()))
+                .andReturn(otherApp).once();
+        expect(mockCoreService.getAppId("unknown"))
+                .andReturn(null).once();
+        replay(mockCoreService);
+        expect(mockIntentService.getIntentData(capture(appFilter), eq(0), eq(Integer.MAX_VALUE)))
+                .andReturn(ImmutableList.of(data)).once();
+        expect(mockIntentService.getIntentData(capture(otherAppFilter), eq(0), eq(Integer.MAX_VALUE)))
+                .andReturn(ImmutableList.of()).once();
+        replay(mockIntentService);
+
+        final WebResource rs = resource();
+        String response = rs.path("intents")
+                .queryParam("appId", NetTestTools.APP_ID.name())
+                .get(String.class);
+        assertThat(Json.parse(response).asObject().get("intents").asArray(), hasIntent(intent));
+        assertThat(appFilter.getValue().test(data), is(true));
+
+        response = rs.path("intents")
+                .queryParam("appId", otherApp.name())
+                .get(String.class);
+        assertThat(response, is("{\"intents\":[]}"));
+        assertThat(otherAppFilter.getValue().test(data), is(false));
+
+        ClientResponse notFound = rs.path("intents")
+                .queryParam("appId", "unknown")
+                .get(ClientResponse.class);
+        assertThat(notFound.getStatus(), is(HttpURLConnection.HTTP_NOT_FOUND));
+    }
+
+    /**
+     * Tests that a negative offset or limit is rejected as a bad request.
+     */
+    @Test
+    public void testBadPage() {
+        replay(mockIntentService);
+
+        final WebResource rs = resource();
+        ClientResponse response = rs.path("intents")
+                .queryParam("offset", "-1")
+                .get(ClientResponse.class);
+        assertThat(response.getStatus(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+
+        response = rs.path("intents")
+                .queryParam("limit", "-1")
+                .get(ClientResponse.class);
+        assertThat(response.getStatus(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    }
+
     /**
      * Tests the result of a rest api GET for a single intent.
      */
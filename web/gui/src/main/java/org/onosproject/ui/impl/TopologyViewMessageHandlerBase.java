@@ -176,7 +176,8 @@ public abstract class TopologyViewMessageHandlerBase extends UiMessageHandler {
         servicesBundle = new ServicesBundle(intentService, deviceService,
                                             hostService, linkService,
                                             flowService,
-                                            flowStatsService, portStatsService);
+                                            flowStatsService, portStatsService,
+                                            mastershipService);
 
         String ver = directory.get(CoreService.class).version().toString();
         version = ver.replace(".SNAPSHOT", "*").replaceFirst("~.*$", "");
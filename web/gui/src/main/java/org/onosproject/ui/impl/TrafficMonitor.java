@@ -26,6 +26,8 @@ import org.onosproject.net.HostId;
 import org.onosproject.net.Link;
 import org.onosproject.net.PortNumber;
 import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
 import org.onosproject.net.flow.TrafficTreatment;
 import org.onosproject.net.flow.instructions.Instruction;
 import org.onosproject.net.flow.instructions.Instructions.OutputInstruction;
@@ -53,7 +55,6 @@ import org.onosproject.ui.topo.TopoUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -63,6 +64,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.onosproject.net.DefaultEdgeLink.createEdgeLink;
 import static org.onosproject.ui.impl.TrafficMonitor.Mode.*;
@@ -75,6 +77,9 @@ public class TrafficMonitor {
     // 4 Kilo Bytes as threshold
     private static final double BPS_THRESHOLD = 4 * TopoUtils.KILO;
 
+    // Maximum number of traffic task runs skipped after a slow run
+    private static final int MAX_SKIPPED_RUNS = 5;
+
     private static final Logger log =
             LoggerFactory.getLogger(TrafficMonitor.class);
 
@@ -99,6 +104,15 @@ public class TrafficMonitor {
 
     private TimerTask trafficTask = null;
     private Mode mode = IDLE;
+
+    // Output port => number of flow entries egressing there, per locally
+    // mastered device; entries are recomputed once the flows of the device
+    // changed. Flow rule events are only raised on the master of a device,
+    // so counts of other devices are not cached.
+    private final Map<DeviceId, Map<PortNumber, Integer>> flowCounts =
+            new ConcurrentHashMap<>();
+    private final Set<DeviceId> staleFlowCounts = ConcurrentHashMap.newKeySet();
+    private final FlowRuleListener flowListener = new InternalFlowListener();
     private NodeSelection selectedNodes = null;
     private IntentSelection selectedIntents = null;
 
@@ -309,6 +323,7 @@ public class TrafficMonitor {
         if (trafficTask == null) {
             log.debug("Starting up background traffic task...");
             trafficTask = new TrafficUpdateTask();
+            servicesBundle.flowService().addListener(flowListener);
             timer.schedule(trafficTask, trafficPeriod, trafficPeriod);
         } else {
             log.debug("(traffic task already running)");
@@ -319,6 +334,9 @@ public class TrafficMonitor {
         if (trafficTask != null) {
             trafficTask.cancel();
             trafficTask = null;
+            servicesBundle.flowService().removeListener(flowListener);
+            flowCounts.clear();
+            staleFlowCounts.clear();
         }
     }
 
@@ -499,12 +517,21 @@ public class TrafficMonitor {
     }
 
     // Counts all flow entries that egress on the links of the given device.
-    private Map<Link, Integer> getLinkFlowCounts(DeviceId deviceId) {
-        // get the flows for the device
-        List<FlowEntry> entries = new ArrayList<>();
-        for (FlowEntry flowEntry : servicesBundle.flowService()
-                                            .getFlowEntries(deviceId)) {
-            entries.add(flowEntry);
+    Map<Link, Integer> getLinkFlowCounts(DeviceId deviceId) {
+        // get the per-port flow counts for the device; for locally mastered
+        // devices these are only recomputed after the flows of the device
+        // changed. The stale mark is cleared before walking the flows, so
+        // that a change made during the walk is picked up by the next run.
+        Map<PortNumber, Integer> portCounts;
+        if (!servicesBundle.mastershipService().isLocalMaster(deviceId)) {
+            flowCounts.remove(deviceId);
+            portCounts = getEgressFlows(deviceId);
+        } else {
+            portCounts = flowCounts.get(deviceId);
+            if (staleFlowCounts.remove(deviceId) || portCounts == null) {
+                portCounts = getEgressFlows(deviceId);
+                flowCounts.put(deviceId, portCounts);
+            }
         }
 
         // get egress links from device, and include edge links
@@ -520,25 +547,23 @@ public class TrafficMonitor {
         // compile flow counts per link
         Map<Link, Integer> counts = new HashMap<>();
         for (Link link : links) {
-            counts.put(link, getEgressFlows(link, entries));
+            counts.put(link, portCounts.getOrDefault(link.src().port(), 0));
         }
         return counts;
     }
 
-    // Counts all entries that egress on the link source port.
-    private int getEgressFlows(Link link, List<FlowEntry> entries) {
-        int count = 0;
-        PortNumber out = link.src().port();
-        for (FlowEntry entry : entries) {
+    // Counts the entries of the given device that egress on each port.
+    private Map<PortNumber, Integer> getEgressFlows(DeviceId deviceId) {
+        Map<PortNumber, Integer> counts = new HashMap<>();
+        for (FlowEntry entry : servicesBundle.flowService().getFlowEntries(deviceId)) {
             TrafficTreatment treatment = entry.treatment();
             for (Instruction instruction : treatment.allInstructions()) {
-                if (instruction.type() == Instruction.Type.OUTPUT &&
-                        ((OutputInstruction) instruction).port().equals(out)) {
-                    count++;
+                if (instruction.type() == Instruction.Type.OUTPUT) {
+                    counts.merge(((OutputInstruction) instruction).port(), 1, Integer::sum);
                 }
             }
         }
-        return count;
+        return counts;
     }
 
     private void highlightIntentLinks(Highlights highlights,
@@ -640,10 +665,76 @@ public class TrafficMonitor {
     // =======================================================================
     // === Background Task
 
-    // Provides periodic update of traffic information to the client
+    // Marks the cached flow counts of devices whose flows changed as stale;
+    // the counts themselves are only recomputed by the traffic task
+    private class InternalFlowListener implements FlowRuleListener {
+        @Override
+        public void event(FlowRuleEvent event) {
+            // updates only carry new statistics, not new treatments
+            if (event.type() != FlowRuleEvent.Type.RULE_UPDATED) {
+                staleFlowCounts.add(event.subject().deviceId());
+            }
+        }
+    }
+
+    /**
+     * Paces the traffic task. A run which takes more than half the period
+     * causes up to {@value #MAX_SKIPPED_RUNS} subsequent runs to be skipped.
+     */
+    static final class Backoff {
+        private final long period;
+        private int skipped = 0;
+        private int toSkip = 0;
+
+        /**
+         * Creates a backoff for a task run at the given period.
+         *
+         * @param period task period in ms
+         */
+        Backoff(long period) {
+            this.period = period;
+        }
+
+        /**
+         * Returns whether the next run should be skipped, counting it as
+         * skipped if so.
+         *
+         * @return true if the run should be skipped
+         */
+        boolean skip() {
+            if (skipped < toSkip) {
+                skipped++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Records the duration of a completed run.
+         *
+         * @param elapsed duration of the run in ms
+         * @return number of runs to skip next
+         */
+        int completed(long elapsed) {
+            skipped = 0;
+            toSkip = (int) Math.min(MAX_SKIPPED_RUNS, 2 * elapsed / period);
+            return toSkip;
+        }
+    }
+
+    // Provides periodic update of traffic information to the client.
+    // Runs which take more than half the period, either computing the
+    // traffic or pushing it to a client that is slow to drain its socket,
+    // cause subsequent runs to be skipped to let the controller catch up.
     private class TrafficUpdateTask extends TimerTask {
+        private final Backoff backoff = new Backoff(trafficPeriod);
+
         @Override
         public void run() {
+            if (backoff.skip()) {
+                return;
+            }
+            long start = System.currentTimeMillis();
             try {
                 switch (mode) {
                     case ALL_FLOW_TRAFFIC:
@@ -670,6 +761,11 @@ public class TrafficMonitor {
                 log.warn("Unable to process traffic task due to {}", e.getMessage());
                 log.warn("Boom!", e);
             }
+            long elapsed = System.currentTimeMillis() - start;
+            int toSkip = backoff.completed(elapsed);
+            if (toSkip > 0) {
+                log.debug("Traffic task took {} ms; skipping {} runs", elapsed, toSkip);
+            }
         }
     }
 }
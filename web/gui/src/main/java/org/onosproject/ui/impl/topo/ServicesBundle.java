@@ -18,6 +18,7 @@
 package org.onosproject.ui.impl.topo;
 
 import org.onosproject.incubator.net.PortStatisticsService;
+import org.onosproject.mastership.MastershipService;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.FlowRuleService;
 import org.onosproject.net.host.HostService;
@@ -39,6 +40,7 @@ public class ServicesBundle {
     private final FlowRuleService flowService;
     private final StatisticService flowStatsService;
     private final PortStatisticsService portStatsService;
+    private final MastershipService mastershipService;
 
     /**
      * Creates the services bundle.
@@ -50,6 +52,7 @@ public class ServicesBundle {
      * @param flowService       flow service reference
      * @param flowStatsService  flow statistics service reference
      * @param portStatsService  port statistics service reference
+     * @param mastershipService mastership service reference
      */
     public ServicesBundle(IntentService intentService,
                           DeviceService deviceService,
@@ -57,7 +60,8 @@ public class ServicesBundle {
                           LinkService linkService,
                           FlowRuleService flowService,
                           StatisticService flowStatsService,
-                          PortStatisticsService portStatsService) {
+                          PortStatisticsService portStatsService,
+                          MastershipService mastershipService) {
         this.intentService = checkNotNull(intentService);
         this.deviceService = checkNotNull(deviceService);
         this.hostService = checkNotNull(hostService);
@@ -65,6 +69,7 @@ public class ServicesBundle {
         this.flowService = checkNotNull(flowService);
         this.flowStatsService = checkNotNull(flowStatsService);
         this.portStatsService = checkNotNull(portStatsService);
+        this.mastershipService = checkNotNull(mastershipService);
     }
 
     /**
@@ -129,4 +134,13 @@ public class ServicesBundle {
     public PortStatisticsService portStatsService() {
         return portStatsService;
     }
+
+    /**
+     * Returns a reference to the mastership service.
+     *
+     * @return mastership service reference
+     */
+    public MastershipService mastershipService() {
+        return mastershipService;
+    }
 }
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ui.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.junit.TestUtils;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.MastershipRole;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.device.DeviceServiceAdapter;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleEvent;
+import org.onosproject.net.flow.FlowRuleListener;
+import org.onosproject.net.flow.FlowRuleServiceAdapter;
+import org.onosproject.net.host.HostServiceAdapter;
+import org.onosproject.net.intent.IntentServiceAdapter;
+import org.onosproject.net.link.LinkServiceAdapter;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.statistic.StatisticServiceAdapter;
+import org.onosproject.ui.impl.topo.ServicesBundle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.flow.FlowRuleEvent.Type.RULE_ADDED;
+import static org.onosproject.net.flow.FlowRuleEvent.Type.RULE_UPDATED;
+
+/**
+ * Unit tests for the flow count cache and the backoff of the traffic monitor.
+ */
+public class TrafficMonitorTest {
+
+    private static final long PERIOD = 1000;
+
+    private static final DeviceId DID = DeviceId.deviceId("of:1");
+    private static final PortNumber P1 = PortNumber.portNumber(1);
+    private static final PortNumber P2 = PortNumber.portNumber(2);
+
+    private final TestFlowRuleService flowService = new TestFlowRuleService();
+    private final TestMastershipService mastershipService = new TestMastershipService();
+    private TrafficMonitor monitor;
+    private Link link1;
+    private Link link2;
+
+    @Before
+    public void setUp() {
+        link1 = link(P1);
+        link2 = link(P2);
+        ServicesBundle services = new ServicesBundle(new IntentServiceAdapter(),
+                                                     new DeviceServiceAdapter(),
+                                                     new HostServiceAdapter(),
+                                                     new TestLinkService(),
+                                                     flowService,
+                                                     new StatisticServiceAdapter(),
+                                                     cp -> null,
+                                                     mastershipService);
+        monitor = new TrafficMonitor(PERIOD, services, null);
+    }
+
+    private static Link link(PortNumber port) {
+        return DefaultLink.builder()
+                .providerId(ProviderId.NONE)
+                .src(new ConnectPoint(DID, port))
+                .dst(new ConnectPoint(DeviceId.deviceId("of:2"), port))
+                .type(Link.Type.DIRECT)
+                .build();
+    }
+
+    private static FlowEntry flow(int priority, PortNumber port) {
+        FlowRule rule = DefaultFlowRule.builder()
+                .forDevice(DID)
+                .fromApp(new DefaultApplicationId(1, "test"))
+                .withSelector(DefaultTrafficSelector.emptySelector())
+                .withTreatment(DefaultTrafficTreatment.builder().setOutput(port).build())
+                .withPriority(priority)
+                .makePermanent()
+                .build();
+        return new DefaultFlowEntry(rule);
+    }
+
+    private void post(FlowRuleEvent.Type type) throws TestUtils.TestUtilsException {
+        FlowRuleListener listener = TestUtils.getField(monitor, "flowListener");
+        listener.event(new FlowRuleEvent(type, flowService.entries.get(0)));
+    }
+
+    /**
+     * Tests that flow counts are served from the cache until the flows of
+     * the device change.
+     */
+    @Test
+    public void flowCountsCached() throws TestUtils.TestUtilsException {
+        flowService.entries.add(flow(10, P1));
+        flowService.entries.add(flow(11, P1));
+        flowService.entries.add(flow(12, P2));
+
+        Map<Link, Integer> counts = monitor.getLinkFlowCounts(DID);
+        assertEquals(2, (int) counts.get(link1));
+        assertEquals(1, (int) counts.get(link2));
+        assertEquals(1, flowService.walks);
+
+        monitor.getLinkFlowCounts(DID);
+        assertEquals(1, flowService.walks);
+
+        // statistics updates leave the treatments, and so the counts, alone
+        post(RULE_UPDATED);
+        monitor.getLinkFlowCounts(DID);
+        assertEquals(1, flowService.walks);
+
+        flowService.entries.add(flow(13, P2));
+        post(RULE_ADDED);
+        counts = monitor.getLinkFlowCounts(DID);
+        assertEquals(2, (int) counts.get(link2));
+        assertEquals(2, flowService.walks);
+    }
+
+    /**
+     * Tests that flow counts of devices mastered elsewhere, whose flow rule
+     * events are not seen locally, are recomputed on every run.
+     */
+    @Test
+    public void flowCountsNotCachedWithoutMastership() {
+        mastershipService.role = MastershipRole.STANDBY;
+        flowService.entries.add(flow(10, P1));
+
+        Map<Link, Integer> counts = monitor.getLinkFlowCounts(DID);
+        assertEquals(1, (int) counts.get(link1));
+        assertEquals(1, flowService.walks);
+
+        // no event reaches this node, yet the new flow is counted
+        flowService.entries.add(flow(11, P1));
+        counts = monitor.getLinkFlowCounts(DID);
+        assertEquals(2, (int) counts.get(link1));
+        assertEquals(2, flowService.walks);
+
+        // once mastered locally, the counts are cached again
+        mastershipService.role = MastershipRole.MASTER;
+        monitor.getLinkFlowCounts(DID);
+        monitor.getLinkFlowCounts(DID);
+        assertEquals(3, flowService.walks);
+    }
+
+    /**
+     * Tests that a change seen while the flows are walked is not lost.
+     */
+    @Test
+    public void changeDuringWalk() throws TestUtils.TestUtilsException {
+        flowService.entries.add(flow(10, P1));
+        flowService.onWalk = () -> {
+            flowService.onWalk = null;
+            flowService.entries.add(flow(11, P1));
+            post(RULE_ADDED);
+        };
+
+        monitor.getLinkFlowCounts(DID);
+        Map<Link, Integer> counts = monitor.getLinkFlowCounts(DID);
+        assertEquals(2, (int) counts.get(link1));
+        assertEquals(2, flowService.walks);
+    }
+
+    /**
+     * Tests that runs are skipped after a slow run, up to a limit.
+     */
+    @Test
+    public void backoff() {
+        TrafficMonitor.Backoff backoff = new TrafficMonitor.Backoff(PERIOD);
+        assertFalse(backoff.skip());
+
+        // a fast run skips nothing
+        assertEquals(0, backoff.completed(PERIOD / 2 - 1));
+        assertFalse(backoff.skip());
+
+        // a run taking a full period skips the next two
+        assertEquals(2, backoff.completed(PERIOD));
+        assertTrue(backoff.skip());
+        assertTrue(backoff.skip());
+        assertFalse(backoff.skip());
+
+        // a very slow run skips at most five
+        assertEquals(5, backoff.completed(100 * PERIOD));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(backoff.skip());
+        }
+        assertFalse(backoff.skip());
+    }
+
+    private interface Walk {
+        void run() throws TestUtils.TestUtilsException;
+    }
+
+    private static class TestFlowRuleService extends FlowRuleServiceAdapter {
+        final List<FlowEntry> entries = new ArrayList<>();
+        int walks = 0;
+        Walk onWalk;
+
+        @Override
+        public Iterable<FlowEntry> getFlowEntries(DeviceId deviceId) {
+            walks++;
+            List<FlowEntry> snapshot = new ArrayList<>(entries);
+            if (onWalk != null) {
+                try {
+                    onWalk.run();
+                } catch (TestUtils.TestUtilsException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    private static class TestMastershipService extends MastershipServiceAdapter {
+        MastershipRole role = MastershipRole.MASTER;
+
+        @Override
+        public MastershipRole getLocalRole(DeviceId deviceId) {
+            return role;
+        }
+    }
+
+    private class TestLinkService extends LinkServiceAdapter {
+        @Override
+        public Set<Link> getDeviceEgressLinks(DeviceId deviceId) {
+            return ImmutableSet.of(link1, link2);
+        }
+    }
+}